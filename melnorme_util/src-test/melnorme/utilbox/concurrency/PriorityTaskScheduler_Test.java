@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.concurrency;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.LatencyHistogram;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.ScheduledTask;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.TaskCategory;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.tests.CommonTest;
+
+public class PriorityTaskScheduler_Test extends CommonTest {
+	
+	protected static final TaskCategory INTERACTIVE = new TaskCategory("interactive", 0, 1);
+	protected static final TaskCategory BACKGROUND = new TaskCategory("background", 1, 1);
+	
+	protected static PriorityTaskScheduler createScheduler(int maxThreads) {
+		return new PriorityTaskScheduler("PriorityTaskScheduler_Test", maxThreads, (throwable) -> {
+			throw new AssertionError(throwable);
+		});
+	}
+	
+	@Test
+	public void testPriority() throws Exception { testPriority$(); }
+	public void testPriority$() throws Exception {
+		PriorityTaskScheduler scheduler = createScheduler(1);
+		try(LatchRunnable blocker = new LatchRunnable(true)) {
+			ArrayList2<String> runOrder = new ArrayList2<>();
+			
+			scheduler.submit(BACKGROUND, null, (cm) -> { blocker.run(); return null; }, null);
+			blocker.awaitTaskEntry();
+			
+			ScheduledTask<Object> bg = scheduler.submit(BACKGROUND, null, (cm) -> addTo(runOrder, "bg"), null);
+			ScheduledTask<Object> int1 = scheduler.submit(INTERACTIVE, null, (cm) -> addTo(runOrder, "int1"), null);
+			ScheduledTask<Object> int2 = scheduler.submit(INTERACTIVE, null, (cm) -> addTo(runOrder, "int2"), null);
+			
+			blocker.releaseAll();
+			bg.awaitTermination();
+			int1.awaitTermination();
+			int2.awaitTermination();
+			
+			assertAreEqual(runOrder, ArrayList2.create("int1", "int2", "bg"));
+			assertTrue(scheduler.getStats(INTERACTIVE).totalLatency.getCount() == 2);
+			assertTrue(scheduler.getStats(BACKGROUND).totalLatency.getCount() == 2);
+		} finally {
+			scheduler.dispose();
+		}
+	}
+	
+	protected static Object addTo(ArrayList2<String> list, String entry) {
+		synchronized(list) {
+			list.add(entry);
+		}
+		return null;
+	}
+	
+	@Test
+	public void testCategoryLimit() throws Exception { testCategoryLimit$(); }
+	public void testCategoryLimit$() throws Exception {
+		PriorityTaskScheduler scheduler = createScheduler(2);
+		try(LatchRunnable bgBlocker = new LatchRunnable(true)) {
+			scheduler.submit(BACKGROUND, null, (cm) -> { bgBlocker.run(); return null; }, null);
+			bgBlocker.awaitTaskEntry();
+			
+			// Background is at its limit, but there is still a thread available for interactive tasks
+			ScheduledTask<Object> bg = scheduler.submit(BACKGROUND, null, (cm) -> null, null);
+			ScheduledTask<String> interactive = scheduler.submit(INTERACTIVE, null, (cm) -> "done", null);
+			
+			assertAreEqual(interactive.awaitResult().get(), "done");
+			assertTrue(bg.isTerminated() == false);
+			
+			bgBlocker.releaseAll();
+			bg.awaitTermination();
+			assertTrue(bg.isCompletedSuccessfully());
+		} finally {
+			scheduler.dispose();
+		}
+	}
+	
+	@Test
+	public void testSupersede() throws Exception { testSupersede$(); }
+	public void testSupersede$() throws Exception {
+		PriorityTaskScheduler scheduler = createScheduler(1);
+		try {
+			CountDownLatch entryLatch = new CountDownLatch(1);
+			CountDownLatch exitLatch = new CountDownLatch(1);
+			ScheduledTask<String> running = scheduler.submit(INTERACTIVE, "key", (cm) -> {
+				entryLatch.countDown();
+				// Hold the only thread until all tasks are submitted, so that queued tasks don't start yet
+				awaitUninterruptibly(exitLatch);
+				cm.checkCancellation();
+				return "running";
+			}, null);
+			entryLatch.await();
+			
+			ScheduledTask<String> queued = scheduler.submit(INTERACTIVE, "key", (cm) -> "queued", null);
+			ScheduledTask<String> other = scheduler.submit(INTERACTIVE, "other", (cm) -> "other", null);
+			ScheduledTask<String> last = scheduler.submit(INTERACTIVE, "key", (cm) -> "last", null);
+			
+			assertTrue(running.isCancelled());
+			assertTrue(queued.isCancelled());
+			exitLatch.countDown();
+			
+			assertAreEqual(other.awaitResult().get(), "other");
+			assertAreEqual(last.awaitResult().get(), "last");
+			assertTrue(scheduler.getStats(INTERACTIVE).supersededCount.get() == 2);
+			
+			try {
+				running.awaitResult();
+				assertFail();
+			} catch(OperationCancellation e) {
+			}
+		} finally {
+			scheduler.dispose();
+		}
+	}
+	
+	protected static void awaitUninterruptibly(CountDownLatch latch) {
+		while(true) {
+			try {
+				latch.await();
+				return;
+			} catch(InterruptedException e) {
+			}
+		}
+	}
+	
+	@Test
+	public void testRunAndAwait() throws Exception { testRunAndAwait$(); }
+	public void testRunAndAwait$() throws Exception {
+		PriorityTaskScheduler scheduler = createScheduler(1);
+		try {
+			assertAreEqual(scheduler.runAndAwait(INTERACTIVE, null, (cm) -> "result", new CancelMonitor()), "result");
+			
+			CancelMonitor cm = new CancelMonitor();
+			cm.cancel();
+			try {
+				scheduler.runAndAwait(INTERACTIVE, null, (taskCm) -> {
+					taskCm.checkCancellation();
+					return "result";
+				}, cm);
+				assertFail();
+			} catch(OperationCancellation e) {
+			}
+		} finally {
+			scheduler.dispose();
+		}
+	}
+	
+	@Test
+	public void testRunAndAwait_cancelQueued() throws Exception { testRunAndAwait_cancelQueued$(); }
+	public void testRunAndAwait_cancelQueued$() throws Exception {
+		PriorityTaskScheduler scheduler = createScheduler(1);
+		try(LatchRunnable blocker = new LatchRunnable(true)) {
+			scheduler.submit(INTERACTIVE, null, (cm) -> { blocker.run(); return null; }, null);
+			blocker.awaitTaskEntry();
+			
+			// The awaited task is queued behind the blocker, so only the cancel watcher can cancel it
+			CancelMonitor cm = new CancelMonitor();
+			CompletableResult<Boolean> cancelled = new CompletableResult<>();
+			Thread awaitingThread = new Thread(() -> {
+				try {
+					scheduler.runAndAwait(INTERACTIVE, null, (taskCm) -> "result", cm);
+					cancelled.setResult(false);
+				} catch(OperationCancellation e) {
+					cancelled.setResult(true);
+				} catch(CommonException e) {
+					cancelled.setResult(false);
+				}
+			});
+			awaitingThread.start();
+			
+			cm.cancel();
+			assertTrue(cancelled.awaitResult() == true);
+			assertTrue(scheduler.awaitedTasks.isEmpty());
+		} finally {
+			scheduler.dispose();
+		}
+	}
+	
+	@Test
+	public void testLatencyHistogram() throws Exception { testLatencyHistogram$(); }
+	public void testLatencyHistogram$() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertTrue(histogram.getPercentileUpperBound(50) == -1);
+		
+		for(int i = 0; i < 90; i++) {
+			histogram.record(500_000); // 0.5ms
+		}
+		for(int i = 0; i < 10; i++) {
+			histogram.record(100_000_000); // 100ms
+		}
+		assertTrue(histogram.getCount() == 100);
+		assertTrue(histogram.getBucketCount(0) == 90);
+		assertTrue(histogram.getPercentileUpperBound(50) == 1);
+		assertTrue(histogram.getPercentileUpperBound(90) == 1);
+		assertTrue(histogram.getPercentileUpperBound(99) == 100);
+		assertTrue(histogram.getMaxMillis() == 100);
+	}
+	
+}
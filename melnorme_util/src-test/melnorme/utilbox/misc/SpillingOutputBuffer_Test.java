@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.process.ExternalProcessHelper.ReadAllBytesTask;
+import melnorme.utilbox.tests.CommonTest;
+
+public class SpillingOutputBuffer_Test extends CommonTest {
+	
+	@Test
+	public void testInMemory() throws Exception { testInMemory$(); }
+	public void testInMemory$() throws Exception {
+		SpillingOutputBuffer buffer = new SpillingOutputBuffer(4, 100);
+		buffer.write(bytes("0123456789"));
+		buffer.write('A');
+		
+		assertTrue(buffer.isSpilled() == false);
+		assertTrue(buffer.getSize() == 11);
+		assertAreEqual(buffer.toString(), "0123456789A");
+		assertAreEqual(readAll(buffer), "0123456789A");
+		assertTrue(SpillingOutputBuffer.getPeakMemoryUsage() >= buffer.getMemoryUsage());
+		buffer.dispose();
+	}
+	
+	@Test
+	public void testSpill() throws Exception { testSpill$(); }
+	public void testSpill$() throws Exception {
+		long spilledBefore = SpillingOutputBuffer.getSpilledBytesTotal();
+		SpillingOutputBuffer buffer = new SpillingOutputBuffer(4, 8);
+		buffer.write(bytes("0123456"));
+		assertTrue(buffer.isSpilled() == false);
+		buffer.write(bytes("789ABC"), 0, 6); // Crosses the threshold
+		buffer.write('D');
+		
+		assertTrue(buffer.isSpilled());
+		assertTrue(buffer.getMemoryUsage() <= 8);
+		assertTrue(buffer.getSize() == 14);
+		assertTrue(buffer.getCount() == 14);
+		assertTrue(SpillingOutputBuffer.getSpilledBytesTotal() - spilledBefore == 6);
+		
+		assertAreEqual(readAll(buffer), "0123456789ABCD");
+		assertAreEqual(buffer.toString(), "0123456789ABCD");
+		assertTrue(buffer.byteAt(7) == '7');
+		assertTrue(buffer.byteAt(12) == 'C');
+		verifyThrows(() -> buffer.byteAt(14), IndexOutOfBoundsException.class);
+		
+		File spillFile = buffer.getSpillFile();
+		assertTrue(spillFile.exists() && spillFile.length() == 6);
+		buffer.dispose();
+		assertTrue(spillFile.exists() == false);
+	}
+	
+	@Test
+	public void testReaderTask() throws Exception { testReaderTask$(); }
+	public void testReaderTask$() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 5000; i++) {
+			sb.append("line " + i + "\n");
+		}
+		String contents = sb.toString();
+		
+		ReadAllBytesTask readerTask = new ReadAllBytesTask(new ByteArrayInputStream(bytes(contents)), new CancelMonitor(),
+			new SpillingOutputBuffer(32, 1024));
+		readerTask.run();
+		SpillingOutputBuffer result = readerTask.getResult_forSuccessfulyCompleted().get();
+		
+		assertTrue(result.isSpilled());
+		assertAreEqual(readAll(result), contents);
+		result.dispose();
+	}
+	
+	protected static byte[] bytes(String string) {
+		return string.getBytes(StringUtil.UTF8);
+	}
+	
+	protected static String readAll(IByteSequence bytes) throws Exception {
+		try(Reader reader = bytes.openReader(StringUtil.UTF8)) {
+			return StreamUtil.readStringFromReader(reader);
+		}
+	}
+	
+}
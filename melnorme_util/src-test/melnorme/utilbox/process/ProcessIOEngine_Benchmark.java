@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.process;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessHelper_Test.TestsExternalProcessHelper;
+
+/**
+ * Compares thread usage and latency of dedicated reader threads (the default) vs. {@link ProcessIOEngine}.
+ * Not a unit test, run manually with: <code>ProcessIOEngine_Benchmark [processCount] [concurrency]</code>
+ *
+ * - Process benchmark: runs short-lived processes (<code>java -version</code>), and reports
+ * total threads started, peak live threads, and mean/max latency from process start to result.
+ * - Cancellation benchmark: reports the latency from cancelling a cancel monitor,
+ * to awaitTermination throwing {@link OperationCancellation}.
+ */
+public class ProcessIOEngine_Benchmark {
+	
+	protected static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	
+	public static void main(String[] args) throws Exception {
+		int processCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		
+		ProcessIOEngine engine = new ProcessIOEngine("Benchmark");
+		try {
+			// Warm-up
+			runProcesses(null, concurrency, concurrency);
+			runProcesses(engine, concurrency, concurrency);
+			
+			System.out.println("== Processes: " + processCount + ", concurrency: " + concurrency);
+			System.out.println("Dedicated threads: " + runProcesses(null, processCount, concurrency));
+			System.out.println("ProcessIOEngine:   " + runProcesses(engine, processCount, concurrency));
+			
+			System.out.println("== Cancellation latency");
+			System.out.println("Dedicated threads: " + measureCancellation(null, 20));
+			System.out.println("ProcessIOEngine:   " + measureCancellation(engine, 20));
+		} finally {
+			engine.dispose();
+		}
+	}
+	
+	protected static String runProcesses(ProcessIOEngine engine, int processCount, int concurrency)
+			throws Exception {
+		ProcessIOEngine previousDefault = ProcessIOEngine.getDefault();
+		ProcessIOEngine.setDefault(engine);
+		
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		try {
+			long startedThreadsBefore = threadMXBean.getTotalStartedThreadCount();
+			threadMXBean.resetPeakThreadCount();
+			
+			ArrayList2<Future<Long>> futures = new ArrayList2<>();
+			for(int i = 0; i < processCount; i++) {
+				futures.add(clients.submit(ProcessIOEngine_Benchmark::runProcess));
+			}
+			long[] latencies = new long[processCount];
+			for(int i = 0; i < processCount; i++) {
+				latencies[i] = futures.get(i).get();
+			}
+			
+			long startedThreads = threadMXBean.getTotalStartedThreadCount() - startedThreadsBefore;
+			int peakThreads = threadMXBean.getPeakThreadCount();
+			return "threads started: " + startedThreads + ", peak live threads: " + peakThreads +
+				", latency " + formatLatencies(latencies);
+		} finally {
+			clients.shutdown();
+			ProcessIOEngine.setDefault(previousDefault);
+		}
+	}
+	
+	protected static long runProcess() throws Exception {
+		String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder pb = new ProcessBuilder(javaPath, "-version");
+		
+		long startNanos = System.nanoTime();
+		ExternalProcessResult result = new ExternalProcessHelper(pb).awaitTerminationAndResult(true);
+		long latencyNanos = System.nanoTime() - startNanos;
+		if(result.exitValue != 0) {
+			throw new AssertionError("Process failed: " + result.getStdErrBytes().toUtf8String());
+		}
+		return latencyNanos;
+	}
+	
+	protected static String measureCancellation(ProcessIOEngine engine, int count) throws Exception {
+		ProcessIOEngine previousDefault = ProcessIOEngine.getDefault();
+		ProcessIOEngine.setDefault(engine);
+		try {
+			long[] latencies = new long[count];
+			for(int i = 0; i < count; i++) {
+				CancelMonitor cm = new CancelMonitor();
+				TestsExternalProcessHelper eph = new TestsExternalProcessHelper(true, true, cm);
+				
+				long[] cancelNanos = new long[1];
+				Thread canceller = new Thread(() -> {
+					try {
+						Thread.sleep(30);
+					} catch(InterruptedException e) {
+					}
+					cancelNanos[0] = System.nanoTime();
+					cm.cancel();
+				});
+				canceller.start();
+				try {
+					eph.awaitTermination(true);
+					throw new AssertionError("Expected cancellation");
+				} catch(OperationCancellation e) {
+					long endNanos = System.nanoTime();
+					canceller.join();
+					latencies[i] = endNanos - cancelNanos[0];
+				}
+			}
+			return formatLatencies(latencies);
+		} finally {
+			ProcessIOEngine.setDefault(previousDefault);
+		}
+	}
+	
+	protected static String formatLatencies(long[] latenciesNanos) {
+		long[] sorted = latenciesNanos.clone();
+		Arrays.sort(sorted);
+		long total = 0;
+		for(long latency : sorted) {
+			total += latency;
+		}
+		return String.format("mean: %.2fms, p90: %.2fms, max: %.2fms",
+			toMillis(total / sorted.length), toMillis(sorted[(int) (sorted.length * 0.9)]),
+			toMillis(sorted[sorted.length - 1]));
+	}
+	
+	protected static double toMillis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+	
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.process;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.process.ExternalProcessHelper_Test.TestsExternalProcessHelper;
+import melnorme.utilbox.tests.CommonTest;
+
+public class ProcessIOEngine_Test extends CommonTest {
+	
+	protected static TestsExternalProcessHelper createHelper(ProcessIOEngine engine, ICancelMonitor cm) {
+		ProcessIOEngine previousDefault = ProcessIOEngine.getDefault();
+		ProcessIOEngine.setDefault(engine);
+		try {
+			TestsExternalProcessHelper eph = new TestsExternalProcessHelper(true, true, cm);
+			assertTrue(eph.ioEngine == engine);
+			assertTrue(eph.mainReaderThread == null && eph.stderrReaderThread == null);
+			return eph;
+		} finally {
+			ProcessIOEngine.setDefault(previousDefault);
+		}
+	}
+	
+	@Test
+	public void testThreadReuse() throws Exception { testThreadReuse$(); }
+	public void testThreadReuse$() throws Exception {
+		ProcessIOEngine engine = new ProcessIOEngine("ProcessIOEngine_Test");
+		try {
+			for(int i = 0; i < 20; i++) {
+				TestsExternalProcessHelper eph = createHelper(engine, null);
+				eph.mockProcess.destroy();
+				eph.awaitTermination(false);
+				assertTrue(eph.areReadersAndProcessTerminated());
+				eph.stdoutReaderTask.awaitTermination();
+				eph.stderrReaderTask.awaitTermination();
+			}
+			// Threads are reused across processes (allowing for some slack for pumps that are still finishing)
+			assertTrue(engine.getLargestPumpThreadCount() <= 4);
+			assertTrue(engine.getAwaitedCount() == 0);
+		} finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void testCancellation() throws Exception { testCancellation$(); }
+	public void testCancellation$() throws Exception {
+		ProcessIOEngine engine = new ProcessIOEngine("ProcessIOEngine_Test");
+		try {
+			CancelMonitor cm = new CancelMonitor();
+			TestsExternalProcessHelper eph = createHelper(engine, cm);
+			
+			new Thread(() -> {
+				sleepUninterruptibly(50);
+				cm.cancel();
+			}).start();
+			
+			long startMillis = System.currentTimeMillis();
+			verifyThrows(() -> eph.awaitTermination(true), OperationCancellation.class);
+			// Waiter is woken up promptly, not after a polling period
+			assertTrue(System.currentTimeMillis() - startMillis < 2000);
+			assertTrue(engine.getAwaitedCount() == 0);
+			
+			// destroyOnError
+			eph.process.waitFor();
+			eph.stdoutReaderTask.awaitTermination();
+		} finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void testTimeout() throws Exception { testTimeout$(); }
+	public void testTimeout$() throws Exception {
+		ProcessIOEngine engine = new ProcessIOEngine("ProcessIOEngine_Test");
+		try {
+			TestsExternalProcessHelper eph = createHelper(engine, null);
+			verifyThrows(() -> eph.awaitTermination(50, true), TimeoutException.class);
+			eph.process.waitFor();
+		} finally {
+			engine.dispose();
+		}
+	}
+	
+	@Test
+	public void testPoolSaturated() throws Exception { testPoolSaturated$(); }
+	public void testPoolSaturated$() throws Exception {
+		ProcessIOEngine engine = new ProcessIOEngine("ProcessIOEngine_Test", 
+			ProcessIOEngine.DEFAULT_CANCEL_CHECK_PERIOD_MS, 2);
+		try {
+			CountDownLatch pumpsStarted = new CountDownLatch(4);
+			CountDownLatch releasePumps = new CountDownLatch(1);
+			for(int i = 0; i < 4; i++) {
+				engine.startPump(() -> {
+					pumpsStarted.countDown();
+					try {
+						releasePumps.await();
+					} catch(InterruptedException e) {
+					}
+				});
+			}
+			// Pumps beyond the pool limit are not queued behind the blocked ones
+			assertTrue(pumpsStarted.await(5, TimeUnit.SECONDS));
+			assertTrue(engine.getLargestPumpThreadCount() == 2);
+			assertTrue(engine.getOverflowPumpCount() == 2);
+			releasePumps.countDown();
+		} finally {
+			engine.dispose();
+		}
+		verifyThrows(() -> engine.startPump(() -> { }), RejectedExecutionException.class);
+	}
+	
+	protected static void sleepUninterruptibly(int millis) {
+		try {
+			Thread.sleep(millis);
+		} catch(InterruptedException e) {
+		}
+	}
+	
+}
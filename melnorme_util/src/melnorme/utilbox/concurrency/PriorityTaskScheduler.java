@@ -0,0 +1,530 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.concurrency;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.ThreadPoolExecutorExt.UncaughtExceptionHandler;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.core.fntypes.OperationResult;
+import melnorme.utilbox.ownership.IDisposable;
+
+/**
+ * A bounded task scheduler, running tasks of different {@link TaskCategory}s in a shared thread pool.
+ *
+ * Each category has a priority and a limit of how many of its tasks can run concurrently.
+ * When a thread becomes available, the next task run is taken from the category with the highest priority
+ * (lowest priority value) that is below its concurrency limit. Among categories with the same priority,
+ * the task submitted earliest runs first.
+ *
+ * Tasks can be submitted with a supersede key: submitting a task with the same category and key
+ * as a previous task cancels the previous one, whether it is still queued or already running.
+ * A running task is cancelled through its {@link ICancelMonitor}, which will also terminate any
+ * external process the task is running.
+ *
+ * Per-category latency histograms are kept, see {@link #getStats(TaskCategory)}.
+ */
+public class PriorityTaskScheduler implements IDisposable {
+	
+	public static class TaskCategory {
+		
+		protected final String name;
+		protected final int priority;
+		protected final int maxConcurrent;
+		
+		/**
+		 * @param priority the category priority. Lower values have higher priority.
+		 * @param maxConcurrent the maximum number of tasks of this category that can run concurrently.
+		 */
+		public TaskCategory(String name, int priority, int maxConcurrent) {
+			this.name = assertNotNull(name);
+			this.priority = priority;
+			this.maxConcurrent = maxConcurrent;
+			assertTrue(maxConcurrent > 0);
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public int getPriority() {
+			return priority;
+		}
+		
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+		
+		@Override
+		public String toString() {
+			return name + "[priority: " + priority + ", max: " + maxConcurrent + "]";
+		}
+		
+	}
+	
+	public interface ScheduledOperation<RET> {
+		
+		RET call(ICancelMonitor cm) throws CommonException, OperationCancellation;
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** How often the cancel monitors of the tasks awaited in {@link #runAndAwait} are checked. */
+	public static final int CANCEL_CHECK_MILLIS = 50;
+	
+	protected final String name;
+	protected final int maxThreads;
+	protected final ThreadPoolExecutorExt executor;
+	protected final ScheduledThreadPoolExecutor cancelWatcher;
+	
+	protected final Object lock = new Object();
+	protected final LinkedHashMap<TaskCategory, CategoryState> categories = new LinkedHashMap<>();
+	protected int runningCount = 0;
+	protected long submitSequence = 0;
+	protected boolean disposed = false;
+	protected final HashSet<ScheduledTask<?>> awaitedTasks = new HashSet<>();
+	protected ScheduledFuture<?> cancelCheck;
+	
+	public PriorityTaskScheduler(String name, int maxThreads, UncaughtExceptionHandler ueHandler) {
+		this.name = assertNotNull(name);
+		this.maxThreads = maxThreads;
+		assertTrue(maxThreads > 0);
+		
+		// The scheduler itself never submits more tasks than there are threads, so the queue is not used.
+		this.executor = new ThreadPoolExecutorExt(maxThreads, maxThreads,
+			new LinkedBlockingQueue<Runnable>(), name, ueHandler);
+		this.executor.allowCoreThreadTimeOut(true);
+		
+		this.cancelWatcher = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory(name + ".cancelWatcher"));
+		this.cancelWatcher.setRemoveOnCancelPolicy(true);
+		this.cancelWatcher.setKeepAliveTime(1, TimeUnit.SECONDS);
+		this.cancelWatcher.allowCoreThreadTimeOut(true);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+	
+	@Override
+	public void dispose() {
+		ArrayList2<ScheduledTask<?>> tasksToCancel = new ArrayList2<>();
+		synchronized(lock) {
+			disposed = true;
+			for(CategoryState categoryState : categories.values()) {
+				tasksToCancel.addAll(categoryState.pendingTasks);
+				categoryState.pendingTasks.clear();
+				tasksToCancel.addAll(categoryState.tasksByKey.values());
+			}
+		}
+		for(ScheduledTask<?> task : tasksToCancel) {
+			task.tryCancel();
+		}
+		executor.shutdownNowAndCancelAll();
+		cancelWatcher.shutdownNow();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * Submit given operation for execution.
+	 * @param supersedeKey if not null, cancel any previous task of the same category with an equal key.
+	 * @param parentCm a cancel monitor which also cancels the task. Can be null.
+	 */
+	public <RET> ScheduledTask<RET> submit(TaskCategory category, Object supersedeKey,
+			ScheduledOperation<RET> operation, ICancelMonitor parentCm) {
+		ScheduledTask<RET> task = parentCm == null ?
+			new ScheduledTask<>(category, supersedeKey, operation) :
+			new ScheduledTask<>(category, supersedeKey, operation, parentCm);
+		
+		ScheduledTask<?> supersededTask = null;
+		synchronized(lock) {
+			if(disposed) {
+				task.tryCancel();
+				return task;
+			}
+			
+			CategoryState categoryState = getCategoryState(category);
+			categoryState.stats.submittedCount.incrementAndGet();
+			task.stats = categoryState.stats;
+			task.sequence = submitSequence++;
+			
+			if(supersedeKey != null) {
+				supersededTask = categoryState.tasksByKey.put(supersedeKey, task);
+				if(supersededTask != null) {
+					// Only queued tasks are removed here, running tasks release their slot when they finish.
+					categoryState.pendingTasks.remove(supersededTask);
+					categoryState.stats.supersededCount.incrementAndGet();
+				}
+			}
+			categoryState.pendingTasks.add(task);
+			
+			dispatchTasks();
+		}
+		
+		if(supersededTask != null) {
+			supersededTask.tryCancel();
+		}
+		return task;
+	}
+	
+	/**
+	 * Submit given operation for execution, and wait for its result.
+	 *
+	 * The calling thread blocks until the task terminates. Since cancel monitors can only be polled,
+	 * a cancellation of given monitor is detected by the cancel watcher, which checks the monitors
+	 * of all awaited tasks every {@link #CANCEL_CHECK_MILLIS}, and cancels the task (waking up the caller).
+	 *
+	 * @throws OperationCancellation if the task was cancelled, either by given cancel monitor, or
+	 * by being superseded by another task.
+	 */
+	public <RET> RET runAndAwait(TaskCategory category, Object supersedeKey, ScheduledOperation<RET> operation,
+			ICancelMonitor cm) throws CommonException, OperationCancellation {
+		assertNotNull(cm);
+		ScheduledTask<RET> task = submit(category, supersedeKey, operation, cm);
+		
+		watchCancellation(task);
+		try {
+			task.awaitTermination();
+		} catch(InterruptedException e) {
+			task.tryCancel();
+			throw new OperationCancellation();
+		} finally {
+			unwatchCancellation(task);
+		}
+		return task.getResult_forTerminated().get();
+	}
+	
+	protected void watchCancellation(ScheduledTask<?> task) {
+		synchronized(lock) {
+			if(disposed) {
+				return;
+			}
+			awaitedTasks.add(task);
+			if(cancelCheck == null) {
+				cancelCheck = cancelWatcher.scheduleWithFixedDelay(this::checkAwaitedTasks, 
+					CANCEL_CHECK_MILLIS, CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+	
+	protected void unwatchCancellation(ScheduledTask<?> task) {
+		synchronized(lock) {
+			awaitedTasks.remove(task);
+			if(awaitedTasks.isEmpty() && cancelCheck != null) {
+				cancelCheck.cancel(false);
+				cancelCheck = null;
+			}
+		}
+	}
+	
+	protected void checkAwaitedTasks() {
+		ArrayList2<ScheduledTask<?>> tasks;
+		synchronized(lock) {
+			tasks = new ArrayList2<>(awaitedTasks);
+		}
+		for(ScheduledTask<?> task : tasks) {
+			// If the parent monitor was cancelled, this cancels the task, which terminates it
+			task.isCancelled();
+		}
+	}
+	
+	protected CategoryState getCategoryState(TaskCategory category) {
+		CategoryState categoryState = categories.get(category);
+		if(categoryState == null) {
+			categoryState = new CategoryState(category);
+			categories.put(category, categoryState);
+		}
+		return categoryState;
+	}
+	
+	/** Start as many pending tasks as the thread and category limits allow. Must be called under lock. */
+	protected void dispatchTasks() {
+		while(!disposed && runningCount < maxThreads) {
+			CategoryState selected = null;
+			for(CategoryState categoryState : categories.values()) {
+				ScheduledTask<?> head = categoryState.peekPendingTask();
+				if(head == null || categoryState.runningCount >= categoryState.category.maxConcurrent) {
+					continue;
+				}
+				if(selected == null || isBefore(categoryState.category, head, selected)) {
+					selected = categoryState;
+				}
+			}
+			if(selected == null) {
+				return;
+			}
+			
+			ScheduledTask<?> task = selected.pendingTasks.poll();
+			selected.runningCount++;
+			runningCount++;
+			executor.execute(new TaskRunner(selected, task));
+		}
+	}
+	
+	protected static boolean isBefore(TaskCategory category, ScheduledTask<?> task, CategoryState other) {
+		if(category.priority != other.category.priority) {
+			return category.priority < other.category.priority;
+		}
+		return task.sequence < other.pendingTasks.peek().sequence;
+	}
+	
+	protected class TaskRunner implements Runnable {
+		
+		protected final CategoryState categoryState;
+		protected final ScheduledTask<?> task;
+		
+		public TaskRunner(CategoryState categoryState, ScheduledTask<?> task) {
+			this.categoryState = categoryState;
+			this.task = task;
+		}
+		
+		@Override
+		public void run() {
+			task.startNanos = System.nanoTime();
+			categoryState.stats.queueLatency.record(task.startNanos - task.submitNanos);
+			try {
+				task.run();
+			} finally {
+				if(task.isCancelled()) {
+					categoryState.stats.cancelledCount.incrementAndGet();
+				}
+				
+				synchronized(lock) {
+					categoryState.runningCount--;
+					runningCount--;
+					if(task.supersedeKey != null) {
+						categoryState.tasksByKey.remove(task.supersedeKey, task);
+					}
+					dispatchTasks();
+				}
+			}
+		}
+		
+	}
+	
+	protected class CategoryState {
+		
+		protected final TaskCategory category;
+		protected final ArrayDeque<ScheduledTask<?>> pendingTasks = new ArrayDeque<>();
+		protected final HashMap<Object, ScheduledTask<?>> tasksByKey = new HashMap<>();
+		protected final CategoryStats stats;
+		protected int runningCount = 0;
+		
+		public CategoryState(TaskCategory category) {
+			this.category = assertNotNull(category);
+			this.stats = new CategoryStats(category);
+		}
+		
+		/** @return the next pending task, discarding tasks that were cancelled while queued. */
+		protected ScheduledTask<?> peekPendingTask() {
+			ScheduledTask<?> task;
+			while((task = pendingTasks.peek()) != null && task.isCancelled()) {
+				pendingTasks.poll();
+				stats.cancelledCount.incrementAndGet();
+				if(task.supersedeKey != null) {
+					tasksByKey.remove(task.supersedeKey, task);
+				}
+			}
+			return task;
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static class ScheduledTask<RET> extends MonitorRunnableFuture<OperationResult<RET>> {
+		
+		protected final TaskCategory category;
+		protected final Object supersedeKey;
+		protected final ScheduledOperation<RET> operation;
+		protected final long submitNanos = System.nanoTime();
+		protected long sequence;
+		protected CategoryStats stats;
+		protected long startNanos;
+		
+		public ScheduledTask(TaskCategory category, Object supersedeKey, ScheduledOperation<RET> operation) {
+			super();
+			this.category = assertNotNull(category);
+			this.supersedeKey = supersedeKey;
+			this.operation = assertNotNull(operation);
+		}
+		
+		public ScheduledTask(TaskCategory category, Object supersedeKey, ScheduledOperation<RET> operation,
+				ICancelMonitor parentCm) {
+			super(parentCm);
+			this.category = assertNotNull(category);
+			this.supersedeKey = supersedeKey;
+			this.operation = assertNotNull(operation);
+		}
+		
+		public TaskCategory getCategory() {
+			return category;
+		}
+		
+		@Override
+		protected OperationResult<RET> internalInvoke() {
+			ICancelMonitor cm = getCancelMonitor();
+			try {
+				return new OperationResult<>(operation.call(cm));
+			} catch(CommonException e) {
+				return new OperationResult<>(null, e);
+			} catch(OperationCancellation e) {
+				return new OperationResult<>(null, e);
+			} finally {
+				// Record before the result is published, so that stats are up to date once the task is awaited
+				if(stats != null) {
+					long endNanos = System.nanoTime();
+					stats.runLatency.record(endNanos - startNanos);
+					stats.totalLatency.record(endNanos - submitNanos);
+				}
+			}
+		}
+		
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	public CategoryStats getStats(TaskCategory category) {
+		synchronized(lock) {
+			return getCategoryState(category).stats;
+		}
+	}
+	
+	public Indexable<CategoryStats> getAllStats() {
+		synchronized(lock) {
+			ArrayList2<CategoryStats> allStats = new ArrayList2<>();
+			for(CategoryState categoryState : categories.values()) {
+				allStats.add(categoryState.stats);
+			}
+			return allStats;
+		}
+	}
+	
+	public static class CategoryStats {
+		
+		public final TaskCategory category;
+		
+		public final AtomicLong submittedCount = new AtomicLong();
+		/** Number of tasks cancelled because a newer task with the same key was submitted. */
+		public final AtomicLong supersededCount = new AtomicLong();
+		/** Number of tasks cancelled, either before or while running. */
+		public final AtomicLong cancelledCount = new AtomicLong();
+		
+		/** Time from submission until the task starts running. */
+		public final LatencyHistogram queueLatency = new LatencyHistogram();
+		/** Time the task spent running. */
+		public final LatencyHistogram runLatency = new LatencyHistogram();
+		/** Time from submission until the task finishes running. */
+		public final LatencyHistogram totalLatency = new LatencyHistogram();
+		
+		public CategoryStats(TaskCategory category) {
+			this.category = category;
+		}
+		
+		@Override
+		public String toString() {
+			return category.name + ": submitted: " + submittedCount.get() +
+				", superseded: " + supersededCount.get() + ", cancelled: " + cancelledCount.get() +
+				"\n  queue: " + queueLatency + "\n  run: " + runLatency + "\n  total: " + totalLatency;
+		}
+		
+	}
+	
+	/**
+	 * A histogram of latencies, with power-of-two millisecond buckets:
+	 * bucket 0 is for latencies under 1ms, bucket n for latencies in [2^(n-1), 2^n) ms.
+	 */
+	public static class LatencyHistogram {
+		
+		public static final int BUCKET_COUNT = 20;
+		
+		protected final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+		protected final AtomicLong count = new AtomicLong();
+		protected final AtomicLong maxNanos = new AtomicLong();
+		
+		public void record(long nanos) {
+			nanos = Math.max(nanos, 0);
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = Math.min(64 - Long.numberOfLeadingZeros(millis), BUCKET_COUNT - 1);
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			
+			long max;
+			while((max = maxNanos.get()) < nanos && !maxNanos.compareAndSet(max, nanos)) {
+			}
+		}
+		
+		public long getCount() {
+			return count.get();
+		}
+		
+		public long getBucketCount(int bucket) {
+			return buckets.get(bucket);
+		}
+		
+		public long getMaxMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+		}
+		
+		/**
+		 * @return an upper bound (in milliseconds) for the given percentile of recorded latencies,
+		 * or -1 if there are no records.
+		 */
+		public long getPercentileUpperBound(double percentile) {
+			assertTrue(percentile >= 0 && percentile <= 100);
+			long total = getCount();
+			if(total == 0) {
+				return -1;
+			}
+			long threshold = (long) Math.ceil(total * percentile / 100);
+			long accumulated = 0;
+			for(int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				accumulated += buckets.get(bucket);
+				if(accumulated >= threshold && accumulated > 0) {
+					return Math.min(1L << bucket, Math.max(getMaxMillis(), 1));
+				}
+			}
+			return getMaxMillis();
+		}
+		
+		@Override
+		public String toString() {
+			if(getCount() == 0) {
+				return "count: 0";
+			}
+			return "count: " + getCount() + ", p50: <=" + getPercentileUpperBound(50) + "ms" +
+				", p90: <=" + getPercentileUpperBound(90) + "ms" +
+				", p99: <=" + getPercentileUpperBound(99) + "ms" +
+				", max: " + getMaxMillis() + "ms";
+		}
+		
+	}
+	
+}
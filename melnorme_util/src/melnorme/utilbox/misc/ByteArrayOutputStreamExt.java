@@ -10,7 +10,9 @@
  *******************************************************************************/
 package melnorme.utilbox.misc;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
 /**
@@ -59,4 +61,10 @@ public class ByteArrayOutputStreamExt extends ByteArrayOutputStream implements I
 		return super.toByteArray();
 	}
 	
+	/** Note: the returned stream shares the internal buffer, instead of copying it. */
+	@Override
+	public synchronized InputStream openInputStream() {
+		return new ByteArrayInputStream(buf, 0, count);
+	}
+	
 }
\ No newline at end of file
@@ -10,6 +10,11 @@
  *******************************************************************************/
 package melnorme.utilbox.misc;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.Charset;
 
 /**
@@ -30,4 +35,13 @@ public interface IByteSequence {
 	
 	public byte[] toByteArray();
 	
+	/** Open a stream over the contents. Prefer this over the String conversions for potentially large sequences. */
+	default InputStream openInputStream() throws IOException {
+		return new ByteArrayInputStream(toByteArray());
+	}
+	
+	default Reader openReader(Charset charset) throws IOException {
+		return new InputStreamReader(openInputStream(), charset);
+	}
+	
 }
\ No newline at end of file
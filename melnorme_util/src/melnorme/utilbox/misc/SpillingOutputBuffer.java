@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.misc;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A byte buffer that keeps up to a given threshold of bytes in memory,
+ * and spills any further bytes to a temporary file.
+ * 
+ * Meant for the output of external tools, which is usually small, but can be huge (for example, 
+ * a verbose build of a large workspace), in which case it shouldn't all be held in memory.
+ * Consumers should prefer {@link #openInputStream()} or {@link #openReader(Charset)} over 
+ * {@link #toString(Charset)}, which always loads the whole contents.
+ * 
+ * The temporary file is deleted on {@link #dispose()}, or on VM exit otherwise.
+ */
+public class SpillingOutputBuffer extends OutputStream implements IByteSequence {
+	
+	public static final int DEFAULT_MEMORY_THRESHOLD = 8 * 1024 * 1024;
+	
+	protected static volatile int defaultMemoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+	
+	public static int getDefaultMemoryThreshold() {
+		return defaultMemoryThreshold;
+	}
+	
+	/** Set the memory threshold of buffers created with the default constructor. */
+	public static void setDefaultMemoryThreshold(int memoryThreshold) {
+		assertTrue(memoryThreshold >= 0);
+		defaultMemoryThreshold = memoryThreshold;
+	}
+	
+	/* ----------------- global stats ----------------- */
+	
+	protected static final AtomicLong peakMemoryUsage = new AtomicLong();
+	protected static final AtomicLong spilledBytesTotal = new AtomicLong();
+	
+	/** @return the largest in-memory buffer size (allocated capacity) reached by any buffer. */
+	public static long getPeakMemoryUsage() {
+		return peakMemoryUsage.get();
+	}
+	
+	/** @return the total number of bytes written to spill files, by all buffers. */
+	public static long getSpilledBytesTotal() {
+		return spilledBytesTotal.get();
+	}
+	
+	public static void resetStats() {
+		peakMemoryUsage.set(0);
+		spilledBytesTotal.set(0);
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected final int memoryThreshold;
+	protected final ByteArrayOutputStreamExt memoryBuffer;
+	
+	protected File spillFile;
+	protected OutputStream spillOut;
+	protected long spilledCount = 0;
+	
+	public SpillingOutputBuffer() {
+		this(32, getDefaultMemoryThreshold());
+	}
+	
+	public SpillingOutputBuffer(int initialSize, int memoryThreshold) {
+		assertTrue(memoryThreshold >= 0);
+		this.memoryThreshold = memoryThreshold;
+		this.memoryBuffer = new ByteArrayOutputStreamExt(Math.min(initialSize, Math.max(memoryThreshold, 1)));
+	}
+	
+	public int getMemoryThreshold() {
+		return memoryThreshold;
+	}
+	
+	public synchronized boolean isSpilled() {
+		return spillFile != null;
+	}
+	
+	/** @return the spill file, or null if not spilled. */
+	public synchronized File getSpillFile() {
+		return spillFile;
+	}
+	
+	/** @return the total number of bytes written. */
+	public synchronized long getSize() {
+		return memoryBuffer.getCount() + spilledCount;
+	}
+	
+	/** @return the number of bytes held in memory (allocated capacity). */
+	public synchronized int getMemoryUsage() {
+		return memoryBuffer.getInternalBuffer().length;
+	}
+	
+	@Override
+	public synchronized void write(int b) throws IOException {
+		if(memoryBuffer.getCount() < memoryThreshold) {
+			memoryBuffer.write(b);
+			updatePeakMemoryUsage();
+		} else {
+			getSpillStream().write(b);
+			spilledCount++;
+			spilledBytesTotal.incrementAndGet();
+		}
+	}
+	
+	@Override
+	public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+		int memoryLength = Math.max(0, Math.min(length, memoryThreshold - memoryBuffer.getCount()));
+		if(memoryLength > 0) {
+			memoryBuffer.write(bytes, offset, memoryLength);
+			updatePeakMemoryUsage();
+		}
+		
+		int spillLength = length - memoryLength;
+		if(spillLength > 0) {
+			getSpillStream().write(bytes, offset + memoryLength, spillLength);
+			spilledCount += spillLength;
+			spilledBytesTotal.addAndGet(spillLength);
+		}
+	}
+	
+	protected void updatePeakMemoryUsage() {
+		long memoryUsage = memoryBuffer.getInternalBuffer().length;
+		peakMemoryUsage.accumulateAndGet(memoryUsage, Math::max);
+	}
+	
+	protected OutputStream getSpillStream() throws IOException {
+		if(spillOut == null) {
+			spillFile = File.createTempFile("process_output", ".tmp");
+			spillFile.deleteOnExit();
+			spillOut = new BufferedOutputStream(new FileOutputStream(spillFile), 64 * 1024);
+		}
+		return spillOut;
+	}
+	
+	@Override
+	public synchronized void flush() throws IOException {
+		if(spillOut != null) {
+			spillOut.flush();
+		}
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		flush();
+	}
+	
+	/** Delete the spill file, if any. The buffer contents are no longer readable afterwards. */
+	public synchronized void dispose() {
+		if(spillOut != null) {
+			try {
+				spillOut.close();
+			} catch(IOException e) {
+				// Ignore, file is deleted anyways
+			}
+			spillOut = null;
+		}
+		if(spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+	
+	/* ----------------- reading ----------------- */
+	
+	/** Open a stream over the whole contents. Bytes written after this call might not be visible. */
+	@Override
+	public synchronized InputStream openInputStream() throws IOException {
+		InputStream memoryIS = new ByteArrayInputStream(memoryBuffer.getInternalBuffer(), 0, memoryBuffer.getCount());
+		if(spillFile == null) {
+			return memoryIS;
+		}
+		spillOut.flush();
+		return new SequenceInputStream(memoryIS, new FileInputStream(spillFile));
+	}
+	
+	@Override
+	public synchronized int byteAt(int index) {
+		if(index < 0 || index >= getSize()) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(index < memoryBuffer.getCount()) {
+			return memoryBuffer.byteAt(index);
+		}
+		try(RandomAccessFile file = new RandomAccessFile(spillFile, "r")) {
+			spillOut.flush();
+			file.seek(index - memoryBuffer.getCount());
+			return (byte) file.read();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public synchronized int getCount() {
+		long size = getSize();
+		assertTrue(size <= Integer.MAX_VALUE);
+		return (int) size;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return toString(StringUtil.UTF8);
+	}
+	
+	@Override
+	public synchronized String toString(Charset charset) {
+		if(spillFile == null) {
+			return memoryBuffer.toString(charset);
+		}
+		return new String(toByteArray(), charset);
+	}
+	
+	@Override
+	public synchronized byte[] toByteArray() {
+		if(spillFile == null) {
+			return memoryBuffer.toByteArray();
+		}
+		try {
+			return StreamUtil.readAllBytesFromStream(openInputStream(), (int) getSize()).toByteArray();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+}
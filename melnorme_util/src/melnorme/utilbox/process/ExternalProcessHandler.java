@@ -31,6 +31,9 @@ import melnorme.utilbox.misc.StreamUtil;
  * using one or two reader threads (for stdout and stderr).
  * It also supports waiting for process termination with timeouts.
  * 
+ * If a {@link ProcessIOEngine} is set as default, the readers run in the engine's shared threads instead
+ * of dedicated threads, and awaiting termination is signaled instead of polled.
+ * 
  * Subclasses must specify Runnable's for the worker threads reading the process stdout and stderr streams.
  */
 public abstract class ExternalProcessHandler<
@@ -49,7 +52,10 @@ public abstract class ExternalProcessHandler<
 	 * have finished reading all input. This last aspect is very important. */
 	protected final CountDownLatch readersAndProcessTerminationLatch;
 	
-	protected final Thread mainReaderThread;
+	protected final ProcessIOEngine ioEngine; // Can be null
+	protected final Object awaitLock = new Object();
+	
+	protected final Thread mainReaderThread; // null if ioEngine is used
 	protected final Thread stderrReaderThread; // Can be null
 	
 	public ExternalProcessHandler(Process process, boolean readStdErr, boolean startReaders,
@@ -63,7 +69,8 @@ public abstract class ExternalProcessHandler<
 		this.stdoutReaderTask = assertNotNull(init_StdOutReaderTask());
 		this.stderrReaderTask = assertNotNull(init_StdErrReaderTask());
 		
-		this.mainReaderThread = new ProcessHelperMainThread(stdoutReaderTask);
+		this.ioEngine = init_IOEngine();
+		this.mainReaderThread = ioEngine == null ? new ProcessHelperMainThread() : null;
 		this.stderrReaderThread = init_StdErrThread(readStdErr);
 		
 		if(startReaders) {
@@ -75,9 +82,14 @@ public abstract class ExternalProcessHandler<
 	
 	protected abstract STDERR_TASK init_StdErrReaderTask();
 	
+	/** @return the I/O engine to use, or null to use dedicated reader threads. */
+	protected ProcessIOEngine init_IOEngine() {
+		return ProcessIOEngine.getDefault();
+	}
+	
 	protected ProcessHelperStdErrThread init_StdErrThread(boolean readStdErr) {
 		if(readStdErr) {
-			return new ProcessHelperStdErrThread(stderrReaderTask);
+			return ioEngine == null ? new ProcessHelperStdErrThread(stderrReaderTask) : null;
 		} else {
 			completeStderrResult(stderrReaderTask);
 			assertNotNull(stderrReaderTask.getResult_forSuccessfulyCompleted());
@@ -98,6 +110,13 @@ public abstract class ExternalProcessHandler<
 	}
 	
 	public void startReaderThreads() {
+		if(ioEngine != null) {
+			ioEngine.startPump(this::runMainReader);
+			if(readStdErr) {
+				ioEngine.startPump(stderrReaderTask);
+			}
+			return;
+		}
 		mainReaderThread.start();
 		if(stderrReaderThread != null) {
 			stderrReaderThread.start();
@@ -132,36 +151,45 @@ public abstract class ExternalProcessHandler<
 	
 	protected class ProcessHelperMainThread extends Thread {
 		
-		public ProcessHelperMainThread(Runnable runnable) {
-			super(runnable, getBaseNameForWorkerThreads() + "/StdOutReader");
+		public ProcessHelperMainThread() {
+			super(getBaseNameForWorkerThreads() + "/StdOutReader");
 			setDaemon(true);
 		}
 		
 		@Override
 		public void run() {
+			runMainReader();
+		}
+		
+	}
+	
+	/** Read stdout, then wait for the process and stderr reader to terminate. */
+	protected void runMainReader() {
+		try {
+			stdoutReaderTask.run();
+		} finally {
+			waitForProcessIndefinitely();
+			readersAndProcessTerminationLatch.countDown();
+			
 			try {
-				super.run();
-			} finally {
-				waitForProcessIndefinitely();
-				readersAndProcessTerminationLatch.countDown();
-				
 				mainReaderThread_Terminated();
+			} finally {
+				signalAwaiters();
 			}
 		}
-		
-		protected void waitForProcessIndefinitely() {
-			while(true) {
-				try {
-					process.waitFor();
-					// Await stderr too:
-					stderrReaderTask.awaitTermination();
-					return;
-				} catch (InterruptedException e) {
-					// retry waitfor, we must ensure process is terminated.
-				}
+	}
+	
+	protected void waitForProcessIndefinitely() {
+		while(true) {
+			try {
+				process.waitFor();
+				// Await stderr too:
+				stderrReaderTask.awaitTermination();
+				return;
+			} catch (InterruptedException e) {
+				// retry waitfor, we must ensure process is terminated.
 			}
 		}
-		
 	}
 	
 	/** Callback method for when main reader thread is about to terminate. Subclasses can extend. */
@@ -193,6 +221,10 @@ public abstract class ExternalProcessHandler<
 	 */
 	protected void awaitReadersTermination(int timeoutMs) 
 			throws InterruptedException, TimeoutException, OperationCancellation {
+		if(ioEngine != null) {
+			awaitReadersTermination_signaled(timeoutMs);
+			return;
+		}
 		int waitedTime = 0;
 		
 		while(true) {
@@ -219,6 +251,46 @@ public abstract class ExternalProcessHandler<
 		return readersAndProcessTerminationLatch.await(cancelPollPeriodMs, TimeUnit.MILLISECONDS);
 	}
 	
+	/** 
+	 * Wake up threads awaiting in {@link #awaitReadersTermination_signaled(int)}, 
+	 * so that they check for termination or cancellation. 
+	 */
+	protected void signalAwaiters() {
+		synchronized(awaitLock) {
+			awaitLock.notifyAll();
+		}
+	}
+	
+	protected void awaitReadersTermination_signaled(int timeoutMs) 
+			throws InterruptedException, TimeoutException, OperationCancellation {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		
+		ioEngine.watchCancellation(this);
+		try {
+			synchronized(awaitLock) {
+				while(true) {
+					if(isCanceled()) {
+						throw new OperationCancellation();
+					}
+					if(doAwaitTermination(0)) {
+						return;
+					}
+					if(timeoutMs == NO_TIMEOUT) {
+						awaitLock.wait();
+						continue;
+					}
+					long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if(remainingMillis <= 0) {
+						throw new TimeoutException();
+					}
+					awaitLock.wait(remainingMillis);
+				}
+			}
+		} finally {
+			ioEngine.unwatchCancellation(this);
+		}
+	}
+	
 	@Override
 	public void awaitTermination(int timeoutMs, boolean destroyOnError) 
 			throws InterruptedException, TimeoutException, OperationCancellation, IOException {
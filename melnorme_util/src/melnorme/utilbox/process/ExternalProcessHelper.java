@@ -23,11 +23,13 @@ import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.core.fntypes.Result;
 import melnorme.utilbox.misc.ByteArrayOutputStreamExt;
 import melnorme.utilbox.misc.IByteSequence;
+import melnorme.utilbox.misc.SpillingOutputBuffer;
 import melnorme.utilbox.process.ExternalProcessHelper.ReadAllBytesTask;
 
 /**
  * Helper for running external processes.
- * Reads all stdout and stderr output into a byte array (using worker threads)
+ * Reads all stdout and stderr output into a byte buffer (using worker threads).
+ * Output beyond {@link SpillingOutputBuffer#getDefaultMemoryThreshold()} is spilled to a temporary file.
  * 
  * @see ExternalProcessHandler
  */
@@ -63,21 +65,26 @@ public class ExternalProcessHelper
 		stderrReaderTask.completeWithResult(new Result<>(null));
 	}
 	
-	public static class ReadAllBytesTask extends ReaderTask<ByteArrayOutputStreamExt> {
+	public static class ReadAllBytesTask extends ReaderTask<SpillingOutputBuffer> {
 		
-		protected final ByteArrayOutputStreamExt byteArray = new ByteArrayOutputStreamExt(32);
+		protected final SpillingOutputBuffer byteArray;
 		
 		public ReadAllBytesTask(InputStream is, ICancelMonitor cancelMonitor) {
+			this(is, cancelMonitor, new SpillingOutputBuffer());
+		}
+		
+		public ReadAllBytesTask(InputStream is, ICancelMonitor cancelMonitor, SpillingOutputBuffer byteArray) {
 			super(is, cancelMonitor);
+			this.byteArray = assertNotNull(byteArray);
 		}
 		
 		@Override
-		protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) {
-			byteArray.write(buffer, 0, readCount);
+		protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) throws IOException {
+			byteArray.write(buffer, offset, readCount);
 		}
 		
 		@Override
-		protected ByteArrayOutputStreamExt doGetReturnValue() {
+		protected SpillingOutputBuffer doGetReturnValue() {
 			return byteArray;
 		}
 		
@@ -85,21 +92,21 @@ public class ExternalProcessHelper
 	
 	/* ----------------- result helpers ----------------- */
 	
-	protected ByteArrayOutputStreamExt getStdOutBytes() throws IOException {
+	protected SpillingOutputBuffer getStdOutBytes() throws IOException {
 		return stdoutReaderTask.getResult_forSuccessfulyCompleted().get();
 	}
 	
-	protected ByteArrayOutputStreamExt getStdErrBytes() throws IOException {
+	protected SpillingOutputBuffer getStdErrBytes() throws IOException {
 		return stderrReaderTask.getResult_forSuccessfulyCompleted().get();
 	}
 	
 	public static class ExternalProcessResult {
 		
 		public final int exitValue;
-		public final ByteArrayOutputStreamExt stdout;
-		public final ByteArrayOutputStreamExt stderr;
+		public final IByteSequence stdout;
+		public final IByteSequence stderr;
 		
-		public ExternalProcessResult(int exitValue, ByteArrayOutputStreamExt stdout, ByteArrayOutputStreamExt stderr) {
+		public ExternalProcessResult(int exitValue, IByteSequence stdout, IByteSequence stderr) {
 			this.exitValue = exitValue;
 			this.stdout = assertNotNull(stdout);
 			this.stderr = stderr != null ? stderr : new ByteArrayOutputStreamExt();
@@ -113,6 +120,27 @@ public class ExternalProcessHelper
 			return stderr;
 		}
 		
+		/** @return whether any of the output streams was too large to be kept in memory. */
+		public boolean isSpilled() {
+			return isSpilled(stdout) || isSpilled(stderr);
+		}
+		
+		protected static boolean isSpilled(IByteSequence output) {
+			return output instanceof SpillingOutputBuffer && ((SpillingOutputBuffer) output).isSpilled();
+		}
+		
+		/** Release the output buffers. Only needed if output might have been spilled to disk. */
+		public void dispose() {
+			disposeOutput(stdout);
+			disposeOutput(stderr);
+		}
+		
+		protected static void disposeOutput(IByteSequence output) {
+			if(output instanceof SpillingOutputBuffer) {
+				((SpillingOutputBuffer) output).dispose();
+			}
+		}
+		
 	}
 	
 	/* ----------------- Await termination ----------------- */
@@ -13,6 +13,7 @@ package melnorme.utilbox.process;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
+import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -55,6 +56,14 @@ public class ExternalProcessNotifyingHelper extends ExternalProcessHelper {
 		}
 	}
 	
+	/**
+	 * Listener for process output, notified from the reader threads.
+	 * 
+	 * The notified buffers are only valid for the duration of the call: they are reused for subsequent reads,
+	 * and, being taken from the shared pool of {@link ReaderTask}, by other processes as well.
+	 * So listeners must copy any data they want to keep synchronously, before returning,
+	 * and must not pass the buffer on to another thread.
+	 */
 	public static interface IProcessOutputListener {
 		
 		void notifyStdOutListeners(byte[] buffer, int offset, int readCount);
@@ -71,7 +80,7 @@ public class ExternalProcessNotifyingHelper extends ExternalProcessHelper {
 	protected ReadAllBytesTask init_StdOutReaderTask() {
 		return new ReadAllBytesTask(process.getInputStream(), cancelMonitor) {
 			@Override
-			protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) {
+			protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) throws IOException {
 				super.notifyReadChunk2(buffer, offset, readCount);
 				
 				notifyDataRead(buffer, offset, readCount, true);
@@ -83,7 +92,7 @@ public class ExternalProcessNotifyingHelper extends ExternalProcessHelper {
 	protected ReadAllBytesTask init_StdErrReaderTask() {
 		return new ReadAllBytesTask(process.getErrorStream(), cancelMonitor) {
 			@Override
-			protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) {
+			protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) throws IOException {
 				super.notifyReadChunk2(buffer, offset, readCount);
 				
 				notifyDataRead(buffer, offset, readCount, false);
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.process;
+
+import java.nio.charset.Charset;
+
+import melnorme.utilbox.misc.ByteArrayOutputStreamExt;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+/**
+ * An {@link IProcessOutputListener} that splits the process stdout into lines, 
+ * handling each line as soon as it has been read, instead of only after the process terminates.
+ * 
+ * Line terminators (LF or CRLF) are not included in the lines. Stderr output is ignored by default.
+ * Note: listener methods are called from the process reader threads.
+ */
+public abstract class LineSplittingOutputListener implements IProcessOutputListener {
+	
+	protected final Charset charset;
+	protected final ByteArrayOutputStreamExt lineBuffer = new ByteArrayOutputStreamExt(256);
+	
+	public LineSplittingOutputListener() {
+		this(StringUtil.UTF8);
+	}
+	
+	public LineSplittingOutputListener(Charset charset) {
+		this.charset = charset;
+	}
+	
+	@Override
+	public void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+		int end = offset + readCount;
+		int lineStart = offset;
+		
+		for(int ix = offset; ix < end; ix++) {
+			if(buffer[ix] == '\n') {
+				lineBuffer.write(buffer, lineStart, ix - lineStart);
+				flushLine();
+				lineStart = ix + 1;
+			}
+		}
+		lineBuffer.write(buffer, lineStart, end - lineStart);
+	}
+	
+	protected void flushLine() {
+		byte[] bytes = lineBuffer.getInternalBuffer();
+		int length = lineBuffer.getCount();
+		if(length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		String line = new String(bytes, 0, length, charset);
+		lineBuffer.reset();
+		
+		handleStdOutLine(line);
+	}
+	
+	@Override
+	public void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+	}
+	
+	@Override
+	public void notifyProcessTerminatedAndRead(int exitCode) {
+		if(lineBuffer.getCount() > 0) {
+			flushLine(); // Last line, without a line terminator
+		}
+		handleProcessTerminated(exitCode);
+	}
+	
+	protected abstract void handleStdOutLine(String line);
+	
+	@SuppressWarnings("unused")
+	protected void handleProcessTerminated(int exitCode) {
+	}
+	
+}
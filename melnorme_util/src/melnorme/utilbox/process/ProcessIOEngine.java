@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.utilbox.process;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+import melnorme.utilbox.ownership.IDisposable;
+
+/**
+ * An I/O engine for {@link ExternalProcessHandler}s, as an alternative to the default of starting
+ * dedicated reader threads for each process.
+ *
+ * Process streams are pumped by a pool of daemon threads shared by all processes, so threads are reused
+ * across the many short-lived tool processes, instead of two new threads being created for each one.
+ *
+ * Awaiting for process termination does not poll: waiters are signaled when the process and readers terminate.
+ * Cancel monitors of processes being awaited are checked by a single timer thread for all processes,
+ * which only runs while there are processes being awaited, and wakes up the waiter as soon as
+ * cancellation is detected.
+ *
+ * Note: Java 8 process streams only support blocking reads, so a pump thread is still needed for each stream
+ * being read at a given moment. The gain is in thread reuse, and in the waiter side.
+ * The pool is bounded to {@link #getMaxPumpThreads()} threads. Pumps are never queued, since a process whose
+ * output is not being read can block (and so never free a pool thread): when the pool is saturated,
+ * a pump runs in a dedicated thread instead, which terminates with the pump.
+ */
+public class ProcessIOEngine implements IDisposable {
+	
+	public static final int DEFAULT_CANCEL_CHECK_PERIOD_MS = 20;
+	public static final int DEFAULT_MAX_PUMP_THREADS = 16;
+	
+	protected static volatile ProcessIOEngine defaultEngine = null;
+	
+	/**
+	 * @return the engine new {@link ExternalProcessHandler}s use by default.
+	 * null means each handler starts its own reader threads.
+	 */
+	public static ProcessIOEngine getDefault() {
+		return defaultEngine;
+	}
+	
+	public static void setDefault(ProcessIOEngine engine) {
+		defaultEngine = engine;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected final String name;
+	protected final int cancelCheckPeriodMs;
+	protected final ThreadPoolExecutor pumpExecutor;
+	protected final ScheduledThreadPoolExecutor cancelTimer;
+	protected final DaemonThreadFactory overflowThreadFactory;
+	protected final AtomicLong overflowPumpCount = new AtomicLong();
+	
+	protected final Set<ExternalProcessHandler<?, ?>> awaitedHandlers = ConcurrentHashMap.newKeySet();
+	protected ScheduledFuture<?> cancelCheckFuture = null;
+	
+	public ProcessIOEngine(String name) {
+		this(name, DEFAULT_CANCEL_CHECK_PERIOD_MS);
+	}
+	
+	public ProcessIOEngine(String name, int cancelCheckPeriodMs) {
+		this(name, cancelCheckPeriodMs, DEFAULT_MAX_PUMP_THREADS);
+	}
+	
+	public ProcessIOEngine(String name, int cancelCheckPeriodMs, int maxPumpThreads) {
+		this.name = assertNotNull(name);
+		this.cancelCheckPeriodMs = cancelCheckPeriodMs;
+		assertTrue(maxPumpThreads > 0);
+		
+		this.overflowThreadFactory = new DaemonThreadFactory(name + ".pump.overflow");
+		this.pumpExecutor = new ThreadPoolExecutor(0, maxPumpThreads, 60, TimeUnit.SECONDS,
+			new SynchronousQueue<>(), new DaemonThreadFactory(name + ".pump"), this::handlePoolSaturated);
+		this.cancelTimer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory(name + ".cancelCheck"));
+		this.cancelTimer.setRemoveOnCancelPolicy(true);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public void dispose() {
+		cancelTimer.shutdownNow();
+		pumpExecutor.shutdown();
+	}
+	
+	protected static class DaemonThreadFactory extends NamingThreadFactory {
+		
+		public DaemonThreadFactory(String poolName) {
+			super(poolName);
+		}
+		
+		@Override
+		public Thread newThread(Runnable runable) {
+			Thread thread = super.newThread(runable);
+			thread.setDaemon(true);
+			return thread;
+		}
+		
+	}
+	
+	/** Run given stream pump task in a pool thread, or in a dedicated thread if all pool threads are busy. */
+	public void startPump(Runnable pumpTask) {
+		pumpExecutor.execute(pumpTask);
+	}
+	
+	protected void handlePoolSaturated(Runnable pumpTask, ThreadPoolExecutor executor) {
+		if(executor.isShutdown()) {
+			throw new RejectedExecutionException("Engine disposed: " + name);
+		}
+		overflowPumpCount.incrementAndGet();
+		overflowThreadFactory.newThread(pumpTask).start();
+	}
+	
+	/* ----------------- cancellation ----------------- */
+	
+	/**
+	 * Start checking the cancel monitor of given handler,
+	 * calling {@link ExternalProcessHandler#signalAwaiters()} once it is cancelled.
+	 */
+	public synchronized void watchCancellation(ExternalProcessHandler<?, ?> handler) {
+		awaitedHandlers.add(handler);
+		if(cancelCheckFuture == null && !cancelTimer.isShutdown()) {
+			cancelCheckFuture = cancelTimer.scheduleWithFixedDelay(this::checkCancellation,
+				cancelCheckPeriodMs, cancelCheckPeriodMs, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	public synchronized void unwatchCancellation(ExternalProcessHandler<?, ?> handler) {
+		awaitedHandlers.remove(handler);
+		if(awaitedHandlers.isEmpty() && cancelCheckFuture != null) {
+			// No need for timer wake-ups when there is nothing to check
+			cancelCheckFuture.cancel(false);
+			cancelCheckFuture = null;
+		}
+	}
+	
+	protected void checkCancellation() {
+		for(ExternalProcessHandler<?, ?> handler : awaitedHandlers) {
+			if(handler.isCanceled()) {
+				awaitedHandlers.remove(handler);
+				handler.signalAwaiters();
+			}
+		}
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	/** @return the number of pump threads currently alive (running or idle). */
+	public int getPumpThreadCount() {
+		return pumpExecutor.getPoolSize();
+	}
+	
+	public int getLargestPumpThreadCount() {
+		return pumpExecutor.getLargestPoolSize();
+	}
+	
+	public int getMaxPumpThreads() {
+		return pumpExecutor.getMaximumPoolSize();
+	}
+	
+	/** @return the number of pumps that ran in a dedicated thread, because the pool was saturated. */
+	public long getOverflowPumpCount() {
+		return overflowPumpCount.get();
+	}
+	
+	public int getAwaitedCount() {
+		return awaitedHandlers.size();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected static class SharedEngineHolder {
+		protected static final ProcessIOEngine SHARED = new ProcessIOEngine("ProcessIOEngine");
+	}
+	
+	/** @return a shared engine instance, created on first use. It is never disposed. */
+	public static ProcessIOEngine getShared() {
+		return SharedEngineHolder.SHARED;
+	}
+	
+}
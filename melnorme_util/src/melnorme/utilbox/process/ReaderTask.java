@@ -14,6 +14,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.MonitorRunnableFuture;
@@ -24,6 +25,11 @@ public abstract class ReaderTask<RET>
 	extends MonitorRunnableFuture<Result<RET, IOException>> 
 {
 	
+	public static final int BUFFER_SIZE = 8 * 1024;
+	
+	/** Pool of read buffers, so that short-lived processes don't each allocate new buffers. */
+	protected static final ArrayBlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(16);
+	
 	protected final InputStream is;
 	
 	public ReaderTask(InputStream is, ICancelMonitor cancelMonitor) {
@@ -38,24 +44,32 @@ public abstract class ReaderTask<RET>
 	
 	public RET doRun() throws IOException {
 		// BM: Hum, should we treat an IOException not as an error, but just like an EOF?
+		byte[] buffer = acquireBuffer();
 		try {
-			final int BUFFER_SIZE = 1024;
-			byte[] buffer = new byte[BUFFER_SIZE];
-			
 			int read;
 			while((read = is.read(buffer)) != StreamUtil.EOF && !isCancelled()) {
 				notifyReadChunk2(buffer, 0, read);
 			}
 			return doGetReturnValue();
 		} finally {
+			bufferPool.offer(buffer);
 			is.close();
 		}
 	}
 	
+	protected static byte[] acquireBuffer() {
+		byte[] buffer = bufferPool.poll();
+		return buffer != null ? buffer : new byte[BUFFER_SIZE];
+	}
+	
 	protected abstract RET doGetReturnValue();
 	
+	/** 
+	 * Notify of data read. Note: the buffer is reused for subsequent reads (and other readers), 
+	 * so its contents must be copied if they are to be kept. 
+	 */
 	@SuppressWarnings("unused")
-	protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) {
+	protected void notifyReadChunk2(byte[] buffer, int offset, int readCount) throws IOException {
 		// Default implementation: do nothing
 	}
 	
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.engine.EngineProcessPool.EngineProcessWorker;
+import melnorme.lang.ide.core.tests.CommonCoreTest;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
+
+public class EngineProcessPool_Test extends CommonCoreTest {
+	
+	/**
+	 * An in-memory stand-in for a one request per process tool:
+	 * responds to the whole of stdin with "OUT:" + input, or exits with an error for input "fail".
+	 * A broken process is alive but cannot be written to.
+	 */
+	public static class FakeToolProcess extends Process {
+		
+		protected final boolean broken;
+		protected final ByteArrayOutputStream input = new ByteArrayOutputStream();
+		protected final CompletableFuture<byte[]> stdout = new CompletableFuture<>();
+		protected final CompletableFuture<byte[]> stderr = new CompletableFuture<>();
+		protected final CountDownLatch exitLatch = new CountDownLatch(1);
+		protected volatile int exitValue;
+		
+		public FakeToolProcess(boolean broken) {
+			this.broken = broken;
+		}
+		
+		protected synchronized void terminate(String stdoutText, String stderrText, int exitValue) {
+			if(exitLatch.getCount() == 0) {
+				return;
+			}
+			this.exitValue = exitValue;
+			stdout.complete(stdoutText.getBytes(StringUtil.UTF8));
+			stderr.complete(stderrText.getBytes(StringUtil.UTF8));
+			exitLatch.countDown();
+		}
+		
+		@Override
+		public OutputStream getOutputStream() {
+			return new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					if(broken) {
+						throw new IOException("Broken pipe");
+					}
+					input.write(b);
+				}
+				
+				@Override
+				public void close() throws IOException {
+					if(broken) {
+						throw new IOException("Broken pipe");
+					}
+					String request = new String(input.toByteArray(), StringUtil.UTF8);
+					if(request.equals("fail")) {
+						terminate("", "Tool error", 2);
+					} else {
+						terminate("OUT:" + request, "", 0);
+					}
+				}
+			};
+		}
+		
+		@Override
+		public InputStream getInputStream() {
+			return new FutureInputStream(stdout);
+		}
+		
+		@Override
+		public InputStream getErrorStream() {
+			return new FutureInputStream(stderr);
+		}
+		
+		@Override
+		public int waitFor() throws InterruptedException {
+			exitLatch.await();
+			return exitValue;
+		}
+		
+		@Override
+		public int exitValue() {
+			if(exitLatch.getCount() > 0) {
+				throw new IllegalThreadStateException();
+			}
+			return exitValue;
+		}
+		
+		@Override
+		public void destroy() {
+			terminate("", "", 143);
+		}
+		
+	}
+	
+	/** An input stream whose contents only become available once the given future completes. */
+	protected static class FutureInputStream extends InputStream {
+		
+		protected final CompletableFuture<byte[]> contents;
+		protected InputStream is;
+		
+		public FutureInputStream(CompletableFuture<byte[]> contents) {
+			this.contents = contents;
+		}
+		
+		protected InputStream getStream() throws IOException {
+			if(is == null) {
+				try {
+					is = new ByteArrayInputStream(contents.get());
+				} catch(InterruptedException | ExecutionException e) {
+					throw new IOException(e);
+				}
+			}
+			return is;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			return getStream().read();
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return getStream().read(b, off, len);
+		}
+		
+	}
+	
+	protected class TestsEngineProcessPool extends EngineProcessPool {
+		
+		protected int brokenStarts = 0;
+		protected int startCount = 0;
+		
+		public TestsEngineProcessPool() {
+			super(LangCore.getToolManager(), "fake_tool", 1, DEFAULT_MAX_IDLE_MILLIS);
+		}
+		
+		@Override
+		protected ExternalProcessNotifyingHelper startProcess(ProcessBuilder pb, ICancelMonitor cm) {
+			boolean broken;
+			synchronized(this) {
+				startCount++;
+				broken = brokenStarts > 0;
+				if(broken) {
+					brokenStarts--;
+				}
+			}
+			return new ExternalProcessNotifyingHelper(new FakeToolProcess(broken), true, cm,
+				new ArrayList2<>(), LangCore.log());
+		}
+		
+		public void checkStats(long warmRequests, long coldRequests, long restarts) {
+			assertTrue(warmRequestCount.get() == warmRequests);
+			assertTrue(coldRequestCount.get() == coldRequests);
+			assertTrue(restartCount.get() == restarts);
+		}
+		
+		public EngineProcessWorker awaitIdleWorker() throws InterruptedException {
+			for(int i = 0; i < 500; i++) {
+				synchronized(lock) {
+					if(!idleWorkers.isEmpty() && pendingSpawns == 0) {
+						return idleWorkers.peek();
+					}
+				}
+				Thread.sleep(10);
+			}
+			throw new AssertionError("Timeout waiting for an idle worker.");
+		}
+		
+	}
+	
+	protected final ProcessBuilder pb = new ProcessBuilder("fake_tool");
+	protected TestsEngineProcessPool pool;
+	
+	@Before
+	public void setUp() {
+		pool = new TestsEngineProcessPool();
+	}
+	
+	@After
+	public void tearDown() {
+		pool.dispose();
+	}
+	
+	protected String runRequest(String input) throws Exception {
+		ExternalProcessResult result = pool.runRequest(pb, input, new CancelMonitor());
+		return result.getStdOutBytes().toString(StringUtil.UTF8);
+	}
+	
+	@Test
+	public void testReuse() throws Exception { testReuse$(); }
+	public void testReuse$() throws Exception {
+		// No warm worker for the first request
+		assertAreEqual(runRequest("abc"), "OUT:abc");
+		pool.checkStats(0, 1, 0);
+		
+		pool.awaitIdleWorker();
+		assertAreEqual(runRequest("def"), "OUT:def");
+		pool.checkStats(1, 1, 0);
+		
+		// A tool error is not retried
+		pool.awaitIdleWorker();
+		int startCount = pool.startCount;
+		ExternalProcessResult result = pool.runRequest(pb, "fail", new CancelMonitor());
+		assertTrue(result.exitValue == 2);
+		assertAreEqual(result.getStdErrBytes().toString(StringUtil.UTF8), "Tool error");
+		pool.checkStats(2, 1, 0);
+		pool.awaitIdleWorker();
+		assertTrue(pool.startCount == startCount + 1); // Only the pool refill
+	}
+	
+	@Test
+	public void testRestart() throws Exception { testRestart$(); }
+	public void testRestart$() throws Exception {
+		runRequest("abc");
+		
+		// A worker that died while idle is discarded
+		EngineProcessWorker idleWorker = pool.awaitIdleWorker();
+		idleWorker.stop();
+		assertAreEqual(runRequest("def"), "OUT:def");
+		pool.checkStats(0, 2, 1);
+		
+		// A change of configuration stops the idle workers
+		EngineProcessWorker otherIdleWorker = pool.awaitIdleWorker();
+		ProcessBuilder otherPb = new ProcessBuilder("fake_tool", "--other");
+		pool.runRequest(otherPb, "", new CancelMonitor());
+		pool.checkStats(0, 3, 1);
+		assertTrue(otherIdleWorker.processHelper.getProcess().isAlive() == false);
+	}
+	
+	@Test
+	public void testColdFallback() throws Exception { testColdFallback$(); }
+	public void testColdFallback$() throws Exception {
+		pool.takeIdleWorker(pb); // Set up pool configuration
+		pool.brokenStarts = 1;
+		pool.refillPool(pb);
+		pool.awaitIdleWorker();
+		
+		// The warm worker is alive, but fails to communicate: the request is retried with a new process
+		assertAreEqual(runRequest("abc"), "OUT:abc");
+		pool.checkStats(1, 1, 1);
+	}
+	
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.engine.SourceModelManager.StructureInfo;
+import melnorme.lang.ide.core.engine.SourceModelManager.StructureUpdateTask;
+import melnorme.lang.ide.core.engine.StructureModelTest.FixtureSourceModelManager;
+import melnorme.lang.ide.core.engine.StructureUpdateScheduler.IDebounceTimer;
+import melnorme.lang.ide.core.engine.StructureUpdateScheduler.UpdateSchedulerStats;
+import melnorme.lang.ide.core.tests.CommonCoreTest;
+import melnorme.lang.tooling.LocationKey;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.utilbox.collections.ArrayList2;
+
+public class StructureUpdateScheduler_Test extends CommonCoreTest {
+	
+	public static final long DEBOUNCE = 100;
+	
+	/** A timer that only advances when requested by the test. */
+	public static class ManualDebounceTimer implements IDebounceTimer {
+		
+		protected long currentTime = 0;
+		protected boolean disposed = false;
+		protected final ArrayList2<ScheduledEntry> entries = new ArrayList2<>();
+		
+		protected static class ScheduledEntry {
+			protected final long dueTime;
+			protected final FutureTask<?> future;
+			
+			public ScheduledEntry(long dueTime, FutureTask<?> future) {
+				this.dueTime = dueTime;
+				this.future = future;
+			}
+		}
+		
+		@Override
+		public synchronized Future<?> schedule(Runnable runnable, long delayMillis) {
+			FutureTask<?> future = new FutureTask<>(runnable, null);
+			entries.add(new ScheduledEntry(currentTime + delayMillis, future));
+			return future;
+		}
+		
+		/** Advance the clock by given amount, running the entries that became due, in due time order. */
+		public void advance(long millis) {
+			long targetTime = currentTime + millis;
+			while(true) {
+				ScheduledEntry nextEntry;
+				synchronized(this) {
+					nextEntry = null;
+					for(ScheduledEntry entry : entries) {
+						if(entry.dueTime <= targetTime && (nextEntry == null || entry.dueTime < nextEntry.dueTime)) {
+							nextEntry = entry;
+						}
+					}
+					if(nextEntry == null) {
+						currentTime = targetTime;
+						return;
+					}
+					entries.remove(nextEntry);
+					currentTime = nextEntry.dueTime;
+				}
+				nextEntry.future.run(); // Does nothing if cancelled
+			}
+		}
+		
+		@Override
+		public synchronized boolean isDisposed() {
+			return disposed;
+		}
+		
+		@Override
+		public synchronized void dispose() {
+			disposed = true;
+			entries.clear();
+		}
+		
+	}
+	
+	protected class TestsUpdateScheduler extends StructureUpdateScheduler {
+		
+		protected final ArrayList2<StructureUpdateTask> submitted = new ArrayList2<>();
+		
+		public TestsUpdateScheduler() {
+			super(fixtureMgr.executor, DEBOUNCE, timer);
+		}
+		
+		@Override
+		protected void submit(StructureUpdateTask updateTask) {
+			if(updateTask.isCancelled()) {
+				super.submit(updateTask); // Check the cancelled task is not executed
+				return;
+			}
+			submitted.add(updateTask);
+		}
+		
+	}
+	
+	protected FixtureSourceModelManager fixtureMgr;
+	protected ManualDebounceTimer timer;
+	protected TestsUpdateScheduler scheduler;
+	
+	@Before
+	public void setUp() {
+		fixtureMgr = new FixtureSourceModelManager();
+		timer = new ManualDebounceTimer();
+		scheduler = new TestsUpdateScheduler();
+	}
+	
+	@After
+	public void tearDown() {
+		scheduler.dispose();
+		fixtureMgr.dispose();
+	}
+	
+	protected StructureUpdateTask newTask(StructureInfo structureInfo) {
+		return new StructureUpdateTask(structureInfo) {
+			@Override
+			protected SourceFileStructure doCreateNewData() {
+				return null;
+			}
+		};
+	}
+	
+	protected void checkSubmitted(StructureUpdateTask... expected) {
+		assertAreEqual(scheduler.submitted, ArrayList2.create(expected));
+	}
+	
+	protected void checkStats(int debouncingCount, long scheduledCount, long coalescedCount) {
+		UpdateSchedulerStats stats = scheduler.getStats();
+		assertTrue(stats.debouncingCount == debouncingCount);
+		assertTrue(stats.scheduledCount == scheduledCount);
+		assertTrue(stats.coalescedCount == coalescedCount);
+	}
+	
+	@Test
+	public void testRapidEdits() throws Exception { testRapidEdits$(); }
+	public void testRapidEdits$() throws Exception {
+		LocationKey key = new LocationKey("key1", "key1");
+		StructureInfo structureInfo = fixtureMgr.new StructureInfo(key);
+		
+		StructureUpdateTask lastTask = null;
+		for(int i = 0; i < 5; i++) {
+			lastTask = newTask(structureInfo);
+			scheduler.scheduleDebounced(key, lastTask);
+			timer.advance(DEBOUNCE - 10);
+			checkSubmitted(); // Not submitted while edits keep coming
+		}
+		checkStats(1, 5, 4);
+		
+		timer.advance(9);
+		checkSubmitted();
+		timer.advance(1);
+		checkSubmitted(lastTask);
+		checkStats(0, 5, 4);
+		
+		// Nothing else is pending
+		timer.advance(DEBOUNCE * 10);
+		checkSubmitted(lastTask);
+	}
+	
+	@Test
+	public void testSeparateKeys() throws Exception { testSeparateKeys$(); }
+	public void testSeparateKeys$() throws Exception {
+		LocationKey key1 = new LocationKey("key1", "key1");
+		LocationKey key2 = new LocationKey("key2", "key2");
+		StructureUpdateTask task1 = newTask(fixtureMgr.new StructureInfo(key1));
+		StructureUpdateTask task2 = newTask(fixtureMgr.new StructureInfo(key2));
+		
+		scheduler.scheduleDebounced(key1, task1);
+		timer.advance(DEBOUNCE / 2);
+		scheduler.scheduleDebounced(key2, task2);
+		checkStats(2, 2, 0);
+		
+		timer.advance(DEBOUNCE / 2);
+		checkSubmitted(task1);
+		timer.advance(DEBOUNCE / 2);
+		checkSubmitted(task1, task2);
+		checkStats(0, 2, 0);
+	}
+	
+	@Test
+	public void testSupersede() throws Exception { testSupersede$(); }
+	public void testSupersede$() throws Exception {
+		LocationKey key = new LocationKey("key1", "key1");
+		StructureInfo structureInfo = fixtureMgr.new StructureInfo(key);
+		
+		// An immediate task supersedes a pending debounced one
+		StructureUpdateTask debouncedTask = newTask(structureInfo);
+		scheduler.scheduleDebounced(key, debouncedTask);
+		StructureUpdateTask immediateTask = newTask(structureInfo);
+		scheduler.scheduleNow(key, immediateTask);
+		checkSubmitted(immediateTask);
+		checkStats(0, 2, 1);
+		
+		timer.advance(DEBOUNCE * 2);
+		checkSubmitted(immediateTask);
+		
+		// A task cancelled while debouncing is not submitted
+		StructureUpdateTask cancelledTask = newTask(structureInfo);
+		scheduler.scheduleDebounced(key, cancelledTask);
+		cancelledTask.cancel();
+		timer.advance(DEBOUNCE);
+		checkSubmitted(immediateTask);
+		checkStats(0, 3, 2);
+	}
+	
+	@Test
+	public void testDispose() throws Exception { testDispose$(); }
+	public void testDispose$() throws Exception {
+		LocationKey key = new LocationKey("key1", "key1");
+		StructureInfo structureInfo = fixtureMgr.new StructureInfo(key);
+		
+		scheduler.scheduleDebounced(key, newTask(structureInfo));
+		checkStats(1, 1, 0);
+		
+		scheduler.dispose();
+		assertTrue(timer.isDisposed());
+		checkStats(0, 1, 0);
+		
+		// Pending tasks are dropped
+		timer.advance(DEBOUNCE * 2);
+		checkSubmitted();
+	}
+	
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.tests.CommonCoreTest;
+import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask.ProcessStartHelper;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+public class PrefixingToolOperationMonitor_Test extends CommonCoreTest {
+	
+	/** Records everything written to the monitor, with "out:"/"err:" markers for each process output chunk. */
+	protected static class RecordingToolMonitor implements IToolOperationMonitor, IProcessOutputListener {
+		
+		protected final ArrayList2<String> writes = new ArrayList2<>();
+		protected int exitCode = -1;
+		
+		@Override
+		public void writeInfoMessage(String operationMessage) {
+			writes.add(operationMessage);
+		}
+		
+		@Override
+		public void handleProcessStart(String prefixText, String suffixText, ProcessBuilder pb,
+				ProcessStartHelper processStartHelper) {
+			writes.add(prefixText + String.join(" ", pb.command()) + suffixText);
+			try {
+				processStartHelper.addProcessListener(this);
+			} catch(Exception e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+		@Override
+		public void activate() {
+		}
+		
+		@Override
+		public void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+			writes.add("out:" + new String(buffer, offset, readCount, StringUtil.UTF8));
+		}
+		
+		@Override
+		public void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+			writes.add("err:" + new String(buffer, offset, readCount, StringUtil.UTF8));
+		}
+		
+		@Override
+		public void notifyProcessTerminatedAndRead(int exitCode) {
+			this.exitCode = exitCode;
+		}
+		
+	}
+	
+	protected static void write(IProcessOutputListener listener, boolean isStdErr, String text) {
+		byte[] bytes = ("##" + text).getBytes(StringUtil.UTF8);
+		// Use an offset, as buffers from the process readers are not necessarily at the start 
+		if(isStdErr) {
+			listener.notifyStdErrListeners(bytes, 2, bytes.length - 2);
+		} else {
+			listener.notifyStdOutListeners(bytes, 2, bytes.length - 2);
+		}
+	}
+	
+	@Test
+	public void testPrefixing() throws Exception { testPrefixing$(); }
+	public void testPrefixing$() throws Exception {
+		RecordingToolMonitor recorder = new RecordingToolMonitor();
+		PrefixingToolOperationMonitor monitor = new PrefixingToolOperationMonitor(recorder, "[p] ");
+		
+		monitor.writeInfoMessage("Building\nproject\n");
+		assertAreEqual(recorder.writes, ArrayList2.create("[p] Building\n[p] project\n"));
+		recorder.writes.clear();
+		
+		ArrayList2<IProcessOutputListener> listeners = new ArrayList2<>();
+		monitor.handleProcessStart(">> ", "\nfoo\n", new ProcessBuilder("cargo", "build"), listeners::add);
+		assertAreEqual(recorder.writes, ArrayList2.create("[p] >> cargo build\n[p] foo\n"));
+		recorder.writes.clear();
+		
+		IProcessOutputListener listener = listeners.get(0);
+		// Output is written through one whole line at a time
+		write(listener, false, "Compil");
+		assertTrue(recorder.writes.isEmpty());
+		write(listener, false, "ing\nwarn");
+		write(listener, true, "error: x\nerror");
+		write(listener, false, "ing: y\r\n");
+		assertAreEqual(recorder.writes, ArrayList2.create(
+			"out:[p] Compiling\n", 
+			"err:[p] error: x\n",
+			"out:[p] warning: y\r\n"
+		));
+		recorder.writes.clear();
+		
+		// Remaining partial lines are written once the process terminates
+		listener.notifyProcessTerminatedAndRead(101);
+		assertAreEqual(recorder.writes, ArrayList2.create("err:[p] error"));
+		assertTrue(recorder.exitCode == 101);
+	}
+	
+	@Test
+	public void testLongLines() throws Exception { testLongLines$(); }
+	public void testLongLines$() throws Exception {
+		RecordingToolMonitor recorder = new RecordingToolMonitor();
+		PrefixingToolOperationMonitor monitor = new PrefixingToolOperationMonitor(recorder, "[p] ");
+		ArrayList2<IProcessOutputListener> listeners = new ArrayList2<>();
+		monitor.handleProcessStart(null, null, new ProcessBuilder("cargo"), listeners::add);
+		recorder.writes.clear();
+		
+		// Partial lines are not buffered beyond MAX_LINE_LENGTH
+		String chunk = StringUtil.newFilledString(PrefixingToolOperationMonitor.MAX_LINE_LENGTH / 2, 'a');
+		write(listeners.get(0), false, chunk);
+		assertTrue(recorder.writes.isEmpty());
+		write(listeners.get(0), false, chunk);
+		assertAreEqual(recorder.writes, ArrayList2.create("out:[p] " + chunk + chunk));
+	}
+	
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.LangCore_Actual;
+import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.NullToolOperationMonitor;
+import melnorme.lang.ide.core.operations.build.BuildMarkersUpdate;
+import melnorme.lang.ide.core.tests.CoreTestWithProject;
+import melnorme.lang.ide.core.utils.ResourceUtils;
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.lang.tooling.common.ops.IOperationMonitor.NullOperationMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.status.Severity;
+
+public class ToolMarkersHelper_Test extends CoreTestWithProject {
+	
+	protected Location projectLocation;
+	protected ToolMarkersHelper markersHelper;
+	
+	protected static ToolSourceMessage msg(String path, int line, Severity severity, String message) {
+		return new ToolSourceMessage(Paths.get(path), new SourceLineColumnRange(line, 1), severity, message);
+	}
+	
+	/** Run a build that reports given messages, in given batches. @return the number of deleted markers. */
+	@SafeVarargs
+	protected final int runBuild(ArrayList2<ToolSourceMessage>... batches) throws Exception {
+		BuildMarkersUpdate markersUpdate = new BuildMarkersUpdate(new NullToolOperationMonitor());
+		markersUpdate.collectExistingMarkers(projectLocation, new NullOperationMonitor());
+		
+		markersHelper = new ToolMarkersHelper(false, markersUpdate.getStaleMarkers());
+		for(ArrayList2<ToolSourceMessage> batch : batches) {
+			markersHelper.addErrorMarkers(batch, projectLocation, new NullOperationMonitor());
+		}
+		int deletedCount = markersUpdate.getStaleMarkers().getStaleCount();
+		
+		markersUpdate.deleteStaleMarkers(new NullOperationMonitor());
+		assertTrue(markersUpdate.getStaleMarkers().getStaleCount() == 0);
+		return deletedCount;
+	}
+	
+	protected HashSet<IMarker> getMarkers() throws Exception {
+		IMarker[] markers = project.findMarkers(LangCore_Actual.BUILD_PROBLEM_ID, true, IResource.DEPTH_INFINITE);
+		return new HashSet<>(list(markers));
+	}
+	
+	protected IMarker findMarker(String resourcePath, String message) throws Exception {
+		IResource resource = project.findMember(resourcePath);
+		for(IMarker marker : resource.findMarkers(LangCore_Actual.BUILD_PROBLEM_ID, false, IResource.DEPTH_ZERO)) {
+			if(message.equals(marker.getAttribute(IMarker.MESSAGE))) {
+				return marker;
+			}
+		}
+		return null;
+	}
+	
+	protected void checkCounts(int created, int unchanged) {
+		assertTrue(markersHelper.getCreatedMarkersCount() == created);
+		assertTrue(markersHelper.getUnchangedMarkersCount() == unchanged);
+	}
+	
+	@Test
+	public void testMarkersDiff() throws Exception { testMarkersDiff$(); }
+	public void testMarkersDiff$() throws Exception {
+		initSampleProject();
+		projectLocation = ResourceUtils.getProjectLocation2(project);
+		writeStringToFile(project, "main.rs", "fn main() {\n\tfoo();\n\tbar();\n}\n");
+		writeStringToFile(project, "other.rs", "fn other() {\n}\n");
+		
+		ToolSourceMessage msgA = msg("main.rs", 2, Severity.ERROR, "Error A");
+		ToolSourceMessage msgB = msg("main.rs", 3, Severity.WARNING, "Warning B");
+		ToolSourceMessage msgC = msg("main.rs", 3, Severity.ERROR, "Error C");
+		ToolSourceMessage msgD = msg("other.rs", 1, Severity.ERROR, "Error D");
+		
+		// Add
+		assertTrue(runBuild(list(msgA, msgB), list(msgD)) == 0);
+		checkCounts(3, 0);
+		IMarker markerA = findMarker("main.rs", "Error A");
+		IMarker markerB = findMarker("main.rs", "Warning B");
+		IMarker markerD = findMarker("other.rs", "Error D");
+		assertAreEqual(getMarkers(), hashSet(markerA, markerB, markerD));
+		assertTrue(markerA.getAttribute(IMarker.LINE_NUMBER, -1) == 2);
+		assertTrue(markerA.getAttribute(IMarker.CHAR_START, -1) == "fn main() {\n".length());
+		
+		// Keep the markers still reported, remove the others (including those of a resource with no messages)
+		assertTrue(runBuild(list(msgA), list(msgC)) == 2);
+		checkCounts(1, 1);
+		IMarker markerC = findMarker("main.rs", "Error C");
+		assertAreEqual(getMarkers(), hashSet(markerA, markerC));
+		assertTrue(markerA.exists());
+		assertTrue(!markerB.exists() && !markerD.exists());
+		
+		// A message reported again in a later batch of the same build does not create a duplicate
+		assertTrue(runBuild(list(msgA, msgC), list(msgC)) == 0);
+		checkCounts(0, 3);
+		assertAreEqual(getMarkers(), hashSet(markerA, markerC));
+		
+		// Duplicate messages in the same batch are kept
+		assertTrue(runBuild(list(msgA, msgA)) == 1);
+		checkCounts(1, 1);
+		assertTrue(markerA.exists() && !markerC.exists());
+		assertTrue(getMarkers().size() == 2);
+		
+		// A build with no messages removes all markers
+		assertTrue(runBuild() == 2);
+		assertTrue(getMarkers().isEmpty());
+	}
+	
+	@Test
+	public void testWithoutStaleMarkers() throws Exception { testWithoutStaleMarkers$(); }
+	public void testWithoutStaleMarkers$() throws Exception {
+		initSampleProject();
+		projectLocation = ResourceUtils.getProjectLocation2(project);
+		writeStringToFile(project, "main.rs", "fn main() {\n}\n");
+		
+		ToolSourceMessage msgA = msg("main.rs", 1, Severity.ERROR, "Error A");
+		ToolSourceMessage msgB = msg("main.rs", 2, Severity.ERROR, "Error B");
+		
+		// Without a stale markers tracking, existing markers are only added to
+		markersHelper = new ToolMarkersHelper();
+		markersHelper.addErrorMarkers(list(msgA), projectLocation, new NullOperationMonitor());
+		markersHelper = new ToolMarkersHelper();
+		markersHelper.addErrorMarkers(list(msgA, msgB), projectLocation, new NullOperationMonitor());
+		checkCounts(1, 1);
+		assertTrue(getMarkers().size() == 2);
+	}
+	
+}
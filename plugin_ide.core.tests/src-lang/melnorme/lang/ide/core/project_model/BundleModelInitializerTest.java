@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.project_model;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.tests.CommonCoreTest;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.misc.SimpleLogger;
+
+public class BundleModelInitializerTest extends CommonCoreTest {
+	
+	protected final IProject p1 = getProject("BundleModelInitializerTest_1");
+	protected final IProject p2 = getProject("BundleModelInitializerTest_2");
+	protected final IProject p3 = getProject("BundleModelInitializerTest_3");
+	protected final IProject p4 = getProject("BundleModelInitializerTest_4");
+	
+	protected final ArrayList2<String> createdProjects = new ArrayList2<>();
+	protected final CountDownLatch firstStarted = new CountDownLatch(1);
+	protected final CountDownLatch releaseFirst = new CountDownLatch(1);
+	
+	protected static IProject getProject(String name) {
+		return ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+	}
+	
+	/** 
+	 * @return an initializer that records the order projects are created in. 
+	 * The creation of p1 blocks until {@link #releaseFirst} is released.
+	 */
+	protected BundleModelInitializer createInitializer() {
+		return new BundleModelInitializer(new SimpleLogger(false), (project) -> {
+			synchronized(createdProjects) {
+				createdProjects.add(project.getName());
+			}
+			if(project == p1) {
+				firstStarted.countDown();
+				try {
+					releaseFirst.await();
+				} catch(InterruptedException e) {
+					// Continue
+				}
+			}
+		});
+	}
+	
+	protected Thread startInitialization(BundleModelInitializer initializer) {
+		Thread initThread = new Thread(() -> {
+			try {
+				initializer.initializeProjects(ArrayList2.create(p1, p2, p3, p4), 1, 0);
+			} catch(InterruptedException e) {
+				// Test will fail
+			}
+		});
+		initThread.start();
+		return initThread;
+	}
+	
+	@Test
+	public void testPriority() throws Exception { testPriority$(); }
+	public void testPriority$() throws Exception {
+		BundleModelInitializer initializer = createInitializer();
+		Thread initThread = startInitialization(initializer);
+		firstStarted.await();
+		
+		assertTrue(initializer.isPending(p4));
+		initializer.requestProject(p4);
+		releaseFirst.countDown();
+		
+		initializer.awaitProject(p4, new CancelMonitor());
+		assertTrue(initializer.isPending(p4) == false);
+		
+		initThread.join();
+		assertAreEqual(createdProjects, ArrayList2.create(p1.getName(), p4.getName(), p2.getName(), p3.getName()));
+		
+		// Projects not part of the initialization are not waited for
+		initializer.awaitProject(getProject("BundleModelInitializerTest_Other"), new CancelMonitor());
+	}
+	
+	@Test
+	public void testCancel() throws Exception { testCancel$(); }
+	public void testCancel$() throws Exception {
+		BundleModelInitializer initializer = createInitializer();
+		Thread initThread = startInitialization(initializer);
+		firstStarted.await();
+		
+		CancelMonitor cancelledCm = new CancelMonitor();
+		cancelledCm.cancel();
+		verifyThrows(() -> initializer.awaitProject(p3, cancelledCm), OperationCancellation.class);
+		assertTrue(initializer.isPending(p3));
+		
+		// Waiters are released when the initialization is cancelled
+		CountDownLatch waiterDone = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try {
+				initializer.awaitProject(p3, new CancelMonitor());
+				waiterDone.countDown();
+			} catch(OperationCancellation e) {
+				// Test will fail
+			}
+		});
+		waiter.start();
+		assertTrue(waiterDone.await(200, TimeUnit.MILLISECONDS) == false);
+		
+		initializer.cancel();
+		assertTrue(waiterDone.await(5, TimeUnit.SECONDS));
+		assertTrue(initializer.isPending(p3) == false);
+		
+		releaseFirst.countDown();
+		initThread.join();
+		// The pending projects were not created
+		assertAreEqual(createdProjects, ArrayList2.create(p1.getName()));
+	}
+	
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.text;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.jface.text.Document;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.tests.CommonCoreTest;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
+
+public class DocumentLinesTracker_Test extends CommonCoreTest {
+	
+	protected static void checkLineOffsets(Document document) {
+		LineOffsetsIndex lineOffsets = DocumentLinesTracker.getLineOffsets(document);
+		LineOffsetsIndex expected = LineOffsetsIndex.create(document.get());
+		assertEquals(lineOffsets.getSourceLength(), expected.getSourceLength());
+		assertEquals(lineOffsets.getNumberOfLines(), expected.getNumberOfLines());
+		assertEquals(lineOffsets.getNumberOfLines(), document.getNumberOfLines());
+		for(int line = 0; line < expected.getNumberOfLines(); line++) {
+			assertEquals(lineOffsets.getLineOffset(line), expected.getLineOffset(line));
+		}
+		assertEquals(DocumentLinesTracker.getSourceLinesInfo(document).getLineOffsets(), lineOffsets);
+	}
+	
+	@Test
+	public void testCoalescedChanges() throws Exception { testCoalescedChanges$(); }
+	public void testCoalescedChanges$() throws Exception {
+		Document document = new Document("fn main() {\n}\n");
+		DocumentLinesTracker tracker = DocumentLinesTracker.getTracker(document);
+		checkLineOffsets(document);
+		
+		// Changes are only applied once the line offsets are requested
+		document.replace(12, 0, "\tfoo();\r\n");
+		document.replace(0, 0, "\n");
+		document.replace(document.getLength(), 0, "\r");
+		assertTrue(tracker.hasChanges);
+		checkLineOffsets(document);
+		assertTrue(!tracker.hasChanges);
+		
+		// A CR+LF sequence split and joined by separate changes
+		document.replace(12, 0, "\r");
+		document.replace(13, 0, "x\n");
+		document.replace(13, 1, "");
+		checkLineOffsets(document);
+		
+		Random random = new Random(11);
+		String chars = "ab\r\n";
+		for(int ix = 0; ix < 500; ix++) {
+			int changeCount = random.nextInt(5) + 1;
+			for(int change = 0; change < changeCount; change++) {
+				int offset = random.nextInt(document.getLength() + 1);
+				int removedLength = random.nextInt(Math.min(document.getLength() - offset, 4) + 1);
+				StringBuilder text = new StringBuilder();
+				for(int len = random.nextInt(5); len > 0; len--) {
+					text.append(chars.charAt(random.nextInt(chars.length())));
+				}
+				document.replace(offset, removedLength, text.toString());
+			}
+			checkLineOffsets(document);
+		}
+	}
+	
+	@Test
+	public void testMissedChanges() throws Exception { testMissedChanges$(); }
+	public void testMissedChanges$() throws Exception {
+		Document document = new Document("abc\ndef");
+		DocumentLinesTracker tracker = DocumentLinesTracker.getTracker(document);
+		checkLineOffsets(document);
+		
+		document.removeDocumentListener(tracker);
+		document.replace(0, 0, "\n\n");
+		document.addDocumentListener(tracker);
+		document.replace(0, 0, "x");
+		// The tracker detects it missed a change, and recomputes the index
+		checkLineOffsets(document);
+	}
+	
+}
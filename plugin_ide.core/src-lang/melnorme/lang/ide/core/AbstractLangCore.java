@@ -19,6 +19,7 @@ import melnorme.lang.ide.core.operations.build.BuildManager;
 import melnorme.lang.ide.core.project_model.BundleModelManager;
 import melnorme.lang.ide.core.project_model.LangBundleModel;
 import melnorme.utilbox.misc.ILogHandler;
+import melnorme.utilbox.process.ProcessIOEngine;
 import melnorme.utilbox.status.StatusException;
 
 public abstract class AbstractLangCore extends LoggingCore {
@@ -43,6 +44,9 @@ public abstract class AbstractLangCore extends LoggingCore {
 		
 		this.logHandler = logHandler;
 		
+		// Tool processes are many and short-lived, so have them share reader threads.
+		ProcessIOEngine.setDefault(ProcessIOEngine.getShared());
+		
 		coreSettings = assertNotNull(createCoreSettings());
 		toolManager = assertNotNull(createToolManager());
 		languageServerHandler = assertNotNull(createLanguageServerHandler());
@@ -20,7 +20,7 @@ public class LangCoreMessages implements ProcessHelperMessages {
 	
 	/* ----------------- Build ----------------- */
 	
-	public static final String BUILD_ClearingProblemMarkers = "Clearing problem markers";
+	public static final String BUILD_RemovingStaleMarkers = "Removing outdated problem markers";
 	
 	/* -----------------  ----------------- */
 	
@@ -20,6 +20,8 @@ import melnorme.utilbox.ownership.LifecycleObject;
 
 public class AbstractAgentManager extends LifecycleObject {
 	
+	public static final int DEFAULT_MAX_THREADS = 4;
+	
 	public final SimpleLogger log = init_log();
 	
 	protected final ICommonExecutor executor = init_executor();
@@ -31,7 +33,8 @@ public class AbstractAgentManager extends LifecycleObject {
 		return new SimpleLogger(Platform.inDebugMode());
 	}
 	protected ICommonExecutor init_executor() {
-		return CoreExecutors.newCachedThreadPool(getClass());
+		// Bounded, agent tasks usually run external tools, see also ToolManager#getEngineToolScheduler()
+		return CoreExecutors.newFixedThreadPool(getClass(), DEFAULT_MAX_THREADS);
 	}
 	
 	@Override
@@ -108,7 +108,7 @@ public class DocumentReconcileManager extends AbstractAgentManager {
 		};
 		
 		protected StructureUpdateTask doDocumentChanged() {
-			return structureInfo.queueSourceUpdateTask(document.get());
+			return structureInfo.queueDocumentChangeUpdateTask(document.get());
 		}
 		
 	}
@@ -153,7 +153,7 @@ public class DocumentReconcileManager extends AbstractAgentManager {
 		
 		@Override
 		protected StructureUpdateTask doDocumentChanged() {
-			StructureUpdateTask structureUpdateTask = structureInfo.queueSourceUpdateTask(document.get());
+			StructureUpdateTask structureUpdateTask = structureInfo.queueDocumentChangeUpdateTask(document.get());
 			
 			fileSaveLatch.setCancelledResult();
 			fileSaveLatch = new CompletableLatch();
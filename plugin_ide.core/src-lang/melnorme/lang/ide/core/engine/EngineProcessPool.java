@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.core.utils.CoreExecutors;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.ICommonExecutor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.PathUtil;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.ownership.IDisposable;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
+import melnorme.utilbox.process.ProcessHelperMessages;
+
+/**
+ * A pool of pre-started (warm) engine tool processes, for tools that handle one request per process:
+ * the request is the whole of stdin (until EOF), and the response the whole of stdout.
+ *
+ * Having a process already started when a request arrives takes the process startup cost
+ * (fork/exec, dynamic loading) out of the request latency. Each worker serves a single request,
+ * and a replacement is started in the background right after it is taken from the pool.
+ *
+ * Idle workers are health-checked before use: workers that have died (crashed) or are too old
+ * are discarded and restarted. If the tool command line changes (for example, the tool path setting
+ * was changed), all idle workers are stopped and the pool is restarted with the new command line.
+ * 
+ * If a warm worker fails to communicate (see {@link WorkerFailureException}), the request is retried once
+ * with a newly started process. Other errors, including a non-zero exit of the tool, are not retried.
+ */
+public class EngineProcessPool implements IDisposable {
+	
+	public static final int DEFAULT_POOL_SIZE = 2;
+	public static final long DEFAULT_MAX_IDLE_MILLIS = 10 * 60 * 1000;
+	
+	protected final ToolManager toolMgr;
+	protected final String toolName;
+	protected final int poolSize;
+	protected final long maxIdleMillis;
+	protected final ICommonExecutor spawnExecutor;
+	
+	protected final Object lock = new Object();
+	protected final ArrayDeque<EngineProcessWorker> idleWorkers = new ArrayDeque<>();
+	protected int pendingSpawns = 0;
+	protected ProcessBuilder poolConfig = null;
+	protected boolean disposed = false;
+	
+	protected final AtomicLong warmRequestCount = new AtomicLong();
+	protected final AtomicLong coldRequestCount = new AtomicLong();
+	protected final AtomicLong restartCount = new AtomicLong();
+	
+	public EngineProcessPool(ToolManager toolMgr, String toolName) {
+		this(toolMgr, toolName, DEFAULT_POOL_SIZE, DEFAULT_MAX_IDLE_MILLIS);
+	}
+	
+	public EngineProcessPool(ToolManager toolMgr, String toolName, int poolSize, long maxIdleMillis) {
+		this.toolMgr = assertNotNull(toolMgr);
+		this.toolName = assertNotNull(toolName);
+		this.poolSize = poolSize;
+		this.maxIdleMillis = maxIdleMillis;
+		assertTrue(poolSize >= 0);
+		
+		this.spawnExecutor = CoreExecutors.newExecutorTaskAgent(getClass().getSimpleName() + "." + toolName);
+	}
+	
+	@Override
+	public void dispose() {
+		synchronized(lock) {
+			disposed = true;
+			stopIdleWorkers();
+		}
+		spawnExecutor.shutdownNowAndCancelAll();
+	}
+	
+	/**
+	 * Run a request with given input, using a warm worker if one is available for given process builder,
+	 * or starting a new process otherwise.
+	 */
+	public ExternalProcessResult runRequest(ProcessBuilder pb, String input, ICancelMonitor cm)
+			throws CommonException, OperationCancellation {
+		EngineProcessWorker worker = takeIdleWorker(pb);
+		refillPool(pb);
+		
+		if(worker != null) {
+			warmRequestCount.incrementAndGet();
+			try {
+				return worker.runRequest(input, cm);
+			} catch(WorkerFailureException e) {
+				// The worker might have crashed after the health check, retry with a new process.
+				restartCount.incrementAndGet();
+				worker.stop();
+			}
+		}
+		
+		coldRequestCount.incrementAndGet();
+		return startWorker(pb).runRequest(input, cm);
+	}
+	
+	protected EngineProcessWorker takeIdleWorker(ProcessBuilder pb) {
+		synchronized(lock) {
+			if(!isSameConfig(poolConfig, pb)) {
+				// Tool or environment changed, the current workers are out-of-date.
+				stopIdleWorkers();
+				poolConfig = pb;
+			}
+			
+			EngineProcessWorker worker;
+			while((worker = idleWorkers.poll()) != null) {
+				if(worker.isHealthy(maxIdleMillis)) {
+					return worker;
+				}
+				// Worker crashed or expired, discard it.
+				restartCount.incrementAndGet();
+				worker.stop();
+			}
+			return null;
+		}
+	}
+	
+	protected void refillPool(ProcessBuilder pb) {
+		synchronized(lock) {
+			while(!disposed && idleWorkers.size() + pendingSpawns < poolSize) {
+				pendingSpawns++;
+				spawnExecutor.submitBasicRunnable(() -> spawnIdleWorker(pb));
+			}
+		}
+	}
+	
+	protected void spawnIdleWorker(ProcessBuilder pb) {
+		EngineProcessWorker worker = null;
+		try {
+			worker = startWorker(pb);
+		} catch(CommonException | OperationCancellation e) {
+			// Ignore. The error will be reported when a request starts a new process itself.
+		} finally {
+			synchronized(lock) {
+				pendingSpawns--;
+				
+				if(worker != null) {
+					if(disposed || !isSameConfig(poolConfig, pb)) {
+						worker.stop();
+					} else {
+						idleWorkers.add(worker);
+					}
+				}
+			}
+		}
+	}
+	
+	protected void stopIdleWorkers() {
+		for(EngineProcessWorker worker : idleWorkers) {
+			worker.stop();
+		}
+		idleWorkers.clear();
+	}
+	
+	protected EngineProcessWorker startWorker(ProcessBuilder pb) throws CommonException, OperationCancellation {
+		WorkerCancelMonitor workerCm = new WorkerCancelMonitor();
+		ExternalProcessNotifyingHelper processHelper = startProcess(pb, workerCm);
+		Path toolPath = PathUtil.createPathOrNull(pb.command().get(0));
+		return new EngineProcessWorker(toolPath, processHelper, workerCm);
+	}
+	
+	protected ExternalProcessNotifyingHelper startProcess(ProcessBuilder pb, ICancelMonitor cm) 
+			throws CommonException, OperationCancellation {
+		return toolMgr.startEngineTool(pb, cm);
+	}
+	
+	protected static boolean isSameConfig(ProcessBuilder pb, ProcessBuilder other) {
+		if(pb == null || other == null) {
+			return pb == other;
+		}
+		File directory = pb.directory();
+		List<String> command = pb.command();
+		return areEqual(command, other.command()) && areEqual(directory, other.directory())
+				&& areEqual(pb.environment(), other.environment());
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static class WorkerCancelMonitor implements ICancelMonitor {
+		
+		protected volatile ICancelMonitor requestCm = null;
+		protected volatile boolean stopped = false;
+		
+		@Override
+		public boolean isCancelled() {
+			ICancelMonitor requestCm = this.requestCm;
+			return stopped || (requestCm != null && requestCm.isCancelled());
+		}
+		
+	}
+	
+	/** 
+	 * A failure to communicate with a worker process (writing the request or reading the response),
+	 * as opposed to an error reported by the tool itself.
+	 */
+	public static class WorkerFailureException extends CommonException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public WorkerFailureException(String message, Throwable cause) {
+			super(message, cause);
+		}
+		
+	}
+	
+	public class EngineProcessWorker extends LanguageServerInstance {
+		
+		protected final ExternalProcessNotifyingHelper processHelper;
+		protected final WorkerCancelMonitor workerCm;
+		protected final long startTimeMillis = System.currentTimeMillis();
+		
+		public EngineProcessWorker(Path toolPath, ExternalProcessNotifyingHelper processHelper,
+				WorkerCancelMonitor workerCm) {
+			super(toolPath, processHelper);
+			this.processHelper = processHelper;
+			this.workerCm = assertNotNull(workerCm);
+		}
+		
+		@Override
+		protected String getLanguageServerName() {
+			return toolName + " worker";
+		}
+		
+		public boolean isHealthy(long maxIdleMillis) {
+			return
+				processHelper.getProcess().isAlive() &&
+				!processHelper.areReadersAndProcessTerminated() &&
+				System.currentTimeMillis() - startTimeMillis < maxIdleMillis;
+		}
+		
+		public ExternalProcessResult runRequest(String input, ICancelMonitor cm)
+				throws WorkerFailureException, OperationCancellation {
+			workerCm.requestCm = assertNotNull(cm);
+			
+			try {
+				processHelper.writeInput(input, StringUtil.UTF8);
+			} catch(IOException e) {
+				throw new WorkerFailureException(ProcessHelperMessages.ExternalProcess_ErrorWritingInput, e);
+			}
+			try {
+				return processHelper.awaitTerminationAndResult(true);
+			} catch(IOException e) {
+				throw new WorkerFailureException(ProcessHelperMessages.ExternalProcess_ErrorStreamReaderIOException, e);
+			} catch(InterruptedException e) {
+				throw new OperationCancellation();
+			}
+		}
+		
+		@Override
+		public void stop() {
+			workerCm.stopped = true;
+			processHelper.getProcess().destroy();
+		}
+		
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	@Override
+	public String toString() {
+		int idleCount;
+		synchronized(lock) {
+			idleCount = idleWorkers.size();
+		}
+		return toolName + " process pool[idle: " + idleCount + ", warm requests: " + warmRequestCount.get() +
+			", cold requests: " + coldRequestCount.get() + ", restarts: " + restartCount.get() + "]";
+	}
+	
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.engine;
+
+import melnorme.lang.ide.core.engine.SourceModelManager.StructureInfo;
+import melnorme.lang.tooling.structure.StructureDelta;
+
+/**
+ * A {@link IStructureModelListener} that receives the delta between the previous and the new structure, 
+ * so that it can update incrementally.
+ */
+public interface IStructureModelDeltaListener extends IStructureModelListener {
+	
+	@Override
+	default void dataChanged(StructureInfo lockedStructureInfo) {
+		structureChanged(lockedStructureInfo, lockedStructureInfo.getLastDelta());
+	}
+	
+	/**
+	 * The structure of given structureInfo has changed.
+	 * This method runs under the structureInfo lock, so listeners should finish quickly.
+	 * 
+	 * @param delta the changes from the previous structure, or null if there was no previous structure, 
+	 * or the new structure is not available (an error occurred). Listeners should do a full update in that case.
+	 * If non-null, the delta can be empty (for example, if only the parser problems changed).
+	 */
+	void structureChanged(StructureInfo lockedStructureInfo, StructureDelta delta);
+	
+}
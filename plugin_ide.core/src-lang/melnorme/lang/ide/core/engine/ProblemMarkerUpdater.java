@@ -13,6 +13,8 @@ package melnorme.lang.ide.core.engine;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
+import java.io.IOException;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
@@ -29,6 +31,7 @@ import melnorme.lang.ide.core.operations.ToolMarkersHelper;
 import melnorme.lang.ide.core.utils.CoreExecutors;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
 import melnorme.lang.tooling.structure.SourceFileStructure;
 import melnorme.utilbox.concurrency.CancellableTask;
 import melnorme.utilbox.concurrency.ITaskAgent;
@@ -149,19 +152,36 @@ public class ProblemMarkerUpdater extends LifecycleObject {
 				return;
 			}
 			
+			LineOffsetsIndex lineOffsets = getLineOffsets();
+			
 			for (ParserError problem : structure.getParserProblems()) {
 	//			checkIsStillValid();
-				createMarker(location, file, problem);
+				createMarker(location, file, problem, lineOffsets);
+			}
+		}
+		
+		/** @return the line offsets of the source, or null if not available. */
+		protected LineOffsetsIndex getLineOffsets() {
+			try {
+				return ResourceUtils.getLineOffsets(location);
+			} catch(IOException e) {
+				return null; // Markers will be created without line number
 			}
 		}
 		
-		protected void createMarker(final Location location, IFile file, ParserError problem) throws CoreException {
+		protected void createMarker(final Location location, IFile file, ParserError problem, 
+				LineOffsetsIndex lineOffsets) throws CoreException {
 			IMarker marker = file.createMarker(LangCore_Actual.SOURCE_PROBLEM_ID);
 			marker.setAttribute(IMarker.LOCATION, location.toPathString());
 			marker.setAttribute(IMarker.MESSAGE, problem.getUserMessage());
 			marker.setAttribute(IMarker.SEVERITY, ToolMarkersHelper.markerSeverityFrom(problem.getSeverity()));
 			marker.setAttribute(IMarker.CHAR_START, problem.getStartPos());
 			marker.setAttribute(IMarker.CHAR_END, problem.getEndPos());
+			
+			int startPos = problem.getStartPos();
+			if(lineOffsets != null && startPos >= 0 && startPos <= lineOffsets.getSourceLength()) {
+				marker.setAttribute(IMarker.LINE_NUMBER, lineOffsets.getLineOfOffset(startPos) + 1);
+			}
 		}
 	
 	}
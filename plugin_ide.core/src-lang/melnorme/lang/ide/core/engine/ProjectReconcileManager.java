@@ -165,9 +165,9 @@ public class ProjectReconcileManager extends AbstractProjectReconcileManager {
 				buildMgr.getToolManager().startNewOperation(ProcessStartKind.CHECK_BUILD, clearConsole, false);
 		
 		try {
-			ArrayList2<BuildTarget> enabledTargets = buildMgr.getValidBuildInfo(project).getEnabledTargets(!true);
+			ArrayList2<BuildTarget> enabledTargets = buildMgr.getValidBuildInfo(project, true, cm).getEnabledTargets(!true);
 			if(!enabledTargets.isEmpty()) {
-				buildMgr.requestBuildOperation(opMonitor, project, true, enabledTargets).execute(om);
+				buildMgr.requestBuildOperation(opMonitor, project, null, enabledTargets, true).execute(om);
 			}
 		} catch(CommonException e) {
 			opMonitor.writeInfoMessage("Error during auto-check:\n" + e.getSingleLineRender() + "\n");
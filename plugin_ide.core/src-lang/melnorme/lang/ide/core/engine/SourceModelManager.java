@@ -14,15 +14,24 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 
+import java.util.function.Supplier;
+
 import org.eclipse.jface.text.IDocument;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.engine.DocumentReconcileManager.DocumentReconcileConnection;
+import melnorme.lang.ide.core.engine.StructureUpdateScheduler.UpdateSchedulerStats;
+import melnorme.lang.ide.core.utils.CoreExecutors;
 import melnorme.lang.tooling.LocationKey;
 import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.SourceFileStructureCache;
+import melnorme.lang.tooling.structure.SourceFileStructureCache.CacheKey;
+import melnorme.lang.tooling.structure.StructureDelta;
+import melnorme.lang.tooling.structure.StructureDiffer;
 import melnorme.lang.utils.concurrency.ConcurrentlyDerivedData;
 import melnorme.lang.utils.concurrency.ConcurrentlyDerivedData.DataUpdateTask;
 import melnorme.lang.utils.concurrency.SynchronizedEntryMap;
+import melnorme.utilbox.concurrency.ICommonExecutor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.core.fntypes.CommonResult;
@@ -40,7 +49,15 @@ import melnorme.utilbox.ownership.StrictDisposable;
  */
 public abstract class SourceModelManager extends AbstractAgentManager {
 	
+	/** Delay after a document change before the structure update is started. */
+	public static final long DEFAULT_UPDATE_DEBOUNCE_MILLIS = 150;
+	/** Maximum number of structure update tasks running concurrently, across all documents. */
+	public static final int DEFAULT_MAX_CONCURRENT_UPDATES = 
+			Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+	
 	protected final DocumentReconcileManager reconcileMgr;
+	protected final StructureUpdateScheduler updateScheduler;
+	protected final SourceFileStructureCache structureCache = init_structureCache();
 	
 	public SourceModelManager() {
 		this(new DocumentReconcileManager(), new ProblemMarkerUpdater());
@@ -50,11 +67,48 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		this.reconcileMgr = assertNotNull(reconcileMgr);
 		asOwner().bind(reconcileMgr);
 		
+		this.updateScheduler = assertNotNull(init_updateScheduler());
+		asOwner().bind(updateScheduler);
+		
 		if(problemUpdater != null) {
 			problemUpdater.install(this);
 		}
 	}
 	
+	@Override
+	protected ICommonExecutor init_executor() {
+		// Bounded, since each update task might start an external process.
+		return CoreExecutors.newFixedThreadPool(getClass(), DEFAULT_MAX_CONCURRENT_UPDATES);
+	}
+	
+	protected StructureUpdateScheduler init_updateScheduler() {
+		return new StructureUpdateScheduler(executor, DEFAULT_UPDATE_DEBOUNCE_MILLIS);
+	}
+	
+	public UpdateSchedulerStats getUpdateSchedulerStats() {
+		return updateScheduler.getStats();
+	}
+	
+	protected SourceFileStructureCache init_structureCache() {
+		return new SourceFileStructureCache();
+	}
+	
+	public SourceFileStructureCache getStructureCache() {
+		return structureCache;
+	}
+	
+	/**
+	 * @return the key under which the structure for given source is cached, 
+	 * or null if the structure should not be cached. Default is null (no caching).
+	 * 
+	 * This is called from the update task, when it runs (that is, after the debounce delay, and only if the
+	 * task was not superseded meanwhile), so it can do some work, such as hashing the source.
+	 */
+	@SuppressWarnings("unused")
+	protected CacheKey getStructureCacheKey(StructureInfo structureInfo, String source) {
+		return null;
+	}
+	
 	/* -----------------  ----------------- */
 	
 	protected final SynchronizedEntryMap<LocationKey, StructureInfo> infosMap = 
@@ -115,6 +169,8 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		@Override
 		protected void disposeDo() {
 			log.println("disconnectStructureUpdates: " + structureInfo.getKey2());
+			log.println("  structure updates: " + getUpdateSchedulerStats());
+			log.println("  " + structureCache);
 			structureInfo.disconnectFromDocument(structureListener);
 		}
 		
@@ -144,14 +200,35 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 			return key2.getLocation();
 		}
 		
+		protected SourceFileStructure previousStructure = null;
+		protected StructureDelta lastDelta = null;
+		
 		@Override
 		protected void internalSetData(CommonResult<SourceFileStructure> newData) {
 			if(newData == null) {
 				newData = new CommonResult<>(null);
 			}
+			CommonResult<SourceFileStructure> previousData = super.getStoredData();
+			previousStructure = previousData == null ? null : previousData.getOrNull();
+			lastDelta = null;
 			super.internalSetData(newData);
 		}
 		
+		/** 
+		 * @return the delta from the previous structure to the current one (computed on first request),
+		 * or null if either of them is not available. 
+		 */
+		public synchronized StructureDelta getLastDelta() {
+			SourceFileStructure structure = getStoredData().getOrNull();
+			if(previousStructure == null || structure == null) {
+				return null;
+			}
+			if(lastDelta == null) {
+				lastDelta = StructureDiffer.diff(previousStructure, structure);
+			}
+			return lastDelta;
+		}
+		
 		@Override
 		public CommonResult<SourceFileStructure> getStoredData() {
 			return assertNotNull(super.getStoredData());
@@ -190,11 +267,33 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		}
 		
 		protected StructureUpdateTask queueSourceUpdateTask(final String source) {
-			StructureUpdateTask updateTask = createUpdateTask(this, source);
+			StructureUpdateTask updateTask = createSourceUpdateTask(source);
 			queueUpdateTask(updateTask);
 			return updateTask;
 		}
 		
+		/** 
+		 * Same as {@link #queueSourceUpdateTask(String)}, but for a document change: the update task is 
+		 * debounced, so that a burst of changes is coalesced into a single update.
+		 */
+		protected synchronized StructureUpdateTask queueDocumentChangeUpdateTask(final String source) {
+			StructureUpdateTask updateTask = createSourceUpdateTask(source);
+			setUpdateTask(updateTask);
+			
+			updateScheduler.scheduleDebounced(key2, updateTask);
+			return updateTask;
+		}
+		
+		/** 
+		 * Create an update task for given source. When run, the task checks the structure cache first: 
+		 * if the structure for this source is already known, no engine invocation is necessary.
+		 */
+		protected StructureUpdateTask createSourceUpdateTask(String source) {
+			StructureUpdateTask updateTask = createUpdateTask(this, source);
+			updateTask.setResultCache(structureCache, () -> getStructureCacheKey(this, source));
+			return updateTask;
+		}
+		
 		public synchronized StructureUpdateTask documentSaved(IDocument document) {
 			// need to recheck, the underlying document might have changed
 			if(document != this.document) {
@@ -210,7 +309,7 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		protected synchronized void queueUpdateTask(StructureUpdateTask updateTask) {
 			setUpdateTask(updateTask);
 			
-			executor.submitTask(updateTask);
+			updateScheduler.scheduleNow(key2, updateTask);
 		}
 		
 		@Override
@@ -249,11 +348,25 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		
 		protected final StructureInfo structureInfo;
 		
+		protected SourceFileStructureCache resultCache = null;
+		protected Supplier<CacheKey> cacheKeySupplier = null;
+		/** The cache key of this task's source, if any. Can be reset by {@link #doCreateNewData()}. */
+		protected CacheKey cacheKey = null;
+		
 		public StructureUpdateTask(StructureInfo structureInfo) {
 			super(structureInfo, structureInfo.getKey2().toString());
 			this.structureInfo = structureInfo;
 		}
 		
+		/** 
+		 * Set the cache where the structure is looked up before being created, and stored after.
+		 * The key is only computed when the task runs, and can be null (the structure is not cached).
+		 */
+		public void setResultCache(SourceFileStructureCache resultCache, Supplier<CacheKey> cacheKeySupplier) {
+			this.resultCache = assertNotNull(resultCache);
+			this.cacheKeySupplier = assertNotNull(cacheKeySupplier);
+		}
+		
 		@Override
 		protected void handleRuntimeException(RuntimeException e) {
 			LangCore.logInternalError(e);
@@ -262,7 +375,20 @@ public abstract class SourceModelManager extends AbstractAgentManager {
 		@Override
 		protected final CommonResult<SourceFileStructure> createNewData() throws OperationCancellation {
 			try {
-				return new CommonResult<>(doCreateNewData());
+				if(resultCache != null) {
+					cacheKey = cacheKeySupplier.get();
+					SourceFileStructure cachedStructure = cacheKey == null ? null : resultCache.get(cacheKey);
+					if(cachedStructure != null) {
+						// Source already seen (for example, an undo), no need to invoke the engine.
+						return new CommonResult<>(cachedStructure);
+					}
+				}
+				
+				SourceFileStructure newStructure = doCreateNewData();
+				if(newStructure != null && resultCache != null && cacheKey != null) {
+					resultCache.put(cacheKey, newStructure);
+				}
+				return new CommonResult<>(newStructure);
 			} catch(CommonException e) {
 				return new CommonResult<>(null, e);
 			}
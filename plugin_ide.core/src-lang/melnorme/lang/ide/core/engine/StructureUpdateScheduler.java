@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.engine;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import melnorme.lang.ide.core.engine.SourceModelManager.StructureUpdateTask;
+import melnorme.lang.tooling.LocationKey;
+import melnorme.utilbox.concurrency.ICancellableTask;
+import melnorme.utilbox.concurrency.ICommonExecutor;
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+import melnorme.utilbox.ownership.IDisposable;
+
+/**
+ * Schedules {@link StructureUpdateTask}s for execution in a given executor.
+ *
+ * Tasks can be scheduled with a debounce delay, in which case they are only submitted once the delay elapses.
+ * If a newer task for the same {@link LocationKey} is scheduled before that, the older one is dropped
+ * (coalesced) without ever being submitted, so a burst of edits results in a single update.
+ *
+ * The limit on how many updates run concurrently is given by the executor itself,
+ * see {@link SourceModelManager#init_executor()}.
+ */
+public class StructureUpdateScheduler implements IDisposable {
+	
+	protected final ICommonExecutor executor;
+	protected final long debounceMillis;
+	
+	protected final IDebounceTimer debounceTimer;
+	protected final HashMap<LocationKey, PendingUpdate> pendingUpdates = new HashMap<>();
+	
+	protected final AtomicLong scheduledCount = new AtomicLong();
+	protected final AtomicLong coalescedCount = new AtomicLong();
+	protected final AtomicLong executedCount = new AtomicLong();
+	protected final AtomicInteger queuedCount = new AtomicInteger();
+	protected final AtomicInteger runningCount = new AtomicInteger();
+	
+	public StructureUpdateScheduler(ICommonExecutor executor, long debounceMillis) {
+		this(executor, debounceMillis, new ThreadDebounceTimer(executor.getName() + ".debounce"));
+	}
+	
+	public StructureUpdateScheduler(ICommonExecutor executor, long debounceMillis, IDebounceTimer debounceTimer) {
+		this.executor = assertNotNull(executor);
+		this.debounceMillis = debounceMillis;
+		this.debounceTimer = assertNotNull(debounceTimer);
+		assertTrue(debounceMillis >= 0);
+	}
+	
+	/** The timer that delays the submission of debounced tasks. */
+	public static interface IDebounceTimer extends IDisposable {
+		
+		/** Run given runnable once the given delay elapses. @return a future to cancel it. */
+		Future<?> schedule(Runnable runnable, long delayMillis);
+		
+		boolean isDisposed();
+		
+	}
+	
+	public static class ThreadDebounceTimer implements IDebounceTimer {
+		
+		protected final ScheduledThreadPoolExecutor timer;
+		
+		public ThreadDebounceTimer(String name) {
+			NamingThreadFactory threadFactory = new NamingThreadFactory(name) {
+				@Override
+				public Thread newThread(Runnable runable) {
+					Thread thread = super.newThread(runable);
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+			this.timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+			this.timer.setRemoveOnCancelPolicy(true);
+		}
+		
+		@Override
+		public Future<?> schedule(Runnable runnable, long delayMillis) {
+			return timer.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
+		}
+		
+		@Override
+		public boolean isDisposed() {
+			return timer.isShutdown();
+		}
+		
+		@Override
+		public void dispose() {
+			timer.shutdownNow();
+		}
+		
+	}
+	
+	public long getDebounceMillis() {
+		return debounceMillis;
+	}
+	
+	@Override
+	public void dispose() {
+		debounceTimer.dispose();
+		synchronized(pendingUpdates) {
+			pendingUpdates.clear();
+		}
+	}
+	
+	/** Submit given update task for execution right away, discarding any pending update for the same key. */
+	public void scheduleNow(LocationKey key, StructureUpdateTask updateTask) {
+		schedule(key, updateTask, 0);
+	}
+	
+	/** Schedule given update task to be submitted after the debounce delay. */
+	public void scheduleDebounced(LocationKey key, StructureUpdateTask updateTask) {
+		schedule(key, updateTask, debounceMillis);
+	}
+	
+	protected void schedule(LocationKey key, StructureUpdateTask updateTask, long delayMillis) {
+		assertNotNull(key);
+		assertNotNull(updateTask);
+		scheduledCount.incrementAndGet();
+		
+		synchronized(pendingUpdates) {
+			PendingUpdate previous = pendingUpdates.remove(key);
+			if(previous != null) {
+				// The previous task was superseded before it was submitted.
+				previous.timerFuture.cancel(false);
+				coalescedCount.incrementAndGet();
+			}
+			
+			if(delayMillis <= 0 || debounceTimer.isDisposed()) {
+				submit(updateTask);
+				return;
+			}
+			
+			PendingUpdate pendingUpdate = new PendingUpdate(key, updateTask);
+			pendingUpdate.timerFuture = debounceTimer.schedule(pendingUpdate, delayMillis);
+			pendingUpdates.put(key, pendingUpdate);
+		}
+	}
+	
+	protected class PendingUpdate implements Runnable {
+		
+		protected final LocationKey key;
+		protected final StructureUpdateTask updateTask;
+		protected Future<?> timerFuture;
+		
+		public PendingUpdate(LocationKey key, StructureUpdateTask updateTask) {
+			this.key = key;
+			this.updateTask = updateTask;
+		}
+		
+		@Override
+		public void run() {
+			synchronized(pendingUpdates) {
+				if(!pendingUpdates.remove(key, this)) {
+					return; // Superseded meanwhile
+				}
+				submit(updateTask);
+			}
+		}
+	}
+	
+	protected void submit(StructureUpdateTask updateTask) {
+		if(updateTask.isCancelled()) {
+			coalescedCount.incrementAndGet();
+			return;
+		}
+		queuedCount.incrementAndGet();
+		executor.submitTask(new MeteredUpdateTask(updateTask));
+	}
+	
+	protected class MeteredUpdateTask implements ICancellableTask {
+		
+		protected final StructureUpdateTask updateTask;
+		
+		public MeteredUpdateTask(StructureUpdateTask updateTask) {
+			this.updateTask = updateTask;
+		}
+		
+		@Override
+		public boolean canExecute() {
+			return updateTask.canExecute();
+		}
+		
+		@Override
+		public boolean tryCancel() {
+			return updateTask.tryCancel();
+		}
+		
+		@Override
+		public void run() {
+			queuedCount.decrementAndGet();
+			if(updateTask.isCancelled()) {
+				// Superseded while waiting for an available worker
+				coalescedCount.incrementAndGet();
+				return;
+			}
+			
+			runningCount.incrementAndGet();
+			try {
+				updateTask.run();
+			} finally {
+				runningCount.decrementAndGet();
+				executedCount.incrementAndGet();
+			}
+		}
+		
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	public UpdateSchedulerStats getStats() {
+		int debouncingCount;
+		synchronized(pendingUpdates) {
+			debouncingCount = pendingUpdates.size();
+		}
+		return new UpdateSchedulerStats(debouncingCount, queuedCount.get(), runningCount.get(),
+			scheduledCount.get(), coalescedCount.get(), executedCount.get());
+	}
+	
+	public static class UpdateSchedulerStats {
+		
+		/** Number of tasks waiting for their debounce delay to elapse. */
+		public final int debouncingCount;
+		/** Number of tasks submitted, but waiting for an available worker thread. */
+		public final int queuedCount;
+		public final int runningCount;
+		
+		public final long scheduledCount;
+		/** Number of tasks that were superseded by a newer task before they were run. */
+		public final long coalescedCount;
+		public final long executedCount;
+		
+		public UpdateSchedulerStats(int debouncingCount, int queuedCount, int runningCount,
+				long scheduledCount, long coalescedCount, long executedCount) {
+			this.debouncingCount = debouncingCount;
+			this.queuedCount = queuedCount;
+			this.runningCount = runningCount;
+			this.scheduledCount = scheduledCount;
+			this.coalescedCount = coalescedCount;
+			this.executedCount = executedCount;
+		}
+		
+		public int getQueueDepth() {
+			return debouncingCount + queuedCount;
+		}
+		
+		@Override
+		public String toString() {
+			return "queueDepth: " + getQueueDepth() + " (debouncing: " + debouncingCount +
+				", queued: " + queuedCount + "), running: " + runningCount +
+				", scheduled: " + scheduledCount + ", coalesced: " + coalescedCount + ", executed: " + executedCount;
+		}
+		
+	}
+	
+}
@@ -56,6 +56,9 @@ public interface ILangOperationsListener_Default extends IStatusMessageHandler {
 	 */
 	public interface IToolOperationMonitor {
 		
+		/** The text written before the command line of a started process, if no prefixText is given. */
+		String DEFAULT_PROCESS_START_PREFIX = ">> Running: ";
+		
 		void handleProcessStart(String prefixText, String suffixText, ProcessBuilder pb, 
 			ProcessStartHelper processStartHelper);
 		
@@ -111,7 +111,7 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 		
 		try {
 			EclipseUtils.execute_asCore(monitor, (om) -> {
-				EclipseJobOperation job = buildManager.requestMultiBuild(om, allOurProjects, false);
+				EclipseJobOperation job = buildManager.requestMultiBuild(allOurProjects, om);
 				if(!runAsynchronousBuild()) {
 					try {
 						job.join();
@@ -154,6 +154,9 @@ public abstract class LangProjectBuilder extends IncrementalProjectBuilder {
 		deleteProjectBuildMarkers();
 		
 		try {
+			// The markers were deleted, and the build output will be, so the next build must not be skipped
+			buildManager.getBuildFingerprints().invalidateProject(ResourceUtils.getProjectLocation2(getProject()));
+			
 			ProcessBuilder pb = createCleanPB();
 			doClean(monitor, pb);
 		} catch (OperationCancellation e) {
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+
+import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask.ProcessStartHelper;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper.IProcessOutputListener;
+
+/**
+ * A {@link IToolOperationMonitor} for one of several operations that run concurrently, 
+ * writing to the same underlying monitor.
+ * 
+ * Messages and process output are written through as they arrive, but one whole line at a time, 
+ * with each line prefixed with a given text (such as the project name). This way the console output 
+ * of concurrent operations can be told apart, without holding it back until an operation finishes.
+ * Only the current partial line of each process stream is buffered, up to {@link #MAX_LINE_LENGTH}.
+ */
+public class PrefixingToolOperationMonitor implements IToolOperationMonitor {
+	
+	/** Partial lines are written out once they reach this length, without waiting for the line end. */
+	public static final int MAX_LINE_LENGTH = 8 * 1024;
+	
+	protected final IToolOperationMonitor monitor;
+	protected final String linePrefix;
+	
+	public PrefixingToolOperationMonitor(IToolOperationMonitor monitor, String linePrefix) {
+		this.monitor = assertNotNull(monitor);
+		this.linePrefix = assertNotNull(linePrefix);
+	}
+	
+	@Override
+	public void writeInfoMessage(String operationMessage) {
+		monitor.writeInfoMessage(prefixLines(operationMessage, true));
+	}
+	
+	@Override
+	public void handleProcessStart(String prefixText, String suffixText, ProcessBuilder pb,
+			ProcessStartHelper processStartHelper) {
+		// The preface text is: prefixText, the command line, then suffixText
+		String newPrefixText = prefixLines(prefixText == null ? DEFAULT_PROCESS_START_PREFIX : prefixText, true);
+		String newSuffixText = prefixLines(suffixText, false);
+		monitor.handleProcessStart(newPrefixText, newSuffixText, pb, 
+			(listener) -> processStartHelper.addProcessListener(new LinePrefixingListener(listener)));
+	}
+	
+	@Override
+	public void activate() {
+		monitor.activate();
+	}
+	
+	/** 
+	 * @return given text, with the line prefix inserted after each line terminator that is not at the end,
+	 * and also at the start if atLineStart is true. 
+	 */
+	protected String prefixLines(String text, boolean atLineStart) {
+		if(text == null || text.isEmpty()) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder(text.length() + linePrefix.length());
+		if(atLineStart) {
+			sb.append(linePrefix);
+		}
+		int lineStart = 0;
+		int ix;
+		while((ix = text.indexOf('\n', lineStart)) != -1 && ix + 1 < text.length()) {
+			sb.append(text, lineStart, ix + 1).append(linePrefix);
+			lineStart = ix + 1;
+		}
+		sb.append(text, lineStart, text.length());
+		return sb.toString();
+	}
+	
+	protected class LinePrefixingListener implements IProcessOutputListener {
+		
+		protected final IProcessOutputListener listener;
+		protected final byte[] prefixBytes = linePrefix.getBytes(StringUtil.UTF8);
+		
+		protected final Object lock = new Object();
+		protected final ByteArrayOutputStream stdoutLine = new ByteArrayOutputStream();
+		protected final ByteArrayOutputStream stderrLine = new ByteArrayOutputStream();
+		
+		public LinePrefixingListener(IProcessOutputListener listener) {
+			this.listener = assertNotNull(listener);
+		}
+		
+		@Override
+		public void notifyStdOutListeners(byte[] buffer, int offset, int readCount) {
+			synchronized(lock) {
+				writeLines(stdoutLine, false, buffer, offset, readCount);
+			}
+		}
+		
+		@Override
+		public void notifyStdErrListeners(byte[] buffer, int offset, int readCount) {
+			synchronized(lock) {
+				writeLines(stderrLine, true, buffer, offset, readCount);
+			}
+		}
+		
+		protected void writeLines(ByteArrayOutputStream line, boolean isStdErr, 
+				byte[] buffer, int offset, int readCount) {
+			int end = offset + readCount;
+			int lineStart = offset;
+			for(int ix = offset; ix < end; ix++) {
+				if(buffer[ix] == '\n') {
+					line.write(buffer, lineStart, ix + 1 - lineStart);
+					writeLine(line, isStdErr);
+					lineStart = ix + 1;
+				}
+			}
+			line.write(buffer, lineStart, end - lineStart);
+			if(line.size() >= MAX_LINE_LENGTH) {
+				writeLine(line, isStdErr);
+			}
+		}
+		
+		protected void writeLine(ByteArrayOutputStream line, boolean isStdErr) {
+			// Write the prefix and the line as a single chunk, so that it's not interleaved with other output
+			byte[] chunk = new byte[prefixBytes.length + line.size()];
+			System.arraycopy(prefixBytes, 0, chunk, 0, prefixBytes.length);
+			System.arraycopy(line.toByteArray(), 0, chunk, prefixBytes.length, line.size());
+			line.reset();
+			
+			if(isStdErr) {
+				listener.notifyStdErrListeners(chunk, 0, chunk.length);
+			} else {
+				listener.notifyStdOutListeners(chunk, 0, chunk.length);
+			}
+		}
+		
+		@Override
+		public void notifyProcessTerminatedAndRead(int exitCode) {
+			synchronized(lock) {
+				if(stdoutLine.size() > 0) {
+					writeLine(stdoutLine, false);
+				}
+				if(stderrLine.size() > 0) {
+					writeLine(stderrLine, true);
+				}
+			}
+			listener.notifyProcessTerminatedAndRead(exitCode);
+		}
+		
+	}
+	
+}
@@ -33,6 +33,7 @@ import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.Process
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.StartOperationOptions;
 import melnorme.lang.ide.core.operations.build.VariablesResolver;
 import melnorme.lang.ide.core.operations.build.VariablesResolver.SupplierAdapterVar;
+import melnorme.lang.ide.core.utils.CoreExecutors.CoreUncaughtExceptionHandler;
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.process.AbstractRunProcessTask;
@@ -48,12 +49,16 @@ import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.collections.MapAccess;
 import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.ScheduledOperation;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.TaskCategory;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.fields.EventSource;
 import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.MiscUtil;
 import melnorme.utilbox.misc.PathUtil;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
 import melnorme.utilbox.status.StatusException;
 import melnorme.utilbox.status.StatusLevel;
 
@@ -64,13 +69,36 @@ public abstract class ToolManager extends EventSource<ILangOperationsListener>
 	implements IStatusMessageHandler
 {
 	
+	/** Interactive engine tool requests, such as content assist or find definition. */
+	public static final TaskCategory ENGINE_TOOLS_INTERACTIVE = new TaskCategory("interactive", 0, 2);
+	public static final TaskCategory ENGINE_TOOLS_DEFAULT = new TaskCategory("default", 1, 2);
+	/** Background engine tool requests, such as structure updates on reconcile. */
+	public static final TaskCategory ENGINE_TOOLS_BACKGROUND = new TaskCategory("background", 2, 2);
+	
+	public static final int ENGINE_TOOLS_MAX_THREADS = 4;
+	
 	protected final CoreSettings settings;
+	protected final PriorityTaskScheduler engineToolScheduler = init_engineToolScheduler();
 	
 	public ToolManager(CoreSettings settings) {
 		this.settings = assertNotNull(settings);
 	}
 	
+	protected PriorityTaskScheduler init_engineToolScheduler() {
+		String name = "EngineTools";
+		return new PriorityTaskScheduler(name, ENGINE_TOOLS_MAX_THREADS, new CoreUncaughtExceptionHandler(name));
+	}
+	
 	public void shutdownNow() {
+		engineToolScheduler.dispose();
+	}
+	
+	/**
+	 * @return the scheduler for engine tool requests. Background categories have a concurrency limit below
+	 * the thread limit, so that interactive requests are not starved by background ones.
+	 */
+	public PriorityTaskScheduler getEngineToolScheduler() {
+		return engineToolScheduler;
 	}
 	
 	/* -----------------  ----------------- */
@@ -279,8 +307,30 @@ public abstract class ToolManager extends EventSource<ILangOperationsListener>
 	
 	public final ExternalProcessResult runEngineTool(ProcessBuilder pb, String processInput, ICancelMonitor cm)
 			throws CommonException, OperationCancellation {
+		return runEngineTool(ENGINE_TOOLS_DEFAULT, null, pb, processInput, cm);
+	}
+	
+	/** 
+	 * Run an engine tool in the engine tool scheduler, with given category. 
+	 * @param supersedeKey if not null, cancel (and terminate the process of) any previous request 
+	 * of the same category with an equal key.
+	 */
+	public final ExternalProcessResult runEngineTool(TaskCategory category, Object supersedeKey, 
+			ProcessBuilder pb, String processInput, ICancelMonitor cm) throws CommonException, OperationCancellation {
+		return engineToolScheduler.runAndAwait(category, supersedeKey, (taskCm) -> {
+			IToolOperationMonitor opMonitor = startNewOperation(ProcessStartKind.ENGINE_TOOLS, false, false);
+			return new RunToolTask(opMonitor, pb, taskCm).runProcess(processInput);
+		}, cm);
+	}
+	
+	/** 
+	 * Start an engine tool process, but don't write any input to it, nor await its termination.
+	 * The process output readers are started. 
+	 */
+	public final ExternalProcessNotifyingHelper startEngineTool(ProcessBuilder pb, ICancelMonitor cm)
+			throws CommonException, OperationCancellation {
 		IToolOperationMonitor opMonitor = startNewOperation(ProcessStartKind.ENGINE_TOOLS, false, false);
-		return new RunToolTask(opMonitor, pb, cm).runProcess(processInput);
+		return new RunToolTask(opMonitor, pb, cm).startProcess();
 	}
 	
 	/* -----------------  ----------------- */
@@ -290,10 +340,28 @@ public abstract class ToolManager extends EventSource<ILangOperationsListener>
 	 */
 	public class ToolManagerEngineToolRunner implements IToolOperationService {
 		
+		protected final TaskCategory category;
+		protected final Object supersedeKey;
+		
+		public ToolManagerEngineToolRunner() {
+			this(ENGINE_TOOLS_DEFAULT, null);
+		}
+		
+		public ToolManagerEngineToolRunner(TaskCategory category, Object supersedeKey) {
+			this.category = assertNotNull(category);
+			this.supersedeKey = supersedeKey;
+		}
+		
 		@Override
 		public ExternalProcessResult runProcess(ProcessBuilder pb, String processInput, ICancelMonitor cm) 
 				throws CommonException, OperationCancellation {
-			return runEngineTool(pb, processInput, cm);
+			return runEngineTool(category, supersedeKey, pb, processInput, cm);
+		}
+		
+		@Override
+		public <RET> RET runToolRequest(ScheduledOperation<RET> request, ICancelMonitor cm)
+				throws CommonException, OperationCancellation {
+			return engineToolScheduler.runAndAwait(category, supersedeKey, request, cm);
 		}
 		
 		@Override
@@ -14,6 +14,12 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -26,7 +32,6 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 
-import melnorme.lang.ide.core.EclipseCore;
 import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
@@ -34,26 +39,102 @@ import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.SourceLineColumnRange;
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.HashMap2;
+import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.FileUtil;
 import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.status.Severity;
 
+/**
+ * Creates problem markers for tool messages. 
+ * 
+ * Markers are added in batches: messages are grouped per resource, each location is resolved to resources 
+ * only once (per helper instance), and all markers are created in a single workspace operation, 
+ * with all attributes set at once.
+ * Markers are diffed against the existing markers of the same type: if an identical marker already exists,
+ * it is left unchanged instead of a duplicate being created.
+ * If a {@link StaleMarkers} tracking is given, the existing markers that are matched are marked as reported,
+ * so that only the markers no longer reported by the build are deleted at the end of the build.
+ * 
+ * A helper instance is meant to be used for the duration of a single build (it caches resources and
+ * line offsets). It is not thread-safe.
+ * Line offsets are obtained with {@link ResourceUtils#getLineOffsets(Location)}, so the file contents
+ * are only read if the file is not open in an editor, or its offsets are not cached already.
+ */
 public class ToolMarkersHelper {
 	
+	/**
+	 * The existing markers of a build that have not been reported again by the build (so far).
+	 * 
+	 * The markers are collected before the build runs, instead of being cleared, and the ones that are still 
+	 * stale once the build is done are deleted. Markers that are still valid are thus left unchanged. 
+	 * Thread-safe, as it is shared by the project builds of a multi-project build 
+	 * (building a project can report markers in the resources of another project).
+	 */
+	public static class StaleMarkers {
+		
+		protected final Set<IMarker> markers = ConcurrentHashMap.newKeySet();
+		
+		/** Collect the existing markers of given type in the resources at given location. */
+		public void collectExistingMarkers(Location location, String markerType) throws CoreException {
+			for(IResource container : ResourceUtils.getResourcesAt(location)) {
+				for(IMarker marker : container.findMarkers(markerType, true, IResource.DEPTH_INFINITE)) {
+					markers.add(marker);
+				}
+			}
+		}
+		
+		public void markReported(IMarker marker) {
+			markers.remove(marker);
+		}
+		
+		public int getStaleCount() {
+			return markers.size();
+		}
+		
+		/** Delete the markers that were not reported. @return the number of deleted markers. */
+		public int deleteStaleMarkers(IProgressMonitor pm) throws CoreException {
+			IMarker[] staleMarkers = markers.toArray(new IMarker[0]);
+			markers.clear();
+			if(staleMarkers.length > 0) {
+				ResourceUtils.getWorkspace().run(new IWorkspaceRunnable() {
+					@Override
+					public void run(IProgressMonitor monitor) throws CoreException {
+						// Markers of resources deleted in the meanwhile are ignored
+						ResourceUtils.getWorkspace().deleteMarkers(staleMarkers);
+					}
+				}, ResourceUtils.getWorkspaceRoot(), IWorkspace.AVOID_UPDATE, pm);
+			}
+			return staleMarkers.length;
+		}
+		
+	}
+	
 	protected boolean readWordForCharEnd;
+	protected final StaleMarkers staleMarkers;
 	
 	public ToolMarkersHelper() {
 		this(false);
 	}
 	public ToolMarkersHelper(boolean readWordForCharEnd) {
+		this(readWordForCharEnd, null);
+	}
+	/** @param staleMarkers the tracking of the existing markers of the build, or null if none. */
+	public ToolMarkersHelper(boolean readWordForCharEnd, StaleMarkers staleMarkers) {
 		this.readWordForCharEnd = readWordForCharEnd;
+		this.staleMarkers = staleMarkers;
 	}
 	
 	protected final HashMap2<Path, Document> documents = new HashMap2<>();
+	protected final HashMap2<Location, LineOffsetsIndex> lineOffsetsForLocation = new HashMap2<>();
+	protected final HashMap2<Location, Indexable<IResource>> resourcesForLocation = new HashMap2<>();
+	
+	protected int createdMarkersCount = 0;
+	protected int unchangedMarkersCount = 0;
 	
 	public void addErrorMarkers(Iterable<ToolSourceMessage> buildErrors, Location rootPath, IOperationMonitor om) 
 			throws CommonException {
@@ -67,58 +148,111 @@ public class ToolMarkersHelper {
 	
 	public void doAddErrorMarkers(Iterable<ToolSourceMessage> buildErrors, Location rootPath, IProgressMonitor pm)
 			throws CoreException {
-		documents.clear();
+		LinkedHashMap<IResource, ArrayList2<Map<String, Object>>> markersPerResource = 
+				groupMarkersPerResource(buildErrors, rootPath);
+		if(markersPerResource.isEmpty()) {
+			return;
+		}
 		
 		ResourceUtils.getWorkspace().run(new IWorkspaceRunnable() {
 			@Override
 			public void run(IProgressMonitor monitor) throws CoreException {
-				for(ToolSourceMessage buildError : buildErrors) {
+				for(Entry<IResource, ArrayList2<Map<String, Object>>> entry : markersPerResource.entrySet()) {
 					if(pm.isCanceled()) {
 						return;
 					}
-					addErrorMarkers(buildError, rootPath);
+					updateMarkers(entry.getKey(), entry.getValue(), getMarkerType());
 				}
 			}
 		}, ResourceUtils.getWorkspaceRoot(), IWorkspace.AVOID_UPDATE, pm);
 	}
 	
-	public void addErrorMarkers(ToolSourceMessage toolMessage, Location rootPath) throws CoreException {
-		Location loc = rootPath.resolve(toolMessage.getFilePath()); // Absolute paths will remain unchanged.
+	protected LinkedHashMap<IResource, ArrayList2<Map<String, Object>>> groupMarkersPerResource(
+			Iterable<ToolSourceMessage> buildErrors, Location rootPath) {
+		LinkedHashMap<IResource, ArrayList2<Map<String, Object>>> markersPerResource = new LinkedHashMap<>();
 		
-		ArrayList2<IResource> resources = new ArrayList2<>();
-		
-		resources.addElements(ResourceUtils.getWorkspaceRoot().findFilesForLocationURI(loc.toUri()));
-		resources.addElements(ResourceUtils.getWorkspaceRoot().findContainersForLocationURI(loc.toUri()));
-		
-		for(IResource resource : resources) {
-			addErrorMarker(resource, toolMessage, getMarkerType());
+		for(ToolSourceMessage toolMessage : buildErrors) {
+			Location loc = rootPath.resolve(toolMessage.getFilePath()); // Absolute paths will remain unchanged.
+			
+			for(IResource resource : getResourcesForLocation(loc)) {
+				ArrayList2<Map<String, Object>> resourceMarkers = markersPerResource.get(resource);
+				if(resourceMarkers == null) {
+					resourceMarkers = new ArrayList2<>();
+					markersPerResource.put(resource, resourceMarkers);
+				}
+				resourceMarkers.add(getMarkerAttributes(resource, toolMessage));
+			}
 		}
+		return markersPerResource;
+	}
+	
+	protected Indexable<IResource> getResourcesForLocation(Location loc) {
+		Indexable<IResource> resources = resourcesForLocation.get(loc);
+		if(resources == null) {
+			ArrayList2<IResource> newResources = new ArrayList2<>();
+			newResources.addElements(ResourceUtils.getWorkspaceRoot().findFilesForLocationURI(loc.toUri()));
+			newResources.addElements(ResourceUtils.getWorkspaceRoot().findContainersForLocationURI(loc.toUri()));
+			resources = newResources;
+			resourcesForLocation.put(loc, resources);
+		}
+		return resources;
 	}
 	
 	protected String getMarkerType() {
 		return LangCore_Actual.BUILD_PROBLEM_ID;
 	}
 	
-	public void addErrorMarker(IResource resource, ToolSourceMessage toolMessage, String markerType)
+	/**
+	 * Create markers with given attributes in given resource, unless an identical marker already exists.
+	 */
+	protected void updateMarkers(IResource resource, Indexable<Map<String, Object>> newMarkers, String markerType)
 			throws CoreException {
 		if(!resource.exists())
 			return;
 		
-		// TODO: check if marker already exists?
-		IMarker marker = resource.createMarker(markerType);
+		ArrayList2<IMarker> existingMarkers = new ArrayList2<>();
+		ArrayList2<Map<String, Object>> existingAttributes = new ArrayList2<>();
+		for(IMarker marker : resource.findMarkers(markerType, false, IResource.DEPTH_ZERO)) {
+			Map<String, Object> attributes = marker.getAttributes();
+			if(attributes != null) {
+				existingMarkers.add(marker);
+				existingAttributes.add(attributes);
+			}
+		}
+		
+		for(Map<String, Object> markerAttributes : newMarkers) {
+			// Each existing marker can only match one new marker, so that duplicate messages are kept.
+			int existingIndex = existingAttributes.indexOf(markerAttributes);
+			if(existingIndex != -1) {
+				IMarker existingMarker = existingMarkers.remove(existingIndex);
+				existingAttributes.remove(existingIndex);
+				if(staleMarkers != null) {
+					staleMarkers.markReported(existingMarker);
+				}
+				unchangedMarkersCount++;
+				continue;
+			}
+			IMarker marker = resource.createMarker(markerType);
+			marker.setAttributes(markerAttributes);
+			createdMarkersCount++;
+		}
+	}
+	
+	public Map<String, Object> getMarkerAttributes(IResource resource, ToolSourceMessage toolMessage) {
+		HashMap<String, Object> attributes = new HashMap<>();
 		
-		marker.setAttribute(IMarker.SEVERITY, markerSeverityFrom(toolMessage.getSeverity()));
-		marker.setAttribute(IMarker.MESSAGE, toolMessage.getMessage());
+		attributes.put(IMarker.SEVERITY, markerSeverityFrom(toolMessage.getSeverity()));
+		attributes.put(IMarker.MESSAGE, toolMessage.getMessage());
 		
 		if(!(resource instanceof IFile)) {
-			return;
+			return attributes;
 		}
 		
 		IFile file = (IFile) resource;
 		
 		int line = toolMessage.getFileLineNumber();
 		if(line >= 0) {
-			marker.setAttribute(IMarker.LINE_NUMBER, line);
+			attributes.put(IMarker.LINE_NUMBER, line);
 		}
 		
 		SourceLineColumnRange range = toolMessage.range;
@@ -126,70 +260,81 @@ public class ToolMarkersHelper {
 		SourceRange messageSR;
 		
 		try {
-			Document doc = getDocumentForLocation(file);
-			messageSR = getMessageRangeUsingDocInfo(range, doc);
+			messageSR = getMessageRange(range, file);
 		} catch(IOException e) {
-			return;
+			return attributes;
 		}
 		
 		if(messageSR != null) {
-			try {
-				marker.setAttribute(IMarker.CHAR_START, messageSR.getStartPos());
-				marker.setAttribute(IMarker.CHAR_END, messageSR.getEndPos());
-			} catch (CoreException ce) {
-				EclipseCore.logStatus(ce);
-			}
+			attributes.put(IMarker.CHAR_START, messageSR.getStartPos());
+			attributes.put(IMarker.CHAR_END, messageSR.getEndPos());
 		}
-		
+		return attributes;
 	}
 	
-	protected Document getDocumentForLocation(IFile file) throws IOException {
-		Path filePath = file.getLocation().toFile().toPath();
-		if(documents.containsKey(filePath)) {
-			return documents.get(filePath);
+	public int getCreatedMarkersCount() {
+		return createdMarkersCount;
+	}
+	
+	public int getUnchangedMarkersCount() {
+		return unchangedMarkersCount;
+	}
+	
+	protected LineOffsetsIndex getLineOffsetsForLocation(IFile file) throws IOException {
+		Location fileLoc = ResourceUtils.getResourceLocation(file);
+		if(fileLoc == null) {
+			throw new IOException("Resource has no local file location: " + file.getFullPath());
 		}
-		String fileContents = FileUtil.readStringFromFile(filePath, StringUtil.UTF8);
-		Document document = new Document(fileContents);
-		documents.put(filePath, document);
-		return document;
+		LineOffsetsIndex lineOffsets = lineOffsetsForLocation.get(fileLoc);
+		if(lineOffsets == null) {
+			lineOffsets = ResourceUtils.getLineOffsets(fileLoc);
+			lineOffsetsForLocation.put(fileLoc, lineOffsets);
+		}
+		return lineOffsets;
 	}
 	
-	protected SourceRange getMessageRangeUsingDocInfo(SourceLineColumnRange range, IDocument doc) {
+	protected SourceRange getMessageRange(SourceLineColumnRange range, IFile file) throws IOException {
+		LineOffsetsIndex lineOffsets = getLineOffsetsForLocation(file);
 		
 		int charStart;
-		int charEnd;
-		
-		int startLine;
-		int startColumn;
+		try {
+			charStart = lineOffsets.getOffsetOrNegative(range.getValidLineIndex(), range.getValidColumnIndex());
+		} catch (CommonException ce) {
+			return null;
+		}
+		if(charStart < 0) {
+			return null;
+		}
 		
+		int charEnd;
 		try {
-			try {
-				startLine = range.getValidLineIndex();
-				startColumn = range.getValidColumnIndex();
-				
-				charStart = doc.getLineOffset(startLine) + startColumn;
-			} catch (CommonException ce) {
-				return null;
-			}
-			
-			int endLine;
-			int endColumn;
-			try {
-				endLine = range.getValidEndLineIndex();
-				endColumn = range.getValidEndColumnIndex();
-				
-				charEnd = doc.getLineOffset(endLine) + endColumn;
-				
-			} catch (CommonException e) {
-				charEnd = getCharEnd(charStart, doc);
+			charEnd = lineOffsets.getOffsetOrNegative(range.getValidEndLineIndex(), range.getValidEndColumnIndex());
+		} catch (CommonException e) {
+			charEnd = -1;
+		}
+		if(charEnd < 0) {
+			if(readWordForCharEnd) {
+				// Only this mode needs the actual file contents
+				charEnd = getCharEnd(charStart, getDocumentForLocation(file));
+			} else {
+				charEnd = charStart + 1;
 			}
-		} catch(BadLocationException e ) {
-			return null;
 		}
 		
 		return SourceRange.srStartToEnd(charStart, charEnd);
 	}
 	
+	protected Document getDocumentForLocation(IFile file) throws IOException {
+		Path filePath = file.getLocation().toFile().toPath();
+		if(documents.containsKey(filePath)) {
+			return documents.get(filePath);
+		}
+		String fileContents = FileUtil.readStringFromFile(filePath, StringUtil.UTF8);
+		Document document = new Document(fileContents);
+		documents.put(filePath, document);
+		return document;
+	}
+	
 	protected int getCharEnd(int charStart, IDocument doc) {
 		if(!readWordForCharEnd) {
 			return charStart + 1;
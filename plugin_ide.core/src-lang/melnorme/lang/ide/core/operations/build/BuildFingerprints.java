@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations.build;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.HashMap;
+
+import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Records the inputs fingerprint of the last successful build of each build target
+ * (see {@link BuildTargetOperation#getInputsFingerprint()}),
+ * so that a project build can be skipped if none of its targets' inputs have changed.
+ *
+ * Fingerprints are only kept in memory, so the first build after a restart is never skipped.
+ */
+public class BuildFingerprints {
+	
+	protected final HashMap<String, String> successfulBuildFingerprints = new HashMap<>();
+	
+	protected static String getTargetKey(Location projectLocation, BuildTargetOperation targetOp) {
+		return projectLocation.toPathString() + "#" + targetOp.getBuildTargetName();
+	}
+	
+	public synchronized String getLastSuccessfulFingerprint(String targetKey) {
+		return successfulBuildFingerprints.get(targetKey);
+	}
+	
+	public synchronized void setLastSuccessfulFingerprint(String targetKey, String fingerprint) {
+		if(fingerprint == null) {
+			successfulBuildFingerprints.remove(targetKey);
+		} else {
+			successfulBuildFingerprints.put(targetKey, fingerprint);
+		}
+	}
+	
+	/** Forget the fingerprints of all targets of given project, so that its next build is not skipped. */
+	public synchronized void invalidateProject(Location projectLocation) {
+		String keyPrefix = projectLocation.toPathString() + "#";
+		successfulBuildFingerprints.keySet().removeIf((key) -> key.startsWith(keyPrefix));
+	}
+	
+	public ProjectBuildCheck newProjectBuildCheck(Location projectLocation,
+			Indexable<? extends BuildTargetOperation> targetOps, boolean skipIfUpToDate) {
+		return new ProjectBuildCheck(projectLocation, targetOps, skipIfUpToDate);
+	}
+	
+	/**
+	 * Up to date check for one project build. The fingerprints are computed once, before the build starts,
+	 * so that changes made during the build will cause the next build to run.
+	 */
+	public class ProjectBuildCheck {
+		
+		protected final Location projectLocation;
+		protected final Indexable<? extends BuildTargetOperation> targetOps;
+		protected final boolean skipIfUpToDate;
+		
+		protected ArrayList2<String> currentFingerprints = null;
+		protected boolean upToDate = false;
+		
+		public ProjectBuildCheck(Location projectLocation, Indexable<? extends BuildTargetOperation> targetOps,
+				boolean skipIfUpToDate) {
+			this.projectLocation = assertNotNull(projectLocation);
+			this.targetOps = assertNotNull(targetOps);
+			this.skipIfUpToDate = skipIfUpToDate;
+		}
+		
+		/**
+		 * @return true if the build can be skipped: all targets have the same inputs as their last successful build.
+		 */
+		public synchronized boolean isUpToDate(IOperationMonitor om) throws CommonException, OperationCancellation {
+			if(currentFingerprints != null) {
+				return upToDate;
+			}
+			
+			ArrayList2<String> fingerprints = new ArrayList2<>();
+			boolean allUpToDate = skipIfUpToDate && !targetOps.isEmpty();
+			for(BuildTargetOperation targetOp : targetOps) {
+				om.checkCancellation();
+				String fingerprint = targetOp.getInputsFingerprint();
+				fingerprints.add(fingerprint);
+				
+				String lastFingerprint = getLastSuccessfulFingerprint(getTargetKey(projectLocation, targetOp));
+				allUpToDate = allUpToDate && fingerprint != null && fingerprint.equals(lastFingerprint);
+			}
+			currentFingerprints = fingerprints;
+			upToDate = allUpToDate;
+			return upToDate;
+		}
+		
+		/** Record the fingerprints of the targets that were built successfully. */
+		public synchronized void buildTerminated(boolean success) {
+			if(currentFingerprints == null) {
+				return;
+			}
+			for(int ix = 0; ix < targetOps.size(); ix++) {
+				BuildTargetOperation targetOp = targetOps.get(ix);
+				boolean targetSuccess = success && targetOp.isToolExitSuccess();
+				setLastSuccessfulFingerprint(getTargetKey(projectLocation, targetOp),
+					targetSuccess ? currentFingerprints.get(ix) : null);
+			}
+		}
+		
+	}
+	
+}
@@ -13,6 +13,7 @@ package melnorme.lang.ide.core.operations.build;
 import static melnorme.lang.ide.core.LangCore_Actual.VAR_NAME_SdkToolPath;
 import static melnorme.lang.ide.core.operations.build.BuildManagerMessages.MSG_Starting_LANG_Build;
 import static melnorme.lang.ide.core.utils.TextMessageUtils.headerVeryBig;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
@@ -25,13 +26,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Platform;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.launch.LaunchMessages;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.PrefixingToolOperationMonitor;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.core.operations.build.BuildFingerprints.ProjectBuildCheck;
 import melnorme.lang.ide.core.operations.build.BuildOperationCreator.ProjectBuildOperation;
 import melnorme.lang.ide.core.operations.build.BuildTargetOperation.BuildOperationParameters;
 import melnorme.lang.ide.core.project_model.IProjectModelListener;
@@ -42,17 +46,20 @@ import melnorme.lang.ide.core.utils.ProjectValidator;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.ide.core.utils.operation.EclipseJobOperation;
 import melnorme.lang.ide.core.utils.prefs.IProjectPreference;
+import melnorme.lang.ide.core.utils.prefs.IntPreference;
 import melnorme.lang.ide.core.utils.prefs.StringPreference;
 import melnorme.lang.tooling.bundle.BuildConfiguration;
 import melnorme.lang.tooling.bundle.BuildTargetNameParser;
 import melnorme.lang.tooling.bundle.BundleInfo;
 import melnorme.lang.tooling.bundle.LaunchArtifact;
+import melnorme.lang.tooling.common.ops.DependencyGraphOperation;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
 import melnorme.lang.tooling.common.ops.Operation;
 import melnorme.lang.utils.EnablementCounter;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.HashMap2;
 import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.ICancelMonitor;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.CollectionUtil;
@@ -156,11 +163,39 @@ public abstract class BuildManager {
 		return getValidBuildInfo(project, true);
 	}
 	
+	/** 
+	 * Like {@link #getValidBuildInfo(IProject, boolean, ICancelMonitor)}, but does not wait for 
+	 * the model initialization. This is meant for callers that can't wait, such as the UI thread. 
+	 */
 	public ProjectBuildInfo getValidBuildInfo(IProject project, boolean requireNonEmtpyTargets) 
 			throws CommonException {
+		try {
+			return getValidBuildInfo(project, requireNonEmtpyTargets, null);
+		} catch(OperationCancellation e) {
+			throw assertFail(); // Can't happen without a cancel monitor
+		}
+	}
+	
+	/**
+	 * @param cm if the info of given project is still being created by the model initialization, 
+	 * wait for it with given cancel monitor. If null, fail instead of waiting.
+	 */
+	public ProjectBuildInfo getValidBuildInfo(IProject project, boolean requireNonEmtpyTargets, 
+			ICancelMonitor cm) throws CommonException, OperationCancellation {
 		new ProjectValidator().checkProjectNotNull(project); 
 		ProjectBuildInfo buildInfo = getBuildInfo(project);
 		
+		if(buildInfo == null && bundleModel.isBundleInfoPending(project)) {
+			if(cm == null) {
+				// Don't wait, but still create this project before the other pending ones.
+				bundleModel.getBundleInfo(project);
+				throw new CommonException("The project model is still being initialized, try again shortly.");
+			}
+			// Model is still being initialized, create this project first and wait for it.
+			bundleModel.awaitBundleInfo(project, cm);
+			buildInfo = getBuildInfo(project);
+		}
+		
 		if(buildInfo == null || (requireNonEmtpyTargets && buildInfo.getBuildTargets().isEmpty())) {
 			throw new CommonException("No build targets available for project.");
 		}
@@ -507,50 +542,80 @@ public abstract class BuildManager {
 		IOperationMonitor om, IProject project, Iterable<BuildTarget> targetsToBuild
 	) throws CommonException, OperationCancellation {
 		IToolOperationMonitor toolMonitor = getToolManager().startNewBuildOperation();
-		requestBuildOperation(toolMonitor, project, true, targetsToBuild).execute(om);
+		requestBuildOperation(toolMonitor, project, null, targetsToBuild, false).execute(om);
 	}
 	
+	/** 
+	 * @param cm cancel monitor used to wait for the model initialization of the projects, if still pending.
+	 */
 	public final EclipseJobOperation requestMultiBuild(
-		IOperationMonitor parentOM, 
 		Iterable<IProject> projects,
-		boolean clearMarkers
+		ICancelMonitor cm
 	) throws CommonException, OperationCancellation {
 		IToolOperationMonitor toolMonitor = getToolManager().startNewBuildOperation();
 		toolMonitor.writeInfoMessage(
 			headerVeryBig(MessageFormat.format(MSG_Starting_LANG_Build, LangCore_Actual.NAME_OF_LANGUAGE))
 		);
 		
-		ArrayList2<ProjectBuildOperation> projectOps = ArrayList2.create();
+		ArrayList2<IProject> projectList = new ArrayList2<>(projects);
+		ArrayList2<ProjectBuildOperation> projectOps = new ArrayList2<>();
+		int parallelism = Math.max(1, Math.min(MULTI_BUILD_PARALLELISM.get(), projectList.size()));
+		DependencyGraphOperation<IProject> op = new DependencyGraphOperation<>("Multi-project build", parallelism);
+		BuildMarkersUpdate markersUpdate = new BuildMarkersUpdate(toolMonitor);
 		
-		for (IProject project : projects) {
+		for (IProject project : projectList) {
+			// Output lines of concurrent builds are prefixed with the project name, so they can be told apart
+			IToolOperationMonitor projectToolMonitor = parallelism > 1 ?
+					new PrefixingToolOperationMonitor(toolMonitor, "[" + project.getName() + "] ") : toolMonitor;
+			
 			// Note: this will immediately cancel previous operations
-			ProjectBuildOperation newBuildOp = 
-				requestProjectBuildOperation(toolMonitor, project, clearMarkers, false);
+			ProjectBuildOperation newBuildOp = requestProjectBuildOperation(
+				projectToolMonitor, project, markersUpdate, false, cm);
 			projectOps.add(newBuildOp);
+			
+			op.addOperation(project, newBuildOp, getBuildDependencies(project, projectList));
 		}
 		
-		// Clear markers for all projects first
-		// This is because building for a project/bundle can actually create markers in other projects
-		for (IProject project : projects) {
-			newProjectClearMarkersOperation(toolMonitor, project).execute(parentOM);
-		}
-		
-		Operation op = (om) -> {
-			for (ProjectBuildOperation projectOperation : projectOps) {
-				projectOperation.execute(om);
+		Operation multiBuildOp = (om) -> {
+			// Collect the markers of all projects first, and delete the stale ones only once all builds are done.
+			// This is because building for a project/bundle can actually create markers in other projects
+			// The markers of projects that are up to date are kept though, as their build will be skipped.
+			for (int ix = 0; ix < projectList.size(); ix++) {
+				ProjectBuildOperation projectOp = projectOps.get(ix);
+				if(!projectOp.isUpToDate(om)) {
+					markersUpdate.collectExistingMarkers(projectOp.getLocation(), om);
+				}
 			}
+			op.execute(om);
+			markersUpdate.deleteStaleMarkers(om);
 		};
 		
 		String opName = MessageFormat.format("Running {0} build", LangCore_Actual.NAME_OF_LANGUAGE);
-		EclipseJobOperation job = new EclipseJobOperation(opName, getToolManager(), op);
+		EclipseJobOperation job = new EclipseJobOperation(opName, getToolManager(), multiBuildOp);
 		job.schedule();
 		return job;
 	}
 	
-	public Operation newProjectClearMarkersOperation(
-		IToolOperationMonitor toolMonitor, IProject project
-	) throws CommonException {
-		return new ClearMarkersOperation(project, toolMonitor);
+	/** Maximum number of projects that {@link #requestMultiBuild} builds at the same time. */
+	public static final IntPreference MULTI_BUILD_PARALLELISM = new IntPreference("multi_build_parallelism", 
+		Math.min(4, Runtime.getRuntime().availableProcessors()));
+	
+	/**
+	 * @return the projects, out of given projects being built, that must be built before given project.
+	 * Default implementation uses the project references. Subclasses may extend.
+	 */
+	protected ArrayList2<IProject> getBuildDependencies(IProject project, Indexable<IProject> builtProjects) {
+		ArrayList2<IProject> dependencies = new ArrayList2<>();
+		try {
+			for (IProject referencedProject : project.getReferencedProjects()) {
+				if(builtProjects.contains(referencedProject)) {
+					dependencies.add(referencedProject);
+				}
+			}
+		} catch(CoreException e) {
+			// Project is not accessible, ignore references
+		}
+		return dependencies;
 	}
 	
 	/* ----------------- ----------------- */
@@ -558,25 +623,44 @@ public abstract class BuildManager {
 	public final ProjectBuildOperation requestProjectBuildOperation(
 		IToolOperationMonitor toolMonitor,
 		IProject project,
-		boolean clearMarkers, 
-		boolean isAuto
+		BuildMarkersUpdate sharedMarkersUpdate, 
+		boolean isAuto,
+		ICancelMonitor cm
 	) throws CommonException, OperationCancellation {
-		ArrayList2<BuildTarget> enabledTargets = getValidBuildInfo(project).getEnabledTargets(!isAuto);
-		return requestBuildOperation(toolMonitor, project, clearMarkers, enabledTargets);
+		ArrayList2<BuildTarget> enabledTargets = getValidBuildInfo(project, true, cm).getEnabledTargets(!isAuto);
+		return requestBuildOperation(toolMonitor, project, sharedMarkersUpdate, enabledTargets, true);
 	}
 	
+	/**
+	 * @param sharedMarkersUpdate the markers update of the multi-project build this build is part of,
+	 * or null if the build updates the markers of the project by itself.
+	 * @param skipIfUpToDate whether to skip the build if the inputs of all targets have not changed since 
+	 * their last successful build. The inputs of successful builds are recorded regardless.
+	 */
 	public ProjectBuildOperation requestBuildOperation(
 		IToolOperationMonitor toolMonitor,
 		IProject project, 
-		boolean clearMarkers, 
-		Iterable<BuildTarget> targetsToBuild
+		BuildMarkersUpdate sharedMarkersUpdate, 
+		Iterable<BuildTarget> targetsToBuild,
+		boolean skipIfUpToDate
 	) throws CommonException {
 		assertNotNull(toolMonitor);
-		ArrayList2<Operation> buildCommands = CollectionUtil.mapx(targetsToBuild, 
+		ArrayList2<BuildTargetOperation> buildCommands = CollectionUtil.mapx(targetsToBuild, 
 			(buildTarget) -> buildTarget.getBuildOperation(toolManager, toolMonitor));
 		
+		BuildMarkersUpdate markersUpdate = sharedMarkersUpdate != null ? 
+				sharedMarkersUpdate : new BuildMarkersUpdate(toolMonitor);
+		for(BuildTargetOperation buildCommand : buildCommands) {
+			buildCommand.setStaleMarkers(markersUpdate.getStaleMarkers());
+		}
+		
+		ProjectBuildCheck buildCheck = buildFingerprints.newProjectBuildCheck(
+			ResourceUtils.getLocation(project), buildCommands, skipIfUpToDate);
+		
 		BuildOperationCreator opCreator = createBuildOperationCreator(toolMonitor, project);
-		ProjectBuildOperation newBuildOp = opCreator.newProjectBuildOperation2(clearMarkers, buildCommands);
+		ProjectBuildOperation newBuildOp = 
+				opCreator.newProjectBuildOperation2(sharedMarkersUpdate == null ? markersUpdate : null, 
+					buildCommands, buildCheck);
 		setNewBuildOperation(newBuildOp);
 		return newBuildOp;
 	}
@@ -589,6 +673,14 @@ public abstract class BuildManager {
 	
 	/* -----------------  ----------------- */
 	
+	protected final BuildFingerprints buildFingerprints = new BuildFingerprints();
+	
+	public BuildFingerprints getBuildFingerprints() {
+		return buildFingerprints;
+	}
+	
+	/* -----------------  ----------------- */
+	
 	protected HashMap2<Location, ProjectBuildOperation> buildOps = new HashMap2<>();
 	protected final Object buildOps_mutex = new Object();
 	
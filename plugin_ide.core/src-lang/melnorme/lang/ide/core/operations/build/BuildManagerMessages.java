@@ -20,9 +20,11 @@ public interface BuildManagerMessages extends BuildConfigMessages {
 			"Could not change build target settings, the build target to be changed is out of date.";
 	
 	public String MSG_BuildingProject = "Building {0} project: {1}";
-	public String MSG_ClearingMarkers = "Cleared problem markers for {0}.";
+	public String MSG_RemovedStaleMarkers = "Removed {0} outdated problem markers.";
 	public String MSG_BuildTerminated = "Build terminated.";
 	public String MSG_NoBuildTargetsEnabled = "No build targets enabled.";
+	public String MSG_BuildUpToDate = 
+			"No changes to the build inputs of {0} since the last successful build, build skipped.";
 	
 	public String LABEL_EnableForNormalBuild = "Enable for workspace build";
 	public String LABEL_EnableForAutoBuild = "Enable for auto-check (invoke on editor save)";
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.operations.build;
+
+import static java.text.MessageFormat.format;
+import static melnorme.lang.ide.core.operations.build.BuildManagerMessages.MSG_RemovedStaleMarkers;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import org.eclipse.core.runtime.CoreException;
+
+import melnorme.lang.ide.core.EclipseCore;
+import melnorme.lang.ide.core.LangCoreMessages;
+import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.ToolMarkersHelper.StaleMarkers;
+import melnorme.lang.ide.core.utils.EclipseUtils;
+import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.common.ops.IOperationMonitor.IOperationSubMonitor;
+import melnorme.lang.tooling.common.ops.Operation;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Updates the build markers of one or more project builds, instead of clearing them before the build:
+ * the existing markers are collected before the builds run, the markers reported again by the builds 
+ * are left unchanged, and the ones that were not reported are deleted once the builds are done.
+ * 
+ * If the builds are cancelled, or fail, the stale markers are kept.
+ */
+public class BuildMarkersUpdate {
+	
+	protected final StaleMarkers staleMarkers = new StaleMarkers();
+	protected final IToolOperationMonitor toolMonitor;
+	
+	public BuildMarkersUpdate(IToolOperationMonitor toolMonitor) {
+		this.toolMonitor = assertNotNull(toolMonitor);
+	}
+	
+	public StaleMarkers getStaleMarkers() {
+		return staleMarkers;
+	}
+	
+	public Operation newCollectMarkersOperation(Location location) {
+		return (om) -> collectExistingMarkers(location, om);
+	}
+	
+	public void collectExistingMarkers(Location location, IOperationMonitor om) throws OperationCancellation {
+		om.checkCancellation();
+		try {
+			staleMarkers.collectExistingMarkers(location, BuildOperationCreator.buildProblemId);
+		} catch(CoreException ce) {
+			EclipseCore.logStatus(ce);
+		}
+	}
+	
+	public Operation newDeleteStaleMarkersOperation() {
+		return (om) -> deleteStaleMarkers(om);
+	}
+	
+	public void deleteStaleMarkers(IOperationMonitor parentOM) throws OperationCancellation {
+		parentOM.checkCancellation();
+		
+		try(IOperationSubMonitor om = parentOM.enterSubTask(LangCoreMessages.BUILD_RemovingStaleMarkers)) {
+			int deletedCount = staleMarkers.deleteStaleMarkers(EclipseUtils.pm(om));
+			if(deletedCount > 0) {
+				toolMonitor.writeInfoMessage(format(MSG_RemovedStaleMarkers, deletedCount) + "\n");
+			}
+		} catch(CoreException ce) {
+			EclipseCore.logStatus(ce);
+		}
+	}
+	
+}
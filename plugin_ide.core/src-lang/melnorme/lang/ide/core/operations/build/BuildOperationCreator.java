@@ -21,6 +21,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 
 import melnorme.lang.ide.core.LangCore_Actual;
+import melnorme.lang.ide.core.operations.build.BuildFingerprints.ProjectBuildCheck;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
@@ -65,15 +66,23 @@ public class BuildOperationCreator implements BuildManagerMessages {
 		return operations.add(toolOp);
 	}
 	
+	/**
+	 * @param markersUpdate if not null, the markers update for this project build only: 
+	 * the existing markers of the project are collected before the build, and the stale ones deleted after it.
+	 * Otherwise the markers update is managed by the caller (for multi-project builds).
+	 * @param buildCheck if not null, the check used to skip the whole project build 
+	 * (including updating the markers) if the build inputs are up to date. 
+	 */
 	public ProjectBuildOperation newProjectBuildOperation2(
-		boolean clearMarkers,
-		Collection2<Operation> buildOps
+		BuildMarkersUpdate markersUpdate,
+		Collection2<? extends Operation> buildOps,
+		ProjectBuildCheck buildCheck
 	) throws CommonException {
 		
 		addCompositeBuildOperationMessage();
 		
-		if(clearMarkers) {
-			addOperation(new ClearMarkersOperation(location, projectName, toolMonitor));
+		if(markersUpdate != null) {
+			addOperation(markersUpdate.newCollectMarkersOperation(location));
 		}
 		
 		if(buildOps.isEmpty()) {
@@ -85,6 +94,10 @@ public class BuildOperationCreator implements BuildManagerMessages {
 			addOperation(buildOp);
 		}
 		
+		if(markersUpdate != null) {
+			addOperation(markersUpdate.newDeleteStaleMarkersOperation());
+		}
+		
 		// refresh project
 		addOperation(new Operation() {
 			@Override
@@ -101,30 +114,59 @@ public class BuildOperationCreator implements BuildManagerMessages {
 		
 		addOperation(newMessageOperation(headerBIG(MSG_BuildTerminated)));
 		
-		return createProjectBuildOperation(location);
+		return createProjectBuildOperation(location, buildCheck);
 	}
 	
 	public ProjectBuildOperation createProjectBuildOperation(
-		Location location
+		Location location, ProjectBuildCheck buildCheck
 	) {
-		return new ProjectBuildOperation(location, operations);
+		return new ProjectBuildOperation(location, operations, buildCheck);
 	}
 	
 	public class ProjectBuildOperation extends CompositeBuildOperation {
 		
 		protected final Location location;
+		protected final ProjectBuildCheck buildCheck;
 		
 		public ProjectBuildOperation(
-			Location location, Indexable<Operation> operations
+			Location location, Indexable<Operation> operations, ProjectBuildCheck buildCheck
 		) {
 			super(operations);
 			this.location = assertNotNull(location);
+			this.buildCheck = buildCheck;
 		}
 		
 		public Location getLocation() {
 			return location;
 		}
 		
+		/** @return whether this build will be skipped, because its inputs have not changed. */
+		public boolean isUpToDate(IOperationMonitor om) throws CommonException, OperationCancellation {
+			return buildCheck != null && buildCheck.isUpToDate(om);
+		}
+		
+		@Override
+		public void innerExecute(IOperationMonitor monitor) throws CommonException, OperationCancellation {
+			if(buildCheck == null || monitor.isCancelled()) {
+				super.innerExecute(monitor);
+				return;
+			}
+			
+			if(buildCheck.isUpToDate(monitor)) {
+				toolMonitor.writeInfoMessage(
+					TextMessageUtils.headerSMALL(format(MSG_BuildUpToDate, projectName)));
+				return;
+			}
+			
+			boolean success = false;
+			try {
+				super.innerExecute(monitor);
+				success = !monitor.isCancelled();
+			} finally {
+				buildCheck.buildTerminated(success);
+			}
+		}
+		
 		public boolean tryCancel() {
 			return opFuture.tryCancel();
 		}
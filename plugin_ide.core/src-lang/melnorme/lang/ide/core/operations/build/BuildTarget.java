@@ -223,7 +223,7 @@ public class BuildTarget extends AbstractValidator {
 		assertNotNull(opMonitor);
 		
 		return getBuildType().getBuildOperation(new BuildOperationParameters(opMonitor, 
-			toolManager, getProject(), getBuildTargetName(), getEffectiveBuildCommand2()));
+			toolManager, getProject(), getBuildTargetName(), getEffectiveBuildCommand2(), getBundleInfo()));
 	}
 	
 }
\ No newline at end of file
@@ -17,11 +17,15 @@ import org.eclipse.core.resources.IProject;
 
 import melnorme.lang.ide.core.operations.AbstractToolManagerOperation;
 import melnorme.lang.ide.core.operations.ILangOperationsListener_Default.IToolOperationMonitor;
+import melnorme.lang.ide.core.operations.ToolMarkersHelper;
+import melnorme.lang.ide.core.operations.ToolMarkersHelper.StaleMarkers;
 import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.operations.ToolManager.RunToolTask;
+import melnorme.lang.tooling.bundle.BundleInfo;
 import melnorme.lang.tooling.commands.CommandInvocation;
 import melnorme.lang.tooling.commands.IVariablesResolver;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.toolchain.ops.BuildInputsFingerprint;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
@@ -35,20 +39,28 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 		public IProject project;
 		public String buildTargetName;
 		public CommandInvocation buildCommand;
+		/** The bundle info of the project, from the build manager bundle model. Can be null. */
+		public BundleInfo bundleInfo;
 		
 		public BuildOperationParameters(IToolOperationMonitor opMonitor, ToolManager toolManager, IProject project,
-				String buildTargetName, CommandInvocation buildCommand) {
+				String buildTargetName, CommandInvocation buildCommand, BundleInfo bundleInfo) {
 			this.opMonitor = opMonitor;
 			this.toolManager = toolManager;
 			this.project = project;
 			this.buildTargetName = buildTargetName;
 			this.buildCommand = buildCommand;
+			this.bundleInfo = bundleInfo;
 		}
 		
 	}
 	protected final IToolOperationMonitor opMonitor;
 	protected final String buildTargetName;
 	protected final CommandInvocation buildCommand;
+	protected final BundleInfo bundleInfo;
+	
+	protected volatile boolean toolExitSuccess = false;
+	/** The tracking of the existing markers of the project build this operation is part of. Can be null. */
+	protected StaleMarkers staleMarkers;
 	
 	public BuildTargetOperation(BuildOperationParameters buildOpParams) {
 		super(buildOpParams.toolManager, buildOpParams.project);
@@ -56,12 +68,22 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 		this.opMonitor = assertNotNull(buildOpParams.opMonitor);
 		this.buildTargetName = assertNotNull(buildOpParams.buildTargetName);
 		this.buildCommand = assertNotNull(buildOpParams.buildCommand);
+		this.bundleInfo = buildOpParams.bundleInfo;
 	}
 	
 	public String getBuildTargetName() {
 		return buildTargetName;
 	}
 	
+	public void setStaleMarkers(StaleMarkers staleMarkers) {
+		this.staleMarkers = staleMarkers;
+	}
+	
+	/** @return a new markers helper for the messages of this build. */
+	protected ToolMarkersHelper createMarkersHelper() {
+		return new ToolMarkersHelper(false, staleMarkers);
+	}
+	
 	@Override
 	public void execute(IOperationMonitor parentOM) throws CommonException, OperationCancellation {
 		parentOM.runSubTask(getBuildOperationName(), (om) -> {
@@ -98,9 +120,40 @@ public abstract class BuildTargetOperation extends AbstractToolManagerOperation
 		throws CommonException, OperationCancellation {
 		RunToolTask newRunToolTask = getRunToolTask(opMonitor, pb, buildTargetName, buildCommand, om);
 		ExternalProcessResult toolResult = newRunToolTask.runProcess();
+		toolExitSuccess = toolResult.exitValue == 0;
 		processBuildOutput(toolResult, om);
 	}
 	
+	/** @return whether the last run of the build tool terminated with a success exit value. */
+	public boolean isToolExitSuccess() {
+		return toolExitSuccess;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/**
+	 * @return a fingerprint of the inputs of this build, used to skip the build if the inputs have not changed 
+	 * since the last successful build. Or null if the build inputs are not known, so the build is never skipped.
+	 */
+	public String getInputsFingerprint() throws CommonException, OperationCancellation {
+		BuildInputsFingerprint fingerprint = new BuildInputsFingerprint();
+		ProcessBuilder pb = getToolProcessBuilder();
+		if(!addInputFiles(fingerprint, pb)) {
+			return null;
+		}
+		fingerprint.addProcessBuilder(pb);
+		return fingerprint.getValue();
+	}
+	
+	/** 
+	 * Add the input files of this build, run with given process builder, to given fingerprint.
+	 * @return false if the input files are not known. Default implementation returns false.
+	 */
+	protected boolean addInputFiles(@SuppressWarnings("unused") BuildInputsFingerprint fingerprint, 
+			@SuppressWarnings("unused") ProcessBuilder pb) throws CommonException {
+		return false;
+	}
+	
 	protected abstract void processBuildOutput(ExternalProcessResult processResult, IOperationMonitor om)
 			throws CommonException, OperationCancellation;
 			
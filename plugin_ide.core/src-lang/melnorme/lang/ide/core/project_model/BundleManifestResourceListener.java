@@ -60,9 +60,12 @@ public abstract class BundleManifestResourceListener extends DefaultProjectResou
 				return;
 			for (IResourceDelta resourceDelta : resourceDeltas) {
 				if(resourceDeltaIsBundleManifestChange(resourceDelta)) {
+					// The new bundle info is created from scratch, no need to look at other changes
 					bundleManifestChanged(project);
+					return;
 				}
 			}
+			bundleContentsChanged(project, projectDelta);
 		}
 	}
 	
@@ -78,9 +81,22 @@ public abstract class BundleManifestResourceListener extends DefaultProjectResou
 	}
 	
 	public boolean resourceDeltaIsBundleManifestChange(IResourceDelta resourceDelta) {
+		if(resourceDelta.getKind() == IResourceDelta.CHANGED && 
+				(resourceDelta.getFlags() & ~(IResourceDelta.MARKERS | IResourceDelta.SYNC)) == 0) {
+			// Only markers or sync info changed (for example, build problem markers), not the contents.
+			return false;
+		}
 		return resourceIsManifest(resourceDelta.getResource());
 	}
 	
+	/** 
+	 * Called for changes to a bundle project that do not affect the manifest file. 
+	 * Default implementation does nothing.
+	 */
+	@SuppressWarnings("unused") 
+	public void bundleContentsChanged(IProject project, IResourceDelta projectDelta) {
+	}
+	
 	public abstract Object getProjectInfo(IProject project);
 	
 	public abstract void bundleProjectAdded(IProject project);
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.project_model;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.core.resources.IProject;
+
+import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.utils.CoreExecutors;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.concurrency.ThreadPoolExecutorExt;
+import melnorme.utilbox.misc.SimpleLogger;
+
+/**
+ * Creates the initial infos of the workspace projects concurrently, in a bounded thread pool.
+ * 
+ * Readiness is tracked per project, so a consumer only needs to wait for the project it is interested in 
+ * (see {@link #awaitProject(IProject, ICancelMonitor)}). 
+ * Projects requested by a consumer are created before the other pending ones.
+ */
+public class BundleModelInitializer {
+	
+	protected final SimpleLogger log;
+	protected final Consumer<IProject> projectInitializer;
+	
+	protected final CountDownLatch scanLatch = new CountDownLatch(1);
+	protected final ArrayDeque<IProject> queue = new ArrayDeque<>();
+	protected final HashMap<String, CountDownLatch> pendingProjects = new HashMap<>();
+	
+	protected final AtomicLong cumulativeCreateNanos = new AtomicLong();
+	
+	/**
+	 * @param projectInitializer creates and sets the info of given project. 
+	 * Will be called concurrently for different projects.
+	 */
+	public BundleModelInitializer(SimpleLogger log, Consumer<IProject> projectInitializer) {
+		this.log = assertNotNull(log);
+		this.projectInitializer = assertNotNull(projectInitializer);
+	}
+	
+	/**
+	 * Create the infos of given projects, using at most given number of threads, 
+	 * and wait for all of them to be created.
+	 */
+	public void initializeProjects(Indexable<IProject> projects, int parallelism, long scanNanos) 
+			throws InterruptedException {
+		long startNanos = System.nanoTime();
+		
+		synchronized(this) {
+			for(IProject project : projects) {
+				queue.add(project);
+				pendingProjects.put(project.getName(), new CountDownLatch(1));
+			}
+		}
+		scanLatch.countDown();
+		
+		int threadCount = Math.max(1, Math.min(parallelism, projects.size()));
+		ThreadPoolExecutorExt executor = CoreExecutors.newFixedThreadPool(getClass(), threadCount);
+		CountDownLatch workersLatch = new CountDownLatch(threadCount);
+		for(int ix = 0; ix < threadCount; ix++) {
+			executor.execute(() -> {
+				try {
+					runPendingProjects();
+				} finally {
+					workersLatch.countDown();
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			workersLatch.await();
+		} catch(InterruptedException e) {
+			executor.shutdownNow();
+			throw e;
+		} finally {
+			// If interrupted, don't leave consumers waiting.
+			cancel();
+		}
+		
+		long createNanos = System.nanoTime() - startNanos;
+		log.println(getClass().getSimpleName() + ": " + projects.size() + " projects, " + threadCount + " threads. " + 
+			"Scan: " + toMillis(scanNanos) + "ms, " + 
+			"create infos: " + toMillis(createNanos) + "ms " + 
+			"(cumulative: " + toMillis(cumulativeCreateNanos.get()) + "ms), " + 
+			"total: " + toMillis(scanNanos + createNanos) + "ms");
+	}
+	
+	protected static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+	
+	protected void runPendingProjects() {
+		IProject project;
+		while((project = takeNextProject()) != null) {
+			long startNanos = System.nanoTime();
+			try {
+				projectInitializer.accept(project);
+			} catch(RuntimeException e) {
+				// Continue with the other projects
+				LangCore.logError("Error creating project info: " + project.getName(), e);
+			} finally {
+				cumulativeCreateNanos.addAndGet(System.nanoTime() - startNanos);
+				projectDone(project);
+			}
+		}
+	}
+	
+	protected synchronized IProject takeNextProject() {
+		return queue.poll();
+	}
+	
+	protected void projectDone(IProject project) {
+		CountDownLatch projectLatch;
+		synchronized(this) {
+			projectLatch = pendingProjects.remove(project.getName());
+		}
+		if(projectLatch != null) {
+			projectLatch.countDown();
+		}
+	}
+	
+	/** Stop creating infos, and release all consumers waiting for pending projects. */
+	public void cancel() {
+		ArrayList2<CountDownLatch> pendingLatches;
+		synchronized(this) {
+			queue.clear();
+			pendingLatches = new ArrayList2<>(pendingProjects.values());
+			pendingProjects.clear();
+		}
+		scanLatch.countDown();
+		for(CountDownLatch projectLatch : pendingLatches) {
+			projectLatch.countDown();
+		}
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** @return whether the info of given project is being created by the initialization. */
+	public synchronized boolean isPending(IProject project) {
+		return pendingProjects.containsKey(project.getName());
+	}
+	
+	/** 
+	 * Request that given project info be created before the other pending projects. Does not wait.
+	 */
+	public synchronized void requestProject(IProject project) {
+		if(queue.peekFirst() != project && queue.remove(project)) {
+			queue.addFirst(project);
+		}
+	}
+	
+	/** 
+	 * Wait until the initial info of given project has been created (or the project is not part of 
+	 * the initialization). The project is created before the other pending ones.
+	 */
+	public void awaitProject(IProject project, ICancelMonitor cm) throws OperationCancellation {
+		try {
+			while(!scanLatch.await(50, TimeUnit.MILLISECONDS)) {
+				cm.checkCancellation();
+			}
+			
+			CountDownLatch projectLatch;
+			synchronized(this) {
+				requestProject(project);
+				projectLatch = pendingProjects.get(project.getName());
+			}
+			if(projectLatch == null) {
+				return;
+			}
+			while(!projectLatch.await(50, TimeUnit.MILLISECONDS)) {
+				cm.checkCancellation();
+			}
+		} catch(InterruptedException e) {
+			throw new OperationCancellation();
+		}
+	}
+	
+}
@@ -13,11 +13,14 @@ package melnorme.lang.ide.core.project_model;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IProject;
 
 import melnorme.lang.ide.core.utils.CoreExecutors;
+import melnorme.lang.ide.core.utils.prefs.IntPreference;
 import melnorme.lang.tooling.bundle.BundleInfo;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.concurrency.ITaskAgent;
 import melnorme.utilbox.concurrency.LatchRunnable;
 import melnorme.utilbox.misc.SimpleLogger;
@@ -30,13 +33,17 @@ public abstract class BundleModelManager<BUNDLE_MODEL extends LangBundleModel>
 	
 	protected final BUNDLE_MODEL model;
 	protected final SimpleLogger log;
+	protected final BundleModelInitializer initializer;
 	
 	protected final ITaskAgent modelAgent = CoreExecutors.newExecutorTaskAgent(getClass());
 	protected final LatchRunnable startLatch = new LatchRunnable();
+	protected final long creationNanos = System.nanoTime();
 	
 	public BundleModelManager(BUNDLE_MODEL model) {
 		this.model = assertNotNull(model);
 		this.log = model.getLog();
+		this.initializer = new BundleModelInitializer(log, this::bundleProjectAdded);
+		model.setInitializer(initializer);
 		
 		initializeModelManagerWithModelAgent();
 	}
@@ -71,6 +78,35 @@ public abstract class BundleModelManager<BUNDLE_MODEL extends LangBundleModel>
 	@Override
 	protected void dispose_pre() {
 		modelAgent.shutdownNowAndCancelAll();
+		initializer.cancel();
+	}
+	
+	/** Number of threads used to create the initial project infos. */
+	public static final IntPreference MODEL_INIT_PARALLELISM = new IntPreference("bundle_model_init_parallelism", 
+		Math.min(4, Runtime.getRuntime().availableProcessors()));
+	
+	/**
+	 * Create the initial project infos concurrently. The projects requested by consumers are created first
+	 * (see {@link LangBundleModel#getBundleInfo(IProject)}).
+	 * 
+	 * Note this runs while holding the workspace lock (see {@link #initializeModelManager()}), 
+	 * so no resource deltas are processed until all infos are created.
+	 */
+	@Override
+	protected void initializeProjectsInfo() {
+		log.println(getClass().getSimpleName() + ": waited for start: " + 
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - creationNanos) + "ms");
+		
+		long scanStart = System.nanoTime();
+		ArrayList2<IProject> projects = getInitialProjects();
+		long scanNanos = System.nanoTime() - scanStart;
+		
+		try {
+			initializer.initializeProjects(projects, MODEL_INIT_PARALLELISM.get(), scanNanos);
+		} catch(InterruptedException e) {
+			// Manager is being shut down
+			Thread.currentThread().interrupt();
+		}
 	}
 	
 	/* -----------------  ----------------- */
@@ -15,6 +15,8 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.Platform;
 
 import melnorme.lang.tooling.bundle.AbstractBundleInfo;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.misc.SimpleLogger;
 
 public abstract class CommonLangBundleModel<T extends AbstractBundleInfo> extends ProjectBasedModel<T> {
@@ -30,7 +32,36 @@ public abstract class CommonLangBundleModel<T extends AbstractBundleInfo> extend
 		return log;
 	}
 	
+	protected volatile BundleModelInitializer initializer;
+	
+	public void setInitializer(BundleModelInitializer initializer) {
+		this.initializer = initializer;
+	}
+	
+	/** 
+	 * @return the info of given project, or null if none. 
+	 * If the project info is still pending initialization, it is prioritized, but this method does not wait.
+	 */
 	public T getBundleInfo(IProject project) {
+		BundleModelInitializer modelInitializer = this.initializer;
+		if(modelInitializer != null) {
+			modelInitializer.requestProject(project);
+		}
+		return super.getProjectInfo(project);
+	}
+	
+	/** @return whether the info of given project is still being created by the model initialization. */
+	public boolean isBundleInfoPending(IProject project) {
+		BundleModelInitializer modelInitializer = this.initializer;
+		return modelInitializer != null && modelInitializer.isPending(project);
+	}
+	
+	/** Like {@link #getBundleInfo(IProject)}, but wait for the initialization of given project first. */
+	public T awaitBundleInfo(IProject project, ICancelMonitor cm) throws OperationCancellation {
+		BundleModelInitializer modelInitializer = this.initializer;
+		if(modelInitializer != null) {
+			modelInitializer.awaitProject(project, cm);
+		}
 		return super.getProjectInfo(project);
 	}
 	
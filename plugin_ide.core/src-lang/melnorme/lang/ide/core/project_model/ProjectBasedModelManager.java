@@ -15,10 +15,12 @@ import static melnorme.utilbox.core.CoreUtil.areEqual;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
 
 import melnorme.lang.ide.core.utils.EclipseUtils;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.tooling.BundlePath;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.ownership.LifecycleObject;
@@ -44,13 +46,21 @@ public abstract class ProjectBasedModelManager extends LifecycleObject {
 	/* -----------------  ----------------- */
 	
 	protected void initializeProjectsInfo() {
-		
+		for (IProject project : getInitialProjects()) {
+			bundleProjectAdded(project);
+		}
+	}
+	
+	/** @return the workspace projects that are part of the model. */
+	protected ArrayList2<IProject> getInitialProjects() {
+		ArrayList2<IProject> modelProjects = new ArrayList2<>();
 		IProject[] projects = EclipseUtils.getWorkspaceRoot().getProjects();
 		for (IProject project : projects) {
 			if(listener.isValidLangProject(project) && listener.isValidBundleModelProject(project)) {
-				bundleProjectAdded(project);
+				modelProjects.add(project);
 			}
 		}
+		return modelProjects;
 	}
 	
 	protected abstract BundleManifestResourceListener init_createResourceListener();
@@ -81,6 +91,11 @@ public abstract class ProjectBasedModelManager extends LifecycleObject {
 			ProjectBasedModelManager.this.bundleManifestFileChanged(project);
 		}
 		
+		@Override
+		public void bundleContentsChanged(IProject project, IResourceDelta projectDelta) {
+			ProjectBasedModelManager.this.bundleContentsChanged(project, projectDelta);
+		}
+		
 		@Override
 		public boolean resourceIsManifest(IResource resource) {
 			return ProjectBasedModelManager.this.resourceIsManifest(resource);
@@ -96,6 +111,10 @@ public abstract class ProjectBasedModelManager extends LifecycleObject {
 	
 	protected abstract void bundleManifestFileChanged(IProject project);
 	
+	@SuppressWarnings("unused")
+	protected void bundleContentsChanged(IProject project, IResourceDelta projectDelta) {
+	}
+	
 	public boolean resourceIsManifest(IResource resource) {
 		if(resource == null || resource.getType() != IResource.FILE) {
 			return false;
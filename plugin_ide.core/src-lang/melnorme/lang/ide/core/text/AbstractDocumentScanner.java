@@ -37,7 +37,6 @@ public class AbstractDocumentScanner {
 	public static int TOKEN_OUTSIDE = -3; // Token for whole partitions that we skip over
 	
 	protected final IDocument document;
-	protected final String source;
 	protected final String partitioning;
 	protected final IDocumentExtension3 documentExt3;
 	protected final IDocumentPartitioner partitioner;
@@ -58,8 +57,6 @@ public class AbstractDocumentScanner {
 		this.document = assertNotNull(document);
 		this.partitioning = partitioning;
 		
-		this.source = document.get();
-		
 		if(partitioning == null) {
 			this.contentType = IDocument.DEFAULT_CONTENT_TYPE;
 			this.documentExt3 = null;
@@ -115,7 +112,7 @@ public class AbstractDocumentScanner {
 			
 			pos--;
 			if (contentType.equals(partition.getType())) {
-				return token = source.charAt(pos);
+				return token = getSourceChar(pos);
 			} else {
 				pos = partition.getOffset();
 				return token = TOKEN_OUTSIDE;
@@ -138,7 +135,7 @@ public class AbstractDocumentScanner {
 			
 			pos++;
 			if (contentType.equals(partition.getType())) {
-				return token = source.charAt(charPos);
+				return token = getSourceChar(charPos);
 			} else {
 				pos = partition.getOffset() + partition.getLength();
 				return token = TOKEN_OUTSIDE;
@@ -146,6 +143,15 @@ public class AbstractDocumentScanner {
 		}
 	}
 	
+	/** Read the char at given offset directly from the document, as copying the whole document is expensive. */
+	protected final char getSourceChar(int offset) {
+		try {
+			return document.getChar(offset);
+		} catch(BadLocationException e) {
+			throw new IndexOutOfBoundsException(e.getMessage());
+		}
+	}
+	
 	public final void revertPreviousCharacter()  {
 		pos++;
 	}
@@ -16,6 +16,8 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 
+import melnorme.lang.tooling.parser.BlockTokenOffsetsIndex;
+
 /**
  * A scanner to parse block tokens, and determine the balance of open vs. close tokens. 
  * The blocks are specified by pairs of characters (must be one char in length each).
@@ -23,6 +25,9 @@ import org.eclipse.jface.text.IDocument;
  * 
  * The scanner is heuristic in that the block balance may not be 100% accurate according to
  * the underlying language sematics of the source being scanned.
+ * 
+ * If a {@link BlockTokenOffsetsIndex} is set, the scanner jumps directly between the indexed block tokens, 
+ * instead of reading every character (and its partition) in between.
  */
 public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 	
@@ -38,6 +43,9 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 	protected final BlockTokenRule[] blockRules;
 	protected final BlockTokenRule[] blockRulesReversed;
 	
+	/** Index of the block tokens of the document, or null if the scanner reads the document characters. */
+	protected BlockTokenOffsetsIndex blockTokens;
+	
 	public BlockHeuristicsScannner(IDocument document, String partitioning, String contentType, 
 			BlockTokenRule... blockRules) {
 		super(document, partitioning, contentType);
@@ -50,6 +58,23 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 		}
 	}
 	
+	/** 
+	 * Set the index of block tokens to use, for the same partitioning and content type of this scanner. 
+	 * The index is ignored if it's null, or doesn't include all the block tokens of the block rules.
+	 */
+	public void setBlockTokensIndex(BlockTokenOffsetsIndex blockTokens) {
+		this.blockTokens = null;
+		if(blockTokens == null || blockTokens.getSourceLength() != document.getLength()) {
+			return;
+		}
+		for (BlockTokenRule blockRule : blockRules) {
+			if(!blockTokens.isIndexedToken(blockRule.open) || !blockTokens.isIndexedToken(blockRule.close)) {
+				return;
+			}
+		}
+		this.blockTokens = blockTokens;
+	}
+	
 	public char getClosingPeer(char openChar) {
 		return getMatchingPeer(openChar, blockRules);
 	}
@@ -106,7 +131,7 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 		// But ATM we just estimate using number of blocks
 		BlockBalanceResult result = new BlockBalanceResult();
 		
-		while(readPreviousCharacter() != TOKEN_EOF) {
+		while(readPreviousToken() != TOKEN_EOF) {
 			for (int i = 0; i < blockRules.length; i++) {
 				BlockTokenRule blockRule = blockRules[i];
 				
@@ -143,10 +168,41 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 		public abstract void revertToken() ;
 	}
 	
+	/** 
+	 * Read the previous token. Any token other than the block tokens is ignored by this scanner, 
+	 * so if the block tokens index is available, skip directly to the previous block token.
+	 */
+	protected final int readPreviousToken() {
+		if(blockTokens == null) {
+			return readPreviousCharacter();
+		}
+		int ix = blockTokens.findTokenBefore(pos);
+		if(pos <= posLimit || ix < 0 || blockTokens.getTokenOffset(ix) < posLimit) {
+			pos = Math.min(pos, posLimit);
+			return token = TOKEN_EOF;
+		}
+		pos = blockTokens.getTokenOffset(ix);
+		return token = blockTokens.getToken(ix);
+	}
+	
+	/** Read the next token. See {@link #readPreviousToken()}. */
+	protected final int readNextToken() {
+		if(blockTokens == null) {
+			return readNextCharacter();
+		}
+		int ix = blockTokens.findTokenAtOrAfter(pos);
+		if(pos >= posLimit || ix >= blockTokens.getTokenCount() || blockTokens.getTokenOffset(ix) >= posLimit) {
+			pos = Math.max(pos, posLimit);
+			return token = TOKEN_EOF;
+		}
+		pos = blockTokens.getTokenOffset(ix) + 1;
+		return token = blockTokens.getToken(ix);
+	}
+	
 	public final FnTokenAdvance prevTokenFn = new FnTokenAdvance() {
 		@Override
 		public int advanceToken() {
-			return readPreviousCharacter();
+			return readPreviousToken();
 		}
 		@Override
 		public void revertToken() {
@@ -156,7 +212,7 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 	public final FnTokenAdvance nextTokenFn = new FnTokenAdvance() {
 		@Override
 		public int advanceToken() {
-			return readNextCharacter();
+			return readNextToken();
 		}
 		@Override
 		public void revertToken() {
@@ -244,7 +300,7 @@ public class BlockHeuristicsScannner extends AbstractDocumentScanner {
 	public boolean shouldCloseBlock(int blockOpenOffset) {
 		assertTrue(blockOpenOffset != -1);
 		
-		char primaryBlockOpen = source.charAt(blockOpenOffset);
+		char primaryBlockOpen = getSourceChar(blockOpenOffset);
 		int primaryBlockPriority = getPriorityOfBlockToken(primaryBlockOpen);
 		char blockOpen = primaryBlockOpen;
 		
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.text;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.DocumentPartitioningChangedEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.IDocumentPartitioningListenerExtension2;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextUtilities;
+
+import melnorme.lang.ide.core.engine.DocumentReconcileManager;
+import melnorme.lang.tooling.parser.BlockTokenOffsetsIndex;
+
+/**
+ * Keeps a {@link BlockTokenOffsetsIndex} of a document up to date, for each partitioning and content type requested,
+ * by patching it from the document change events and re-scanning only the changed text
+ * (and the ranges whose partitioning changed).
+ * As such, block scanning doesn't need to copy or re-scan the whole document on every auto-edit.
+ *
+ * Note: the tracker doesn't hold a reference to the document,
+ * so that it can be garbage collected along with the document.
+ */
+public class DocumentBlockTokensTracker
+	implements IDocumentListener, IDocumentPartitioningListener, IDocumentPartitioningListenerExtension2
+{
+	
+	/** The block tokens indexed. Scanners for block rules with other tokens must not use the index. */
+	public static final String BLOCK_TOKEN_CHARS = "{}()[]";
+	
+	protected static final WeakHashMap<IDocument, DocumentBlockTokensTracker> trackers = new WeakHashMap<>();
+	
+	/** @return the tracker for given document, installing a new one if necessary. */
+	public static DocumentBlockTokensTracker getTracker(IDocument document) {
+		assertNotNull(document);
+		synchronized(trackers) {
+			DocumentBlockTokensTracker tracker = trackers.get(document);
+			if(tracker == null) {
+				tracker = new DocumentBlockTokensTracker();
+				document.addDocumentListener(tracker);
+				document.addDocumentPartitioningListener(tracker);
+				trackers.put(document, tracker);
+			}
+			return tracker;
+		}
+	}
+	
+	/**
+	 * @return the up to date block tokens index for the partitions of given content type,
+	 * or null if not available (during a document change).
+	 * The index must only be used until the next document change.
+	 */
+	public static BlockTokenOffsetsIndex getBlockTokens(IDocument document, String partitioning,
+			String contentType) {
+		assertNotNull(partitioning);
+		assertNotNull(contentType);
+		DocumentBlockTokensTracker tracker = getTracker(document);
+		// Acquire the document lock first (if any), as document changes are notified under that lock.
+		return DocumentReconcileManager.runUnderDocumentLock(document,
+			() -> tracker.doGetBlockTokens(document, partitioning, contentType));
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected static class TrackedIndex {
+		
+		protected final String partitioning;
+		protected final String contentType;
+		protected final BlockTokenOffsetsIndex index;
+		
+		public TrackedIndex(String partitioning, String contentType, int documentLength) {
+			this.partitioning = partitioning;
+			this.contentType = contentType;
+			this.index = new BlockTokenOffsetsIndex(BLOCK_TOKEN_CHARS, documentLength);
+		}
+		
+	}
+	
+	protected final HashMap<String, TrackedIndex> indexes = new HashMap<>();
+	protected boolean changePending = false;
+	protected DocumentPartitioningChangedEvent pendingPartitioningEvent = null;
+	
+	protected static String getIndexKey(String partitioning, String contentType) {
+		return partitioning + "#" + contentType;
+	}
+	
+	protected synchronized BlockTokenOffsetsIndex doGetBlockTokens(IDocument document, String partitioning,
+			String contentType) {
+		if(changePending) {
+			return null;
+		}
+		String key = getIndexKey(partitioning, contentType);
+		TrackedIndex trackedIndex = indexes.get(key);
+		if(trackedIndex == null || trackedIndex.index.getSourceLength() != document.getLength()) {
+			trackedIndex = new TrackedIndex(partitioning, contentType, document.getLength());
+			indexes.put(key, trackedIndex);
+		}
+		
+		TrackedIndex tracked = trackedIndex;
+		try {
+			tracked.index.validate((start, end, collector) -> {
+				try {
+					scanTokens(document, tracked, start, end, collector);
+				} catch(BadLocationException e) {
+					throw new IndexOutOfBoundsException(e.getMessage());
+				}
+			});
+		} catch(IndexOutOfBoundsException e) {
+			indexes.remove(key);
+			return null;
+		}
+		return tracked.index;
+	}
+	
+	protected static void scanTokens(IDocument document, TrackedIndex tracked, int start, int end,
+			BlockTokenOffsetsIndex.IBlockTokenCollector collector) throws BadLocationException {
+		ITypedRegion[] regions = TextUtilities.computePartitioning(document, tracked.partitioning,
+			start, end - start, false);
+		
+		for(ITypedRegion region : regions) {
+			if(!tracked.contentType.equals(region.getType())) {
+				continue;
+			}
+			int regionStart = Math.max(start, region.getOffset());
+			int regionEnd = Math.min(end, region.getOffset() + region.getLength());
+			if(regionStart >= regionEnd) {
+				continue;
+			}
+			String text = document.get(regionStart, regionEnd - regionStart);
+			for(int ix = 0; ix < text.length(); ix++) {
+				char ch = text.charAt(ix);
+				if(tracked.index.isIndexedToken(ch)) {
+					collector.addToken(regionStart + ix, ch);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+		changePending = true;
+	}
+	
+	@Override
+	public synchronized void documentChanged(DocumentEvent event) {
+		changePending = false;
+		
+		IDocument document = event.getDocument();
+		String text = event.getText();
+		int insertedLength = text == null ? 0 : text.length();
+		
+		indexes.values().removeIf((tracked) -> {
+			BlockTokenOffsetsIndex index = tracked.index;
+			if(index.getSourceLength() - event.getLength() + insertedLength != document.getLength()) {
+				// Some change was missed, recompute on next request.
+				return true;
+			}
+			index.applyChange(event.getOffset(), event.getLength(), insertedLength);
+			return false;
+		});
+		
+		// The partitioning may be updated before the document listeners are notified,
+		// in which case the changed regions refer to the document after the change.
+		if(pendingPartitioningEvent != null) {
+			invalidatePartitioningChanges(pendingPartitioningEvent);
+			pendingPartitioningEvent = null;
+		}
+	}
+	
+	@Override
+	public synchronized void documentPartitioningChanged(IDocument document) {
+		// No information about the changed region
+		indexes.clear();
+	}
+	
+	@Override
+	public synchronized void documentPartitioningChanged(DocumentPartitioningChangedEvent event) {
+		if(changePending) {
+			pendingPartitioningEvent = event;
+		} else {
+			invalidatePartitioningChanges(event);
+		}
+	}
+	
+	protected void invalidatePartitioningChanges(DocumentPartitioningChangedEvent event) {
+		for(TrackedIndex tracked : indexes.values()) {
+			IRegion changedRegion = event.getChangedRegion(tracked.partitioning);
+			if(changedRegion != null) {
+				tracked.index.invalidate(changedRegion.getOffset(),
+					changedRegion.getOffset() + changedRegion.getLength());
+			}
+		}
+	}
+	
+}
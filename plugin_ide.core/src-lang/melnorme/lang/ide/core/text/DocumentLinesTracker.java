@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core.text;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+
+import melnorme.lang.ide.core.engine.DocumentReconcileManager;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
+
+/**
+ * Keeps the {@link LineOffsetsIndex} of a document up to date, by patching it from the document change events.
+ * As such the index is only fully computed once, and not on every request after the document is edited.
+ * 
+ * The change events are not applied to the index as they arrive: they are coalesced into a single changed range
+ * (which takes constant time per event), and the index is only patched once it is requested. 
+ * 
+ * Note: the tracker doesn't hold a reference to the document, 
+ * so that it can be garbage collected along with the document.
+ */
+public class DocumentLinesTracker implements IDocumentListener {
+	
+	protected static final WeakHashMap<IDocument, DocumentLinesTracker> trackers = new WeakHashMap<>();
+	
+	/** @return the tracker for given document, installing a new one if necessary. */
+	public static DocumentLinesTracker getTracker(IDocument document) {
+		assertNotNull(document);
+		synchronized(trackers) {
+			DocumentLinesTracker tracker = trackers.get(document);
+			if(tracker == null) {
+				tracker = new DocumentLinesTracker();
+				document.addDocumentListener(tracker);
+				trackers.put(document, tracker);
+			}
+			return tracker;
+		}
+	}
+	
+	public static SourceLinesInfo getSourceLinesInfo(IDocument document) {
+		DocumentLinesTracker tracker = getTracker(document);
+		// Acquire the document lock first (if any), as document changes are notified under that lock.
+		return DocumentReconcileManager.runUnderDocumentLock(document, () -> tracker.doGetSourceLinesInfo(document));
+	}
+	
+	public static LineOffsetsIndex getLineOffsets(IDocument document) {
+		DocumentLinesTracker tracker = getTracker(document);
+		return DocumentReconcileManager.runUnderDocumentLock(document, () -> tracker.doGetLineOffsets(document));
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected LineOffsetsIndex lineOffsets = null; // null if it needs to be computed from scratch.
+	protected boolean changePending = false;
+	
+	/* ----------------- The changes not yet applied to lineOffsets ----------------- */
+	// The range [changeStart, changeOldEnd) of the indexed source was replaced with the 
+	// range [changeStart, changeNewEnd) of the current document.
+	protected boolean hasChanges = false;
+	protected int changeStart;
+	protected int changeOldEnd;
+	protected int changeNewEnd;
+	
+	protected synchronized SourceLinesInfo doGetSourceLinesInfo(IDocument document) {
+		String source = document.get();
+		return new SourceLinesInfo(source, getUpdatedLineOffsets(source));
+	}
+	
+	protected synchronized LineOffsetsIndex doGetLineOffsets(IDocument document) {
+		return getUpdatedLineOffsets(new DocumentCharSequence(document));
+	}
+	
+	protected LineOffsetsIndex getUpdatedLineOffsets(CharSequence source) {
+		if(changePending) {
+			// Document is being changed, don't update the tracked index
+			return LineOffsetsIndex.create(source);
+		}
+		applyChanges(source);
+		if(lineOffsets == null || lineOffsets.getSourceLength() != source.length()) {
+			lineOffsets = LineOffsetsIndex.create(source);
+		}
+		return lineOffsets;
+	}
+	
+	protected void applyChanges(CharSequence source) {
+		if(!hasChanges) {
+			return;
+		}
+		hasChanges = false;
+		if(lineOffsets == null) {
+			return;
+		}
+		try {
+			lineOffsets = lineOffsets.applyChange(source, 
+				changeStart, changeOldEnd - changeStart, changeNewEnd - changeStart);
+		} catch(IndexOutOfBoundsException e) {
+			lineOffsets = null;
+		}
+	}
+	
+	/** @return the length of the source with the pending changes applied. */
+	protected int getChangedSourceLength() {
+		int length = lineOffsets.getSourceLength();
+		return hasChanges ? length - (changeOldEnd - changeStart) + (changeNewEnd - changeStart) : length;
+	}
+	
+	@Override
+	public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+		changePending = true;
+	}
+	
+	@Override
+	public synchronized void documentChanged(DocumentEvent event) {
+		changePending = false;
+		if(lineOffsets == null) {
+			return;
+		}
+		
+		String text = event.getText();
+		int offset = event.getOffset();
+		int removedEnd = offset + event.getLength();
+		int insertedLength = text == null ? 0 : text.length();
+		
+		int sourceLength = getChangedSourceLength();
+		if(removedEnd > sourceLength || 
+			sourceLength - event.getLength() + insertedLength != event.getDocument().getLength()) {
+			// Some change was missed, recompute on next request.
+			lineOffsets = null;
+			hasChanges = false;
+			return;
+		}
+		
+		if(!hasChanges) {
+			hasChanges = true;
+			changeStart = offset;
+			changeOldEnd = removedEnd;
+			changeNewEnd = offset + insertedLength;
+			return;
+		}
+		// Extend the changed range to include this change. 
+		// The source after changeNewEnd is unchanged, so it maps back to the indexed source with a fixed delta.
+		int newEnd = Math.max(changeNewEnd, removedEnd);
+		changeOldEnd += newEnd - changeNewEnd;
+		changeStart = Math.min(changeStart, offset);
+		changeNewEnd = newEnd + insertedLength - event.getLength();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** A {@link CharSequence} view of a document's contents. */
+	public static class DocumentCharSequence implements CharSequence {
+		
+		protected final IDocument document;
+		
+		public DocumentCharSequence(IDocument document) {
+			this.document = assertNotNull(document);
+		}
+		
+		@Override
+		public int length() {
+			return document.getLength();
+		}
+		
+		@Override
+		public char charAt(int index) {
+			try {
+				return document.getChar(index);
+			} catch(BadLocationException e) {
+				throw new IndexOutOfBoundsException(e.getMessage());
+			}
+		}
+		
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			try {
+				return document.get(start, end - start);
+			} catch(BadLocationException e) {
+				throw new IndexOutOfBoundsException(e.getMessage());
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return document.get();
+		}
+		
+	}
+	
+}
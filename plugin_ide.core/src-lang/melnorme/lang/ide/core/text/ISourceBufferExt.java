@@ -12,7 +12,11 @@ package melnorme.lang.ide.core.text;
 
 import org.eclipse.jface.text.IDocument;
 
+import melnorme.lang.ide.core.utils.ResourceUtils;
+import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.ISourceBuffer;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
+import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
 
 /**
  * BM: We might be able to refactor this class so that it is no longer necessary, 
@@ -28,6 +32,14 @@ public interface ISourceBufferExt extends ISourceBuffer {
 		return getDocument().get();
 	}
 	
+	@Override
+	default SourceOpContext getSourceOpContext(int offset, SourceRange selection) {
+		SourceLinesInfo sourceLinesInfo = DocumentLinesTracker.getSourceLinesInfo(getDocument());
+		// Other files are looked up in the open editors (text file buffers) first
+		return new SourceOpContext(getLocation_opt(), offset, selection, sourceLinesInfo, isDirty(), 
+			ResourceUtils::getLineOffsets);
+	}
+	
 	default Object getKeyForCurrentInput() {
 		if(getLocation_opt().isPresent()) {
 			return getLocation_opt().get().toPathString();
@@ -16,8 +16,6 @@ import java.util.Arrays;
 
 import org.eclipse.jface.text.IRegion;
 
-import melnorme.lang.utils.parse.StringCharSource;
-
 public class TextSourceUtils {
 
 	public static char getBracePair(char braceChar) {
@@ -45,52 +43,47 @@ public class TextSourceUtils {
 	
 	/* -----------------  ----------------- */
 	
-	public static String getLineIndentForOffset(String source, int offset) {
+	public static String getLineIndentForOffset(CharSequence source, int offset) {
 		int lineStart = TextSourceUtils.findLineStartForOffset(source, offset);
 		return getLineIndentForLineStart(source, lineStart);
 	}
 	
-	public static String getLineIndentForLine(String source, IRegion line) {
+	public static String getLineIndentForLine(CharSequence source, IRegion line) {
 		return TextSourceUtils.getLineIndentForLineStart(source, line.getOffset());
 	}
 	
-	public static String getLineIndentForLineStart(String source, int lineStart) {
+	public static String getLineIndentForLineStart(CharSequence source, int lineStart) {
 		return getLineIndentForLineStart(source, lineStart, source.length());
 	}
 	
-	public static String getLineIndentForLineStart(String source, int lineStart, int endLimit) {
+	public static String getLineIndentForLineStart(CharSequence source, int lineStart, int endLimit) {
 		int indentEnd = TextSourceUtils.findEndOfIndent(source, lineStart, endLimit);
-		return source.substring(lineStart, indentEnd);
+		return source.subSequence(lineStart, indentEnd).toString();
 	}
 	
-	public static int findEndOfIndent(String source, int offset) {
+	public static int findEndOfIndent(CharSequence source, int offset) {
 		return findEndOfIndent(source, offset, source.length());
 	}
-	public static int findEndOfIndent(String source, int offset, int endLimit) {
+	public static int findEndOfIndent(CharSequence source, int offset, int endLimit) {
 		assertTrue(endLimit <= source.length());
 		assertTrue(offset <= endLimit);
 		
-		StringCharSource parseSource = new StringCharSource(source);
-		parseSource.consumeAmount(offset);
-		
 		while(offset < endLimit) {
-			
-			if(parseSource.tryConsume(' ') || parseSource.tryConsume('\t')) {
+			char ch = source.charAt(offset);
+			if(ch == ' ' || ch == '\t') {
 				offset++;
 				continue;
 			} 
 			break;
 		}
-		return parseSource.getReadPosition();
+		return offset;
 	}
 	
-	public static int findLineStartForOffset(String source, int offset) {
+	public static int findLineStartForOffset(CharSequence source, int offset) {
 		assertTrue(offset <= source.length());
 		
-		StringCharSource parseSource = new StringCharSource(source);
-		
 		while(offset > 0) {
-			int previousChar = parseSource.lookahead(offset-1);
+			char previousChar = source.charAt(offset-1);
 			if(previousChar == '\n' || previousChar == '\r') {
 				break;
 			}
@@ -99,9 +92,9 @@ public class TextSourceUtils {
 		return offset;
 	}
 	
-	public static String getLineSegmentBeforeOffset(String source, int offset) {
+	public static String getLineSegmentBeforeOffset(CharSequence source, int offset) {
 		int lineStart = TextSourceUtils.findLineStartForOffset(source, offset);
-		return source.substring(lineStart, offset);
+		return source.subSequence(lineStart, offset).toString();
 	}
 	
 	/* -----------------  ----------------- */
@@ -19,6 +19,7 @@ import org.eclipse.jface.text.IRegion;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.text.DocumentCommand2;
+import melnorme.lang.ide.core.text.DocumentLinesTracker.DocumentCharSequence;
 import melnorme.lang.ide.core.text.IAutoEditStrategy2;
 import melnorme.lang.ide.core.text.TextSourceUtils;
 import melnorme.lang.ide.core.text.format.ILastKeyInfoProvider.KeyCommand;
@@ -49,14 +50,15 @@ public abstract class AbstractAutoEditStrategy implements IAutoEditStrategy2 {
 	
 	/* -----------------  ----------------- */
 	
-	protected String docContents;
+	/** A view of the document contents, read from the document as needed (the document is not copied). */
+	protected CharSequence docContents;
 	
 	@Override
 	public void customizeDocumentCommand(IDocument doc, DocumentCommand2 cmd) {
 		if (cmd.doit == false)
 			return;
 		
-		docContents = doc.get();
+		docContents = new DocumentCharSequence(doc);
 		try {
 			doCustomizeDocumentCommand(doc, cmd);
 		} catch (BadLocationException e) {
@@ -25,6 +25,7 @@ import org.eclipse.jface.text.TextUtilities;
 import melnorme.lang.ide.core.text.BlockHeuristicsScannner;
 import melnorme.lang.ide.core.text.BlockHeuristicsScannner.BlockBalanceResult;
 import melnorme.lang.ide.core.text.BlockHeuristicsScannner.BlockTokenRule;
+import melnorme.lang.ide.core.text.DocumentBlockTokensTracker;
 import melnorme.lang.ide.core.text.DocumentCommand2;
 import melnorme.lang.ide.core.text.TextSourceUtils;
 
@@ -84,7 +85,11 @@ public class LangAutoEditStrategy extends AbstractAutoEditStrategy {
 	}
 	
 	protected BlockHeuristicsScannner createBlockHeuristicsScanner(IDocument doc) {
-		return new BlockHeuristicsScannner(doc, partitioning, contentType, getBlockRules());
+		BlockHeuristicsScannner scanner = new BlockHeuristicsScannner(doc, partitioning, contentType, getBlockRules());
+		if(partitioning != null) {
+			scanner.setBlockTokensIndex(DocumentBlockTokensTracker.getBlockTokens(doc, partitioning, contentType));
+		}
+		return scanner;
 	}
 	
 	protected BlockTokenRule[] getBlockRules() {
@@ -330,7 +335,7 @@ public class LangAutoEditStrategy extends AbstractAutoEditStrategy {
 		int offset = cmd.offset;
 		
 		int lineStart = TextSourceUtils.findLineStartForOffset(docContents, offset);
-		String beforeCursor = docContents.substring(lineStart, offset);
+		String beforeCursor = docContents.subSequence(lineStart, offset).toString();
 		
 		if(!beforeCursor.trim().isEmpty()) {
 			return;
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package melnorme.lang.ide.core.utils;
 
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 
 import melnorme.lang.ide.core.LangCore;
@@ -42,6 +43,18 @@ public class CoreExecutors {
 			name, new CoreUncaughtExceptionHandler(name));
 	}
 	
+	/**
+	 * @return a thread pool with at most given number of threads, queuing tasks beyond that. 
+	 * Idle threads are not kept alive.
+	 */
+	public static ThreadPoolExecutorExt newFixedThreadPool(Class<?> ownerKlass, int poolSize) {
+		String name = ownerKlass.getSimpleName();
+		ThreadPoolExecutorExt executor = new ThreadPoolExecutorExt(poolSize, poolSize, 
+			new LinkedBlockingQueue<Runnable>(), name, new CoreUncaughtExceptionHandler(name));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
 	/* -----------------  ----------------- */
 	
 	public static class CoreUncaughtExceptionHandler implements UncaughtExceptionHandler {
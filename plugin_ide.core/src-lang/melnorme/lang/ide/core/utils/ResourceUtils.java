@@ -14,6 +14,7 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
@@ -43,9 +44,12 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
 import melnorme.lang.ide.core.EclipseCore;
+import melnorme.lang.ide.core.text.DocumentLinesTracker;
 import melnorme.lang.tooling.LocationHandle;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
 import melnorme.lang.tooling.common.ops.Operation;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
+import melnorme.lang.utils.LineOffsetsCache;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
@@ -442,6 +446,18 @@ public class ResourceUtils {
 		return null;
 	}
 	
+	/**
+	 * @return the line offsets of given file. If the file has a text file buffer (for example, it is open 
+	 * in an editor), the buffer document is used. Otherwise the file is read using the shared line offsets cache.
+	 */
+	public static LineOffsetsIndex getLineOffsets(Location fileLoc) throws IOException {
+		ITextFileBuffer fileBuffer = getTextFileBuffer(FileBuffers.getTextFileBufferManager(), fileLoc);
+		if(fileBuffer != null) {
+			return DocumentLinesTracker.getLineOffsets(fileBuffer.getDocument());
+		}
+		return LineOffsetsCache.getDefault().getLineOffsets(fileLoc);
+	}
+	
 	public static void connectResourceListener(IResourceChangeListener listener, 
 			RunnableX<CoreException> initialUpdate, ISchedulingRule opRule, IOwner owner) {
 		try {
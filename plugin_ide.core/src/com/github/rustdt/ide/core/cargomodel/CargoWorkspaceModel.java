@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.ide.core.cargomodel;
+
+import static com.github.rustdt.tooling.cargo.CargoManifestParser.CARGO_LOCK_FILENAME;
+import static com.github.rustdt.tooling.cargo.CargoManifestParser.MANIFEST_FILENAME;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.resources.IProject;
+
+import com.github.rustdt.tooling.cargo.CargoManifestParser;
+import com.github.rustdt.tooling.cargo.CargoMetadata;
+import com.github.rustdt.tooling.cargo.CargoMetadata.CargoPackage;
+import com.github.rustdt.tooling.cargo.CargoMetadataParser;
+
+import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+
+/**
+ * The Cargo workspaces of the Rust projects, as reported by `cargo metadata`.
+ * 
+ * `cargo metadata` is only run for crates that are part of a workspace (for the others, the crate Cargo.toml 
+ * has all the information), once per workspace root. Its result, or failure, is shared by all the member crates.
+ * It is cached until the workspace Cargo.toml or the Cargo.lock is modified, until a member manifest is modified 
+ * (by modification time), or until invalidated.
+ */
+public class CargoWorkspaceModel {
+	
+	public static final int METADATA_TIMEOUT_MILLIS = 30_000;
+	protected static final int CANCEL_CHECK_MILLIS = 50;
+	
+	protected static class WorkspaceEntry {
+		
+		protected final CompletableFuture<CargoMetadata> metadata = new CompletableFuture<>();
+		/** The modification times of the files the metadata is computed from. Only modified before completion. */
+		protected final HashMap<Location, Long> fileStamps = new HashMap<>();
+		
+		public WorkspaceEntry(Location workspaceRoot) {
+			addFileStamp(workspaceRoot.resolve(MANIFEST_FILENAME));
+			addFileStamp(workspaceRoot.resolve_fromValid(CARGO_LOCK_FILENAME));
+		}
+		
+		protected void addFileStamp(Location fileLoc) {
+			fileStamps.putIfAbsent(fileLoc, getModifiedTime(fileLoc));
+		}
+		
+		protected void setResult(CargoMetadata result) {
+			for(Location manifestLoc : result.getManifestLocations()) {
+				addFileStamp(manifestLoc);
+			}
+			metadata.complete(result);
+		}
+		
+		/** @return whether the metadata is still being computed, or was computed from the current files. */
+		public boolean isUpToDate() {
+			if(!metadata.isDone()) {
+				return true;
+			}
+			for(Entry<Location, Long> fileStamp : fileStamps.entrySet()) {
+				if(getModifiedTime(fileStamp.getKey()) != fileStamp.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		protected static long getModifiedTime(Location fileLoc) {
+			try {
+				return Files.getLastModifiedTime(fileLoc.getPath()).toMillis();
+			} catch(IOException e) {
+				return -1;
+			}
+		}
+		
+	}
+	
+	/** The cached workspaces, keyed by workspace root. */
+	protected final HashMap<Location, WorkspaceEntry> workspaces = new HashMap<>();
+	
+	/**
+	 * @return the workspace member package for given crate, running `cargo metadata` if there is no 
+	 * up-to-date cached workspace for it, or awaiting the run in progress for the same workspace.
+	 * Null if the crate is not part of a workspace, or not a member of the workspace reported by Cargo.
+	 * @param cm the cancel monitor for awaiting the result. A run of `cargo metadata` that was started 
+	 * is only cancelled after {@link #METADATA_TIMEOUT_MILLIS}.
+	 * @throws CommonException if `cargo metadata` failed (including a previous, cached, failure).
+	 */
+	public CargoPackage getMemberPackage(IProject project, Location crateLocation, ICancelMonitor cm) 
+			throws CommonException, OperationCancellation {
+		Location workspaceRoot = CargoManifestParser.findWorkspaceRoot(crateLocation);
+		if(workspaceRoot == null) {
+			return null;
+		}
+		
+		WorkspaceEntry entry;
+		boolean isNewEntry = false;
+		synchronized(this) {
+			entry = workspaces.get(workspaceRoot);
+			if(entry == null || !entry.isUpToDate()) {
+				entry = new WorkspaceEntry(workspaceRoot);
+				workspaces.put(workspaceRoot, entry);
+				isNewEntry = true;
+			}
+		}
+		
+		if(isNewEntry) {
+			// Run outside of the lock, so that requests for other workspaces don't wait for this one.
+			try {
+				entry.setResult(runCargoMetadata(project));
+			} catch(CommonException | RuntimeException e) {
+				entry.metadata.completeExceptionally(e);
+			}
+		}
+		return awaitMetadata(entry, cm).findMember(crateLocation);
+	}
+	
+	protected static CargoMetadata awaitMetadata(WorkspaceEntry entry, ICancelMonitor cm) 
+			throws CommonException, OperationCancellation {
+		while(true) {
+			cm.checkCancellation();
+			try {
+				return entry.metadata.get(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			} catch(TimeoutException e) {
+				continue;
+			} catch(InterruptedException e) {
+				throw new OperationCancellation();
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof CommonException) {
+					throw (CommonException) e.getCause();
+				}
+				throw new CommonException("Error running `cargo metadata`: ", e.getCause());
+			}
+		}
+	}
+	
+	protected CargoMetadata runCargoMetadata(IProject project) throws CommonException {
+		ToolManager toolManager = LangCore.getToolManager();
+		ProcessBuilder pb = toolManager.createSDKProcessBuilder(project, CargoMetadataParser.CARGO_METADATA_ARGS);
+		
+		ExternalProcessResult result;
+		try {
+			result = toolManager.runEngineTool(ToolManager.ENGINE_TOOLS_BACKGROUND, null, 
+				pb, null, new TimeoutCancelMonitor(METADATA_TIMEOUT_MILLIS));
+		} catch(OperationCancellation e) {
+			throw new CommonException("`cargo metadata` timed out after " + 
+				METADATA_TIMEOUT_MILLIS / 1000 + " seconds.");
+		}
+		try {
+			if(result.exitValue != 0) {
+				throw new CommonException("`cargo metadata` failed: " + 
+					result.getStdErrBytes().toString(StringUtil.UTF8));
+			}
+			try(Reader reader = result.getStdOutBytes().openReader(StringUtil.UTF8)) {
+				return new CargoMetadataParser().parse(reader);
+			} catch(IOException e) {
+				throw new CommonException("Error reading `cargo metadata` output: ", e);
+			}
+		} finally {
+			result.dispose();
+		}
+	}
+	
+	/** 
+	 * Remove the cached workspace of given crate, if any. 
+	 * Should be called when the crate manifest changes, since a cached failure doesn't track member manifests.
+	 */
+	public void invalidate(Location crateLocation) {
+		Location workspaceRoot = CargoManifestParser.findWorkspaceRoot(crateLocation);
+		if(workspaceRoot != null) {
+			synchronized(this) {
+				workspaces.remove(workspaceRoot);
+			}
+		}
+	}
+	
+}
@@ -13,17 +13,27 @@ package com.github.rustdt.ide.core.cargomodel;
 import static com.github.rustdt.tooling.cargo.CargoManifestParser.MANIFEST_FILENAME;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 
 import com.github.rustdt.ide.core.cargomodel.RustBundleModelManager.RustBundleModel;
 import com.github.rustdt.tooling.cargo.CargoManifest;
 import com.github.rustdt.tooling.cargo.CargoManifestParser;
+import com.github.rustdt.tooling.cargo.CargoMetadata.CargoPackage;
+import com.github.rustdt.tooling.cargo.CargoTargetsIndex;
 
+import melnorme.lang.ide.core.EclipseCore;
 import melnorme.lang.ide.core.project_model.BundleManifestResourceListener;
 import melnorme.lang.ide.core.project_model.BundleModelManager;
 import melnorme.lang.ide.core.project_model.LangBundleModel;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.tooling.bundle.BundleInfo;
+import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.core.DevelopmentCodeMarkers;
 import melnorme.utilbox.misc.FileUtil;
 import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.StringUtil;
@@ -50,24 +60,157 @@ public class RustBundleModelManager extends BundleModelManager<RustBundleModel>
 		return new ManagerResourceListener();
 	}
 	
+	protected final CargoWorkspaceModel workspaceModel = new CargoWorkspaceModel();
+	
+	public CargoWorkspaceModel getWorkspaceModel() {
+		return workspaceModel;
+	}
+	
+	protected static final String MANIFEST_READ_ERROR = "<cargo.toml read error>";
+	protected static final String MANIFEST_PARSE_ERROR = "<cargo.toml parse error>";
+	
+	/** Create the info from the parsed Cargo.toml. Does not run `cargo metadata`. */
 	@Override
 	protected BundleInfo createNewInfo(IProject project) {
 		String manifestSource;
+		Location projectLoc;
 		try {
-			Location loc = ResourceUtils.getProjectLocation2(project).resolve(MANIFEST_FILENAME);
+			projectLoc = ResourceUtils.getProjectLocation2(project);
+			Location loc = projectLoc.resolve(MANIFEST_FILENAME);
 			manifestSource = FileUtil.readFileContents(loc, StringUtil.UTF8);
 		} catch(CommonException e) {
-			return new BundleInfo(new CargoManifest("<cargo.toml read error>", null, null, null, null, null));
+			return new BundleInfo(new CargoManifest(MANIFEST_READ_ERROR, null, null, null, null, null));
 		}
 		
 		try {
-			CargoManifest manifest = new CargoManifestParser().parse(manifestSource);
-			return new BundleInfo(manifest);
+			return new BundleInfo(new CargoManifestParser().parse(manifestSource), projectLoc);
 		} catch(CommonException e) {
-			return new BundleInfo(new CargoManifest("<cargo.toml parse error>", null, null, null, null, null));
+			return new BundleInfo(new CargoManifest(MANIFEST_PARSE_ERROR, null, null, null, null, null));
 		}
 		
 		// TODO: we could have a better mechanism for error reporting: actually put the exception message somewhere
 	}
 	
+	/**
+	 * Set the info created from the parsed Cargo.toml, then request the update of that info 
+	 * with the Cargo workspace model, in the model agent. This is called from the resource listener, 
+	 * and during model initialization, which holds the workspace lock, so `cargo metadata` must not be run here.
+	 */
+	@Override
+	protected void handleBundleProjectAdded(IProject project) {
+		BundleInfo manifestInfo = model.setProjectInfo(project, createNewInfo(project));
+		if(DevelopmentCodeMarkers.TESTS_MODE) {
+			return;
+		}
+		modelAgent.submitBasicRunnable(() -> updateWithWorkspaceMember(project, manifestInfo));
+	}
+	
+	/**
+	 * Replace given info of given project with one from the crate package of the Cargo workspace model, 
+	 * if the crate is part of a workspace, and the info was not replaced in the meanwhile.
+	 */
+	protected void updateWithWorkspaceMember(IProject project, BundleInfo manifestInfo) {
+		if(model.getProjectInfo(project) != manifestInfo) {
+			return; // Superseded by a newer manifest change, or the project was removed.
+		}
+		Location projectLoc = ResourceUtils.getResourceLocation(project);
+		if(projectLoc == null) {
+			return;
+		}
+		CargoPackage member = getWorkspaceMember(project, projectLoc);
+		if(member == null) {
+			return;
+		}
+		
+		String manifestName = manifestInfo.getManifest().getName();
+		boolean isManifestError = 
+			MANIFEST_READ_ERROR.equals(manifestName) || MANIFEST_PARSE_ERROR.equals(manifestName);
+		CargoManifest tomlManifest = isManifestError ? null : manifestInfo.getManifest();
+		
+		BundleInfo memberInfo = new BundleInfo(withDeclaredTargets(member.getManifest(), tomlManifest), projectLoc);
+		model.updateProjectInfo(project, manifestInfo, memberInfo);
+	}
+	
+	/** 
+	 * @return the crate package from the Cargo workspace model, or null if the crate is not part of a workspace,
+	 * or if not available (`cargo metadata` failed, for example if Cargo is not installed).
+	 * In that case the info from the parsed manifest is kept.
+	 */
+	protected CargoPackage getWorkspaceMember(IProject project, Location projectLoc) {
+		try {
+			TimeoutCancelMonitor cm = new TimeoutCancelMonitor(CargoWorkspaceModel.METADATA_TIMEOUT_MILLIS);
+			return workspaceModel.getMemberPackage(project, projectLoc, cm);
+		} catch(CommonException e) {
+			log.println("Could not get `cargo metadata`: " + e.getSingleLineRender());
+			return null;
+		} catch(OperationCancellation e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the manifest from `cargo metadata`, but with the targets declared in Cargo.toml, if available.
+	 * The targets reported by `cargo metadata` include the auto-discovered ones, as if declared, so these would
+	 * become stale when a target source file is added or removed. With the declared targets, the auto-discovered 
+	 * ones are found by the targets index, which is just invalidated on such changes.
+	 */
+	protected static CargoManifest withDeclaredTargets(CargoManifest metadataManifest, CargoManifest tomlManifest) {
+		if(tomlManifest == null) {
+			// Cargo.toml could not be parsed here, for example if it inherits values from the workspace
+			return metadataManifest;
+		}
+		return new CargoManifest(
+			metadataManifest.getName(), 
+			metadataManifest.getVersion(), 
+			new ArrayList2<>(metadataManifest.getDependencies()),
+			tomlManifest.getLibTarget(),
+			new ArrayList2<>(tomlManifest.getBinaries()),
+			new ArrayList2<>(tomlManifest.getTests())
+		);
+	}
+	
+	@Override
+	protected void bundleManifestFileChanged(IProject project) {
+		Location projectLoc = ResourceUtils.getResourceLocation(project);
+		if(projectLoc != null) {
+			workspaceModel.invalidate(projectLoc);
+		}
+		super.bundleManifestFileChanged(project);
+	}
+	
+	@Override
+	protected void bundleContentsChanged(IProject project, IResourceDelta projectDelta) {
+		BundleInfo bundleInfo = getProjectInfo(project);
+		if(bundleInfo != null && affectsEffectiveTargets(projectDelta)) {
+			bundleInfo.invalidateTargets();
+		}
+	}
+	
+	/** @return whether given delta has files added or removed in the conventional Cargo target locations. */
+	protected static boolean affectsEffectiveTargets(IResourceDelta projectDelta) {
+		boolean[] affected = { false };
+		try {
+			projectDelta.accept((delta) -> {
+				IPath path = delta.getProjectRelativePath();
+				if(affected[0]) {
+					return false;
+				}
+				if(path.isEmpty()) {
+					return true; // The project delta
+				}
+				boolean isTargetSourcePath = CargoTargetsIndex.isTargetSourcePath(path.toFile().toPath());
+				if(isTargetSourcePath && 
+						(delta.getKind() == IResourceDelta.ADDED || delta.getKind() == IResourceDelta.REMOVED)) {
+					affected[0] = true;
+				}
+				// Only visit the target locations, such as src/bin, not the whole source tree.
+				return isTargetSourcePath;
+			});
+		} catch(CoreException e) {
+			EclipseCore.logStatus(e);
+			return true;
+		}
+		return affected[0];
+	}
+	
 }
\ No newline at end of file
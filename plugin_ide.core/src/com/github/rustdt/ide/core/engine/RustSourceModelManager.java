@@ -18,12 +18,13 @@ import com.github.rustdt.ide.core.operations.RustSDKPreferences;
 import com.github.rustdt.tooling.ops.RustParseDescribeParser;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.engine.EngineProcessPool;
 import melnorme.lang.ide.core.engine.SourceModelManager;
 import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.utils.ResourceUtils;
 import melnorme.lang.tooling.structure.SourceFileStructure;
-import melnorme.lang.tooling.structure.StructureElement;
-import melnorme.utilbox.collections.Indexable;
+import melnorme.lang.tooling.structure.SourceFileStructureCache.CacheKey;
+import melnorme.lang.utils.ProcessUtils;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.core.DevelopmentCodeMarkers;
@@ -34,8 +35,11 @@ import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 public class RustSourceModelManager extends SourceModelManager {
 	
 	protected final ToolManager toolManager = LangCore.getToolManager();
+	/** Pool of warm rainicorn processes, to take process startup out of the structure update latency. */
+	protected final EngineProcessPool parseDescribePool = new EngineProcessPool(toolManager, "parse_describe");
 	
 	public RustSourceModelManager() {
+		asOwner().bind(parseDescribePool);
 	}
 	
 	@Override
@@ -43,6 +47,29 @@ public class RustSourceModelManager extends SourceModelManager {
 		return new RustStructureUpdateTask(structureInfo, source);
 	}
 	
+	protected Path getRainicornPath(Location fileLocation) throws CommonException {
+		IProject project = fileLocation == null ? null : ResourceUtils.getProjectFromMemberLocation(fileLocation);
+		return RustSDKPreferences.RAINICORN_PATH2.getDerivedValue(project);
+	}
+	
+	@Override
+	protected CacheKey getStructureCacheKey(StructureInfo structureInfo, String source) {
+		if(DevelopmentCodeMarkers.TESTS_MODE) {
+			return null;
+		}
+		
+		Location fileLocation = structureInfo.getLocation();
+		try {
+			Path path = getRainicornPath(fileLocation);
+			// Use the executable modification time as the tool version, so that a rainicorn update
+			// invalidates previous results.
+			String toolId = path + "@" + path.toFile().lastModified();
+			return new CacheKey(fileLocation, toolId, source);
+		} catch(CommonException e) {
+			return null; // The error will be reported by the update task.
+		}
+	}
+	
 	public class RustStructureUpdateTask extends StructureUpdateTask {
 		
 		protected final String source;
@@ -69,12 +96,10 @@ public class RustSourceModelManager extends SourceModelManager {
 					
 					SourceFileStructure previousStructure = structureInfo.getStoredData().getOrNull();
 					if(previousStructure != null) {
-						// Use elements from previous structure:
-						Indexable<StructureElement> previousElements = 
-								StructureElement.cloneSubTree(previousStructure.getChildren());
-						
-						newStructure = new SourceFileStructure(fileLocation, previousElements, 
-							newStructure.getParserProblems());
+						// Reuse the (unchanged) elements from previous structure:
+						newStructure = new SourceFileStructure(previousStructure, newStructure.getParserProblems());
+						// This structure depends on the previous one, not just on the source.
+						cacheKey = null;
 					}
 				}
 				return newStructure;
@@ -91,14 +116,17 @@ public class RustSourceModelManager extends SourceModelManager {
 				return null;
 			}
 			
-			IProject project = fileLocation == null ? null : ResourceUtils.getProjectFromMemberLocation(fileLocation);
-				Path path = RustSDKPreferences.RAINICORN_PATH2.getDerivedValue(project);
-				
-				ProcessBuilder pb = toolManager.createToolProcessBuilder(project, path);
-				
-				ExternalProcessResult describeResult = toolManager.runEngineTool(pb, source, cm);
-				return describeResult.getStdOutBytes().toString(StringUtil.UTF8);
-				
+			Path path = getRainicornPath(fileLocation);
+			
+			// Note: no working directory, parse_describe doesn't need one, 
+			// and this way the same pool workers can be used for all projects.
+			ProcessBuilder pb = toolManager.createToolProcessBuilder(ProcessUtils.createCommandLine(path), null);
+			
+			// A newer update for the same file supersedes this one. 
+			ExternalProcessResult describeResult = toolManager.getEngineToolScheduler().runAndAwait(
+				ToolManager.ENGINE_TOOLS_BACKGROUND, structureInfo.getKey2(), 
+				(taskCm) -> parseDescribePool.runRequest(pb, source, taskCm), cm);
+			return describeResult.getStdOutBytes().toString(StringUtil.UTF8);
 		}
 	}
 	
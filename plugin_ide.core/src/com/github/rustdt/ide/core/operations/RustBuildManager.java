@@ -18,10 +18,15 @@ import java.util.ArrayList;
 import org.eclipse.core.resources.IProject;
 
 import com.github.rustdt.tooling.RustBuildOutputParser2;
+import com.github.rustdt.tooling.RustBuildOutputParser2.StdOutStreamParser;
+import com.github.rustdt.tooling.cargo.CargoBuildInputs;
 import com.github.rustdt.tooling.cargo.CargoManifest;
+import com.github.rustdt.tooling.cargo.CargoManifest.CrateDependencyRef;
+import com.github.rustdt.tooling.cargo.CargoTargetsIndex;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.core.operations.ToolManager.RunToolTask;
 import melnorme.lang.ide.core.operations.ToolMarkersHelper;
 import melnorme.lang.ide.core.operations.build.BuildManager;
 import melnorme.lang.ide.core.operations.build.BuildTarget;
@@ -38,6 +43,7 @@ import melnorme.lang.tooling.bundle.FileRef;
 import melnorme.lang.tooling.bundle.LaunchArtifact;
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.toolchain.ops.BuildInputsFingerprint;
 import melnorme.lang.tooling.toolchain.ops.BuildOutputParser2;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Collection2;
@@ -46,7 +52,9 @@ import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.CollectionUtil;
 import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.SpillingOutputBuffer;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.ExternalProcessNotifyingHelper;
 
 /**
  * Rust builder, using Cargo.
@@ -94,6 +102,40 @@ public class RustBuildManager extends BuildManager {
 		return buildTargets;
 	}
 	
+	/** Add the Cargo path dependencies to the project references. */
+	@Override
+	protected ArrayList2<IProject> getBuildDependencies(IProject project, Indexable<IProject> builtProjects) {
+		ArrayList2<IProject> dependencies = super.getBuildDependencies(project, builtProjects);
+		
+		BundleInfo bundleInfo = bundleModel.getBundleInfo(project);
+		Location projectLocation = getProjectLocationOrNull(project);
+		if(bundleInfo == null || projectLocation == null) {
+			return dependencies;
+		}
+		
+		for(CrateDependencyRef dependencyRef : bundleInfo.getManifest().getDependencies()) {
+			Location depLocation = dependencyRef.getEffectiveLocation(projectLocation);
+			if(depLocation == null) {
+				continue;
+			}
+			for(IProject builtProject : builtProjects) {
+				if(depLocation.equals(getProjectLocationOrNull(builtProject)) && 
+						!dependencies.contains(builtProject)) {
+					dependencies.add(builtProject);
+				}
+			}
+		}
+		return dependencies;
+	}
+	
+	protected static Location getProjectLocationOrNull(IProject project) {
+		try {
+			return ResourceUtils.getProjectLocation2(project);
+		} catch(CommonException e) {
+			return null;
+		}
+	}
+	
 	protected BuildTarget createBuildTarget(IProject project, BundleInfo newBundleInfo, BuildType buildType,
 			BuildConfiguration buildConfig, boolean normalBuildEnabled, boolean autoBuildEnabled) {
 		String targetName = getBuildTargetName2(buildConfig.getName(), buildType.getName());
@@ -120,6 +162,10 @@ public class RustBuildManager extends BuildManager {
 			return ResourceUtils.getProjectLocation2(bt.getProject());
 		}
 		
+		protected CargoTargetsIndex getTargetsIndex(BuildTarget bt) throws CommonException {
+			return bt.getBundleInfo().getTargetsIndex(getProjectLocation(bt));
+		}
+		
 		@Override
 		public BuildTargetOperation getBuildOperation(BuildOperationParameters buildOpParams) throws CommonException {
 			return new RustBuildTargetOperation(buildOpParams);
@@ -143,9 +189,7 @@ public class RustBuildManager extends BuildManager {
 		
 		@Override
 		public LaunchArtifact getMainLaunchArtifact(BuildTarget bt) throws CommonException {
-			CargoManifest manifest = bt.getBundleInfo().getManifest();
-			
-			Collection2<FileRef> effectiveBinaries = manifest.getEffectiveBinaries(getProjectLocation(bt));
+			Collection2<FileRef> effectiveBinaries = getTargetsIndex(bt).getEffectiveBinaries();
 			if(effectiveBinaries.size() == 1) {
 				return getLaunchArtifact(bt, CollectionUtil.getSingleElementOrNull(effectiveBinaries));
 			}
@@ -154,15 +198,15 @@ public class RustBuildManager extends BuildManager {
 		
 		@Override
 		public Indexable<LaunchArtifact> getSubTargetLaunchArtifacts(BuildTarget bt) throws CommonException {
-			CargoManifest manifest = bt.getBundleInfo().getManifest();
+			CargoTargetsIndex targetsIndex = getTargetsIndex(bt);
 			
 			ArrayList2<LaunchArtifact> binariesPaths = new ArrayList2<>();
 			
-			for(FileRef binTargetName : manifest.getEffectiveBinaries(getProjectLocation(bt))) {
+			for(FileRef binTargetName : targetsIndex.getEffectiveBinaries()) {
 				binariesPaths.add(getLaunchArtifact(bt, binTargetName.getBinaryPathString()));
 			}
 			
-			addTestsSubTargets(bt, manifest, binariesPaths);
+			addTestsSubTargets(bt, targetsIndex, binariesPaths);
 			
 			return binariesPaths;
 		}
@@ -178,9 +222,9 @@ public class RustBuildManager extends BuildManager {
 			return new LaunchArtifact(cargoTargetName, exePath);
 		}
 		
-		protected ArrayList2<LaunchArtifact> addTestsSubTargets(BuildTarget bt, CargoManifest manifest,
+		protected ArrayList2<LaunchArtifact> addTestsSubTargets(BuildTarget bt, CargoTargetsIndex targetsIndex,
 				ArrayList2<LaunchArtifact> launchArtifacts) throws CommonException {
-			for(String testTargetName : manifest.getEffectiveTestTargets(getProjectLocation(bt))) {
+			for(String testTargetName : targetsIndex.getEffectiveTestTargets()) {
 				launchArtifacts.add(cargoTargetHelper.getLaunchArtifactForTestTarget(bt, testTargetName));
 			}
 			return launchArtifacts;
@@ -208,22 +252,103 @@ public class RustBuildManager extends BuildManager {
 	
 	public static class RustBuildTargetOperation extends BuildTargetOperation {
 		
+		/** Period at which markers are created for the messages parsed so far, while the build is running. */
+		protected static final int MARKERS_UPDATE_PERIOD_MS = 500;
+		
 		public RustBuildTargetOperation(BuildOperationParameters buildOpParams) {
 			super(buildOpParams);
 		}
 		
-		@Override
-		protected void processBuildOutput(ExternalProcessResult processResult, IOperationMonitor om) 
-				throws CommonException, OperationCancellation {
-			BuildOutputParser2 outputParser = new RustBuildOutputParser2() {
+		protected RustBuildOutputParser2 createOutputParser() {
+			return new RustBuildOutputParser2() {
 				@Override
 				protected void handleParseError(CommonException ce) {
 					 LangCore.logStatusException(ce.toStatusException());
 				}
 			};
+		}
+		
+		@Override
+		public void runBuildToolAndProcessOutput(ProcessBuilder pb, IOperationMonitor om)
+				throws CommonException, OperationCancellation {
+			// Parse the Cargo output while the build runs, so that markers for the first errors are created
+			// without waiting for the whole build to finish, and without buffering all output as a String.
+			RustBuildOutputParser2 outputParser = createOutputParser();
+			StdOutStreamParser streamParser = outputParser.createStdOutStreamParser();
+			
+			RunToolTask runToolTask = getRunToolTask(opMonitor, pb, buildTargetName, buildCommand, om);
+			runToolTask.addProcessListener(streamParser);
+			ExternalProcessNotifyingHelper processHelper = runToolTask.startProcess();
+			
+			Location projectLocation = ResourceUtils.getProjectLocation2(project);
+			ToolMarkersHelper markersHelper = createMarkersHelper();
+			int publishedCount = 0;
+			
+			// Note: markers are created in this thread, not in the process reader threads, 
+			// as creating markers might need to wait for a workspace lock.
+			try {
+				while(!processHelper.areReadersAndProcessTerminated() && !om.isCancelled()) {
+					ArrayList2<ToolSourceMessage> newMessages = 
+							streamParser.awaitNewMessages(MARKERS_UPDATE_PERIOD_MS);
+					if(!newMessages.isEmpty()) {
+						markersHelper.addErrorMarkers(newMessages, projectLocation, om);
+						publishedCount += newMessages.size();
+					}
+				}
+			} catch(InterruptedException e) {
+				processHelper.getProcess().destroy();
+				throw new OperationCancellation();
+			}
+			
+			ExternalProcessResult processResult = processHelper.awaitTerminationAndResult_ce(true);
+			toolExitSuccess = processResult.exitValue == 0;
+			try {
+				logSpilledOutput(processResult);
+				ArrayList2<ToolSourceMessage> buildMessages = outputParser.parseStreamedResult(processResult);
+				
+				if(publishedCount < buildMessages.size()) {
+					markersHelper.addErrorMarkers(buildMessages.subList(publishedCount, buildMessages.size()), 
+						projectLocation, om);
+				}
+			} finally {
+				processResult.dispose();
+			}
+		}
+		
+		@Override
+		protected boolean addInputFiles(BuildInputsFingerprint fingerprint, ProcessBuilder pb) 
+				throws CommonException {
+			Location projectLocation = getProjectLocation();
+			
+			new CargoBuildInputs(fingerprint) {
+				@Override
+				protected CargoManifest getManifest(Location crateLocation) {
+					if(bundleInfo != null && crateLocation.equals(projectLocation)) {
+						return bundleInfo.getManifest();
+					}
+					return super.getManifest(crateLocation);
+				}
+			}.addCrateBuild(projectLocation, pb);
+			return true;
+		}
+		
+		protected void logSpilledOutput(ExternalProcessResult processResult) {
+			if(processResult.isSpilled()) {
+				LangCore.logInfo("Output of build `" + buildTargetName + "` exceeded the in-memory limit (" + 
+					SpillingOutputBuffer.getDefaultMemoryThreshold() / 1024 + " KB per stream), " + 
+					"and was spilled to disk. Peak output buffer memory: " + 
+					SpillingOutputBuffer.getPeakMemoryUsage() / 1024 + " KB.");
+			}
+		}
+		
+		@Override
+		protected void processBuildOutput(ExternalProcessResult processResult, IOperationMonitor om) 
+				throws CommonException, OperationCancellation {
+			logSpilledOutput(processResult);
+			BuildOutputParser2 outputParser = createOutputParser();
 			ArrayList<ToolSourceMessage> buildMessages = outputParser.doParseResult(processResult);
 			
-			new ToolMarkersHelper().addErrorMarkers(buildMessages, ResourceUtils.getProjectLocation2(project), om);
+			createMarkersHelper().addErrorMarkers(buildMessages, ResourceUtils.getProjectLocation2(project), om);
 		}
 	}
 	
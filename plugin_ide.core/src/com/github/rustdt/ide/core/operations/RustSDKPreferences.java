@@ -20,7 +20,9 @@ import com.github.rustdt.tooling.ops.RacerOperation.RustRacerLocationValidator;
 import com.github.rustdt.tooling.ops.RustSDKLocationValidator;
 import com.github.rustdt.tooling.ops.RustSDKSrcLocationValidator;
 
+import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.operations.ToolchainPreferences;
+import melnorme.lang.ide.core.utils.prefs.BooleanPreference;
 import melnorme.lang.ide.core.utils.prefs.DerivedValuePreference;
 import melnorme.lang.utils.validators.LocationOrSinglePathValidator;
 import melnorme.utilbox.fields.validation.ValidationException;
@@ -45,6 +47,10 @@ public interface RustSDKPreferences extends ToolchainPreferences {
 		"racer_path", "", ToolchainPreferences.USE_PROJECT_SETTINGS,
 		new RustRacerLocationValidator());
 	
+	/** Use a long-running <code>racer daemon</code> process, instead of a new Racer process per request. */
+	public static final BooleanPreference RACER_DAEMON_MODE =
+			new BooleanPreference(LangCore.PLUGIN_ID, "racer_daemon_mode", true, USE_PROJECT_SETTINGS);
+	
 	public static final DerivedValuePreference<Path> RAINICORN_PATH2 = new DerivedValuePreference<>( 
 		"rainicorn_path", "", ToolchainPreferences.USE_PROJECT_SETTINGS,
 		new LocationOrSinglePathValidator("Rainicorn parse_describe:"));
@@ -53,5 +59,9 @@ public interface RustSDKPreferences extends ToolchainPreferences {
 	public static final DerivedValuePreference<Path> RUSTFMT_PATH = new DerivedValuePreference<>( 
 			"rustfmt_path", "", ToolchainPreferences.USE_PROJECT_SETTINGS,
 		new LocationOrSinglePathValidator("rustfmt:"));
+	
+	/** On format-on-save, format only the lines changed since the file was last saved. */
+	public static final BooleanPreference FORMAT_ON_SAVE_CHANGED_LINES_ONLY =
+			new BooleanPreference(LangCore.PLUGIN_ID, "rustfmt_changed_lines_only", false, USE_PROJECT_SETTINGS);
 
 }
\ No newline at end of file
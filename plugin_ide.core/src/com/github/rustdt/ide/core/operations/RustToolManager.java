@@ -10,13 +10,64 @@
  *******************************************************************************/
 package com.github.rustdt.ide.core.operations;
 
+import java.nio.file.Path;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+
+import com.github.rustdt.tooling.ops.RacerSession;
+import com.github.rustdt.tooling.ops.RacerSessionManager;
+
 import melnorme.lang.ide.core.CoreSettings;
+import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.core.utils.ResourceUtils;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
 
 public class RustToolManager extends ToolManager {
 	
+	public static RustToolManager getDefault() {
+		return (RustToolManager) LangCore.getToolManager();
+	}
+	
+	protected final RacerSessionManager racerSessions = new RacerSessionManager();
+	
+	/** Stop the Racer session of a project when it is closed or deleted. */
+	protected final IResourceChangeListener projectCloseListener = (event) -> {
+		IResource resource = event.getResource();
+		if(resource instanceof IProject) {
+			racerSessions.disposeSession(resource);
+		}
+	};
+	
 	public RustToolManager(CoreSettings settings) {
 		super(settings);
+		ResourceUtils.getWorkspace().addResourceChangeListener(projectCloseListener, 
+			IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+	
+	@Override
+	public void shutdownNow() {
+		super.shutdownNow();
+		ResourceUtils.getWorkspace().removeResourceChangeListener(projectCloseListener);
+		racerSessions.dispose();
+	}
+	
+	/**
+	 * @return the Racer daemon session for given project, 
+	 * or null if daemon mode is disabled or not available (a new Racer process should be used then).
+	 */
+	public RacerSession getRacerSession(IProject project) throws CommonException {
+		if(!RustSDKPreferences.RACER_DAEMON_MODE.getEffectiveValue(project)) {
+			racerSessions.disposeSession(project);
+			return null;
+		}
+		Path racerPath = RustSDKPreferences.RACER_PATH.getValidatableValue(project).getValidatedValue();
+		Location sdkSrcLocation = RustSDKPreferences.SDK_SRC_PATH3.getValidatableValue(project).getValidatedValue();
+		return racerSessions.getSession(project, racerPath, sdkSrcLocation);
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core_text;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.eclipse.jface.text.IDocument;
+import org.junit.Test;
+
+import melnorme.lang.ide.core.text.AbstractDocumentScanner;
+import melnorme.lang.ide.core.text.BlockHeuristicsScannner;
+import melnorme.lang.ide.core.text.DocumentBlockTokensTracker;
+import melnorme.lang.tooling.parser.BlockTokenOffsetsIndex;
+
+/**
+ * Runs the partition tests with the scanner using the document's block tokens index, 
+ * as done by the auto-edit strategy when the document has a partitioning.
+ */
+public class BlockHeuristicsScannner_IndexedTest extends BlockHeuristicsScannner_PartitionsTest {
+	
+	@Override
+	public BlockHeuristicsScannner setupScanner() {
+		BlockHeuristicsScannner scanner = super.setupScanner();
+		BlockTokenOffsetsIndex blockTokens = DocumentBlockTokensTracker.getBlockTokens(getDocument(), 
+			SamplePartitionScanner.LANG_PARTITIONING, IDocument.DEFAULT_CONTENT_TYPE);
+		assertNotNull(blockTokens);
+		assertTrue(blockTokens.getSourceLength() == getDocument().getLength());
+		scanner.setBlockTokensIndex(blockTokens);
+		return scanner;
+	}
+	
+	@Override
+	public void testScanWithPartitions$() throws Exception {
+		// Only the block tokens of code partitions are read, everything else is skipped
+		testBlockTokenStream("{()}", "{()}");
+		testBlockTokenStream("{(//)}"+NL+"a(b)", "{(()");
+		testBlockTokenStream("/**/)}", ")}");
+		testBlockTokenStream(")}'('", ")}");
+		testBlockTokenStream("/*{*/abcd'}''('/*)*/x/**/", "");
+	}
+	
+	protected void testBlockTokenStream(String source, String expectedTokens) throws Exception {
+		checkBlockTokenStream(setupSource(source), expectedTokens);
+	}
+	
+	protected void checkBlockTokenStream(BlockHeuristicsScannner scanner, String expectedTokens) 
+			throws Exception {
+		scanner.setScanRange(0, document.getLength());
+		StringBuilder tokens = new StringBuilder();
+		while(scanner.nextTokenFn.advanceToken() != AbstractDocumentScanner.TOKEN_EOF) {
+			assertTrue(document.getChar(scanner.getPosition() - 1) == scanner.getLastToken());
+			tokens.append((char) scanner.getLastToken());
+		}
+		assertEquals(tokens.toString(), expectedTokens);
+		assertTrue(scanner.getPosition() == document.getLength());
+		
+		scanner.setScanRange(document.getLength(), 0);
+		tokens.setLength(0);
+		while(scanner.prevTokenFn.advanceToken() != AbstractDocumentScanner.TOKEN_EOF) {
+			assertTrue(document.getChar(scanner.getPosition()) == scanner.getLastToken());
+			tokens.insert(0, (char) scanner.getLastToken());
+		}
+		assertEquals(tokens.toString(), expectedTokens);
+		assertTrue(scanner.getPosition() == 0);
+	}
+	
+	@Test
+	public void testIndexUpdates() throws Exception { testIndexUpdates$(); }
+	public void testIndexUpdates$() throws Exception {
+		testBlockTokenStream("{ /* ( */ }", "{}");
+		
+		// Edits are applied to the existing index
+		document.replace(2, 7, "( )");
+		assertEquals(document.get(), "{ ( ) }");
+		checkBlockTokenStream(setupScanner(), "{()}");
+		
+		document.replace(0, 0, "//");
+		checkBlockTokenStream(setupScanner(), "");
+		
+		document.replace(0, 2, "(" + NL);
+		checkBlockTokenStream(setupScanner(), "({()}");
+		
+		BlockHeuristicsScannner scanner = setupScanner();
+		int balance = scanner.scanToBlockStart(document.getLength() - 1);
+		assertTrue(balance == 0);
+		assertTrue(scanner.getPosition() == ("(" + NL).length());
+	}
+	
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core_text;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.IDocumentPartitioningListenerExtension;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.junit.Test;
+
+import melnorme.utilbox.tests.CommonTest;
+
+public class LangFastPartitionerTest extends CommonTest {
+	
+	protected Document document;
+	protected IRegion changedRegion;
+	
+	protected void setupDocument(String source) {
+		document = new Document(source);
+		FastPartitioner partitioner = new LangFastPartitioner(new SamplePartitionScanner(),
+			SamplePartitionScanner.LEGAL_CONTENT_TYPES);
+		partitioner.connect(document);
+		document.setDocumentPartitioner(partitioner);
+		document.addDocumentPartitioningListener(new PartitioningListener());
+	}
+	
+	protected class PartitioningListener
+		implements IDocumentPartitioningListener, IDocumentPartitioningListenerExtension {
+		
+		@Override
+		public void documentPartitioningChanged(IDocument document) {
+		}
+		
+		@Override
+		public void documentPartitioningChanged(IDocument document, IRegion region) {
+			changedRegion = region;
+		}
+	}
+	
+	protected void testChange(int offset, String text, IRegion expectedRegion) throws BadLocationException {
+		changedRegion = null;
+		document.replace(offset, 0, text);
+		assertAreEqual(changedRegion, expectedRegion);
+	}
+	
+	@Test
+	public void testPartitioningChange() throws Exception { testPartitioningChange$(); }
+	public void testPartitioningChange$() throws Exception {
+		// Typing inside a comment doesn't change the partitioning
+		setupDocument("/* one\ntwo\nthree */\nb = 1;\n");
+		testChange(4, "x", null);
+		
+		// Splitting a string: only the split line changed, even though the whole string is re-partitioned
+		setupDocument("a = \"one\ntwo\nthree\";\nb = 1;\n");
+		testChange(7, "\"\"", new Region(0, "a = \"on\"\"e".length()));
+		
+		// Closing a comment early: the lines of the rest of the comment changed
+		setupDocument("/* one\ntwo\nthree */\nb = 1;\n");
+		testChange(3, "*/", new Region(0, "/* */one\ntwo\nthree */".length()));
+		
+		// Opening a comment
+		setupDocument("a = 1;\nb = 2; /* x */\nc = 3;\n");
+		testChange(2, "/*", new Region(0, "a /*= 1;\nb = 2; /* x */".length()));
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.ui.tools.console;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import melnorme.lang.ide.ui.tools.console.ConsoleOutputEngine.IOutputStream;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.tests.CommonTest;
+
+public class ConsoleOutputEngine_Test extends CommonTest {
+	
+	/** A flush delay long enough that timed flushes don't happen during a test. */
+	public static final int NO_TIMED_FLUSH = 60_000;
+	
+	/** Records the writes of all streams, in write order. Text writes are marked with "$", byte writes with ":". */
+	protected final ArrayList2<String> writes = new ArrayList2<>();
+	
+	protected class RecordingStream implements IOutputStream {
+		
+		protected final String name;
+		
+		public RecordingStream(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			addWrite(name + ":" + new String(b, off, len, StringUtil.UTF8));
+		}
+		
+		@Override
+		public void write(String text) {
+			addWrite(name + "$" + text);
+		}
+		
+	}
+	
+	protected final RecordingStream streamA = new RecordingStream("A");
+	protected final RecordingStream streamB = new RecordingStream("B");
+	protected ConsoleOutputEngine engine;
+	
+	@After
+	public void tearDown() {
+		if(engine != null) {
+			engine.dispose();
+		}
+	}
+	
+	protected void addWrite(String write) {
+		synchronized(writes) {
+			writes.add(write);
+		}
+	}
+	
+	protected void checkWrites(String... expected) {
+		synchronized(writes) {
+			assertAreEqual(writes, ArrayList2.create(expected));
+		}
+	}
+	
+	protected void writeBytes(IOutputStream stream, String string) {
+		byte[] bytes = string.getBytes(StringUtil.UTF8);
+		engine.write(stream, bytes, 0, bytes.length);
+	}
+	
+	protected Location getTranscriptLocation() {
+		Location transcriptLoc = workingDirLoc("ConsoleOutputEngine_Test/transcript.log");
+		transcriptLoc.toFile().delete();
+		return transcriptLoc;
+	}
+	
+	@Test
+	public void testOrdering() throws Exception { testOrdering$(); }
+	public void testOrdering$() throws Exception {
+		engine = new ConsoleOutputEngine(StringUtil.UTF8, NO_TIMED_FLUSH);
+		
+		engine.write(streamA, "a1");
+		engine.write(streamA, "a2");
+		engine.write(streamB, "b1");
+		writeBytes(streamA, "a3");
+		writeBytes(streamA, "a4");
+		engine.write(streamA, "");
+		engine.write(streamA, "a5");
+		checkWrites();
+		
+		// Consecutive writes of the same kind to the same stream are coalesced, but the order is kept
+		engine.flush();
+		checkWrites("A$a1a2", "B$b1", "A:a3a4", "A$a5");
+		
+		engine.flush();
+		checkWrites("A$a1a2", "B$b1", "A:a3a4", "A$a5");
+	}
+	
+	@Test
+	public void testTimedFlush() throws Exception { testTimedFlush$(); }
+	public void testTimedFlush$() throws Exception {
+		engine = new ConsoleOutputEngine(StringUtil.UTF8, 10);
+		
+		engine.write(streamA, "a1");
+		writeBytes(streamB, "b1");
+		for(int i = 0; i < 500; i++) {
+			synchronized(writes) {
+				if(writes.size() == 2) {
+					break;
+				}
+			}
+			Thread.sleep(10);
+		}
+		checkWrites("A$a1", "B:b1");
+	}
+	
+	@Test
+	public void testSizeFlush() throws Exception { testSizeFlush$(); }
+	public void testSizeFlush$() throws Exception {
+		engine = new ConsoleOutputEngine(StringUtil.UTF8, NO_TIMED_FLUSH);
+		
+		String text = StringUtil.newFilledString(ConsoleOutputEngine.FLUSH_SIZE - 1, 'a');
+		engine.write(streamA, text);
+		checkWrites();
+		
+		// Flushed in the writing thread, once the buffered size is reached
+		writeBytes(streamB, "b");
+		checkWrites("A$" + text, "B:b");
+		
+		// The buffered size starts again from zero
+		engine.write(streamA, text);
+		checkWrites("A$" + text, "B:b");
+		engine.write(streamA, "c");
+		checkWrites("A$" + text, "B:b", "A$" + text + "c");
+	}
+	
+	@Test
+	public void testTranscript() throws Exception { testTranscript$(); }
+	public void testTranscript$() throws Exception {
+		engine = new ConsoleOutputEngine(StringUtil.UTF8, NO_TIMED_FLUSH);
+		Location transcriptLoc = getTranscriptLocation();
+		engine.setTranscriptLocation(transcriptLoc);
+		
+		engine.write(streamA, "abc\n");
+		writeBytes(streamB, "d\u00E9f\n");
+		engine.write(streamA, "ghi\n");
+		engine.flush();
+		assertAreEqual(readStringFromFile(transcriptLoc), "abc\nd\u00E9f\nghi\n");
+		
+		// Output of all streams goes to the transcript, in write order
+		engine.write(streamB, "jkl");
+		writeBytes(streamA, "mno");
+		engine.flush();
+		assertAreEqual(readStringFromFile(transcriptLoc), "abc\nd\u00E9f\nghi\njklmno");
+		checkWrites("A$abc\n", "B:d\u00E9f\n", "A$ghi\n", "B$jkl", "A:mno");
+	}
+	
+	@Test
+	public void testDispose() throws Exception { testDispose$(); }
+	public void testDispose$() throws Exception {
+		engine = new ConsoleOutputEngine(StringUtil.UTF8, NO_TIMED_FLUSH);
+		Location transcriptLoc = getTranscriptLocation();
+		engine.setTranscriptLocation(transcriptLoc);
+		
+		engine.write(streamA, "abc");
+		engine.flush();
+		engine.write(streamA, "def");
+		writeBytes(streamB, "ghi");
+		
+		// Pending output is flushed to the transcript before dispose returns, but not to the console streams
+		engine.dispose();
+		checkWrites("A$abc");
+		assertAreEqual(readStringFromFile(transcriptLoc), "abcdefghi");
+		
+		// Output after dispose is dropped
+		engine.write(streamA, "jkl");
+		engine.flush();
+		checkWrites("A$abc");
+		assertAreEqual(readStringFromFile(transcriptLoc), "abcdefghi");
+		assertTrue(engine.transcript == null);
+	}
+	
+}
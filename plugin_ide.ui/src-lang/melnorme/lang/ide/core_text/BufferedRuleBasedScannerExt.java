@@ -87,6 +87,9 @@ public class BufferedRuleBasedScannerExt extends RuleBasedScanner {
 
 		fStart= offset;
 		fEnd= fStart + fBufferSize;
+		// Characters past the range end are never read (see charAt), so don't copy them.
+		if (fEnd > fRangeEnd)
+			fEnd= Math.max(fStart, fRangeEnd);
 		if (fEnd > fDocumentLength)
 			fEnd= fDocumentLength;
 
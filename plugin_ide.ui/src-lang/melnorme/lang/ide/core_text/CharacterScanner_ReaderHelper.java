@@ -23,6 +23,11 @@ public class CharacterScanner_ReaderHelper extends BasicCharSource<RuntimeExcept
 		this.scanner = scanner;
 	}
 	
+	/** Reset reader state, for reading a new token. */
+	public void reset() {
+		checkedHasNext = false;
+	}
+	
 	@Override
 	public int lookahead(int offset) {
 		return scanner.lookahead(offset);
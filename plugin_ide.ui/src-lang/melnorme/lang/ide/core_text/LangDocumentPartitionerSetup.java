@@ -47,7 +47,7 @@ public class LangDocumentPartitionerSetup implements IDocumentSetupParticipant {
 	
 	public FastPartitioner createDocumentPartitioner() {
 		IPartitionTokenScanner scanner = LangUIPlugin_Actual.createPartitionScanner();
-		return new FastPartitioner(scanner, LEGAL_CONTENT_TYPES);
+		return new LangFastPartitioner(scanner, LEGAL_CONTENT_TYPES);
 	}
 	
 	protected FastPartitioner setupDocumentPartitioner(IDocument document, String partitioning) {
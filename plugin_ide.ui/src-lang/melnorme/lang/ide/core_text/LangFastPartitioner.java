@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core_text;
+
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TypedPosition;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+
+/**
+ * A {@link FastPartitioner} that reports as changed only the lines where the partitioning actually changed.
+ *
+ * The partition positions are the partition scanner state at each line boundary: on a document change,
+ * {@link FastPartitioner} re-scans from the edited line until the scanned partitions converge with the existing ones.
+ * But the changed region it reports includes all of the replaced partitions, for example all of a large
+ * comment or string that was split, even where the partition type stayed the same.
+ * That region is re-coloured by the presentation reconciler, so this limits it to the lines where
+ * the partition type, or a partition boundary, changed.
+ *
+ * @see LineDamagerRepairer
+ */
+public class LangFastPartitioner extends FastPartitioner {
+	
+	public LangFastPartitioner(IPartitionTokenScanner scanner, String[] legalContentTypes) {
+		super(scanner, legalContentTypes);
+	}
+	
+	@Override
+	public IRegion documentChanged2(DocumentEvent event) {
+		Position[] previousPositions;
+		try {
+			// This is the array cached by FastPartitioner, used by super as well, so no copy is made.
+			// Its positions are updated for the document change by super.
+			previousPositions = getPositions();
+		} catch(BadPositionCategoryException e) {
+			return super.documentChanged2(event);
+		}
+		
+		IRegion changedRegion = super.documentChanged2(event);
+		if(changedRegion == null || getActiveRewriteSession() != null) {
+			return changedRegion;
+		}
+		
+		try {
+			return getPartitioningChange(previousPositions, getPositions(), changedRegion);
+		} catch(BadPositionCategoryException | BadLocationException e) {
+			return changedRegion;
+		}
+	}
+	
+	/**
+	 * @return the lines of given changedRegion where given current partitions differ from the previous ones,
+	 * or null if they don't differ.
+	 */
+	protected IRegion getPartitioningChange(Position[] previousPositions, Position[] currentPositions,
+			IRegion changedRegion) throws BadLocationException {
+		int start = changedRegion.getOffset();
+		int end = changedRegion.getOffset() + changedRegion.getLength();
+		
+		PartitionsCursor previous = new PartitionsCursor(previousPositions);
+		PartitionsCursor current = new PartitionsCursor(currentPositions);
+		
+		int changeStart = -1;
+		int changeEnd = -1;
+		
+		int offset = start;
+		while(true) {
+			previous.advanceTo(offset);
+			current.advanceTo(offset);
+			
+			if(previous.isBoundary(offset) != current.isBoundary(offset)) {
+				changeStart = changeStart == -1 ? offset : changeStart;
+				changeEnd = offset;
+			}
+			if(offset >= end) {
+				break;
+			}
+			
+			int next = Math.min(end, Math.min(previous.nextBoundary(offset), current.nextBoundary(offset)));
+			if(!areEqual(previous.getType(offset), current.getType(offset))) {
+				changeStart = changeStart == -1 ? offset : changeStart;
+				changeEnd = next;
+			}
+			offset = next;
+		}
+		
+		if(changeStart == -1) {
+			return null;
+		}
+		
+		int lineStart = fDocument.getLineOffset(fDocument.getLineOfOffset(changeStart));
+		IRegion endLine = fDocument.getLineInformationOfOffset(changeEnd);
+		int lineEnd = endLine.getOffset() + endLine.getLength();
+		return new Region(lineStart, lineEnd - lineStart);
+	}
+	
+	/**
+	 * Iterates the partitions at increasing offsets. The offsets not in a partition position
+	 * are in the default partition (type null here). Deleted and empty positions are ignored.
+	 */
+	protected static class PartitionsCursor {
+		
+		protected final Position[] positions;
+		protected int index = 0;
+		protected int previousEnd = -1;
+		
+		public PartitionsCursor(Position[] positions) {
+			this.positions = positions;
+		}
+		
+		protected static int getEnd(Position position) {
+			return position.getOffset() + position.getLength();
+		}
+		
+		protected boolean isIgnored(Position position) {
+			return position.isDeleted() || position.getLength() == 0;
+		}
+		
+		/** Move to the first position ending after given offset. */
+		public void advanceTo(int offset) {
+			while(index < positions.length) {
+				Position position = positions[index];
+				if(isIgnored(position)) {
+					index++;
+				} else if(getEnd(position) <= offset) {
+					previousEnd = getEnd(position);
+					index++;
+				} else {
+					break;
+				}
+			}
+		}
+		
+		protected Position getPosition() {
+			return index < positions.length ? positions[index] : null;
+		}
+		
+		public boolean isBoundary(int offset) {
+			Position position = getPosition();
+			return previousEnd == offset || (position != null && position.getOffset() == offset);
+		}
+		
+		public String getType(int offset) {
+			Position position = getPosition();
+			if(position != null && position.getOffset() <= offset) {
+				return ((TypedPosition) position).getType();
+			}
+			return null;
+		}
+		
+		public int nextBoundary(int offset) {
+			Position position = getPosition();
+			if(position == null) {
+				return Integer.MAX_VALUE;
+			}
+			return position.getOffset() > offset ? position.getOffset() : getEnd(position);
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.core_text;
+
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.rules.DefaultDamagerRepairer;
+import org.eclipse.jface.text.rules.ITokenScanner;
+
+/**
+ * A damager-repairer that damages only the changed lines, also when the document partitioning changed.
+ *
+ * {@link DefaultDamagerRepairer} damages the whole partition in that case, which for an edit that closes
+ * a large comment or string early means all of it. But the text before the change keeps its partitioning,
+ * and the presentation reconciler already extends the damage to the end of the partitioning change
+ * (which {@link LangFastPartitioner} limits to the lines where the partitioning actually changed).
+ */
+public class LineDamagerRepairer extends DefaultDamagerRepairer {
+	
+	public LineDamagerRepairer(ITokenScanner scanner) {
+		super(scanner);
+	}
+	
+	@Override
+	public IRegion getDamageRegion(ITypedRegion partition, DocumentEvent e,
+			boolean documentPartitioningChanged) {
+		return super.getDamageRegion(partition, e, false);
+	}
+	
+}
\ No newline at end of file
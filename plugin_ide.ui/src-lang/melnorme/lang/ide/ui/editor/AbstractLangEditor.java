@@ -297,7 +297,7 @@ public abstract class AbstractLangEditor extends TextEditorExt {
 		if(saveActionsEnablement.isEnabled()) {
 			IProject associatedProject = EditorUtils.getAssociatedProject(getEditorInput());
 			if(ToolchainPreferences.FORMAT_ON_SAVE.getEffectiveValue(associatedProject)) {
-				AbstractEditorToolOperation<?> formatOperation = LangUIPlugin_Actual.getFormatOperation(this);
+				AbstractEditorToolOperation<?> formatOperation = LangUIPlugin_Actual.getFormatOnSaveOperation(this);
 				formatOperation.handleSoftFailureWithDialog = false;
 				formatOperation.executeAndHandle();
 			}
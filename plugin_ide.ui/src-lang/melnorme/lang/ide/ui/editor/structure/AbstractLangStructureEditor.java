@@ -30,6 +30,7 @@ import org.eclipse.ui.texteditor.ITextEditor;
 import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.engine.IStructureModelDeltaListener;
 import melnorme.lang.ide.core.engine.IStructureModelListener;
 import melnorme.lang.ide.core.engine.SourceModelManager;
 import melnorme.lang.ide.core.engine.SourceModelManager.StructureInfo;
@@ -42,8 +43,10 @@ import melnorme.lang.ide.ui.text.LangSourceViewerConfiguration;
 import melnorme.lang.tooling.LocationKey;
 import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureDelta;
 import melnorme.lang.tooling.structure.StructureElement;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.core.fntypes.CommonResult;
 import melnorme.utilbox.core.fntypes.Result;
 import melnorme.utilbox.fields.Field;
 import melnorme.utilbox.misc.Location;
@@ -141,10 +144,13 @@ public abstract class AbstractLangStructureEditor extends AbstractLangEditor {
 		return new StructuredSelection(selectedElement);
 	}
 	
-	protected final IStructureModelListener structureInfoListener = new IStructureModelListener() {
+	protected final IStructureModelListener structureInfoListener = new IStructureModelDeltaListener() {
 		
 		@Override
-		public void dataChanged(StructureInfo lockedStructureInfo) {
+		public void structureChanged(StructureInfo lockedStructureInfo, StructureDelta delta) {
+			// Capture the delta together with the structure it leads to
+			CommonResult<SourceFileStructure> structureResult = lockedStructureInfo.getStoredData();
+			
 			Display.getDefault().asyncExec(new Runnable() {
 				@Override
 				public void run() {
@@ -153,20 +159,40 @@ public abstract class AbstractLangStructureEditor extends AbstractLangEditor {
 					if(modelRegistration == null || lockedStructureInfo != modelRegistration.structureInfo) {
 						return;
 					}
-					handleEditorStructureUpdated(modelRegistration.structureInfo);
+					handleEditorStructureUpdated(structureResult, delta);
 				}
 			});
 		}
 	};
 	
 	protected void handleEditorStructureUpdated(StructureInfo structureInfo) {
+		handleEditorStructureUpdated(structureInfo.getStoredData(), null);
+	}
+	
+	protected void handleEditorStructureUpdated(CommonResult<SourceFileStructure> structureResult, 
+			StructureDelta delta) {
 		assertTrue(Display.getCurrent() != null);
 		
-		structureResultField.setFieldValue(structureInfo.getStoredData());
+		lastStructureDelta = delta;
+		structureResultField.setFieldValue(structureResult);
 		
 		setSelectedElementField();
 	}
 	
+	protected StructureDelta lastStructureDelta;
+	
+	/** 
+	 * @return the delta from given structure to the current structure of the editor, 
+	 * if given structure is the previous one. Null otherwise.
+	 */
+	public StructureDelta getStructureDelta(SourceFileStructure fromStructure) {
+		StructureDelta delta = lastStructureDelta;
+		if(delta == null || fromStructure == null || delta.getOldElement() != fromStructure) {
+			return null;
+		}
+		return delta;
+	}
+	
 	/* ----------------- Selection ----------------- */
 	
 	protected class EditorSelectionChangedListener extends AbstractSelectionChangedListener {
@@ -13,18 +13,25 @@ package melnorme.lang.ide.ui.editor.structure;
 
 import melnorme.lang.ide.core.EclipseCore;
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.engine.IStructureModelDeltaListener;
+import melnorme.lang.ide.core.engine.SourceModelManager.StructureInfo;
 import melnorme.lang.ide.ui.LangUIPlugin;
 import melnorme.lang.ide.ui.text.AbstractLangBasicSourceViewerConfiguration;
 import melnorme.lang.ide.ui.views.AbstractFilteredTreePopupControl;
 import melnorme.lang.ide.ui.views.StructureElementLabelProvider;
-import melnorme.lang.tooling.structure.ISourceFileStructure;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureDelta;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.ownership.IDisposable;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.IInformationControl;
 import org.eclipse.jface.text.IInformationControlCreator;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 import _org.eclipse.jdt.internal.ui.util.StringMatcher;
@@ -48,20 +55,32 @@ public abstract class LangOutlineInformationControl extends AbstractFilteredTree
 		
 		treeViewer.setLabelProvider(StructureElementLabelProvider.createLangLabelProvider());
 		treeViewer.setContentProvider(new StructureElementContentProvider());
+		structureUpdater = new StructureTreeViewerUpdater(treeViewer);
+	}
+	
+	@Override
+	public void widgetDisposed(DisposeEvent event) {
+		disconnectStructureUpdates();
+		super.widgetDisposed(event);
 	}
 	
 	/* -----------------  ----------------- */
 	
+	protected StructureTreeViewerUpdater structureUpdater;
+	protected IDisposable structureUpdatesRegistration;
+	
 	@Override
 	public void setInput(Object information) {
-		ISourceFileStructure structure = null;
+		SourceFileStructure structure = null;
 		
-		if(information instanceof ISourceFileStructure) {
-			structure = (ISourceFileStructure) information;
+		if(information instanceof SourceFileStructure) {
+			structure = (SourceFileStructure) information;
 		}
 		
 		if(structure != null) {
-			super.doSetInput(structure, null);
+			getFilterText().setText("");
+			structureUpdater.setStructure(structure, null);
+			connectStructureUpdates(structure.getLocation());
 		} else {
 			LangCore.logInternalError(new Exception("Could not determine structure from input."));
 			super.setInput(null);
@@ -69,6 +88,47 @@ public abstract class LangOutlineInformationControl extends AbstractFilteredTree
 		
 	}
 	
+	/** 
+	 * Keep the popup up to date with structure changes (for example, if the structure was not yet updated 
+	 * for the last edits when the popup was opened), applying the deltas from the structure model.
+	 */
+	protected void connectStructureUpdates(Location location) {
+		disconnectStructureUpdates();
+		if(location == null) {
+			return;
+		}
+		
+		structureUpdatesRegistration = LangCore.getSourceModelManager().addListener(
+			new IStructureModelDeltaListener() {
+				@Override
+				public void dataChanged(StructureInfo lockedStructureInfo) {
+					if(location.equals(lockedStructureInfo.getLocation())) {
+						IStructureModelDeltaListener.super.dataChanged(lockedStructureInfo);
+					}
+				}
+				
+				@Override
+				public void structureChanged(StructureInfo lockedStructureInfo, StructureDelta delta) {
+					SourceFileStructure newStructure = lockedStructureInfo.getStoredData().getOrNull();
+					if(newStructure == null) {
+						return;
+					}
+					Display.getDefault().asyncExec(() -> {
+						if(treeViewer != null) {
+							structureUpdater.setStructure(newStructure, delta);
+						}
+					});
+				}
+			});
+	}
+	
+	protected void disconnectStructureUpdates() {
+		if(structureUpdatesRegistration != null) {
+			structureUpdatesRegistration.dispose();
+			structureUpdatesRegistration = null;
+		}
+	}
+	
 	@Override
 	protected void gotoSelectedElement() {
 		Object selectedElement = getSelectedElement();
@@ -47,6 +47,7 @@ public class LangOutlinePage extends AbstractContentOutlinePage implements IAdap
 		super.createControl(parent);
 		
 		getTreeViewer().setContentProvider(createContentProvider());
+		structureUpdater = new StructureTreeViewerUpdater(getTreeViewer());
 		getTreeViewer().setLabelProvider(StructureElementLabelProvider.createLangLabelProvider());
 		
 		customizeCreateControl();
@@ -89,15 +90,16 @@ public class LangOutlinePage extends AbstractContentOutlinePage implements IAdap
 			return;
 		}
 		
-		if(getTreeViewer().getInput() != structure) {
+		if(getTreeViewer().getInput() == null || structure != structureUpdater.getStructure()) {
 			statusWidget.setStatusMessage(null);
-			
-			getTreeViewer().setInput(structure);
-			getTreeViewer().refresh();
 		}
+		// Update incrementally, with the delta from the structure model if the outline has seen all updates
+		structureUpdater.setStructure(structure, editor.getStructureDelta(structureUpdater.getStructure()));
 		updateSelectionFromEditor();
 	}
 	
+	protected StructureTreeViewerUpdater structureUpdater;
+	
 	protected boolean updatingFromEditor = false;
 	
 	protected void updateSelectionFromEditor() {
@@ -148,7 +150,7 @@ public class LangOutlinePage extends AbstractContentOutlinePage implements IAdap
 				
 				return false;
 			}
-
+			
 		};
 	}
 	
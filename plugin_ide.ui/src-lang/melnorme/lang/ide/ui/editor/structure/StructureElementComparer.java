@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.ui.editor.structure;
+
+import org.eclipse.jface.viewers.IElementComparer;
+
+import melnorme.lang.tooling.structure.IStructureElementContainer;
+import melnorme.lang.tooling.structure.StructureDiffer;
+import melnorme.lang.tooling.structure.StructureElement;
+
+/**
+ * Compares {@link StructureElement}s by identity within the structure tree (kind, name and position), 
+ * as defined by {@link StructureDiffer}, so that a viewer can keep its items (expansion state, selection) 
+ * across structure updates, even though each update creates new element objects.
+ * 
+ * All root containers (ie, non-{@link StructureElement} containers) are considered equal to each other.
+ */
+public class StructureElementComparer implements IElementComparer {
+	
+	@Override
+	public boolean equals(Object a, Object b) {
+		if(a == b) {
+			return true;
+		}
+		if(a instanceof StructureElement && b instanceof StructureElement) {
+			return StructureDiffer.isSameElement((StructureElement) a, (StructureElement) b);
+		}
+		if(a instanceof StructureElement || b instanceof StructureElement) {
+			return false;
+		}
+		if(a instanceof IStructureElementContainer && b instanceof IStructureElementContainer) {
+			return true;
+		}
+		return a != null && a.equals(b);
+	}
+	
+	@Override
+	public int hashCode(Object element) {
+		if(element instanceof StructureElement) {
+			return StructureDiffer.getElementKeyHashCode((StructureElement) element);
+		}
+		if(element instanceof IStructureElementContainer) {
+			return 0;
+		}
+		return element == null ? 0 : element.hashCode();
+	}
+	
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.ui.editor.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.eclipse.jface.viewers.AbstractTreeViewer;
+
+import melnorme.lang.tooling.structure.IStructureElementContainer;
+import melnorme.lang.tooling.structure.SourceFileStructure;
+import melnorme.lang.tooling.structure.StructureDelta;
+import melnorme.lang.tooling.structure.StructureDelta.DeltaKind;
+import melnorme.lang.tooling.structure.StructureDiffer;
+import melnorme.lang.tooling.structure.StructureElement;
+import melnorme.utilbox.collections.Indexable;
+
+/**
+ * Updates a tree viewer showing a {@link SourceFileStructure} by applying the {@link StructureDelta} 
+ * of each structure change to the existing tree items, instead of rebuilding the whole tree.
+ * Items of unchanged elements, and their expansion state, are kept. 
+ */
+public class StructureTreeViewerUpdater {
+	
+	protected final AbstractTreeViewer viewer;
+	protected final StructureInput input = new StructureInput();
+	
+	public StructureTreeViewerUpdater(AbstractTreeViewer viewer) {
+		this.viewer = assertNotNull(viewer);
+		viewer.setComparer(new StructureElementComparer());
+		viewer.setUseHashlookup(true); // Each delta entry needs an item lookup
+	}
+	
+	public SourceFileStructure getStructure() {
+		return input.structure;
+	}
+	
+	/**
+	 * Set the structure shown by the viewer. 
+	 * @param delta the delta from the currently shown structure to the new one, if known. 
+	 * If null, or if it is from another structure, the delta is computed here.
+	 */
+	public void setStructure(SourceFileStructure structure, StructureDelta delta) {
+		if(viewer.getInput() != input || input.structure == null || structure == null) {
+			input.structure = structure;
+			viewer.setInput(input);
+			viewer.refresh();
+			return;
+		}
+		if(input.structure == structure) {
+			return;
+		}
+		
+		if(delta == null || delta.getOldElement() != input.structure || delta.getNewElement() != structure) {
+			delta = StructureDiffer.diff(input.structure, structure);
+		}
+		input.structure = structure;
+		applyDelta(input, delta);
+	}
+	
+	/** 
+	 * Apply the child deltas of given CHANGED delta to the children of the viewer element parent.
+	 * Elements are matched to tree items by {@link StructureElementComparer}.
+	 */
+	protected void applyDelta(Object parent, StructureDelta delta) {
+		if(delta.hasFlag(StructureDelta.F_REORDERED)) {
+			// Let the viewer match the items of the reordered children
+			viewer.refresh(parent, false);
+			return;
+		}
+		
+		Set<Object> addedElements = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(StructureDelta childDelta : delta.getChildDeltas()) {
+			if(childDelta.getKind() == DeltaKind.REMOVED) {
+				viewer.remove(parent, new Object[] { childDelta.getOldElement() });
+			} else if(childDelta.getKind() == DeltaKind.ADDED) {
+				addedElements.add(childDelta.getNewElement());
+			}
+		}
+		
+		if(!addedElements.isEmpty()) {
+			// Insert in order, after the removals, so that the position of each element is its final one
+			Indexable<StructureElement> newChildren = delta.getNewElement().getChildren();
+			for(int ix = 0; ix < newChildren.size(); ix++) {
+				StructureElement child = newChildren.get(ix);
+				if(addedElements.contains(child)) {
+					viewer.insert(parent, child, ix);
+				}
+			}
+		}
+		
+		for(StructureDelta childDelta : delta.getChildDeltas()) {
+			if(childDelta.getKind() != DeltaKind.CHANGED) {
+				continue;
+			}
+			// This also associates the item with the new element object, 
+			// so that the viewer (selection, navigation) uses its new source ranges.
+			viewer.update(childDelta.getNewElement(), null);
+			
+			if(childDelta.hasFlag(StructureDelta.F_CHILDREN | StructureDelta.F_REORDERED)) {
+				applyDelta(childDelta.getNewElement(), childDelta);
+			}
+		}
+	}
+	
+	/** 
+	 * The viewer input. It stays the same across structure updates, 
+	 * since {@link AbstractTreeViewer#setInput(Object)} always recreates the whole tree.
+	 */
+	public static class StructureInput implements IStructureElementContainer {
+		
+		protected SourceFileStructure structure;
+		
+		public SourceFileStructure getStructure() {
+			return structure;
+		}
+		
+		@Override
+		public Indexable<StructureElement> getChildren() {
+			return Indexable.nullToEmpty(structure == null ? null : structure.getChildren());
+		}
+		
+	}
+	
+}
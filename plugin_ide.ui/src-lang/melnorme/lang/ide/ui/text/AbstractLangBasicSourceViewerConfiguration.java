@@ -37,6 +37,7 @@ import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
 
 import melnorme.lang.ide.core.TextSettings_Actual;
 import melnorme.lang.ide.core.TextSettings_Actual.LangPartitionTypes;
+import melnorme.lang.ide.core_text.LineDamagerRepairer;
 import melnorme.lang.ide.ui.CodeFormatterConstants;
 import melnorme.lang.ide.ui.EditorSettings_Actual;
 import melnorme.lang.ide.ui.LangUIMessages;
@@ -148,7 +149,7 @@ public abstract class AbstractLangBasicSourceViewerConfiguration extends TextSou
 	
 	@SuppressWarnings("unused")
 	protected DefaultDamagerRepairer getDamagerRepairer(AbstractLangScanner scanner, String contentType) {
-		return new DefaultDamagerRepairer(scanner);
+		return new LineDamagerRepairer(scanner);
 	}
 	
 	protected void addConfigurationScopedOwned(ISourceViewer sourceViewer, IDisposable tokenStore) {
@@ -80,17 +80,19 @@ public abstract class AbstractLangScanner extends BufferedRuleBasedScannerExt im
 	public class LexingRule_RuleAdapter implements IRule {
 		
 		protected final ILexingRule2<IToken> codeLexerRule;
+		/** Reused for each token, since the reader helper only holds the scanner. */
+		protected final CharacterScanner_ReaderHelper readerHelper;
 		
 		public LexingRule_RuleAdapter(ILexingRule2<IToken> codeLexerRule) {
 			this.codeLexerRule = codeLexerRule;
+			this.readerHelper = new CharacterScanner_ReaderHelper(AbstractLangScanner.this);
 		}
 		
 		@Override
 		public IToken evaluate(ICharacterScanner scanner) {
-			AbstractLangScanner langScanner = AbstractLangScanner.this;
-			assertTrue(scanner == langScanner);
+			assertTrue(scanner == AbstractLangScanner.this);
 			
-			CharacterScanner_ReaderHelper readerHelper = new CharacterScanner_ReaderHelper(langScanner);
+			readerHelper.reset();
 			IToken token = codeLexerRule.evaluateToken(readerHelper);
 			if(token == null) {
 				return Token.UNDEFINED;
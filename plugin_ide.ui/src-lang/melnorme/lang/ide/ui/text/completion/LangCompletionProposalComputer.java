@@ -18,6 +18,7 @@ import org.eclipse.jface.text.contentassist.IContextInformation;
 import org.eclipse.swt.graphics.Image;
 
 import melnorme.lang.ide.core.LangCore;
+import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.operations.ToolManager.ToolManagerEngineToolRunner;
 import melnorme.lang.ide.core.text.ISourceBufferExt;
 import melnorme.lang.ide.ui.LangImageProvider;
@@ -28,6 +29,7 @@ import melnorme.lang.ide.ui.editor.EditorUtils;
 import melnorme.lang.ide.ui.views.AbstractLangImageProvider;
 import melnorme.lang.ide.ui.views.StructureElementLabelProvider;
 import melnorme.lang.tooling.ToolCompletionProposal;
+import melnorme.lang.tooling.completion.CompletionResultCache;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
 import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
 import melnorme.lang.utils.concurrency.TimeoutCancelMonitor;
@@ -39,6 +41,12 @@ import melnorme.utilbox.core.CommonException;
 
 public abstract class LangCompletionProposalComputer extends AbstractCompletionProposalComputer {
 	
+	protected static final CompletionResultCache completionCache = new CompletionResultCache();
+	
+	public static CompletionResultCache getCompletionCache() {
+		return completionCache;
+	}
+	
 	protected boolean needsEditorSave() {
 		return false;
 	}
@@ -73,7 +81,12 @@ public abstract class LangCompletionProposalComputer extends AbstractCompletionP
 			throws CommonException, OperationCancellation, OperationSoftFailure
 	{
 		
-		Indexable<ToolCompletionProposal> resultProposals = doComputeProposals(sourceContext, cm);
+		// If the user is still typing the identifier of a previous request, narrow down the previous result.
+		Indexable<ToolCompletionProposal> resultProposals = completionCache.getProposals(sourceContext);
+		if(resultProposals == null) {
+			resultProposals = doComputeProposals(sourceContext, cm);
+			completionCache.putProposals(sourceContext, resultProposals);
+		}
 		
 		ArrayList2<ICompletionProposal> proposals = new ArrayList2<>();
 		for (ToolCompletionProposal proposal : resultProposals) {
@@ -115,8 +128,12 @@ public abstract class LangCompletionProposalComputer extends AbstractCompletionP
 	
 	/* -----------------  ----------------- */
 	
-	protected ToolManagerEngineToolRunner getEngineToolRunner() {
-		return LangCore.getToolManager().new ToolManagerEngineToolRunner();
+	protected ToolManagerEngineToolRunner getEngineToolRunner(SourceOpContext sourceOpContext) {
+		// A new content assist request supersedes any previous one still running for the same file
+		Object supersedeKey = ArrayList2.create(LangCompletionProposalComputer.class, 
+			sourceOpContext.getOptionalFileLocation());
+		return LangCore.getToolManager().new ToolManagerEngineToolRunner(
+			ToolManager.ENGINE_TOOLS_INTERACTIVE, supersedeKey);
 	}
 	
 }
\ No newline at end of file
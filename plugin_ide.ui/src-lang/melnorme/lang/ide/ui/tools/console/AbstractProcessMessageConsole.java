@@ -12,6 +12,8 @@ package melnorme.lang.ide.ui.tools.console;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
+import java.nio.charset.Charset;
+
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.text.source.ISharedTextColors;
 import org.eclipse.swt.widgets.Display;
@@ -29,6 +31,8 @@ public abstract class AbstractProcessMessageConsole extends IOConsole {
 		}
 	}
 	
+	protected final ConsoleOutputEngine outputEngine;
+	
 	public final IOConsoleOutputStreamExt stdOut;
 	public final IOConsoleOutputStreamExt stdErr;
 	
@@ -41,11 +45,23 @@ public abstract class AbstractProcessMessageConsole extends IOConsole {
 	protected AbstractProcessMessageConsole(String name, ImageDescriptor imageDescriptor) {
 		super(name, imageDescriptor);
 		
-		stdOut = new IOConsoleOutputStreamExt(newOutputStream());
-		stdErr = new IOConsoleOutputStreamExt(newOutputStream());
+		outputEngine = new ConsoleOutputEngine(getOutputCharset());
+		
+		stdOut = newOutputStreamExt();
+		stdErr = newOutputStreamExt();
 		stdErr.console().setActivateOnWrite(true);
 	}
 	
+	protected Charset getOutputCharset() {
+		String encoding = getEncoding();
+		return encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+	}
+	
+	/** Create a new output stream, with writes coalesced by {@link #outputEngine}. */
+	protected IOConsoleOutputStreamExt newOutputStreamExt() {
+		return new IOConsoleOutputStreamExt(newOutputStream(), outputEngine);
+	}
+	
 	protected void postToUI_initOutputStreamColors() {
 		// BM: it's not clear to me if a Color can be created outside UI thread, so do asyncExec
 		// I would think one cant, but some Platform code (ProcessConsole) does freely create Color instances
@@ -80,6 +96,7 @@ public abstract class AbstractProcessMessageConsole extends IOConsole {
 	
 	protected void disposeDo() {
 		assertTrue(Display.getCurrent() != null);
+		outputEngine.dispose();
 		super.dispose(); // run actual dispose code
 	}
 	
@@ -12,11 +12,13 @@ package melnorme.lang.ide.ui.tools.console;
 
 import melnorme.lang.ide.ui.LangUIPlugin;
 import melnorme.util.swt.SWTFactoryUtil;
+import melnorme.util.swt.jface.preference.DirectoryFieldEditorExt;
 
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.ColorFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
@@ -39,6 +41,7 @@ public abstract class AbstractToolsConsolePrefPage extends FieldEditorPreference
 		Composite parent = getFieldEditorParent();
 		
 		create_ActivateOnErrorMessagesField(parent);
+		create_OutputLimitFields(parent);
 		
 		SWTFactoryUtil.createLabel(parent, SWT.LEFT, "Console color settings:", 
 			GridDataFactory.fillDefaults().span(2, 1).create());
@@ -58,4 +61,14 @@ public abstract class AbstractToolsConsolePrefPage extends FieldEditorPreference
 			"Activate console on error messages.", parent));
 	}
 	
+	protected void create_OutputLimitFields(Composite parent) {
+		IntegerFieldEditor highWaterMarkField = new IntegerFieldEditor(HIGH_WATER_MARK.key, 
+			"Console buffer size (characters, 0 for unlimited):", parent);
+		highWaterMarkField.setValidRange(0, Integer.MAX_VALUE);
+		addField(highWaterMarkField);
+		
+		addField(new DirectoryFieldEditorExt(TRANSCRIPT_DIRECTORY.key, 
+			"Full transcript directory (optional):", parent));
+	}
+	
 }
\ No newline at end of file
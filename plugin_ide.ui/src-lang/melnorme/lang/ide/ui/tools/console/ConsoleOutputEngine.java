@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.ide.ui.tools.console;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ui.console.IOConsoleOutputStream;
+
+import melnorme.lang.ide.core.LangCore;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Coalesces the writes to the output streams of a console.
+ *
+ * Process output usually arrives in many small chunks, and writing each one directly to an
+ * {@link IOConsoleOutputStream} causes a console document update for each of them.
+ * Instead, writes are buffered (in write order, across all streams of the console) and flushed
+ * to the console streams once {@link #FLUSH_DELAY_MILLIS} (by default) have elapsed since the first buffered write,
+ * or once the buffered size reaches {@link #FLUSH_SIZE} (in the writing thread, so that a fast producer
+ * is slowed down to the pace of the console).
+ *
+ * Optionally, all output is also appended to a transcript file, which is not subject to the
+ * console water marks.
+ */
+public class ConsoleOutputEngine {
+	
+	public static final int FLUSH_DELAY_MILLIS = 150;
+	public static final int FLUSH_SIZE = 16 * 1024;
+	
+	protected static final ScheduledThreadPoolExecutor flushTimer = createFlushTimer();
+	
+	protected static ScheduledThreadPoolExecutor createFlushTimer() {
+		NamingThreadFactory threadFactory = new NamingThreadFactory(ConsoleOutputEngine.class.getSimpleName()) {
+			@Override
+			public Thread newThread(Runnable runable) {
+				Thread thread = super.newThread(runable);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		ScheduledThreadPoolExecutor flushTimer = new ScheduledThreadPoolExecutor(1, threadFactory);
+		flushTimer.setRemoveOnCancelPolicy(true);
+		return flushTimer;
+	}
+	
+	/** 
+	 * An output stream of the console, such as an {@link IOConsoleOutputStream}.
+	 * Writes to the same stream are identified by the identity of the {@link IOutputStream} instance.
+	 */
+	public static interface IOutputStream {
+		
+		void write(byte[] b, int off, int len) throws IOException;
+		
+		void write(String text) throws IOException;
+		
+	}
+	
+	/** @return an {@link IOutputStream} writing to given console stream. */
+	public static IOutputStream consoleOutputStream(IOConsoleOutputStream consoleStream) {
+		assertNotNull(consoleStream);
+		return new IOutputStream() {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				consoleStream.write(b, off, len);
+			}
+			
+			@Override
+			public void write(String text) throws IOException {
+				consoleStream.write(text);
+			}
+		};
+	}
+	
+	protected static class PendingChunk {
+		
+		protected final IOutputStream stream;
+		protected final ByteArrayOutputStream bytes;
+		protected final StringBuilder text;
+		
+		public PendingChunk(IOutputStream stream, boolean isText) {
+			this.stream = stream;
+			this.bytes = isText ? null : new ByteArrayOutputStream(256);
+			this.text = isText ? new StringBuilder() : null;
+		}
+		
+		public boolean canAppend(IOutputStream stream, boolean isText) {
+			return this.stream == stream && (text != null) == isText;
+		}
+		
+	}
+	
+	protected final Charset textCharset;
+	protected final int flushDelayMillis;
+	
+	protected final Object flushLock = new Object();
+	
+	/* ----------------- guarded by this ----------------- */
+	protected ArrayList2<PendingChunk> pendingChunks = new ArrayList2<>();
+	protected int pendingSize = 0;
+	protected ScheduledFuture<?> scheduledFlush;
+	
+	/* ----------------- guarded by flushLock ----------------- */
+	protected Location transcriptLocation;
+	protected OutputStream transcript;
+	protected boolean disposed = false;
+	
+	public ConsoleOutputEngine(Charset textCharset) {
+		this(textCharset, FLUSH_DELAY_MILLIS);
+	}
+	
+	public ConsoleOutputEngine(Charset textCharset, int flushDelayMillis) {
+		this.textCharset = assertNotNull(textCharset);
+		this.flushDelayMillis = flushDelayMillis;
+	}
+	
+	/**
+	 * Set the file where all output will be written to (truncating any previous contents),
+	 * or null for no transcript. Should be called before any output is written.
+	 */
+	public void setTranscriptLocation(Location transcriptLocation) {
+		synchronized(flushLock) {
+			this.transcriptLocation = transcriptLocation;
+		}
+	}
+	
+	public void write(IOutputStream stream, byte[] b, int off, int len) {
+		if(len == 0) {
+			return;
+		}
+		boolean flushNow;
+		synchronized(this) {
+			getPendingChunk(stream, false).bytes.write(b, off, len);
+			flushNow = addPendingSize(len);
+		}
+		if(flushNow) {
+			flush();
+		}
+	}
+	
+	public void write(IOutputStream stream, String string) {
+		if(string.isEmpty()) {
+			return;
+		}
+		boolean flushNow;
+		synchronized(this) {
+			getPendingChunk(stream, true).text.append(string);
+			flushNow = addPendingSize(string.length());
+		}
+		if(flushNow) {
+			flush();
+		}
+	}
+	
+	protected PendingChunk getPendingChunk(IOutputStream stream, boolean isText) {
+		PendingChunk lastChunk = pendingChunks.isEmpty() ? null : pendingChunks.get(pendingChunks.size() - 1);
+		if(lastChunk != null && lastChunk.canAppend(stream, isText)) {
+			return lastChunk;
+		}
+		PendingChunk newChunk = new PendingChunk(stream, isText);
+		pendingChunks.add(newChunk);
+		return newChunk;
+	}
+	
+	/** @return whether a flush must be done right away. */
+	protected boolean addPendingSize(int size) {
+		pendingSize += size;
+		if(pendingSize >= FLUSH_SIZE) {
+			return true;
+		}
+		if(scheduledFlush == null) {
+			scheduledFlush = flushTimer.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+		}
+		return false;
+	}
+	
+	protected synchronized ArrayList2<PendingChunk> takePendingChunks() {
+		ArrayList2<PendingChunk> chunks = pendingChunks;
+		pendingChunks = new ArrayList2<>();
+		pendingSize = 0;
+		if(scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		return chunks;
+	}
+	
+	/** Write all buffered output to the console streams (and transcript). */
+	public void flush() {
+		// flushLock ensures chunks taken by concurrent flushes are written in order
+		synchronized(flushLock) {
+			for(PendingChunk chunk : takePendingChunks()) {
+				writeChunk(chunk);
+			}
+			if(transcript != null) {
+				try {
+					transcript.flush();
+				} catch(IOException e) {
+					closeTranscript(e);
+				}
+			}
+		}
+	}
+	
+	protected void writeChunk(PendingChunk chunk) {
+		byte[] bytes = chunk.bytes != null ? chunk.bytes.toByteArray() : null;
+		
+		if(!disposed) {
+			try {
+				if(bytes != null) {
+					chunk.stream.write(bytes, 0, bytes.length);
+				} else {
+					chunk.stream.write(chunk.text.toString());
+				}
+			} catch(IOException e) {
+				// Ignore, console stream was closed
+			}
+		}
+		
+		OutputStream transcriptOut = getTranscript();
+		if(transcriptOut != null) {
+			try {
+				transcriptOut.write(bytes != null ? bytes : chunk.text.toString().getBytes(textCharset));
+			} catch(IOException e) {
+				closeTranscript(e);
+			}
+		}
+	}
+	
+	protected OutputStream getTranscript() {
+		if(transcript == null && transcriptLocation != null) {
+			Location location = transcriptLocation;
+			transcriptLocation = null; // Only try to open once
+			try {
+				Files.createDirectories(location.getPath().getParent());
+				transcript = Files.newOutputStream(location.getPath());
+			} catch(IOException e) {
+				LangCore.logError("Could not open console transcript file: " + location, e);
+			}
+		}
+		return transcript;
+	}
+	
+	protected void closeTranscript(IOException error) {
+		if(error != null) {
+			LangCore.logError("Error writing console transcript file.", error);
+		}
+		try {
+			transcript.close();
+		} catch(IOException e) {
+			// Ignore
+		}
+		transcript = null;
+	}
+	
+	/**
+	 * Flush any remaining output to the transcript, and close it, before returning.
+	 * Further output is no longer written to the console streams.
+	 */
+	public void dispose() {
+		synchronized(flushLock) {
+			disposed = true;
+			flush();
+			transcriptLocation = null;
+			if(transcript != null) {
+				closeTranscript(null);
+			}
+		}
+	}
+	
+}
@@ -26,8 +26,8 @@ public class EngineToolsConsole extends ToolsConsole {
 	public EngineToolsConsole(String name, ImageDescriptor imageDescriptor) {
 		super(name, imageDescriptor, false);
 
-		serverStdOut = new IOConsoleOutputStreamExt(newOutputStream());
-		serverStdErr = new IOConsoleOutputStreamExt(newOutputStream());
+		serverStdOut = newOutputStreamExt();
+		serverStdErr = newOutputStreamExt();
 		
 		postToUI_initOutputStreamColors();
 	}
@@ -234,7 +234,7 @@ public abstract class LangOperationsConsoleUIHandler implements ILangOperationsL
 	protected String getPrefaceText(String prefixText, String suffixText, ProcessBuilder pb) {
 		List<String> commandLine = pb.command();
 		
-		prefixText = prefixText == null ? ">> Running: " : prefixText;
+		prefixText = prefixText == null ? IToolOperationMonitor.DEFAULT_PROCESS_START_PREFIX : prefixText;
 		
 		String argsLabel = DebugPlugin.renderArguments(ArrayUtil.createFrom(commandLine, String.class), null);
 		String infoPrefaceText = prefixText + argsLabel;
@@ -23,9 +23,12 @@ import org.eclipse.ui.console.IConsoleView;
 import org.eclipse.ui.console.IOConsoleOutputStream;
 import org.eclipse.ui.part.IPageBookViewPage;
 
+import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.ui.text.coloring.TextStyling;
+import melnorme.lang.ide.ui.tools.console.ConsoleOutputEngine.IOutputStream;
 import melnorme.util.swt.jface.text.ColorManager;
 import melnorme.utilbox.core.DevelopmentCodeMarkers;
+import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.ownership.OwnedObjects;
 
 public class ToolsConsole extends AbstractProcessMessageConsole {
@@ -42,20 +45,40 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 	protected ToolsConsole(String name, ImageDescriptor imageDescriptor, boolean initializeColors) {
 		super(name, imageDescriptor);
 		
-		infoOut = new IOConsoleOutputStreamExt(newOutputStream());
-		stdErr_silent = new IOConsoleOutputStreamExt(newOutputStream());
+		infoOut = newOutputStreamExt();
+		stdErr_silent = newOutputStreamExt();
+		
+		outputEngine.setTranscriptLocation(getTranscriptLocation());
 		
 		if(initializeColors) {
 			postToUI_initOutputStreamColors();
 		}
 	}
 	
+	/** @return the location of the transcript file for this console, or null if none. */
+	protected Location getTranscriptLocation() {
+		String transcriptDir = ToolsConsolePrefs.TRANSCRIPT_DIRECTORY.get();
+		if(transcriptDir == null || transcriptDir.trim().isEmpty()) {
+			return null;
+		}
+		Location dirLocation = Location.createValidOrNull(transcriptDir.trim());
+		if(dirLocation == null) {
+			LangCore.logError("Invalid console transcript directory: " + transcriptDir);
+			return null;
+		}
+		String fileName = getName().replaceAll("[^a-zA-Z0-9_.-]+", "_") + ".log";
+		return dirLocation.resolve_fromValid(fileName);
+	}
+	
 	@Override
 	protected void ui_initStreamColors() {
 		super.ui_initStreamColors();
 		
 		ui_bindActivateOnErrorsListeners();
 		
+		ToolsConsolePrefs.HIGH_WATER_MARK.asField().bindOwnedListener(owned, true, 
+			(newValue) -> setHighWaterMark(newValue));
+		
 		ToolsConsolePrefs.INFO_COLOR.asField().bindOwnedListener(owned, true, 
 			(newValue) -> infoOut.console().setColor(getManagedColor(newValue)));
 		ToolsConsolePrefs.STDERR_COLOR.asField().bindOwnedListener(owned, true, 
@@ -75,6 +98,17 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 		);
 	}
 	
+	/** Limit the retained console text to given number of characters, trimming the oldest. 0 for no limit. */
+	protected void setHighWaterMark(int highWaterMark) {
+		if(highWaterMark <= 0) {
+			setWaterMarks(-1, -1);
+		} else {
+			// Trim a fifth of the content at once, rather than a bit on every write
+			int lowWaterMark = highWaterMark - Math.max(highWaterMark / 5, 1000);
+			setWaterMarks(Math.max(lowWaterMark, 0), Math.max(highWaterMark, 1000));
+		}
+	}
+	
 	protected static Color getManagedColor(TextStyling textStyling) {
 		return ColorManager.getDefault().getColor(textStyling.rgb);
 	}
@@ -99,9 +133,17 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 	public static class IOConsoleOutputStreamExt {
 		
 		protected IOConsoleOutputStream console;
-
+		protected final ConsoleOutputEngine outputEngine; // Can be null, if writes are not coalesced
+		protected final IOutputStream engineStream;
+		
 		public IOConsoleOutputStreamExt(IOConsoleOutputStream console) {
+			this(console, null);
+		}
+		
+		public IOConsoleOutputStreamExt(IOConsoleOutputStream console, ConsoleOutputEngine outputEngine) {
 			this.console = assertNotNull(console);
+			this.outputEngine = outputEngine;
+			this.engineStream = ConsoleOutputEngine.consoleOutputStream(console);
 		}
 		
 		public IOConsoleOutputStream console() {
@@ -117,6 +159,11 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 				return;
 			}
 
+			if(outputEngine != null) {
+				outputEngine.write(engineStream, b, off, len);
+				return;
+			}
+			
 			try {
 				console.write(b, off, len);
 			} catch(IOException e) {
@@ -129,6 +176,11 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 				return;
 			}
 			
+			if(outputEngine != null) {
+				outputEngine.write(engineStream, string);
+				return;
+			}
+			
 			try {
 				console.write(string);
 			} catch (IOException e) {
@@ -141,6 +193,10 @@ public class ToolsConsole extends AbstractProcessMessageConsole {
 				return;
 			}
 			
+			if(outputEngine != null) {
+				outputEngine.flush();
+			}
+			
 			try {
 				console.flush();
 			} catch (IOException e) {
@@ -13,6 +13,8 @@ package melnorme.lang.ide.ui.tools.console;
 import org.eclipse.swt.graphics.RGB;
 
 import melnorme.lang.ide.core.utils.prefs.BooleanPreference;
+import melnorme.lang.ide.core.utils.prefs.IntPreference;
+import melnorme.lang.ide.core.utils.prefs.StringPreference;
 import melnorme.lang.ide.ui.LangUIPlugin;
 import melnorme.lang.ide.ui.OperationsConsolePrefDefaults_Actual;
 import melnorme.lang.ide.ui.text.coloring.ThemedColorPreference;
@@ -22,6 +24,13 @@ public interface ToolsConsolePrefs extends OperationsConsolePrefDefaults_Actual
 	BooleanPreference ACTIVATE_ON_ERROR_MESSAGES = new BooleanPreference(
 		LangUIPlugin.PLUGIN_ID, "console.do_activate2", true); 
 	
+	/** Maximum number of characters retained in a console, the oldest output is trimmed. 0 for no limit. */
+	IntPreference HIGH_WATER_MARK = new IntPreference(
+		LangUIPlugin.PLUGIN_ID, "console.high_water_mark", 1_000_000);
+	/** Directory where a full transcript of each console is written to. Empty for no transcripts. */
+	StringPreference TRANSCRIPT_DIRECTORY = new StringPreference(
+		LangUIPlugin.PLUGIN_ID, "console.transcript_directory", "");
+	
 	ThemedColorPreference INFO_COLOR = new ThemedColorPreference("console.info_color", 
 		INFO_COLOR_Default, INFO_COLOR_DefaultDark); 
 	ThemedColorPreference STDERR_COLOR = new ThemedColorPreference("console.stderr_color", 
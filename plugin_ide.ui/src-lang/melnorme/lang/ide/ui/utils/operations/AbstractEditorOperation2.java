@@ -20,11 +20,16 @@ import org.eclipse.jface.text.DocumentRewriteSessionType;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.IRewriteTarget;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.TextSelection;
 import org.eclipse.jface.text.source.SourceViewer;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.text.edits.MalformedTreeException;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.texteditor.ITextEditor;
 
@@ -33,6 +38,9 @@ import melnorme.lang.ide.ui.editor.EditorSourceBuffer;
 import melnorme.lang.ide.ui.editor.EditorUtils;
 import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.lang.utils.TextDiffer;
+import melnorme.lang.utils.TextDiffer.Replacement;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
 
@@ -163,6 +171,33 @@ public abstract class AbstractEditorOperation2<RESULT> extends CalculateValueUIO
 		
 	}
 	
+	/**
+	 * Change the editor text to given contents, by applying only the replacements computed by {@link TextDiffer}.
+	 * Unlike {@link #setEditorTextPreservingCarret(String)}, only the changed regions are touched,
+	 * so markers, positions, and the caret outside of them are kept, and the change is a single undo step.
+	 */
+	protected void applyMinimalEdits(String newContents) throws CommonException {
+		ArrayList2<Replacement> replacements = TextDiffer.computeReplacements(doc.get(), newContents);
+		if(replacements.isEmpty()) {
+			return;
+		}
+		
+		MultiTextEdit multiEdit = new MultiTextEdit();
+		for(Replacement replacement : replacements) {
+			multiEdit.addChild(new ReplaceEdit(replacement.offset, replacement.length, replacement.text));
+		}
+		
+		IRewriteTarget rewriteTarget = getEditorSourceViewer().getRewriteTarget();
+		rewriteTarget.beginCompoundChange();
+		try {
+			multiEdit.apply(doc, TextEdit.NONE);
+		} catch(MalformedTreeException | BadLocationException e) {
+			throw new CommonException("Error applying edits to editor: ", e);
+		} finally {
+			rewriteTarget.endCompoundChange();
+		}
+	}
+	
 	protected int getOffsetFor(int line, int col) throws BadLocationException {
 		IRegion lineRegion = doc.getLineInformation(line);
 		int offset = lineRegion.getOffset();
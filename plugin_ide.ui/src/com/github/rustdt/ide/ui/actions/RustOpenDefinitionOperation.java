@@ -13,8 +13,10 @@ package com.github.rustdt.ide.ui.actions;
 import org.eclipse.ui.texteditor.ITextEditor;
 
 import com.github.rustdt.ide.core.operations.RustSDKPreferences;
+import com.github.rustdt.ide.core.operations.RustToolManager;
 import com.github.rustdt.tooling.ops.RacerFindDefinitionOperation;
 
+import melnorme.lang.ide.core.operations.ToolManager;
 import melnorme.lang.ide.core.operations.ToolManager.ToolManagerEngineToolRunner;
 import melnorme.lang.ide.ui.LangUIMessages;
 import melnorme.lang.ide.ui.editor.EditorUtils.OpenNewEditorMode;
@@ -23,6 +25,7 @@ import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
 import melnorme.lang.tooling.toolchain.ops.SourceLocation;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 
@@ -36,13 +39,18 @@ public class RustOpenDefinitionOperation extends AbstractOpenElementOperation {
 	protected SourceLocation doBackgroundToolResultComputation(IOperationMonitor om)
 			throws CommonException, OperationCancellation, OperationSoftFailure {
 		
-		ToolManagerEngineToolRunner toolRunner = getToolManager().new ToolManagerEngineToolRunner();
+		// A new request supersedes any previous one still running for the same file
+		Object supersedeKey = ArrayList2.create(RustOpenDefinitionOperation.class, 
+			getSourceOpContext().getOptionalFileLocation());
+		ToolManagerEngineToolRunner toolRunner = getToolManager().new ToolManagerEngineToolRunner(
+			ToolManager.ENGINE_TOOLS_INTERACTIVE, supersedeKey);
 		
 		RacerFindDefinitionOperation op = new RacerFindDefinitionOperation(toolRunner, 
 			RustSDKPreferences.RACER_PATH.getValidatableValue(project) , 
 			RustSDKPreferences.SDK_SRC_PATH3.getValidatableValue(project),
 			getSourceOpContext()
 		);
+		op.setSession(RustToolManager.getDefault().getRacerSession(project));
 		
 		return op.executeToolOperation(om);
 	}
@@ -19,18 +19,44 @@ import com.github.rustdt.tooling.ops.RustFmtOperation;
 
 import melnorme.lang.ide.core.LangCore;
 import melnorme.lang.ide.core.operations.ToolManager;
+import melnorme.lang.ide.ui.editor.EditorUtils;
 import melnorme.lang.ide.ui.editor.actions.AbstractEditorToolOperation;
+import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.ops.IOperationMonitor;
+import melnorme.lang.tooling.parser.SourceLinesInfo;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
+import melnorme.lang.utils.TextDiffer;
+import melnorme.lang.utils.TextDiffer.LineRange;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
 
 public class RustFmtEditorOperation extends AbstractEditorToolOperation<String> {
 	
+	public static enum FormatScope {
+		WHOLE_FILE,
+		/** The lines of the editor selection. */
+		SELECTED_LINES,
+		/** The lines changed from the file contents on disk. */
+		CHANGED_LINES,
+	}
+	
 	protected final ToolManager toolMgr = LangCore.getToolManager();
+	protected final FormatScope scope;
 	
+	/** Format the selected lines if there is a selection, otherwise the whole file. */
 	public RustFmtEditorOperation(ITextEditor editor) {
-		super("Format", editor);
+		this(editor, EditorUtils.getSelectionSR(editor).getLength() > 0 ? 
+				FormatScope.SELECTED_LINES : FormatScope.WHOLE_FILE);
+	}
+	
+	public RustFmtEditorOperation(ITextEditor editor, FormatScope scope) {
+		super("Format", editor, EditorUtils.getSelectionSR(editor));
+		this.scope = scope;
 	}
 	
 	@Override
@@ -38,14 +64,43 @@ public class RustFmtEditorOperation extends AbstractEditorToolOperation<String>
 			throws CommonException, OperationCancellation, OperationSoftFailure {
 		
 		Path rustFmt = RustSDKPreferences.RUSTFMT_PATH.getDerivedValue(project);
-		return new RustFmtOperation(getSourceOpContext(), getToolService(), rustFmt).executeToolOperation(om);
+		Indexable<LineRange> lineRanges = getLineRanges();
+		return new RustFmtOperation(getSourceOpContext(), getToolService(), rustFmt, lineRanges)
+				.executeToolOperation(om);
+	}
+	
+	/** @return the line ranges to format, or null for the whole file. */
+	protected Indexable<LineRange> getLineRanges() throws CommonException {
+		switch(scope) {
+		case SELECTED_LINES: {
+			SourceRange selection = getOperationRange();
+			SourceLinesInfo linesInfo = getSourceOpContext().getSourceLinesInfo();
+			int startLine = linesInfo.getLineForOffset(selection.getOffset());
+			int endLine = linesInfo.getLineForOffset(selection.getEndPos());
+			if(endLine > startLine && linesInfo.getOffsetForLine(endLine) == selection.getEndPos()) {
+				// Selection ends at the start of a line, don't include that line
+				endLine--;
+			}
+			return ArrayList2.create(new LineRange(startLine, endLine + 1));
+		}
+		case CHANGED_LINES: {
+			Location location = getInputLocation();
+			if(!location.toFile().exists()) {
+				return null;
+			}
+			String savedSource = FileUtil.readFileContents(location, StringUtil.UTF8);
+			return TextDiffer.computeChangedLines(savedSource, getSource());
+		}
+		default:
+			return null;
+		}
 	}
 	
 	@Override
 	protected void handleResultData(String resultData) throws CommonException {
 		if(resultData != null) {
-			setEditorTextPreservingCarret(resultData);
+			applyMinimalEdits(resultData);
 		}
 	}
 	
-}
\ No newline at end of file
+}
@@ -63,10 +63,16 @@ public class RustToolsConfigBlock extends LangSDKConfigBlock {
 	
 	public class RacerLocationGroup extends AbstractToolLocationGroup {
 		
+		public final CheckBoxField daemonModeField = new CheckBoxField(
+			"Keep a Racer daemon process running (faster completion after the first request).");
+		
 		public RacerLocationGroup() {
 			super("Racer");
 			
 			bindFieldToDerivedPreference(this.toolLocationField, RustSDKPreferences.RACER_PATH);
+			
+			this.addChildWidget(daemonModeField);
+			prefContext.bindToPreference(this.daemonModeField, RustSDKPreferences.RACER_DAEMON_MODE);
 		}
 		
 		@Override
@@ -116,6 +122,8 @@ public class RustToolsConfigBlock extends LangSDKConfigBlock {
 		
 		public final CheckBoxField formatOnSaveField = new CheckBoxField(
 			"Format automatically on editor save.");
+		public final CheckBoxField formatChangedLinesOnlyField = new CheckBoxField(
+			"On save, format only the lines changed since the last save.");
 		
 		public RustFmtLocationGroup() {
 			super("rustfmt");
@@ -124,6 +132,10 @@ public class RustToolsConfigBlock extends LangSDKConfigBlock {
 			
 			this.addChildWidget(formatOnSaveField);
 			prefContext.bindToPreference(this.formatOnSaveField, RustSDKPreferences.FORMAT_ON_SAVE);
+			
+			this.addChildWidget(formatChangedLinesOnlyField);
+			prefContext.bindToPreference(this.formatChangedLinesOnlyField,
+				RustSDKPreferences.FORMAT_ON_SAVE_CHANGED_LINES_ONLY);
 		}
 		
 		@Override
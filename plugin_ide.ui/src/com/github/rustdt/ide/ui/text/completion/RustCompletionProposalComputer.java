@@ -16,6 +16,7 @@ import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.contentassist.IContextInformation;
 
 import com.github.rustdt.ide.core.operations.RustSDKPreferences;
+import com.github.rustdt.ide.core.operations.RustToolManager;
 import com.github.rustdt.tooling.ops.RacerCompletionOperation;
 
 import melnorme.lang.ide.core.operations.ToolManager.ToolManagerEngineToolRunner;
@@ -41,12 +42,13 @@ public class RustCompletionProposalComputer extends LangCompletionProposalComput
 		
 		IProject project = ResourceUtils.getProjectFromMemberLocation(sourceOpContext.getOptionalFileLocation());
 		
-		ToolManagerEngineToolRunner toolRunner = getEngineToolRunner();
+		ToolManagerEngineToolRunner toolRunner = getEngineToolRunner(sourceOpContext);
 		
 		RacerCompletionOperation racerCompletionOp = new RacerCompletionOperation(toolRunner, 
 			RustSDKPreferences.RACER_PATH.getValidatableValue(project),
 			RustSDKPreferences.SDK_SRC_PATH3.getValidatableValue(project),
 			sourceOpContext);
+		racerCompletionOp.setSession(RustToolManager.getDefault().getRacerSession(project));
 		
 		return racerCompletionOp.executeToolOperation(new NullOperationMonitor(cm));
 	}
@@ -2,18 +2,22 @@ package melnorme.lang.ide.ui;
 
 import java.util.List;
 
+import org.eclipse.core.resources.IProject;
 import org.eclipse.jface.text.rules.IPartitionTokenScanner;
 import org.eclipse.ui.texteditor.ITextEditor;
 
+import com.github.rustdt.ide.core.operations.RustSDKPreferences;
 import com.github.rustdt.ide.core_text.RustDocumentSetupParticipant;
 import com.github.rustdt.ide.core_text.RustPartitionScanner;
 import com.github.rustdt.ide.ui.RustImages;
 import com.github.rustdt.ide.ui.editor.RustFmtEditorOperation;
+import com.github.rustdt.ide.ui.editor.RustFmtEditorOperation.FormatScope;
 import com.github.rustdt.ide.ui.text.RustAutoEditStrategy;
 
 import melnorme.lang.ide.core.LangCore_Actual;
 import melnorme.lang.ide.core.text.format.ILastKeyInfoProvider;
 import melnorme.lang.ide.core_text.LangDocumentPartitionerSetup;
+import melnorme.lang.ide.ui.editor.EditorUtils;
 import melnorme.lang.ide.ui.editor.hover.ILangEditorTextHover;
 import melnorme.lang.ide.ui.editor.text.LangAutoEditsPreferencesAccess;
 import melnorme.lang.ide.ui.views.StructureElementLabelProvider;
@@ -81,4 +85,12 @@ public final class LangUIPlugin_Actual {
 		return new RustFmtEditorOperation(editor);
 	}
 	
+	public static RustFmtEditorOperation getFormatOnSaveOperation(ITextEditor editor) {
+		IProject project = EditorUtils.getAssociatedProject(editor.getEditorInput());
+		if(RustSDKPreferences.FORMAT_ON_SAVE_CHANGED_LINES_ONLY.getEffectiveValue(project)) {
+			return new RustFmtEditorOperation(editor, FormatScope.CHANGED_LINES);
+		}
+		return new RustFmtEditorOperation(editor, FormatScope.WHOLE_FILE);
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.google.gson.JsonElement;
+
+import melnorme.lang.utils.gson.JsonParserX;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.MiscUtil;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * Measures the time of parsing Cargo JSON build output, one line at a time 
+ * (as {@link RustBuildOutputParser2} does), comparing:
+ * 
+ * - Tree: creating the JSON element tree of each line. This is what the parser did before 
+ * checking the message reason, so it's a lower bound of the previous parser cost.
+ * - Streaming: {@link CargoMessageParser}, sharing a {@link RustJsonMessageParser} for the whole output.
+ * 
+ * Not a unit test, and not part of the test bundle: compile it against the test bundle classpath, 
+ * and run it manually with: <code>CargoMessageParser_Benchmark [cargoOutputFile] [iterations]</code>
+ * 
+ * cargoOutputFile should be the captured output of <code>cargo build --message-format=json</code> 
+ * for a large crate with warnings (from a clean build, so that it has a compiler-artifact message for every
+ * dependency). If not given, similar output is synthesized from the test resources.
+ */
+public class CargoMessageParser_Benchmark {
+	
+	protected static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	
+	public static void main(String[] args) throws Exception {
+		ArrayList2<String> lines = args.length > 0 && !args[0].isEmpty() ? 
+				readLines(args[0]) : synthesizeOutput(300, 100);
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		
+		// Warm-up
+		runTree(lines);
+		runStreaming(lines);
+		
+		long treeCpuNanos = 0, treeNanos = 0, streamingCpuNanos = 0, streamingNanos = 0;
+		int messageCount = 0;
+		for(int i = 0; i < iterations; i++) {
+			long cpuNanos = cpuTime();
+			long nanos = System.nanoTime();
+			runTree(lines);
+			treeNanos += System.nanoTime() - nanos;
+			treeCpuNanos += cpuTime() - cpuNanos;
+			
+			cpuNanos = cpuTime();
+			nanos = System.nanoTime();
+			messageCount = runStreaming(lines);
+			streamingNanos += System.nanoTime() - nanos;
+			streamingCpuNanos += cpuTime() - cpuNanos;
+		}
+		
+		System.out.println("== Lines: " + lines.size() + ", compiler messages: " + messageCount + 
+			", iterations: " + iterations);
+		System.out.println("Tree:      " + formatResult(treeCpuNanos, treeNanos, iterations));
+		System.out.println("Streaming: " + formatResult(streamingCpuNanos, streamingNanos, iterations));
+	}
+	
+	protected static ArrayList2<String> readLines(String file) throws Exception {
+		ArrayList2<String> lines = new ArrayList2<>();
+		for(String line : Files.readAllLines(Paths.get(file), StringUtil.UTF8)) {
+			if(line.startsWith("{")) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+	
+	/** @return output with given number of compiler-artifact messages and compiler messages. */
+	protected static ArrayList2<String> synthesizeOutput(int artifactCount, int compilerMessageCount) 
+			throws Exception {
+		String artifactLine = minify(getResource("cargo_message_other.json"));
+		String compilerMessageLine = minify(getResource("cargo_error.json"));
+		
+		ArrayList2<String> lines = new ArrayList2<>();
+		for(int i = 0; i < artifactCount; i++) {
+			lines.add(artifactLine);
+		}
+		for(int i = 0; i < compilerMessageCount; i++) {
+			lines.add(compilerMessageLine);
+		}
+		return lines;
+	}
+	
+	protected static String getResource(String resourceName) {
+		return MiscUtil.getClassResource(CargoMessageParser_Benchmark.class, resourceName);
+	}
+	
+	protected static String minify(String json) throws Exception {
+		return new JsonParserX().parse(json, true).toString();
+	}
+	
+	protected static int runTree(ArrayList2<String> lines) throws Exception {
+		int count = 0;
+		for(String line : lines) {
+			JsonElement element = new JsonParserX().parse(line, true);
+			if(element.getAsJsonObject().get("reason").getAsString().equals("compiler-message")) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	protected static int runStreaming(ArrayList2<String> lines) throws Exception {
+		int count = 0;
+		RustJsonMessageParser rustMessageParser = new RustJsonMessageParser();
+		for(String line : lines) {
+			count += new CargoMessageParser(new StringReader(line), rustMessageParser).parseCargoMessages().size();
+		}
+		return count;
+	}
+	
+	/** @return the CPU time of the current thread, or 0 if not supported by the JVM. */
+	protected static long cpuTime() {
+		return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+	}
+	
+	protected static String formatResult(long totalCpuNanos, long totalNanos, int iterations) {
+		return String.format("CPU time: %.2fms/iteration, elapsed time: %.2fms/iteration",
+			totalCpuNanos / 1_000_000.0 / iterations, totalNanos / 1_000_000.0 / iterations);
+	}
+	
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.common.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.common.ops.IOperationMonitor.NullOperationMonitor;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+
+public class DependencyGraphOperation_Test extends CommonToolingTest {
+	
+	protected static Operation addTo(ArrayList2<String> list, String entry) {
+		return (om) -> {
+			synchronized(list) {
+				list.add(entry);
+			}
+		};
+	}
+	
+	@Test
+	public void testDependencyOrder() throws Exception { testDependencyOrder$(); }
+	public void testDependencyOrder$() throws Exception {
+		ArrayList2<String> runOrder = new ArrayList2<>();
+		DependencyGraphOperation<String> graphOp = new DependencyGraphOperation<>("test", 1);
+		graphOp.addOperation("app", addTo(runOrder, "app"), ArrayList2.create("lib", "util"));
+		graphOp.addOperation("lib", addTo(runOrder, "lib"), ArrayList2.create("util", "not_in_graph"));
+		graphOp.addOperation("util", addTo(runOrder, "util"), ArrayList2.create());
+		graphOp.addOperation("other", addTo(runOrder, "other"), ArrayList2.create());
+		
+		graphOp.execute(new NullOperationMonitor());
+		assertAreEqual(runOrder, ArrayList2.create("util", "other", "lib", "app"));
+		
+		// Cycles are broken in insertion order
+		runOrder.clear();
+		graphOp = new DependencyGraphOperation<>("test", 2);
+		graphOp.addOperation("a", addTo(runOrder, "a"), ArrayList2.create("b"));
+		graphOp.addOperation("b", addTo(runOrder, "b"), ArrayList2.create("a"));
+		graphOp.addOperation("c", addTo(runOrder, "c"), ArrayList2.create("b"));
+		graphOp.execute(new NullOperationMonitor());
+		assertAreEqual(runOrder, ArrayList2.create("a", "b", "c"));
+	}
+	
+	@Test
+	public void testParallel() throws Exception { testParallel$(); }
+	public void testParallel$() throws Exception {
+		// The independent operations can only complete if they run at the same time
+		CountDownLatch latch = new CountDownLatch(3);
+		AtomicInteger completed = new AtomicInteger();
+		Operation parallelOp = (om) -> {
+			latch.countDown();
+			try {
+				assertTrue(latch.await(10, TimeUnit.SECONDS));
+			} catch(InterruptedException e) {
+				throw new OperationCancellation();
+			}
+			completed.incrementAndGet();
+		};
+		
+		DependencyGraphOperation<String> graphOp = new DependencyGraphOperation<>("test", 3);
+		graphOp.addOperation("a", parallelOp, ArrayList2.create());
+		graphOp.addOperation("b", parallelOp, ArrayList2.create());
+		graphOp.addOperation("c", parallelOp, ArrayList2.create());
+		graphOp.addOperation("d", (om) -> assertTrue(completed.get() == 3), ArrayList2.create("a", "b", "c"));
+		graphOp.execute(new NullOperationMonitor());
+	}
+	
+	@Test
+	public void testFailure() throws Exception { testFailure$(); }
+	public void testFailure$() throws Exception {
+		ArrayList2<String> runOrder = new ArrayList2<>();
+		
+		DependencyGraphOperation<String> graphOp = new DependencyGraphOperation<>("test", 2);
+		graphOp.addOperation("failing", (om) -> {
+			throw new CommonException("build failed");
+		}, ArrayList2.create());
+		graphOp.addOperation("running", (om) -> {
+			// Runs until cancelled by the failure of the other operation
+			while(!om.isCancelled()) {
+				Thread.yield();
+			}
+			addTo(runOrder, "running").execute(om);
+		}, ArrayList2.create());
+		graphOp.addOperation("dependent", addTo(runOrder, "dependent"), ArrayList2.create("failing"));
+		
+		try {
+			graphOp.execute(new NullOperationMonitor());
+			assertFail();
+		} catch(CommonException e) {
+			assertAreEqual(e.getMessage(), "build failed");
+		}
+		// The running operation was cancelled and waited for, the dependent one not started.
+		assertAreEqual(runOrder, ArrayList2.create("running"));
+	}
+	
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.completion;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.CompletionProposalKind;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ToolCompletionProposal;
+import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
+
+public class CompletionResultCache_Test extends CommonToolingTest {
+	
+	protected static final Location FILE = Location.create_fromValid(Paths.get("/project/src/main.rs").toAbsolutePath());
+	protected static final Location OTHER_FILE = Location.create_fromValid(Paths.get("/project/src/lib.rs").toAbsolutePath());
+	
+	protected static SourceOpContext context(Location file, String source) {
+		int offset = source.indexOf('|');
+		return new SourceOpContext(Optional.of(file), offset, source.replace("|", ""), true);
+	}
+	
+	protected static ToolCompletionProposal proposal(int start, int length, String name) {
+		return new ToolCompletionProposal(start, length, name, name, CompletionProposalKind.Function, 
+			new ElementAttributes(null), null, null, null);
+	}
+	
+	protected static void checkNames(Indexable<ToolCompletionProposal> proposals, int replaceLength, 
+			String... expectedNames) {
+		ArrayList2<String> names = new ArrayList2<>();
+		for(ToolCompletionProposal proposal : proposals) {
+			names.add(proposal.getBaseReplaceString());
+			assertTrue(proposal.getReplaceLength() == replaceLength);
+		}
+		assertAreEqual(names, ArrayList2.create(expectedNames));
+	}
+	
+	@Test
+	public void testNarrowing() throws Exception { testNarrowing$(); }
+	public void testNarrowing$() throws Exception {
+		CompletionResultCache cache = new CompletionResultCache();
+		SourceOpContext initial = context(FILE, "fn main() { foo.ba| }");
+		assertTrue(cache.getProposals(initial) == null);
+		cache.putProposals(initial, ArrayList2.create(
+			proposal(16, 2, "bar"), proposal(16, 2, "baz"), proposal(16, 2, "bazooka")));
+		
+		checkNames(cache.getProposals(initial), 2, "bar", "baz", "bazooka");
+		checkNames(cache.getProposals(context(FILE, "fn main() { foo.baz| }")), 3, "baz", "bazooka");
+		checkNames(cache.getProposals(context(FILE, "fn main() { foo.bazx| }")), 4);
+		
+		assertTrue(cache.getHitCount() == 3 && cache.getMissCount() == 1);
+		assertTrue(cache.getHitRate() == 0.75);
+	}
+	
+	@Test
+	public void testInvalidation() throws Exception { testInvalidation$(); }
+	public void testInvalidation$() throws Exception {
+		CompletionResultCache cache = new CompletionResultCache();
+		cache.putProposals(context(FILE, "fn main() { foo.ba| }"), ArrayList2.create(proposal(16, 2, "bar")));
+		
+		// Prefix shortened, or edit left the identifier
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.b| }")) == null);
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.ba.| }")) == null);
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.bar(| }")) == null);
+		// Other changes in the document, or other file
+		assertTrue(cache.getProposals(context(FILE, "fn main() { fooo.ba| }")) == null);
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.ba| } ")) == null);
+		assertTrue(cache.getProposals(context(OTHER_FILE, "fn main() { foo.ba| }")) == null);
+		
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.bar| }")) != null);
+		
+		// Proposals that don't replace the identifier prefix are not cached
+		cache.putProposals(context(FILE, "fn main() { foo.ba| }"), ArrayList2.create(proposal(12, 6, "foo.bar")));
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.ba| }")) == null);
+		
+		// Expiry
+		cache = new CompletionResultCache(-1);
+		cache.putProposals(context(FILE, "fn main() { foo.ba| }"), ArrayList2.create(proposal(16, 2, "bar")));
+		assertTrue(cache.getProposals(context(FILE, "fn main() { foo.ba| }")) == null);
+	}
+	
+}
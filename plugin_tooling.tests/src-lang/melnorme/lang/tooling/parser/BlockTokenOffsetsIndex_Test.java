@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.parser.BlockTokenOffsetsIndex.IBlockTokenScanner;
+
+public class BlockTokenOffsetsIndex_Test extends CommonToolingTest {
+	
+	protected static final String TOKEN_CHARS = "{}()";
+	
+	/** A scanner for sources where everything after a '#' in a line is a comment. */
+	protected static IBlockTokenScanner scannerFor(CharSequence source) {
+		return (start, end, collector) -> {
+			for(int ix = start; ix < end; ix++) {
+				char ch = source.charAt(ix);
+				if(!isInComment(source, ix)) {
+					collector.addToken(ix, ch);
+				}
+			}
+		};
+	}
+	
+	protected static boolean isInComment(CharSequence source, int offset) {
+		for(int ix = offset - 1; ix >= 0 && source.charAt(ix) != '\n'; ix--) {
+			if(source.charAt(ix) == '#') {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	protected static void checkIndex(BlockTokenOffsetsIndex index, CharSequence source) {
+		index.validate(scannerFor(source));
+		assertTrue(index.isDirty() == false);
+		assertEquals(index.getSourceLength(), source.length());
+		
+		int tokenIx = 0;
+		for(int offset = 0; offset < source.length(); offset++) {
+			char ch = source.charAt(offset);
+			if(TOKEN_CHARS.indexOf(ch) != -1 && !isInComment(source, offset)) {
+				assertEquals(index.getTokenOffset(tokenIx), offset);
+				assertEquals(index.getToken(tokenIx), ch);
+				tokenIx++;
+			}
+		}
+		assertEquals(index.getTokenCount(), tokenIx);
+	}
+	
+	@Test
+	public void testBasic() throws Exception { testBasic$(); }
+	public void testBasic$() throws Exception {
+		String source = "fn foo() {\n  # {\n  bar(1);\n}";
+		BlockTokenOffsetsIndex index = new BlockTokenOffsetsIndex(TOKEN_CHARS, source.length());
+		assertTrue(index.isDirty());
+		checkIndex(index, source);
+		assertEquals(index.getTokenCount(), 6);
+		
+		assertEquals(index.findTokenBefore(0), -1);
+		assertEquals(index.findTokenBefore(7), 0);
+		assertEquals(index.findTokenBefore(8), 1);
+		assertEquals(index.findTokenAtOrAfter(8), 2);
+		assertEquals(index.findTokenAtOrAfter(source.length()), 6);
+		
+		// Insert text before the tokens
+		StringBuilder sb = new StringBuilder(source);
+		sb.insert(0, "pub ");
+		index.applyChange(0, 0, 4);
+		checkIndex(index, sb);
+		
+		// Delete tokens
+		sb.delete(7, 14);
+		index.applyChange(7, 7, 0);
+		checkIndex(index, sb);
+		
+		// A comment start changes the rest of the line, which has to be invalidated explicitly
+		String text = "fn a() { b() }";
+		sb = new StringBuilder(text);
+		index = new BlockTokenOffsetsIndex(TOKEN_CHARS, text.length());
+		checkIndex(index, sb);
+		sb.insert(7, "#");
+		index.applyChange(7, 0, 1);
+		index.invalidate(7, sb.length());
+		checkIndex(index, sb);
+		assertEquals(index.getTokenCount(), 2);
+	}
+	
+	@Test
+	public void testRandomized() throws Exception { testRandomized$(); }
+	public void testRandomized$() throws Exception {
+		Random random = new Random(42);
+		String chars = "{}()ab #\n";
+		
+		for(int i = 0; i < 200; i++) {
+			StringBuilder source = new StringBuilder();
+			for(int j = random.nextInt(40); j > 0; j--) {
+				source.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			BlockTokenOffsetsIndex index = new BlockTokenOffsetsIndex(TOKEN_CHARS, source.length());
+			checkIndex(index, source);
+			
+			for(int edit = 0; edit < 10; edit++) {
+				int offset = random.nextInt(source.length() + 1);
+				int removed = random.nextInt(source.length() - offset + 1);
+				StringBuilder inserted = new StringBuilder();
+				for(int j = random.nextInt(5); j > 0; j--) {
+					inserted.append(chars.charAt(random.nextInt(chars.length())));
+				}
+				source.replace(offset, offset + removed, inserted.toString());
+				index.applyChange(offset, removed, inserted.length());
+				// Changes to comment or line structure can affect the rest of the line
+				int lineEnd = source.indexOf("\n", offset + inserted.length());
+				index.invalidate(offset, lineEnd == -1 ? source.length() : lineEnd);
+				
+				// Sometimes apply several changes before validating
+				if(random.nextBoolean()) {
+					checkIndex(index, source);
+				}
+			}
+			checkIndex(index, source);
+		}
+	}
+	
+}
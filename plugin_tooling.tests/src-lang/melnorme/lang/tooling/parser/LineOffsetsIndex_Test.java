@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.toolchain.ops.SourceLocation;
+import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.lang.utils.LineOffsetsCache;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+
+public class LineOffsetsIndex_Test extends CommonToolingTest {
+	
+	protected static void checkLineStarts(String source, int... expectedLineStarts) throws Exception {
+		checkLineStarts(LineOffsetsIndex.create(source), source, expectedLineStarts);
+		checkLineStarts(LineOffsetsIndex.create(new StringReader(source)), source, expectedLineStarts);
+	}
+	
+	protected static void checkLineStarts(LineOffsetsIndex index, String source, int... expectedLineStarts) {
+		assertEquals(index.getSourceLength(), source.length());
+		assertEquals(index.getNumberOfLines(), expectedLineStarts.length);
+		for(int line = 0; line < expectedLineStarts.length; line++) {
+			assertEquals(index.getLineOffset(line), expectedLineStarts[line]);
+			assertEquals(index.getLineOfOffset(expectedLineStarts[line]), line);
+		}
+	}
+	
+	@Test
+	public void testBasic() throws Exception { testBasic$(); }
+	public void testBasic$() throws Exception {
+		checkLineStarts("", 0);
+		checkLineStarts("abc", 0);
+		checkLineStarts("abc\n", 0, 4);
+		checkLineStarts("abc\ndef", 0, 4);
+		checkLineStarts("abc\r\ndef\r\n", 0, 5, 10);
+		checkLineStarts("abc\rdef\r", 0, 4, 8);
+		checkLineStarts("\n\r\r\n\r", 0, 1, 2, 4, 5);
+		
+		LineOffsetsIndex index = LineOffsetsIndex.create("abc\r\ndef\nxy");
+		assertEquals(index.getLineOfOffset(0), 0);
+		assertEquals(index.getLineOfOffset(3), 0);
+		assertEquals(index.getLineOfOffset(4), 0);
+		assertEquals(index.getLineOfOffset(6), 1);
+		assertEquals(index.getLineOfOffset(11), 2);
+		
+		assertEquals(index.getOffsetOrNegative(0, 0), 0);
+		assertEquals(index.getOffsetOrNegative(1, 2), 7);
+		assertEquals(index.getOffsetOrNegative(2, 2), 11);
+		assertEquals(index.getOffsetOrNegative(2, 3), -1);
+		assertEquals(index.getOffsetOrNegative(3, 0), -1);
+		assertEquals(index.getOffsetOrNegative(-1, 0), -1);
+		assertEquals(index.getOffsetOrNegative(0, -1), -1);
+	}
+	
+	@Test
+	public void testReaderChunks() throws Exception { testReaderChunks$(); }
+	public void testReaderChunks$() throws Exception {
+		// Make a CRLF span the boundary of the Reader buffer
+		StringBuilder sb = new StringBuilder();
+		while(sb.length() < 8191) {
+			sb.append('a');
+		}
+		String source = sb.toString() + "\r\nb\rc";
+		checkLineStarts(source, 0, 8193, 8195);
+	}
+	
+	@Test
+	public void testApplyChange() throws Exception { testApplyChange$(); }
+	public void testApplyChange$() throws Exception {
+		checkApplyChange("abc\rdef", 4, 0, "\n");
+		checkApplyChange("abc\r\ndef", 4, 1, "");
+		checkApplyChange("abc\r\ndef", 4, 0, "x");
+		checkApplyChange("abc\ndef\r", 7, 1, "");
+		checkApplyChange("abc\ndef\r", 8, 0, "\n\r");
+		checkApplyChange("", 0, 0, "\r\n\r");
+		
+		Random random = new Random(7);
+		String chars = "ab\r\n";
+		String source = "";
+		LineOffsetsIndex index = LineOffsetsIndex.create(source);
+		for(int ix = 0; ix < 2000; ix++) {
+			int offset = random.nextInt(source.length() + 1);
+			int removedLength = random.nextInt(Math.min(source.length() - offset, 4) + 1);
+			StringBuilder text = new StringBuilder();
+			for(int len = random.nextInt(5); len > 0; len--) {
+				text.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			
+			String newSource = source.substring(0, offset) + text + source.substring(offset + removedLength);
+			index = index.applyChange(newSource, offset, removedLength, text.length());
+			checkEqual(index, LineOffsetsIndex.create(newSource));
+			source = newSource;
+		}
+	}
+	
+	protected static void checkApplyChange(String source, int offset, int removedLength, String text) {
+		String newSource = source.substring(0, offset) + text + source.substring(offset + removedLength);
+		LineOffsetsIndex index = LineOffsetsIndex.create(source).applyChange(newSource, offset, removedLength, 
+			text.length());
+		checkEqual(index, LineOffsetsIndex.create(newSource));
+	}
+	
+	protected static void checkEqual(LineOffsetsIndex index, LineOffsetsIndex expected) {
+		assertEquals(index.getSourceLength(), expected.getSourceLength());
+		assertEquals(index.getNumberOfLines(), expected.getNumberOfLines());
+		for(int line = 0; line < expected.getNumberOfLines(); line++) {
+			assertEquals(index.getLineOffset(line), expected.getLineOffset(line));
+		}
+	}
+	
+	@Test
+	public void testCache() throws Exception { testCache$(); }
+	public void testCache$() throws Exception {
+		Location fileLoc = workingDirLoc("LineOffsetsIndex_Test/file.rs");
+		Files.createDirectories(fileLoc.getPath().getParent());
+		writeStringToFile(fileLoc, "fn foo() {\n}\n");
+		Files.setLastModifiedTime(fileLoc.getPath(), FileTime.fromMillis(1000_000));
+		
+		LineOffsetsCache cache = new LineOffsetsCache(10);
+		LineOffsetsIndex index = cache.getLineOffsets(fileLoc);
+		assertEquals(index.getNumberOfLines(), 3);
+		assertTrue(cache.getLineOffsets(fileLoc) == index);
+		assertEquals(cache.getSize(), 1);
+		
+		writeStringToFile(fileLoc, "fn foo() {}\n\nfn bar() {}\n");
+		Files.setLastModifiedTime(fileLoc.getPath(), FileTime.fromMillis(2000_000));
+		index = cache.getLineOffsets(fileLoc);
+		assertEquals(index.getNumberOfLines(), 4);
+		assertEquals(index.getLineOffset(2), 13);
+		
+		cache.invalidate(fileLoc);
+		assertEquals(cache.getSize(), 0);
+	}
+	
+	@Test
+	public void testSourceOpContextOffsets() throws Exception { testSourceOpContextOffsets$(); }
+	public void testSourceOpContextOffsets$() throws Exception {
+		Location fileLoc = workingDirLoc("LineOffsetsIndex_Test/current.rs");
+		Location otherFileLoc = workingDirLoc("LineOffsetsIndex_Test/other.rs");
+		Files.createDirectories(otherFileLoc.getPath().getParent());
+		writeStringToFile(otherFileLoc, "fn other() {\n}\n");
+		
+		// The working copy of the other file has unsaved changes
+		String otherWorkingCopy = "\n\nfn other() {\n}\n";
+		SourceOpContext context = new SourceOpContext(Optional.of(fileLoc), 0, new SourceRange(0, 0), 
+			"fn main() {\n\tfoo();\n}\n", true, 
+			(location) -> location.equals(otherFileLoc) ? 
+				LineOffsetsIndex.create(otherWorkingCopy) : LineOffsetsCache.getDefault().getLineOffsets(location)
+		);
+		
+		assertEquals(context.getOffsetFor(new SourceLocation(fileLoc, new SourceLineColumnRange(2, 2))), 13);
+		assertEquals(context.getOffsetFor(new SourceLocation(otherFileLoc, new SourceLineColumnRange(3, 4))), 5);
+		
+		// The default provider uses the file contents
+		SourceOpContext fsContext = new SourceOpContext(Optional.of(fileLoc), 0, "", true);
+		assertEquals(fsContext.getOffsetFor(new SourceLocation(otherFileLoc, new SourceLineColumnRange(1, 4))), 3);
+		SourceLocation outOfBounds = new SourceLocation(otherFileLoc, new SourceLineColumnRange(5, 1));
+		verifyThrows(() -> fsContext.getOffsetFor(outOfBounds), CommonException.class);
+	}
+	
+}
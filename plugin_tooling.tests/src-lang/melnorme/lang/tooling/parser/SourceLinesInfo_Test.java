@@ -39,6 +39,48 @@ public class SourceLinesInfo_Test extends CommonTest {
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(1, 1), 0);
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(2, 1), 6);
 		assertEquals(sourceLinesInfo.getValidatedOffset_1(2, 6), "12345\n12345".length());
+		
+		SourceLinesInfo updated = sourceLinesInfo.createUpdated("12345\n\n12\n12345", 6, 0, 4);
+		assertEquals(updated.getNumberOfLines(), 4);
+		testOffset(updated, 9, 2, 7, 2);
+		testOffset(updated, 10, 3, 10, 0);
+	}
+	
+	@Test
+	public void testTrailingLineTerminator() throws Exception { testTrailingLineTerminator$(); }
+	public void testTrailingLineTerminator$() throws Exception {
+		// A source ending with a line terminator has an additional, empty, last line (as in Eclipse documents)
+		assertEquals(getSourceLinesInfo("").getNumberOfLines(), 1);
+		assertEquals(getSourceLinesInfo("\n").getNumberOfLines(), 2);
+		assertEquals(getSourceLinesInfo("\r").getNumberOfLines(), 2);
+		assertEquals(getSourceLinesInfo("12345").getNumberOfLines(), 1);
+		
+		SourceLinesInfo trailingNL = getSourceLinesInfo("12345\r\n");
+		assertEquals(trailingNL.getNumberOfLines(), 2);
+		testOffset(trailingNL, 5, 0, 0, 5);
+		testOffset(trailingNL, 6, 0, 0, 6);
+		testOffset(trailingNL, 7, 1, 7, 0);
+		
+		// The offset at the end of the source is valid on the last line only 
+		assertEquals(trailingNL.getValidatedOffset_0(1, 0), 7);
+		assertEquals(trailingNL.getValidatedOffset_1(2, 1), 7);
+		verifyThrows(() -> trailingNL.getValidatedOffset_0(1, 1), null, "line+column, out of bounds");
+		verifyThrows(() -> trailingNL.getValidatedOffset_0(0, 7), null, "Invalid column, out of bounds");
+		verifyThrows(() -> trailingNL.getValidatedOffset_1(3, 1), null, "Invalid line: 3 is over the max bound: 2");
+	}
+	
+	@Test
+	public void testNegativeOffsets() throws Exception { testNegativeOffsets$(); }
+	public void testNegativeOffsets$() throws Exception {
+		SourceLinesInfo sourceLinesInfo = getSourceLinesInfo("12345\n12345");
+		
+		verifyThrows(() -> sourceLinesInfo.validateOffset(-1), null, "Invalid offset -1, it is out of bounds.");
+		verifyThrows(() -> sourceLinesInfo.getLineForOffset(-1), null, "Invalid offset -1, it is out of bounds.");
+		verifyThrows(() -> sourceLinesInfo.getLineStartForOffset(-1), null, "Invalid offset -1");
+		verifyThrows(() -> sourceLinesInfo.getColumnForOffset(-5), null, "Invalid offset -5");
+		
+		verifyThrows(() -> sourceLinesInfo.getValidatedOffset_0(-1, 0), null, "Invalid line number: -1");
+		verifyThrows(() -> sourceLinesInfo.getValidatedOffset_1(0, 1), null, "Invalid line number: 0");
 	}
 	
 	public SourceLinesInfo getSourceLinesInfo(String sampleSource) throws CommonException {
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.tooling.parser.TextBlocksTokenizer.TokenKind;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.tests.CommonTestUtils;
+
+public class TextBlocksTokenizer_Test extends CommonTestUtils {
+	
+	protected TextBlocksTokenizer createReader(String source) {
+		return new TextBlocksTokenizer(TextBlocksReader_Test.str(source));
+	}
+	
+	@Test
+	public void test() throws Exception { test$(); }
+	public void test$() throws Exception {
+		assertEquals(createReader(" blah").consumeText(), "blah");
+		assertEquals(createReader(" ||").consumeText(), "");
+		assertEquals(createReader(" ||||").consumeText(), "");
+		assertEquals(createReader(" |\\\\|").consumeText(), "\\");
+		assertEquals(createReader(" |\\n|").consumeText(), "\\n");
+		assertEquals(createReader(" ||blah").consumeText(), "blah");
+		assertEquals(new TextBlocksTokenizer(" blah ".toCharArray()).consumeText(), "blah");
+		assertEquals(createReader(" bl\u0100h\u2003").consumeText(), "bl\u0100h");
+		
+		final String seqA = "blah 1.0 |--\\|--| aa.-=+\"xx\\\"xx\"cc";
+		testReaderBasicSequenceA(createReader(seqA));
+		
+		{
+			TextBlocksTokenizer reader = createReader(" {blah}{blah|}|}{xxx{ccc}}");
+			reader.enterBlock();
+			assertEquals(reader.consumeText(), "blah");
+			reader.exitBlock();
+			assertTrue(reader.aheadIsBlockStart() && reader.getTokenStart() == 7);
+			reader.enterBlock();
+			assertEquals(reader.consumeText(), "blah}");
+			reader.exitBlock();
+			reader.enterBlock();
+			assertEquals(reader.consumeText(), "xxx");
+			reader.enterBlock();
+			assertEquals(reader.getBlockDepth(), 2);
+			assertEquals(reader.consumeText(), "ccc");
+			reader.exitBlock();
+			reader.exitBlock();
+			assertTrue(reader.tokenAhead() == TokenKind.EOS);
+		}
+		
+		{
+			TextBlocksTokenizer reader = createReader(" {" +seqA+ "} " + seqA + " { " +seqA+ " } ");
+			reader.enterBlock();
+			testReaderBasicSequenceA(reader);
+			reader.exitBlock();
+			testReaderBasicSequenceA(reader);
+			reader.enterBlock();
+			testReaderBasicSequenceA(reader);
+			reader.exitBlock();
+			assertTrue(reader.tokenAhead() == TokenKind.EOS);
+		}
+		
+		{
+			TextBlocksTokenizer reader = createReader(" asfd|}| aaa {} bbb {" +seqA+ " { axdfxd } } ccc");
+			reader.skipNextElement();
+			assertEquals(reader.consumeText(), "aaa");
+			reader.skipNextElement();
+			assertEquals(reader.consumeText(), "bbb");
+			reader.skipNextElement();
+			assertEquals(reader.consumeText(), "ccc");
+		}
+		
+		{
+			TextBlocksTokenizer reader = createReader(" @123 |@1| 12:3 ");
+			assertTrue(reader.aheadIsPlainText());
+			assertEquals(TextBlocksTokenizer.parseDigits(reader.getSource(), reader.getTokenStart() + 1, 
+				reader.getTokenEnd()), 123);
+			reader.skipText();
+			assertTrue(reader.aheadIsText() && !reader.aheadIsPlainText());
+			reader.skipText();
+			assertEquals(TextBlocksTokenizer.parseDigits(reader.getSource(), reader.getTokenStart(), 
+				reader.getTokenEnd()), -1);
+			
+			assertEquals(TextBlocksTokenizer.parseDigits("2147483647", 0, 10), Integer.MAX_VALUE);
+			assertEquals(TextBlocksTokenizer.parseDigits("2147483648", 0, 10), -1);
+			assertEquals(TextBlocksTokenizer.parseDigits("", 0, 0), -1);
+		}
+		
+		testErrorCases();
+	}
+	
+	protected Void testReaderBasicSequenceA(TextBlocksTokenizer reader) throws CommonException {
+		assertTrue(reader.getSource().charAt(reader.getTokenStart()) == 'b');
+		reader.expectText("blah");
+		reader.expectText("1.0");
+		reader.expectText("--\"--");
+		reader.expectText("aa.-=+xx\"xxcc");
+		
+		assertTrue(createReader("").tokenAhead() == TokenKind.EOS);
+		assertTrue(createReader("  ").aheadIsEnd());
+		assertTrue(createReader(" }").aheadIsEnd());
+		return null;
+	}
+	
+	protected void testErrorCases() {
+		verifyThrows(() -> createReader("  {").consumeText(), null, 
+				"Expected text, found `{`.");
+		verifyThrows(() -> createReader("  \"abc").consumeText(), null, 
+				"Unterminated text `abc`.");
+		verifyThrows(() -> createReader("  \"abc").skipText(), null, 
+				"Unterminated text `abc`.");
+		
+		verifyThrows(() -> createReader("  blah").expectText("xxx"), null, 
+			"Expected text `xxx`, found text `blah`.");
+		verifyThrows(() -> createReader("  ( )").expectText("xxx"), null, 
+			"Expected text `xxx`, found `(`.");
+		verifyThrows(() -> createReader("  blah").enterBlock(), null, 
+			"Expected block open, found `b`.");
+		
+		verifyThrows(() -> {
+			TextBlocksTokenizer reader = createReader(" { ) ");
+			reader.enterBlock();
+			reader.exitBlock();
+		}, null, "Expected BLOCK_CLOSE `}`, found `)`");
+		
+		verifyThrows(() -> {
+			TextBlocksTokenizer reader = createReader(" {  ");
+			reader.enterBlock();
+			reader.exitBlock();
+		}, null, "Expected BLOCK_CLOSE `}`, found EOS");
+	}
+	
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.structure.SourceFileStructureCache.CacheKey;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.Location;
+
+public class SourceFileStructureCache_Test extends CommonToolingTest {
+	
+	protected static SourceFileStructure structure(String... names) {
+		ArrayList2<StructureElement> elements = new ArrayList2<>();
+		for(String name : names) {
+			elements.add(new StructureElement(name, null, new SourceRange(0, 1), StructureElementKind.FUNCTION,
+				new ElementAttributes(null), null, null));
+		}
+		return new SourceFileStructure(null, elements, null);
+	}
+	
+	@Test
+	public void testKeys() throws Exception { testKeys$(); }
+	public void testKeys$() throws Exception {
+		Location loc = workingDirLoc("foo.rs");
+		
+		assertEquals(new CacheKey(loc, "tool", "fn foo() {}"), new CacheKey(loc, "tool", "fn foo() {}"));
+		assertEquals(new CacheKey(null, "tool", ""), new CacheKey(null, "tool", ""));
+		
+		assertTrue(!new CacheKey(loc, "tool", "fn foo() {}").equals(new CacheKey(loc, "tool", "fn fop() {}")));
+		assertTrue(!new CacheKey(loc, "tool", "fn foo() {}").equals(new CacheKey(null, "tool", "fn foo() {}")));
+		assertTrue(!new CacheKey(loc, "tool", "fn foo() {}").equals(new CacheKey(loc, "tool2", "fn foo() {}")));
+		
+		assertTrue(SourceFileStructureCache.hashSource("ab") != SourceFileStructureCache.hashSource("ba"));
+		assertTrue(SourceFileStructureCache.hashSource("\u0100") != SourceFileStructureCache.hashSource("\u0001"));
+	}
+	
+	@Test
+	public void testCache() throws Exception { testCache$(); }
+	public void testCache$() throws Exception {
+		SourceFileStructureCache cache = new SourceFileStructureCache(2, Long.MAX_VALUE);
+		SourceFileStructure structureA = structure("a");
+		SourceFileStructure structureB = structure("b");
+		SourceFileStructure structureC = structure("c");
+		
+		assertTrue(cache.get(new CacheKey(null, "tool", "A")) == null);
+		cache.put(new CacheKey(null, "tool", "A"), structureA);
+		cache.put(new CacheKey(null, "tool", "B"), structureB);
+		assertTrue(cache.get(new CacheKey(null, "tool", "A")) == structureA);
+		assertTrue(cache.get(new CacheKey(null, "tool", "B")) == structureB);
+		assertTrue(cache.getHitCount() == 2 && cache.getMissCount() == 1);
+		
+		// Test LRU eviction
+		cache.get(new CacheKey(null, "tool", "A"));
+		cache.put(new CacheKey(null, "tool", "C"), structureC);
+		assertTrue(cache.getSize() == 2 && cache.getEvictionCount() == 1);
+		assertTrue(cache.get(new CacheKey(null, "tool", "B")) == null);
+		assertTrue(cache.get(new CacheKey(null, "tool", "A")) == structureA);
+		assertTrue(cache.get(new CacheKey(null, "tool", "C")) == structureC);
+		assertTrue(cache.getTotalWeight() == 
+				SourceFileStructureCache.estimateWeight(structureA) + SourceFileStructureCache.estimateWeight(structureC));
+		
+		cache.clear();
+		assertTrue(cache.getSize() == 0 && cache.getTotalWeight() == 0);
+	}
+	
+	@Test
+	public void testWeightEviction() throws Exception { testWeightEviction$(); }
+	public void testWeightEviction$() throws Exception {
+		SourceFileStructure smallStructure = structure("a");
+		SourceFileStructure bigStructure = structure("a", "b", "c", "d", "e");
+		long smallWeight = SourceFileStructureCache.estimateWeight(smallStructure);
+		long bigWeight = SourceFileStructureCache.estimateWeight(bigStructure);
+		assertTrue(bigWeight > 3 * smallWeight);
+		
+		SourceFileStructureCache cache = new SourceFileStructureCache(100, bigWeight + smallWeight);
+		cache.put(new CacheKey(null, "tool", "1"), smallStructure);
+		cache.put(new CacheKey(null, "tool", "2"), smallStructure);
+		cache.put(new CacheKey(null, "tool", "3"), smallStructure);
+		assertTrue(cache.getSize() == 3);
+		
+		cache.put(new CacheKey(null, "tool", "big"), bigStructure);
+		assertTrue(cache.getSize() == 2 && cache.getEvictionCount() == 2);
+		assertTrue(cache.get(new CacheKey(null, "tool", "3")) == smallStructure);
+		assertTrue(cache.get(new CacheKey(null, "tool", "big")) == bigStructure);
+		assertTrue(cache.getTotalWeight() == bigWeight + smallWeight);
+		
+		// Entries bigger than the limit are not cached at all
+		cache.put(new CacheKey(null, "tool", "huge"), structure("a", "b", "c", "d", "e", "f", "g"));
+		assertTrue(cache.get(new CacheKey(null, "tool", "huge")) == null);
+		assertTrue(cache.getSize() == 2);
+	}
+	
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.EProtection;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ast.ParserErrorTypes;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.tooling.structure.StructureDelta.DeltaKind;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+
+public class StructureDiffer_Test extends CommonToolingTest {
+	
+	protected static StructureElement elem(String name, StructureElementKind kind, int start, 
+			StructureElement... children) {
+		return elem(name, kind, start, null, children);
+	}
+	
+	protected static StructureElement elem(String name, StructureElementKind kind, int start, String type,
+			StructureElement... children) {
+		return new StructureElement(name, null, new SourceRange(start, 1), kind, new ElementAttributes(null), 
+			type, ArrayList2.create(children));
+	}
+	
+	protected static SourceFileStructure structure(StructureElement... elements) {
+		return new SourceFileStructure(null, ArrayList2.create(elements), null);
+	}
+	
+	protected static StructureDelta childDelta(StructureDelta delta, int ix) {
+		return delta.getChildDeltas().get(ix);
+	}
+	
+	@Test
+	public void testDiff() throws Exception { testDiff$(); }
+	public void testDiff$() throws Exception {
+		StructureElementKind FN = StructureElementKind.FUNCTION;
+		StructureElementKind IMPL = StructureElementKind.IMPL;
+		
+		SourceFileStructure oldStructure = structure(
+			elem("foo", FN, 0),
+			elem("Foo", IMPL, 10, 
+				elem("method", FN, 11),
+				elem("other", FN, 15)
+			),
+			elem("Foo", IMPL, 20)
+		);
+		
+		// Equal trees
+		StructureDelta delta = StructureDiffer.diff(oldStructure, structure(
+			elem("foo", FN, 0),
+			elem("Foo", IMPL, 10, 
+				elem("method", FN, 11),
+				elem("other", FN, 15)
+			),
+			elem("Foo", IMPL, 20)
+		));
+		assertTrue(delta.isEmpty());
+		assertTrue(delta.getChildDeltas().isEmpty());
+		
+		// Source ranges shifted, child added, child removed
+		SourceFileStructure newStructure = structure(
+			elem("foo", FN, 0),
+			elem("Foo", IMPL, 12, 
+				elem("method", FN, 13),
+				elem("added", FN, 16)
+			),
+			elem("Foo", IMPL, 22)
+		);
+		delta = StructureDiffer.diff(oldStructure, newStructure);
+		assertTrue(delta.getKind() == DeltaKind.CHANGED && delta.getFlags() == StructureDelta.F_CHILDREN);
+		assertTrue(delta.getNewElement() == newStructure);
+		assertEquals(delta.getChildDeltas().size(), 2);
+		assertTrue(delta.hasStructuralChanges());
+		
+		StructureDelta implDelta = childDelta(delta, 0);
+		assertTrue(implDelta.getOldElement() == oldStructure.getChildren().get(1));
+		assertTrue(implDelta.getNewElement() == newStructure.getChildren().get(1));
+		assertEquals(implDelta.getFlags(), StructureDelta.F_SOURCE_RANGE | StructureDelta.F_CHILDREN);
+		assertEquals(implDelta.getChildDeltas().size(), 3);
+		assertTrue(childDelta(implDelta, 0).getFlags() == StructureDelta.F_SOURCE_RANGE);
+		assertTrue(childDelta(implDelta, 1).getKind() == DeltaKind.ADDED);
+		assertTrue(childDelta(implDelta, 2).getKind() == DeltaKind.REMOVED);
+		assertTrue(childDelta(implDelta, 2).getOldElement() == oldStructure.getChildren().get(1).getChildren().get(1));
+		
+		// Second impl block matched by occurrence order
+		assertTrue(childDelta(delta, 1).getOldElement() == oldStructure.getChildren().get(2));
+		assertTrue(childDelta(delta, 1).getFlags() == StructureDelta.F_SOURCE_RANGE);
+		
+		// Only source range changes
+		delta = StructureDiffer.diff(oldStructure, structure(
+			elem("foo", FN, 1),
+			elem("Foo", IMPL, 10, 
+				elem("method", FN, 11),
+				elem("other", FN, 15)
+			),
+			elem("Foo", IMPL, 20)
+		));
+		assertEquals(delta.getChildDeltas().size(), 1);
+		assertTrue(!delta.hasStructuralChanges());
+		
+		// Content change and reorder
+		delta = StructureDiffer.diff(oldStructure, structure(
+			elem("Foo", IMPL, 10, 
+				elem("method", FN, 11, "i32"),
+				elem("other", FN, 15)
+			),
+			elem("foo", FN, 0),
+			elem("Foo", IMPL, 20)
+		));
+		assertTrue(delta.hasFlag(StructureDelta.F_REORDERED));
+		assertTrue(delta.hasStructuralChanges());
+		assertEquals(delta.getChildDeltas().size(), 1);
+		assertTrue(childDelta(childDelta(delta, 0), 0).getFlags() == StructureDelta.F_CONTENT);
+		
+		delta = StructureDiffer.diff(oldStructure, structure(
+			new StructureElement("foo", null, new SourceRange(0, 1), FN, new ElementAttributes(EProtection.PUBLIC), 
+				null, null),
+			elem("Foo", IMPL, 10, 
+				elem("method", FN, 11),
+				elem("other", FN, 15)
+			),
+			elem("Foo", IMPL, 20)
+		));
+		assertTrue(childDelta(delta, 0).getFlags() == StructureDelta.F_CONTENT);
+		
+		// Reused elements (parse error fallback)
+		SourceFileStructure reusedStructure = new SourceFileStructure(oldStructure, 
+			ArrayList2.create(new ParserError(ParserErrorTypes.GENERIC_ERROR, new SourceRange(0, 1), "x", null)));
+		assertTrue(reusedStructure.getChildren() == oldStructure.getChildren());
+		assertTrue(reusedStructure.getStructureElementAt(11) == oldStructure.getStructureElementAt(11));
+		assertTrue(reusedStructure.getParserProblems().size() == 1);
+		delta = StructureDiffer.diff(oldStructure, reusedStructure);
+		assertTrue(delta.isEmpty());
+		assertTrue(delta.getNewElement() == reusedStructure);
+	}
+	
+	@Test
+	public void testSameElement() throws Exception { testSameElement$(); }
+	public void testSameElement$() throws Exception {
+		StructureElementKind FN = StructureElementKind.FUNCTION;
+		StructureElementKind IMPL = StructureElementKind.IMPL;
+		
+		SourceFileStructure structureA = structure(
+			elem("Foo", IMPL, 10, elem("method", FN, 11)),
+			elem("Foo", IMPL, 20, elem("method", FN, 21))
+		);
+		SourceFileStructure structureB = structure(
+			elem("Foo", IMPL, 12, elem("method", FN, 13)),
+			elem("Foo", IMPL, 22, elem("method", FN, 23), elem("method", FN, 25))
+		);
+		Indexable<StructureElement> implsA = structureA.getChildren();
+		Indexable<StructureElement> implsB = structureB.getChildren();
+		
+		assertTrue(implsB.get(0).getOccurrenceIndex() == 0);
+		assertTrue(implsB.get(1).getOccurrenceIndex() == 1);
+		assertTrue(implsB.get(1).getChildren().get(1).getOccurrenceIndex() == 1);
+		
+		assertTrue(StructureDiffer.isSameElement(implsA.get(0), implsB.get(0)));
+		assertTrue(StructureDiffer.isSameElement(implsA.get(1), implsB.get(1)));
+		assertTrue(!StructureDiffer.isSameElement(implsA.get(0), implsB.get(1)));
+		
+		StructureElement methodA1 = implsA.get(1).getChildren().get(0);
+		assertTrue(StructureDiffer.isSameElement(methodA1, implsB.get(1).getChildren().get(0)));
+		assertTrue(!StructureDiffer.isSameElement(methodA1, implsB.get(1).getChildren().get(1)));
+		assertTrue(!StructureDiffer.isSameElement(methodA1, implsB.get(0).getChildren().get(0)));
+		assertTrue(!StructureDiffer.isSameElement(methodA1, implsB.get(0)));
+		
+		assertEquals(StructureDiffer.getElementKeyHashCode(methodA1), 
+			StructureDiffer.getElementKeyHashCode(implsB.get(1).getChildren().get(0)));
+	}
+	
+}
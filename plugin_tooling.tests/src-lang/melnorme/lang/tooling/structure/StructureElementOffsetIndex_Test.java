@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.ElementAttributes;
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.lang.tooling.structure.SourceFileStructure_Default.StructureElementFinderByOffset;
+import melnorme.utilbox.collections.ArrayList2;
+
+public class StructureElementOffsetIndex_Test extends CommonToolingTest {
+	
+	protected static StructureElement elem(String name, int start, int length, StructureElement... children) {
+		return new StructureElement(name, null, new SourceRange(start, length), StructureElementKind.FUNCTION, 
+			new ElementAttributes(null), null, ArrayList2.create(children));
+	}
+	
+	@Test
+	public void testBasic() throws Exception { testBasic$(); }
+	public void testBasic$() throws Exception {
+		StructureElement method = elem("method", 12, 5);
+		StructureElement impl = elem("Foo", 10, 20, method, elem("other", 20, 5));
+		SourceFileStructure structure = new SourceFileStructure(null, ArrayList2.create(
+			elem("foo", 0, 5),
+			impl
+		), null);
+		
+		assertTrue(structure.getStructureElementAt(0).getName().equals("foo"));
+		assertTrue(structure.getStructureElementAt(5).getName().equals("foo"));
+		assertTrue(structure.getStructureElementAt(7) == null);
+		assertTrue(structure.getStructureElementAt(11) == impl);
+		assertTrue(structure.getStructureElementAt(12) == method);
+		assertTrue(structure.getStructureElementAt(17) == method);
+		assertTrue(structure.getStructureElementAt(22).getName().equals("other"));
+		assertTrue(structure.getStructureElementAt(30) == impl);
+		assertTrue(structure.getStructureElementAt(31) == null);
+		
+		assertTrue(new SourceFileStructure(null, null, null).getStructureElementAt(0) == null);
+	}
+	
+	@Test
+	public void testRandomized() throws Exception { testRandomized$(); }
+	public void testRandomized$() throws Exception {
+		Random random = new Random(42);
+		
+		for(int i = 0; i < 200; i++) {
+			boolean allowOverlaps = random.nextBoolean();
+			ArrayList2<StructureElement> children = createElements(random, 0, 1000, 3, allowOverlaps);
+			SourceFileStructure structure = new SourceFileStructure(null, children, null);
+			
+			for(int offset = -1; offset <= 1001; offset += 1 + random.nextInt(7)) {
+				StructureElement expected = new StructureElementFinderByOffset(offset).findInnerMost(structure);
+				assertTrue(structure.getStructureElementAt(offset) == expected);
+			}
+		}
+	}
+	
+	protected static ArrayList2<StructureElement> createElements(Random random, int start, int end, int depth, 
+			boolean allowOverlaps) {
+		ArrayList2<StructureElement> elements = new ArrayList2<>();
+		if(depth == 0 || end - start < 2) {
+			return elements;
+		}
+		
+		int pos = start;
+		int count = random.nextInt(6);
+		for(int i = 0; i < count && pos < end; i++) {
+			int elemStart = pos + random.nextInt(Math.max(1, (end - pos) / 4));
+			int elemLength = random.nextInt(Math.max(1, (end - elemStart) / 2) + 1);
+			if(allowOverlaps && random.nextInt(4) == 0) {
+				// Overlapping, or out of order ranges, as could come from a parser with errors
+				elemStart = start + random.nextInt(end - start);
+				elemLength = random.nextInt(end - start);
+			}
+			int elemEnd = elemStart + elemLength;
+			
+			ArrayList2<StructureElement> children = createElements(random, elemStart, elemEnd, depth - 1, 
+				allowOverlaps);
+			elements.add(elem("e" + i, elemStart, elemLength, children.toArray(new StructureElement[0])));
+			pos = Math.max(pos, elemEnd) + (allowOverlaps ? 0 : 1);
+		}
+		return elements;
+	}
+	
+}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class BuildInputsFingerprint_Test extends CommonToolingTest {
+	
+	protected final Location projectLoc = workingDirLoc("BuildInputsFingerprint_Test");
+	
+	protected String getFingerprint(String... command) throws Exception {
+		BuildInputsFingerprint fingerprint = new BuildInputsFingerprint();
+		fingerprint.addProcessBuilder(new ProcessBuilder(command).directory(projectLoc.toFile()));
+		fingerprint.addFileTree(projectLoc, (dir) -> dir.getFileName().toString().equals("target"));
+		fingerprint.addFile(projectLoc.resolve_fromValid("../BuildInputsFingerprint_Test.lock"));
+		return fingerprint.getValue();
+	}
+	
+	protected void writeFile(String path, String contents, long modifiedTime) throws Exception {
+		Location fileLoc = projectLoc.resolve_fromValid(path);
+		Files.createDirectories(fileLoc.getPath().getParent());
+		writeStringToFile(fileLoc, contents);
+		Files.setLastModifiedTime(fileLoc.getPath(), FileTime.fromMillis(modifiedTime));
+	}
+	
+	@Test
+	public void testFingerprint() throws Exception { testFingerprint$(); }
+	public void testFingerprint$() throws Exception {
+		if(projectLoc.toFile().exists()) {
+			TestsWorkingDir.deleteDir(projectLoc);
+		}
+		writeFile("Cargo.toml", "[package]", 1000_000);
+		writeFile("src/main.rs", "fn main() {}", 1000_000);
+		
+		String original = getFingerprint("cargo", "build");
+		assertAreEqual(getFingerprint("cargo", "build"), original);
+		assertTrue(getFingerprint("cargo", "build", "--release").equals(original) == false);
+		
+		// Changes in excluded directories don't matter
+		writeFile("target/debug/main", "binary", 2000_000);
+		assertAreEqual(getFingerprint("cargo", "build"), original);
+		
+		// Modified source
+		writeFile("src/main.rs", "fn main() { }", 2000_000);
+		String modified = getFingerprint("cargo", "build");
+		assertTrue(modified.equals(original) == false);
+		
+		// Only the modification time changed
+		writeFile("src/main.rs", "fn main() { }", 3000_000);
+		assertTrue(getFingerprint("cargo", "build").equals(modified) == false);
+		modified = getFingerprint("cargo", "build");
+		
+		// Added source file
+		writeFile("src/lib.rs", "", 3000_000);
+		assertTrue(getFingerprint("cargo", "build").equals(modified) == false);
+		modified = getFingerprint("cargo", "build");
+		
+		// Added file outside the tree
+		writeFile("../BuildInputsFingerprint_Test.lock", "", 3000_000);
+		assertTrue(getFingerprint("cargo", "build").equals(modified) == false);
+		Files.delete(projectLoc.resolve_fromValid("../BuildInputsFingerprint_Test.lock").getPath());
+		assertAreEqual(getFingerprint("cargo", "build"), modified);
+	}
+	
+}
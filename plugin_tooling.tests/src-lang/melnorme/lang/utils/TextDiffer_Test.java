@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import melnorme.lang.utils.TextDiffer.LineRange;
+import melnorme.lang.utils.TextDiffer.Replacement;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.tests.CommonTest;
+
+public class TextDiffer_Test extends CommonTest {
+	
+	@Test
+	public void testReplacements() throws Exception { testReplacements$(); }
+	public void testReplacements$() throws Exception {
+		testReplacements("", "", ArrayList2.create());
+		testReplacements("abc\n", "abc\n", ArrayList2.create());
+		testReplacements("", "abc\n", ArrayList2.create(new Replacement(0, 0, "abc\n")));
+		
+		// Only the changed characters of a changed line
+		testReplacements("fn foo() {\nlet x=1;\n}\n", "fn foo() {\nlet x = 1;\n}\n", ArrayList2.create(
+			new Replacement(16, 1, " = ")
+		));
+		// Changes far apart are separate replacements
+		testReplacements("a\nb\nc\nd\ne\n", "A\nb\nc\nd\nE\n", ArrayList2.create(
+			new Replacement(0, 1, "A"),
+			new Replacement(8, 1, "E")
+		));
+		// Line inserted and line removed
+		testReplacements("a\nb\nc\n", "a\nx\nb\n", ArrayList2.create(
+			new Replacement(2, 0, "x\n"),
+			new Replacement(4, 2, "")
+		));
+		// Missing final newline
+		testReplacements("a\nb", "a\nb\n", ArrayList2.create(new Replacement(3, 0, "\n")));
+		testReplacements("a\r\nb\r\n", "a\nb\r\n", ArrayList2.create(new Replacement(1, 1, "")));
+	}
+	
+	protected void testReplacements(String oldText, String newText, ArrayList2<Replacement> expected) {
+		ArrayList2<Replacement> replacements = TextDiffer.computeReplacements(oldText, newText);
+		assertAreEqual(replacements, expected);
+		assertAreEqual(TextDiffer.applyReplacements(oldText, replacements), newText);
+	}
+	
+	@Test
+	public void testChangedLines() throws Exception { testChangedLines$(); }
+	public void testChangedLines$() throws Exception {
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\n", "a\nb\nc\n"), ArrayList2.create());
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\n", "a\nB\nc\n"),
+			ArrayList2.create(new LineRange(1, 2)));
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\n", "a\nb\nx\ny\nc\n"),
+			ArrayList2.create(new LineRange(2, 4)));
+		// Deletion marks the following line
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\n", "a\nc\n"),
+			ArrayList2.create(new LineRange(1, 2)));
+		// Deletion at end
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\n", "a\nb\n"),
+			ArrayList2.create(new LineRange(1, 2)));
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\nd\n", "A\nb\nC\nd\n"),
+			ArrayList2.create(new LineRange(0, 1), new LineRange(2, 3)));
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\nd\n", "A\nc\nd\n"),
+			ArrayList2.create(new LineRange(0, 1)));
+		// Adjacent ranges are merged
+		assertAreEqual(TextDiffer.computeChangedLines("a\nb\nc\nd\n", "a\nc\nD\n"),
+			ArrayList2.create(new LineRange(1, 3)));
+		
+		assertAreEqual(TextDiffer.computeChangedLines("a\n", ""), ArrayList2.create());
+	}
+	
+	@Test
+	public void testRandomized() throws Exception { testRandomized$(); }
+	public void testRandomized$() throws Exception {
+		Random random = new Random(42);
+		String[] lines = { "fn main() {\n", "}\n", "\n", "let x = 1;\n", "    foo();\n", "// comment\n", "\r\n" };
+		
+		for(int i = 0; i < 500; i++) {
+			String oldText = randomText(random, lines, random.nextInt(30));
+			String newText = mutate(random, lines, oldText);
+			
+			ArrayList2<Replacement> replacements = TextDiffer.computeReplacements(oldText, newText);
+			assertAreEqual(TextDiffer.applyReplacements(oldText, replacements), newText);
+			
+			int previousEnd = -1;
+			for(Replacement replacement : replacements) {
+				assertTrue(replacement.offset > previousEnd);
+				previousEnd = replacement.getEndPos();
+			}
+			
+			// Also with a low max edit distance, which falls back to a single change
+			replacements = new TextDiffer(oldText, newText, 1).computeReplacements();
+			assertAreEqual(TextDiffer.applyReplacements(oldText, replacements), newText);
+		}
+	}
+	
+	protected static String randomText(Random random, String[] lines, int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < lineCount; i++) {
+			sb.append(lines[random.nextInt(lines.length)]);
+		}
+		return sb.toString();
+	}
+	
+	protected static String mutate(Random random, String[] lines, String text) {
+		StringBuilder sb = new StringBuilder(text);
+		int mutations = random.nextInt(5);
+		for(int i = 0; i < mutations; i++) {
+			int pos = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+			switch(random.nextInt(3)) {
+			case 0: sb.insert(pos, lines[random.nextInt(lines.length)]); break;
+			case 1: sb.delete(pos, Math.min(sb.length(), pos + random.nextInt(10))); break;
+			default: sb.insert(pos, ' '); break;
+			}
+		}
+		return sb.toString();
+	}
+	
+}
@@ -11,6 +11,7 @@
 package com.github.rustdt.tooling;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 
 import java.io.StringReader;
@@ -19,6 +20,8 @@ import org.junit.Test;
 
 import com.github.rustdt.tooling.CargoMessage.CargoMessageTarget;
 
+import melnorme.lang.tooling.common.ToolSourceMessage;
+import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 
 public class CargoMessageParserTest extends CommonRustMessageParserTest {
@@ -47,6 +50,34 @@ public class CargoMessageParserTest extends CommonRustMessageParserTest {
 		);
 	}
 	
+	@Test
+	public void testSkipOtherMessages() throws Exception { testSkipOtherMessages$(); }
+	public void testSkipOtherMessages$() throws Exception {
+		// Once the reason is read, the rest of other messages is not parsed (nor validated)
+		checkEqual(parseMessage("{ \"reason\": \"build-script-executed\", \"target\": 123, \"message\": [] }"), 
+			null);
+		assertTrue(parseError("{ \"target\": 123, \"reason\": \"build-script-executed\" }")
+			.contains("Property `target` is not a Object"));
+		
+		assertTrue(parseError("{ \"reason\": \"compiler-message\", \"target\": [] }")
+			.contains("Property `target` is not a Object"));
+		assertTrue(parseError("[ \"reason\" ]").contains("is not a Object"));
+		assertTrue(parseError("{ \"reason\": \"compiler-message\", ").contains("Error parsing Cargo JSON message"));
+		
+		String otherMessage = getClassResource("cargo_message_other.json");
+		String compilerMessage = getClassResource("cargo_error.json");
+		CargoMessageParser parser = new CargoMessageParser(
+			new StringReader(otherMessage + compilerMessage + otherMessage + compilerMessage));
+		ArrayList2<CargoMessage> messages = parser.parseCargoMessages();
+		assertTrue(messages.size() == 2);
+		checkEqual(messages.get(1), messages.get(0));
+		
+		// File paths are interned
+		ToolSourceMessage span0 = messages.get(0).message.spans.get(0).sourceMessage;
+		ToolSourceMessage span1 = messages.get(1).message.spans.get(0).sourceMessage;
+		assertTrue(span0.path == span1.path);
+	}
+	
 	public void checkEqual(CargoMessage obtained, CargoMessage expected) {
 		if(!areEqual(expected, obtained)) {
 			assertEquals(obtained.reason, expected.reason);
@@ -58,9 +89,18 @@ public class CargoMessageParserTest extends CommonRustMessageParserTest {
 		}
 	}
 	
+	protected String parseError(String json) {
+		try {
+			parseMessage(json);
+		} catch(CommonException e) {
+			return e.getSingleLineRender();
+		}
+		throw assertFail();
+	}
+	
 	public CargoMessage parseMessage(String classResource) throws CommonException {
 		CargoMessageParser parser = new CargoMessageParser(new StringReader(classResource));
 		return parser.parseCargoMessage();
 	}
 	
-}
\ No newline at end of file
+}
\ No newline at end of file
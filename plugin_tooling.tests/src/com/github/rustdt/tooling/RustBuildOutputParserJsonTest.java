@@ -12,17 +12,25 @@
 package com.github.rustdt.tooling;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertFail;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.status.Severity.ERROR;
 import static melnorme.utilbox.status.Severity.INFO;
 import static melnorme.utilbox.status.Severity.WARNING;
 
+import java.io.StringReader;
+
 import org.junit.Test;
 
+import com.github.rustdt.tooling.RustBuildOutputParser2.StdOutStreamParser;
+
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.utils.parse.StringCharSource;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.ByteArrayOutputStreamExt;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
 public class RustBuildOutputParserJsonTest extends CommonRustMessageParserTest {
 	
@@ -154,6 +162,54 @@ public class RustBuildOutputParserJsonTest extends CommonRustMessageParserTest {
 		assertEqualIndexable(buildMessages, expected);
 	}
 	
+	@Test
+	public void testStreaming() throws Exception { testStreaming$(); }
+	public void testStreaming$() throws Exception {
+		String errorLine = toSingleLine(getClassResource("cargo_error.json"));
+		String otherLine = toSingleLine(getClassResource("cargo_message_other.json"));
+		
+		String stdout = otherLine + "\n" + errorLine + "\r\n" + otherLine + "\n" + errorLine;
+		
+		TestsRustBuildOutputParser batchParser = new TestsRustBuildOutputParser();
+		batchParser.parseStdOut(new StringReader(stdout));
+		ArrayList2<ToolSourceMessage> expected = batchParser.getBuildMessages();
+		assertTrue(expected.size() == 2);
+		
+		TestsRustBuildOutputParser streamingParser = new TestsRustBuildOutputParser();
+		StdOutStreamParser streamParser = streamingParser.createStdOutStreamParser();
+		byte[] stdoutBytes = stdout.getBytes(StringUtil.UTF8);
+		
+		// Feed the output in small chunks, as it would be read from the process
+		int firstMessageEnd = (otherLine + "\n" + errorLine + "\r\n").length();
+		int offset = 0;
+		while(offset < stdoutBytes.length) {
+			int chunkLength = Math.min(7, stdoutBytes.length - offset);
+			byte[] chunk = new byte[chunkLength];
+			System.arraycopy(stdoutBytes, offset, chunk, 0, chunkLength);
+			streamParser.notifyStdOutListeners(chunk, 0, chunkLength);
+			offset += chunkLength;
+			
+			if(offset < firstMessageEnd) {
+				assertTrue(streamParser.awaitNewMessages(0).isEmpty());
+			} else if(offset - chunkLength < firstMessageEnd) {
+				// The first message is available as soon as its line has been read
+				assertEqualIndexable(streamParser.awaitNewMessages(0), list(expected.get(0)));
+			}
+		}
+		// Last line has no line terminator, it is only parsed once the process terminates
+		assertTrue(streamParser.awaitNewMessages(0).isEmpty());
+		streamParser.notifyProcessTerminatedAndRead(0);
+		assertEqualIndexable(streamParser.awaitNewMessages(0), list(expected.get(1)));
+		
+		ExternalProcessResult result = new ExternalProcessResult(0, new ByteArrayOutputStreamExt(), null);
+		assertEqualIndexable(streamingParser.parseStreamedResult(result), expected);
+	}
+	
+	protected static String toSingleLine(String json) {
+		// Newlines in JSON string literals are escaped, so it's safe to remove all newlines. 
+		return json.replace("\r", "").replace("\n", "");
+	}
+	
 	@Deprecated
 	@Test
 	public void testCargoErrorMesages() throws Exception { testCargoErrorMesages$(); }
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.toolchain.ops.BuildInputsFingerprint;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.tests.TestsWorkingDir;
+
+public class CargoBuildInputs_Test extends CommonToolingTest {
+	
+	protected final Location testsLoc = workingDirLoc("CargoBuildInputs_Test");
+	protected final Location workspaceLoc = testsLoc.resolve_fromValid("workspace");
+	protected final Location appLoc = workspaceLoc.resolve_fromValid("app");
+	
+	protected void writeFile(Location baseLoc, String path, String contents, long modifiedTime) throws Exception {
+		Location fileLoc = baseLoc.resolve_fromValid(path);
+		Files.createDirectories(fileLoc.getPath().getParent());
+		writeStringToFile(fileLoc, contents);
+		Files.setLastModifiedTime(fileLoc.getPath(), FileTime.fromMillis(modifiedTime));
+	}
+	
+	protected void writeCrate(Location crateLoc, String dependencies) throws Exception {
+		writeFile(crateLoc, "Cargo.toml", "[package]\nname = \"" + crateLoc.getFileName() + "\"\n" + 
+			"[dependencies]\n" + dependencies, 1000_000);
+		writeFile(crateLoc, "src/lib.rs", "", 1000_000);
+	}
+	
+	protected String getFingerprint(ProcessBuilder pb) throws Exception {
+		BuildInputsFingerprint fingerprint = new BuildInputsFingerprint();
+		new CargoBuildInputs(fingerprint).addCrateBuild(appLoc, pb);
+		return fingerprint.getValue();
+	}
+	
+	@Test
+	public void testWorkspaceLayout() throws Exception { testWorkspaceLayout$(); }
+	public void testWorkspaceLayout$() throws Exception {
+		if(testsLoc.toFile().exists()) {
+			TestsWorkingDir.deleteDir(testsLoc);
+		}
+		Location standaloneLoc = testsLoc.resolve_fromValid("standalone");
+		writeCrate(standaloneLoc, "");
+		writeCrate(appLoc, "lib1 = { path = \"../lib1\" }");
+		writeFile(workspaceLoc, "Cargo.toml", "[workspace]\nmembers = [\"app\", \"lib1\"]", 1000_000);
+		
+		assertAreEqual(CargoManifestParser.findWorkspaceRoot(appLoc), workspaceLoc);
+		assertAreEqual(CargoManifestParser.findWorkspaceRoot(workspaceLoc), workspaceLoc);
+		assertAreEqual(CargoManifestParser.findWorkspaceRoot(standaloneLoc), null);
+		
+		ProcessBuilder pb = new ProcessBuilder("cargo", "build").directory(appLoc.toFile());
+		pb.environment().remove(CargoBuildInputs.CARGO_TARGET_DIR_VAR);
+		assertAreEqual(CargoBuildInputs.getTargetDir(workspaceLoc, pb), workspaceLoc.resolve_fromValid("target"));
+		pb.environment().put(CargoBuildInputs.CARGO_TARGET_DIR_VAR, "../build");
+		assertAreEqual(CargoBuildInputs.getTargetDir(workspaceLoc, pb), appLoc.resolve_fromValid("../build"));
+	}
+	
+	@Test
+	public void testFingerprint() throws Exception { testFingerprint$(); }
+	public void testFingerprint$() throws Exception {
+		if(testsLoc.toFile().exists()) {
+			TestsWorkingDir.deleteDir(testsLoc);
+		}
+		Location lib1Loc = workspaceLoc.resolve_fromValid("lib1");
+		Location lib2Loc = testsLoc.resolve_fromValid("lib2");
+		writeCrate(appLoc, "lib1 = { path = \"../lib1\" }");
+		writeCrate(lib1Loc, "lib2 = { path = \"../../lib2\" }\napp = { path = \"../app\" }");
+		writeCrate(lib2Loc, "");
+		writeFile(workspaceLoc, "Cargo.toml", "[workspace]\nmembers = [\"app\", \"lib1\"]", 1000_000);
+		writeFile(workspaceLoc, "Cargo.lock", "", 1000_000);
+		
+		ProcessBuilder pb = new ProcessBuilder("cargo", "build").directory(appLoc.toFile());
+		pb.environment().remove(CargoBuildInputs.CARGO_TARGET_DIR_VAR);
+		String original = getFingerprint(pb);
+		assertAreEqual(getFingerprint(pb), original);
+		
+		// The shared target directory of the workspace
+		writeFile(workspaceLoc, "target/debug/app", "binary", 2000_000);
+		String modified = getFingerprint(pb);
+		assertTrue(modified.equals(original) == false);
+		writeFile(workspaceLoc, "target/debug/app", "binary2", 3000_000);
+		assertAreEqual(getFingerprint(pb), modified);
+		
+		// Transitive path dependency, outside the workspace
+		writeFile(lib2Loc, "src/lib.rs", "pub fn f() {}", 2000_000);
+		assertTrue(getFingerprint(pb).equals(modified) == false);
+		modified = getFingerprint(pb);
+		
+		// Workspace root files
+		writeFile(workspaceLoc, "Cargo.lock", "# lock", 2000_000);
+		assertTrue(getFingerprint(pb).equals(modified) == false);
+		modified = getFingerprint(pb);
+		writeFile(workspaceLoc, "Cargo.toml", "[workspace]\nmembers = [\"app\"]", 2000_000);
+		assertTrue(getFingerprint(pb).equals(modified) == false);
+		modified = getFingerprint(pb);
+		
+		// Target directory set in the environment
+		pb.environment().put(CargoBuildInputs.CARGO_TARGET_DIR_VAR, "../../build");
+		String otherTargetDir = getFingerprint(pb);
+		writeFile(testsLoc, "build/debug/app", "binary", 4000_000);
+		assertTrue(getFingerprint(pb).equals(otherTargetDir) == false);
+		otherTargetDir = getFingerprint(pb);
+		writeFile(testsLoc, "build/debug/app", "binary2", 5000_000);
+		assertAreEqual(getFingerprint(pb), otherTargetDir);
+	}
+	
+}
@@ -56,7 +56,7 @@ public class CargoManifestParser_Test extends CommonToolingTest {
 					new CrateDependencyRef("dep_empty", ""),
 					new CrateDependencyRef("dep_invalid", null),
 					new CrateDependencyRef("dep_git", null, false),
-					new CrateDependencyRef("dep_foo", "1.2.0", true)
+					new CrateDependencyRef("dep_foo", "1.2.0", true, "my_path")
 				),
 				null,
 				null,
@@ -72,7 +72,7 @@ public class CargoManifestParser_Test extends CommonToolingTest {
 					new CrateDependencyRef("dep_empty", ""),
 					new CrateDependencyRef("dep_invalid", null),
 					new CrateDependencyRef("dep_git", null, false),
-					new CrateDependencyRef("dep_foo", "1.2.0", true)
+					new CrateDependencyRef("dep_foo", "1.2.0", true, "my_path")
 				),
 				null,
 				null,
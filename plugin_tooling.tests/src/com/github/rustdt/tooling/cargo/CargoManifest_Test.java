@@ -11,6 +11,9 @@
 package com.github.rustdt.tooling.cargo;
 
 import static melnorme.lang.tests.LangToolingTestResources.getTestResourceLoc;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.nio.file.Files;
 
 import org.junit.Test;
 
@@ -20,6 +23,7 @@ import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.PathUtil;
+import melnorme.utilbox.tests.TestsWorkingDir;
 
 public class CargoManifest_Test extends CommonToolingTest {
 	
@@ -115,4 +119,40 @@ public class CargoManifest_Test extends CommonToolingTest {
 		);
 	}
 	
+	@Test
+	public void testTargetsIndex() throws Exception { testTargetsIndex$(); }
+	public void testTargetsIndex$() throws Exception {
+		Location crateLoc = workingDirLoc("CargoTargetsIndex_Test");
+		if(crateLoc.toFile().exists()) {
+			TestsWorkingDir.deleteDir(crateLoc);
+		}
+		Files.createDirectories(crateLoc.resolve_fromValid("src/bin").getPath());
+		writeStringToFile(crateLoc.resolve_fromValid("src/main.rs"), "fn main() {}");
+		
+		CargoManifest manifest = new CargoManifestParser().parse("[package]\nname = \"crate_x\"\n");
+		CargoTargetsIndex targetsIndex = new CargoTargetsIndex(manifest, crateLoc);
+		assertAreEqual(targetsIndex.getEffectiveBinaries(), ArrayList2.create(new FileRef("crate_x", null)));
+		assertAreEqual(targetsIndex.getEffectiveLibrary(), null);
+		assertEquals(targetsIndex.getEffectiveTestTargets(), ArrayList2.create("bin.crate_x"));
+		
+		// Results are cached until invalidated
+		writeStringToFile(crateLoc.resolve_fromValid("src/bin/other.rs"), "fn main() {}");
+		assertTrue(targetsIndex.getEffectiveBinaries().size() == 1);
+		targetsIndex.invalidate();
+		assertAreEqual(targetsIndex.getEffectiveBinaries(), ArrayList2.create(
+			new FileRef("crate_x", null), 
+			new FileRef("other", path("src/bin/other.rs").toString())
+		));
+		assertEquals(targetsIndex.getEffectiveTestTargets(), ArrayList2.create("bin.crate_x", "bin.other"));
+		
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("src/lib.rs")));
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("src/bin/other.rs")));
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("tests/test1.rs")));
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("tests")));
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("src/foo.rs")) == false);
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("src/bin/mod/foo.rs")) == false);
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("tests/common/mod.rs")) == false);
+		assertTrue(CargoTargetsIndex.isTargetSourcePath(path("target/debug")) == false);
+	}
+	
 }
\ No newline at end of file
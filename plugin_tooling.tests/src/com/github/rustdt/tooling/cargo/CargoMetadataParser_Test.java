@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.github.rustdt.tooling.cargo.CargoManifest.CrateDependencyRef;
+import com.github.rustdt.tooling.cargo.CargoMetadata.CargoPackage;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.lang.tooling.bundle.FileRef;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+
+public class CargoMetadataParser_Test extends CommonToolingTest {
+	
+	protected final Location workspaceLoc = workingDirLoc("CargoMetadataParser_Test");
+	
+	protected String jsonPath(String workspaceRelativePath) {
+		return workspaceLoc.resolve_fromValid(workspaceRelativePath).toPathString().replace("\\", "\\\\");
+	}
+	
+	protected String packageJson(String id, String name, String manifestPath, String deps, String targets) {
+		return "{ \"name\": \"" + name + "\", \"version\": \"0.1.0\", \"id\": \"" + id + "\", " +
+			"\"license\": null, \"source\": null, \"features\": {}, " +
+			"\"dependencies\": [" + deps + "], " +
+			"\"targets\": [" + targets + "], " +
+			"\"manifest_path\": \"" + jsonPath(manifestPath) + "\" }";
+	}
+	
+	protected String targetJson(String kind, String name, String srcPath) {
+		return "{ \"kind\": [\"" + kind + "\"], \"crate_types\": [\"" + kind + "\"], \"name\": \"" + name + "\", " +
+			"\"src_path\": \"" + jsonPath(srcPath) + "\" }";
+	}
+	
+	@Test
+	public void testParsing() throws Exception { testParsing$(); }
+	public void testParsing$() throws Exception {
+		String appPackage = packageJson("app 0.1.0", "app", "app/Cargo.toml",
+			"{ \"name\": \"lib1\", \"req\": \"*\", \"kind\": null, \"optional\": false, " + 
+				"\"path\": \"" + jsonPath("lib1") + "\" }, " +
+			"{ \"name\": \"rand\", \"req\": \"^0.3\", \"kind\": null, \"optional\": true }, " +
+			"{ \"name\": \"tempdir\", \"req\": \"^0.3\", \"kind\": \"dev\", \"optional\": false }",
+			targetJson("bin", "app", "app/src/main.rs") + ", " +
+			targetJson("bin", "tool", "app/src/bin/tool.rs") + ", " + 
+			targetJson("test", "integration", "app/tests/integration.rs")
+		);
+		String libPackage = packageJson("lib1 0.2.0", "lib1", "lib1/Cargo.toml", "",
+			targetJson("rlib", "lib1", "lib1/src/lib.rs"));
+		String nonMemberPackage = packageJson("rand 0.3.14", "rand", "registry/rand/Cargo.toml", "",
+			targetJson("lib", "rand", "registry/rand/src/lib.rs"));
+		
+		String json = "{ " +
+			"\"packages\": [" + appPackage + ", " + libPackage + ", " + nonMemberPackage + "], " +
+			"\"workspace_members\": [\"app 0.1.0\", \"lib1 0.2.0\"], " +
+			"\"resolve\": { \"root\": null, \"nodes\": [ { \"id\": \"app 0.1.0\", \"dependencies\": [] } ] }, " +
+			"\"target_directory\": \"" + jsonPath("target") + "\", " +
+			"\"version\": 1, " +
+			"\"workspace_root\": \"" + jsonPath("") + "\" }";
+		
+		CargoMetadata metadata = new CargoMetadataParser().parse(new StringReader(json));
+		
+		assertAreEqual(metadata.getWorkspaceRoot(), workspaceLoc);
+		assertAreEqual(metadata.getTargetDirectory(), workspaceLoc.resolve_fromValid("target"));
+		assertTrue(metadata.getWorkspaceMembers().size() == 2);
+		
+		CargoPackage app = metadata.findMember(workspaceLoc.resolve_fromValid("app"));
+		assertAreEqual(app.getId(), "app 0.1.0");
+		assertAreEqual(app.getManifestLocation(), workspaceLoc.resolve_fromValid("app/Cargo.toml"));
+		assertEquals(app.getManifest(), new CargoManifest("app", "0.1.0", 
+			ArrayList2.create(
+				new CrateDependencyRef("lib1", "*", false, "../lib1"),
+				new CrateDependencyRef("rand", "^0.3", true)
+			),
+			null, 
+			ArrayList2.create(
+				new FileRef("app", "src/main.rs"),
+				new FileRef("tool", "src/bin/tool.rs")
+			),
+			ArrayList2.create(
+				new FileRef("integration", "tests/integration.rs")
+			)
+		));
+		
+		CargoPackage lib1 = metadata.findMember(workspaceLoc.resolve_fromValid("lib1"));
+		assertEquals(lib1.getManifest(), new CargoManifest("lib1", "0.1.0", null, 
+			new FileRef("lib1", "src/lib.rs"), null, null));
+		CrateDependencyRef lib1Dep = app.getManifest().getDependencies().findElement(
+			(dep) -> dep.getBundleName().equals("lib1"));
+		assertEquals(lib1Dep.getEffectiveLocation(app.getCrateLocation()), lib1.getCrateLocation());
+		
+		assertTrue(metadata.findMember(workspaceLoc.resolve_fromValid("registry/rand")) == null);
+		assertEquals(metadata.getManifestLocations(), ArrayList2.create(
+			workspaceLoc.resolve_fromValid("Cargo.toml"),
+			workspaceLoc.resolve_fromValid("app/Cargo.toml"),
+			workspaceLoc.resolve_fromValid("lib1/Cargo.toml")
+		));
+		
+		verifyThrows(() -> new CargoMetadataParser().parse(new StringReader("{ \"packages\": [] }")),
+			CommonException.class, "no workspace_root");
+		verifyThrows(() -> new CargoMetadataParser().parse(new StringReader("{ \"packages\": { } }")),
+			CommonException.class, "Error parsing");
+	}
+	
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import melnorme.lang.tests.CommonToolingTest;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+
+public class RacerSession_Test extends CommonToolingTest {
+	
+	/** 
+	 * A stand-in for <code>racer daemon</code>: echoes each request command, and the substitute contents. 
+	 * Commands "sleep" and "exit" simulate a slow request, and daemon termination.
+	 */
+	public static class FakeRacerDaemon {
+		
+		public static void main(String[] args) throws Exception {
+			if(args.length > 0 && args[0].equals("--fail")) {
+				System.exit(1);
+			}
+			while(true) {
+				String line = readUntil(System.in, '\n');
+				if(line == null || line.equals("exit")) {
+					return;
+				}
+				String[] command = line.split(" ");
+				String source = command[command.length - 1].equals("-") ? 
+						readUntil(System.in, RacerSession.BUFFER_TERMINATOR) : null;
+				if(command[0].equals("sleep")) {
+					Thread.sleep(Integer.parseInt(command[1]));
+				}
+				
+				System.out.println("MATCH " + command[0] + "," + (source == null ? "<disk>" : source.length()));
+				System.out.println(RacerSession.END_MARKER);
+				System.out.flush();
+			}
+		}
+		
+		protected static String readUntil(InputStream is, char terminator) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			int ch;
+			while((ch = is.read()) != terminator) {
+				if(ch == -1) {
+					return null;
+				}
+				bytes.write(ch);
+			}
+			return new String(bytes.toByteArray(), StringUtil.UTF8);
+		}
+		
+	}
+	
+	protected static ProcessBuilder createFakeDaemonProcessBuilder(String... extraArgs) {
+		String javaPath = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ArrayList2<String> cmdLine = ArrayList2.create(javaPath, "-cp", System.getProperty("java.class.path"), 
+			FakeRacerDaemon.class.getName());
+		cmdLine.addElements(extraArgs);
+		return new ProcessBuilder(cmdLine);
+	}
+	
+	@Test
+	public void testRequests() throws Exception { testRequests$(); }
+	public void testRequests$() throws Exception {
+		RacerSession session = new RacerSession(createFakeDaemonProcessBuilder());
+		try {
+			CancelMonitor cm = new CancelMonitor();
+			assertAreEqual(session.request(ArrayList2.create("complete", "1", "2", "foo.rs"), "fn main() {\n}", cm),
+				"MATCH complete,13\n");
+			assertAreEqual(session.request(ArrayList2.create("find-definition", "foo.rs"), null, cm),
+				"MATCH find-definition,<disk>\n");
+			assertTrue(session.getCompletedRequests() == 2);
+			
+			// Responses of cancelled requests are discarded
+			CancelMonitor cancelledCm = new CancelMonitor();
+			cancelledCm.cancel();
+			verifyThrows(() -> session.request(ArrayList2.create("sleep", "100"), null, cancelledCm), 
+				OperationCancellation.class);
+			assertAreEqual(session.request(ArrayList2.create("complete", "foo.rs"), "", cm), "MATCH complete,0\n");
+			assertTrue(session.isAlive());
+			
+			// A request waiting for another one can be cancelled
+			CountDownLatch locked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			Thread otherRequest = new Thread(() -> {
+				session.requestLock.lock();
+				try {
+					locked.countDown();
+					release.await();
+				} catch(InterruptedException e) {
+					// Continue
+				} finally {
+					session.requestLock.unlock();
+				}
+			});
+			otherRequest.start();
+			locked.await();
+			verifyThrows(() -> session.request(ArrayList2.create("complete", "foo.rs"), "", cancelledCm), 
+				OperationCancellation.class);
+			release.countDown();
+			otherRequest.join();
+			assertAreEqual(session.request(ArrayList2.create("complete", "foo.rs"), "", cm), "MATCH complete,0\n");
+			
+			// Termination
+			verifyThrows(() -> session.request(ArrayList2.create("exit"), null, cm), CommonException.class);
+			assertTrue(session.isAlive() == false);
+			verifyThrows(() -> session.request(ArrayList2.create("complete"), null, cm), CommonException.class);
+		} finally {
+			session.dispose();
+		}
+	}
+	
+	@Test
+	public void testTimeout() throws Exception { testTimeout$(); }
+	public void testTimeout$() throws Exception {
+		RacerSession session = new RacerSession(createFakeDaemonProcessBuilder());
+		try {
+			session.setRequestTimeout(100);
+			verifyThrows(() -> session.request(ArrayList2.create("sleep", "5000"), null, new CancelMonitor()), 
+				CommonException.class);
+			assertTrue(session.isAlive() == false);
+		} finally {
+			session.dispose();
+		}
+	}
+	
+	@Test
+	public void testCanSendArguments() throws Exception { testCanSendArguments$(); }
+	public void testCanSendArguments$() throws Exception {
+		assertTrue(RacerSession.canSendArguments(ArrayList2.create("complete", "1", "2", "/foo/bar.rs")));
+		assertTrue(RacerSession.canSendArguments(ArrayList2.create("complete", "1", "2", "/foo bar/bar.rs")) == false);
+		assertTrue(RacerSession.canSendArguments(ArrayList2.create("complete", "")) == false);
+	}
+	
+	@Test
+	public void testSessionManager() throws Exception { testSessionManager$(); }
+	public void testSessionManager$() throws Exception {
+		Location srcPath = Location.create_fromValid(Paths.get("/rust/src").toAbsolutePath());
+		Path racerPath = Paths.get("racer");
+		
+		RacerSessionManager manager = new RacerSessionManager() {
+			@Override
+			protected RacerSession createSession(Path racerPath, Location rustSrcPath) throws CommonException {
+				if(racerPath.toString().equals("failing_racer")) {
+					return new RacerSession(createFakeDaemonProcessBuilder("--fail"));
+				}
+				return new RacerSession(createFakeDaemonProcessBuilder());
+			}
+		};
+		try {
+			RacerSession session = manager.getSession("project", racerPath, srcPath);
+			assertTrue(manager.getSession("project", racerPath, srcPath) == session);
+			assertTrue(manager.getSession("other", racerPath, srcPath) != session);
+			
+			// Restart on configuration change
+			Location otherSrcPath = Location.create_fromValid(Paths.get("/rust/src2").toAbsolutePath());
+			RacerSession newSession = manager.getSession("project", racerPath, otherSrcPath);
+			assertTrue(newSession != session && session.isAlive() == false);
+			
+			// Restart on termination
+			newSession.request(ArrayList2.create("complete"), null, new CancelMonitor());
+			verifyThrows(() -> newSession.request(ArrayList2.create("exit"), null, new CancelMonitor()), 
+				CommonException.class);
+			RacerSession restartedSession = manager.getSession("project", racerPath, otherSrcPath);
+			assertTrue(restartedSession != newSession && restartedSession.isAlive());
+			
+			// Sessions that keep failing on startup are given up
+			Path failingRacer = Paths.get("failing_racer");
+			for(int i = 0; i < RacerSessionManager.MAX_STARTUP_FAILURES; i++) {
+				RacerSession failingSession = manager.getSession("failing", failingRacer, srcPath);
+				assertTrue(failingSession != null);
+				failingSession.process.waitFor();
+			}
+			assertTrue(manager.getSession("failing", failingRacer, srcPath) == null);
+		} finally {
+			manager.dispose();
+		}
+	}
+	
+}
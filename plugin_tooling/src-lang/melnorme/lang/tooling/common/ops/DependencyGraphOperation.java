@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.common.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.concurrency.ICancelMonitor.CancelMonitor;
+import melnorme.utilbox.concurrency.NamingThreadFactory;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+
+/**
+ * An operation that runs a graph of sub-operations, each one only after the ones it depends on have completed.
+ * Independent operations run concurrently, up to a maximum parallelism.
+ *
+ * If a sub-operation fails (or is cancelled), no further sub-operations are started, the running ones are
+ * cancelled through their monitor, and once they terminate the first failure is rethrown.
+ *
+ * Dependencies on keys not in the graph are ignored. If the dependencies have a cycle,
+ * the cycle is broken by running the earliest added operation of the ones left.
+ */
+public class DependencyGraphOperation<KEY> implements Operation {
+	
+	protected static final long CANCEL_POLL_MILLIS = 100;
+	
+	protected final String name;
+	protected final int maxParallel;
+	protected final LinkedHashMap<KEY, GraphNode> nodes = new LinkedHashMap<>();
+	
+	public DependencyGraphOperation(String name, int maxParallel) {
+		this.name = assertNotNull(name);
+		assertTrue(maxParallel >= 1);
+		this.maxParallel = maxParallel;
+	}
+	
+	public int getMaxParallel() {
+		return maxParallel;
+	}
+	
+	public void addOperation(KEY key, Operation operation, Iterable<KEY> dependencies) {
+		assertTrue(nodes.containsKey(key) == false);
+		nodes.put(key, new GraphNode(key, operation, dependencies));
+	}
+	
+	protected class GraphNode {
+		
+		protected final KEY key;
+		protected final Operation operation;
+		protected final ArrayList2<KEY> dependencies;
+		protected final ArrayList2<GraphNode> dependents = new ArrayList2<>();
+		
+		protected int pendingDependencies = 0;
+		protected boolean started = false;
+		protected volatile Throwable failure = null;
+		
+		public GraphNode(KEY key, Operation operation, Iterable<KEY> dependencies) {
+			this.key = assertNotNull(key);
+			this.operation = assertNotNull(operation);
+			this.dependencies = new ArrayList2<>(dependencies);
+		}
+		
+	}
+	
+	@Override
+	public void execute(IOperationMonitor om) throws CommonException, OperationCancellation {
+		ArrayDeque<GraphNode> readyNodes = new ArrayDeque<>();
+		initGraph(readyNodes);
+		
+		CancelMonitor graphCancelMonitor = new CancelMonitor();
+		IOperationMonitor subMonitor = new BiDelegatingOperationMonitor(om, graphCancelMonitor);
+		LinkedBlockingQueue<GraphNode> completedNodes = new LinkedBlockingQueue<>();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(maxParallel, new NamingThreadFactory(name));
+		try {
+			int notStartedCount = nodes.size();
+			int runningCount = 0;
+			Throwable firstFailure = null;
+			
+			while(true) {
+				if(firstFailure == null && !om.isCancelled()) {
+					if(readyNodes.isEmpty() && runningCount == 0 && notStartedCount > 0) {
+						// A dependency cycle, break it.
+						readyNodes.add(findFirstNotStarted());
+					}
+					while(!readyNodes.isEmpty() && runningCount < maxParallel) {
+						GraphNode node = readyNodes.remove();
+						node.started = true;
+						notStartedCount--;
+						runningCount++;
+						executor.execute(() -> runNode(node, subMonitor, completedNodes));
+					}
+				}
+				if(runningCount == 0) {
+					break;
+				}
+				
+				GraphNode completedNode = completedNodes.poll(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(om.isCancelled()) {
+					graphCancelMonitor.cancel();
+				}
+				if(completedNode == null) {
+					continue;
+				}
+				runningCount--;
+				
+				if(completedNode.failure != null) {
+					if(firstFailure == null) {
+						firstFailure = completedNode.failure;
+					}
+					graphCancelMonitor.cancel();
+					continue;
+				}
+				for(GraphNode dependent : completedNode.dependents) {
+					dependent.pendingDependencies--;
+					if(dependent.pendingDependencies == 0 && !dependent.started) {
+						readyNodes.add(dependent);
+					}
+				}
+			}
+			
+			if(firstFailure != null) {
+				throwFailure(firstFailure);
+			}
+			if(om.isCancelled()) {
+				throw new OperationCancellation();
+			}
+		} catch(InterruptedException e) {
+			graphCancelMonitor.cancel();
+			throw new OperationCancellation();
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	protected void initGraph(ArrayDeque<GraphNode> readyNodes) {
+		for(GraphNode node : nodes.values()) {
+			node.dependents.clear();
+			node.pendingDependencies = 0;
+			node.started = false;
+			node.failure = null;
+		}
+		for(GraphNode node : nodes.values()) {
+			for(KEY dependencyKey : node.dependencies) {
+				GraphNode dependency = nodes.get(dependencyKey);
+				if(dependency == null || dependency == node || dependency.dependents.contains(node)) {
+					continue;
+				}
+				dependency.dependents.add(node);
+				node.pendingDependencies++;
+			}
+		}
+		for(GraphNode node : nodes.values()) {
+			if(node.pendingDependencies == 0) {
+				readyNodes.add(node);
+			}
+		}
+	}
+	
+	protected GraphNode findFirstNotStarted() {
+		for(GraphNode node : nodes.values()) {
+			if(!node.started) {
+				return node;
+			}
+		}
+		throw new IllegalStateException();
+	}
+	
+	protected void runNode(GraphNode node, IOperationMonitor subMonitor,
+			LinkedBlockingQueue<GraphNode> completedNodes) {
+		try {
+			node.operation.execute(subMonitor);
+		} catch(Throwable e) {
+			node.failure = e;
+		} finally {
+			completedNodes.add(node);
+		}
+	}
+	
+	protected static void throwFailure(Throwable failure) throws CommonException, OperationCancellation {
+		if(failure instanceof CommonException) {
+			throw (CommonException) failure;
+		}
+		if(failure instanceof OperationCancellation) {
+			throw (OperationCancellation) failure;
+		}
+		if(failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw (RuntimeException) failure;
+	}
+	
+}
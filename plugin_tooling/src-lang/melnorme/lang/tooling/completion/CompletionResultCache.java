@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.completion;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import melnorme.lang.tooling.ToolCompletionProposal;
+import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Caches the last completion result, so that as the user keeps typing the identifier being completed,
+ * proposals are narrowed locally, instead of querying the completion tool again.
+ * 
+ * A cached result applies to a new request if it's for the same file and completion start offset, 
+ * the typed prefix extends the prefix of the original request, and the rest of the document 
+ * is unchanged (the document version is effectively the source content outside of the identifier).
+ */
+public class CompletionResultCache {
+	
+	/** Max age of a cached result, as other files (or the toolchain) might have changed in the meanwhile. */
+	public static final int DEFAULT_MAX_AGE_MS = 30_000;
+	
+	protected final int maxAgeMs;
+	protected CachedResult lastResult;
+	
+	protected final AtomicLong hitCount = new AtomicLong();
+	protected final AtomicLong missCount = new AtomicLong();
+	
+	public CompletionResultCache() {
+		this(DEFAULT_MAX_AGE_MS);
+	}
+	
+	public CompletionResultCache(int maxAgeMs) {
+		this.maxAgeMs = maxAgeMs;
+	}
+	
+	protected static class CachedResult {
+		
+		protected final Location file;
+		protected final String source;
+		protected final int completionStart;
+		protected final int offset;
+		protected final Indexable<ToolCompletionProposal> proposals;
+		protected final long timestamp = System.currentTimeMillis();
+		
+		public CachedResult(Location file, String source, int completionStart, int offset,
+				Indexable<ToolCompletionProposal> proposals) {
+			this.file = assertNotNull(file);
+			this.source = assertNotNull(source);
+			this.completionStart = completionStart;
+			this.offset = offset;
+			this.proposals = assertNotNull(proposals);
+		}
+		
+	}
+	
+	/**
+	 * @return the proposals of the cached result narrowed to the prefix typed in given context, 
+	 * or null if there is no applicable cached result.
+	 */
+	public synchronized Indexable<ToolCompletionProposal> getProposals(SourceOpContext context) {
+		Indexable<ToolCompletionProposal> proposals = getNarrowedProposals(context);
+		(proposals == null ? missCount : hitCount).incrementAndGet();
+		return proposals;
+	}
+	
+	protected Indexable<ToolCompletionProposal> getNarrowedProposals(SourceOpContext context) {
+		CachedResult cached = lastResult;
+		if(cached == null || !isCacheable(context) || 
+				!cached.file.equals(context.getOptionalFileLocation().get()) ||
+				System.currentTimeMillis() - cached.timestamp > maxAgeMs) {
+			return null;
+		}
+		
+		String source = context.getSource();
+		int offset = context.getOffset();
+		int start = cached.completionStart;
+		if(offset < cached.offset || getIdentifierStart(source, offset) != start) {
+			return null; // The edit left the original identifier, or shortened the original prefix
+		}
+		
+		// Check the source outside the identifier is unchanged, and the original prefix is still there
+		int suffixLength = cached.source.length() - cached.offset;
+		if(source.length() - offset != suffixLength ||
+				!source.regionMatches(0, cached.source, 0, cached.offset) ||
+				!source.regionMatches(offset, cached.source, cached.offset, suffixLength)) {
+			return null;
+		}
+		
+		String prefix = source.substring(start, offset);
+		ArrayList2<ToolCompletionProposal> narrowedProposals = new ArrayList2<>();
+		for(ToolCompletionProposal proposal : cached.proposals) {
+			if(proposal.getBaseReplaceString().startsWith(prefix)) {
+				narrowedProposals.add(proposal.withReplaceLength(prefix.length()));
+			}
+		}
+		return narrowedProposals;
+	}
+	
+	/** Cache given proposals, computed for given context. */
+	public synchronized void putProposals(SourceOpContext context, Indexable<ToolCompletionProposal> proposals) {
+		lastResult = null;
+		if(!isCacheable(context)) {
+			return;
+		}
+		
+		String source = context.getSource();
+		int offset = context.getOffset();
+		int start = getIdentifierStart(source, offset);
+		for(ToolCompletionProposal proposal : proposals) {
+			if(proposal.getReplaceOffset() != start || proposal.getReplaceOffset() + proposal.getReplaceLength() 
+					!= offset) {
+				return; // Proposals don't replace the identifier being typed, so they can't be narrowed by prefix
+			}
+		}
+		lastResult = new CachedResult(context.getOptionalFileLocation().get(), source, start, offset, proposals);
+	}
+	
+	protected boolean isCacheable(SourceOpContext context) {
+		return context.getOptionalFileLocation().isPresent() && context.getSelection().getLength() == 0;
+	}
+	
+	protected int getIdentifierStart(String source, int offset) {
+		int start = offset;
+		while(start > 0 && isIdentifierPart(source.charAt(start - 1))) {
+			start--;
+		}
+		return start;
+	}
+	
+	protected boolean isIdentifierPart(char ch) {
+		return Character.isLetterOrDigit(ch) || ch == '_';
+	}
+	
+	public synchronized void clear() {
+		lastResult = null;
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	/** @return the ratio of requests served from the cache, or 0 if there were no requests. */
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("CompletionResultCache[hits: %d, misses: %d, hit rate: %.1f%%]", 
+			getHitCount(), getMissCount(), getHitRate() * 100);
+	}
+	
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.Arrays;
+
+/**
+ * A sorted index of the offsets of block tokens (single char block delimiters, such as braces)
+ * in the code of a source - that is, outside of comments and strings.
+ *
+ * The index is patched on source changes: tokens in the changed range are dropped and the following ones shifted,
+ * and the inserted text is marked as dirty. Other ranges can be marked as dirty with {@link #invalidate(int, int)},
+ * for example when the comment/string partitioning of a range changed.
+ * The dirty range is re-scanned only on the next {@link #validate(IBlockTokenScanner)},
+ * so that the whole source is only scanned once.
+ */
+public class BlockTokenOffsetsIndex {
+	
+	public interface IBlockTokenScanner {
+		/** Report to given collector, in increasing offset order, the block tokens in the range [start, end). */
+		void scanTokens(int start, int end, IBlockTokenCollector collector);
+	}
+	
+	public interface IBlockTokenCollector {
+		void addToken(int offset, char token);
+	}
+	
+	protected final String tokenChars;
+	
+	protected int[] offsets = new int[16];
+	protected char[] tokens = new char[16];
+	protected int size = 0;
+	protected int sourceLength;
+	
+	/** The dirty range, empty if dirtyStart >= dirtyEnd. */
+	protected int dirtyStart;
+	protected int dirtyEnd;
+	
+	/** Create an index for given token chars, for a source of given length. The whole source starts dirty. */
+	public BlockTokenOffsetsIndex(String tokenChars, int sourceLength) {
+		this.tokenChars = assertNotNull(tokenChars);
+		assertTrue(sourceLength >= 0);
+		this.sourceLength = sourceLength;
+		this.dirtyStart = 0;
+		this.dirtyEnd = sourceLength;
+	}
+	
+	public String getTokenChars() {
+		return tokenChars;
+	}
+	
+	public boolean isIndexedToken(char ch) {
+		return tokenChars.indexOf(ch) != -1;
+	}
+	
+	public int getSourceLength() {
+		return sourceLength;
+	}
+	
+	public boolean isDirty() {
+		return dirtyStart < dirtyEnd;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** Update the index for a change that replaced removedLength chars at offset with insertedLength chars. */
+	public void applyChange(int offset, int removedLength, int insertedLength) {
+		assertTrue(offset >= 0 && removedLength >= 0 && insertedLength >= 0);
+		assertTrue(offset + removedLength <= sourceLength);
+		
+		int removedEnd = offset + removedLength;
+		int delta = insertedLength - removedLength;
+		
+		int low = lowerBound(offset);
+		int high = lowerBound(removedEnd);
+		System.arraycopy(offsets, high, offsets, low, size - high);
+		System.arraycopy(tokens, high, tokens, low, size - high);
+		size -= high - low;
+		if(delta != 0) {
+			for(int ix = low; ix < size; ix++) {
+				offsets[ix] += delta;
+			}
+		}
+		sourceLength += delta;
+		
+		if(isDirty()) {
+			dirtyStart = mapOffset(dirtyStart, offset, removedEnd, offset, delta);
+			dirtyEnd = mapOffset(dirtyEnd, offset, removedEnd, offset + insertedLength, delta);
+		}
+		invalidate(offset, offset + insertedLength);
+	}
+	
+	protected static int mapOffset(int pos, int offset, int removedEnd, int posInsideChange, int delta) {
+		if(pos <= offset) {
+			return pos;
+		} else if(pos >= removedEnd) {
+			return pos + delta;
+		} else {
+			return posInsideChange;
+		}
+	}
+	
+	/** Mark given range as dirty, so that it is re-scanned on the next {@link #validate(IBlockTokenScanner)}. */
+	public void invalidate(int start, int end) {
+		start = Math.max(0, start);
+		end = Math.min(sourceLength, end);
+		if(start >= end) {
+			return;
+		}
+		if(isDirty()) {
+			dirtyStart = Math.min(dirtyStart, start);
+			dirtyEnd = Math.max(dirtyEnd, end);
+		} else {
+			dirtyStart = start;
+			dirtyEnd = end;
+		}
+	}
+	
+	/** Re-scan the dirty range (if any) with given scanner. */
+	public void validate(IBlockTokenScanner scanner) {
+		if(!isDirty()) {
+			return;
+		}
+		int start = dirtyStart;
+		int end = dirtyEnd;
+		
+		int low = lowerBound(start);
+		int high = lowerBound(end);
+		
+		// Move the tokens after the dirty range to the end of the arrays, and collect the new ones into the gap.
+		int tailLength = size - high;
+		int[] tailOffsets = Arrays.copyOfRange(offsets, high, size);
+		char[] tailTokens = Arrays.copyOfRange(tokens, high, size);
+		size = low;
+		
+		scanner.scanTokens(start, end, (tokenOffset, token) -> {
+			assertTrue(tokenOffset >= start && tokenOffset < end);
+			assertTrue(size == 0 || offsets[size - 1] < tokenOffset);
+			if(isIndexedToken(token)) {
+				add(tokenOffset, token);
+			}
+		});
+		
+		ensureCapacity(size + tailLength);
+		System.arraycopy(tailOffsets, 0, offsets, size, tailLength);
+		System.arraycopy(tailTokens, 0, tokens, size, tailLength);
+		size += tailLength;
+		
+		dirtyStart = dirtyEnd = 0;
+	}
+	
+	protected void add(int offset, char token) {
+		ensureCapacity(size + 1);
+		offsets[size] = offset;
+		tokens[size] = token;
+		size++;
+	}
+	
+	protected void ensureCapacity(int capacity) {
+		if(capacity > offsets.length) {
+			int newCapacity = Math.max(capacity, offsets.length * 2);
+			offsets = Arrays.copyOf(offsets, newCapacity);
+			tokens = Arrays.copyOf(tokens, newCapacity);
+		}
+	}
+	
+	/* ----------------- queries (index must not be dirty) ----------------- */
+	
+	public int getTokenCount() {
+		assertTrue(!isDirty());
+		return size;
+	}
+	
+	public int getTokenOffset(int index) {
+		assertTrue(index >= 0 && index < size);
+		return offsets[index];
+	}
+	
+	public char getToken(int index) {
+		assertTrue(index >= 0 && index < size);
+		return tokens[index];
+	}
+	
+	/** @return the index of the last token before given offset, or -1 if none. */
+	public int findTokenBefore(int offset) {
+		assertTrue(!isDirty());
+		return lowerBound(offset) - 1;
+	}
+	
+	/** @return the index of the first token at or after given offset, or {@link #getTokenCount()} if none. */
+	public int findTokenAtOrAfter(int offset) {
+		assertTrue(!isDirty());
+		return lowerBound(offset);
+	}
+	
+	/** @return the index of the first token with offset greater or equal to given offset. */
+	protected int lowerBound(int offset) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(offsets[mid] < offset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+}
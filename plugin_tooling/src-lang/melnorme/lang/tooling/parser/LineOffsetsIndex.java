@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A compact, immutable index of the line start offsets of a source text.
+ * 
+ * Line terminators are LF, CRLF or CR. As in Eclipse documents, a source ending with a line terminator
+ * has an additional (empty) last line.
+ */
+public class LineOffsetsIndex {
+	
+	protected final int[] lineStarts;
+	protected final int sourceLength;
+	
+	public LineOffsetsIndex(int[] lineStarts, int sourceLength) {
+		this.lineStarts = assertNotNull(lineStarts);
+		this.sourceLength = sourceLength;
+		assertTrue(lineStarts.length > 0 && lineStarts[0] == 0);
+	}
+	
+	public static LineOffsetsIndex create(CharSequence source) {
+		LineOffsetsIndexBuilder builder = new LineOffsetsIndexBuilder();
+		builder.append(source);
+		return builder.build();
+	}
+	
+	public static LineOffsetsIndex create(Reader reader) throws IOException {
+		LineOffsetsIndexBuilder builder = new LineOffsetsIndexBuilder();
+		char[] buffer = new char[8192];
+		int readCount;
+		while((readCount = reader.read(buffer)) != -1) {
+			builder.append(buffer, 0, readCount);
+		}
+		return builder.build();
+	}
+	
+	public int getSourceLength() {
+		return sourceLength;
+	}
+	
+	public int getNumberOfLines() {
+		return lineStarts.length;
+	}
+	
+	public int getLineOffset(int lineIndex) {
+		assertTrue(lineIndex >= 0 && lineIndex < lineStarts.length);
+		return lineStarts[lineIndex];
+	}
+	
+	/** @return the index of the line containing given offset, which must be within source bounds. */
+	public int getLineOfOffset(int offset) {
+		assertTrue(offset >= 0 && offset <= sourceLength);
+		int searchResult = Arrays.binarySearch(lineStarts, offset);
+		return searchResult >= 0 ? searchResult : -(searchResult + 1) - 1;
+	}
+	
+	/** 
+	 * @return the offset for given line and column (0-based), 
+	 * or -1 if the line is not valid, or the offset is beyond the source length. 
+	 */
+	public int getOffsetOrNegative(int lineIndex, int columnIndex) {
+		if(lineIndex < 0 || lineIndex >= lineStarts.length || columnIndex < 0) {
+			return -1;
+		}
+		int offset = lineStarts[lineIndex] + columnIndex;
+		return offset > sourceLength ? -1 : offset;
+	}
+	
+	/**
+	 * Create the index for the source resulting from replacing the range (offset, removedLength) 
+	 * of the indexed source with a text of length insertedLength.
+	 * 
+	 * Only the lines touched by the change are rescanned (in newSource), the line starts before the change
+	 * are copied and the ones after it are shifted. 
+	 */
+	public LineOffsetsIndex applyChange(CharSequence newSource, int offset, int removedLength, int insertedLength) {
+		assertTrue(offset >= 0 && removedLength >= 0 && insertedLength >= 0);
+		assertTrue(offset + removedLength <= sourceLength);
+		int newLength = sourceLength - removedLength + insertedLength;
+		assertTrue(newSource.length() == newLength);
+		
+		int delta = insertedLength - removedLength;
+		int newChangeEnd = offset + insertedLength;
+		
+		// A line start depends on the two chars around it (for CR+LF), so start rescanning from the line 
+		// containing the char before the change. Line starts after the char following the change are unaffected.
+		int firstLine = getLineOfOffset(offset == 0 ? 0 : offset - 1);
+		int tailLine = getFirstLineStartingAtOrAfter(offset + removedLength + 1);
+		
+		LineOffsetsIndexBuilder builder = new LineOffsetsIndexBuilder(firstLine + 1 + lineStarts.length - tailLine);
+		System.arraycopy(lineStarts, 1, builder.lineStarts, 1, firstLine);
+		builder.lineCount = firstLine + 1;
+		
+		for(int ix = lineStarts[firstLine]; ix < newChangeEnd; ix++) {
+			char ch = newSource.charAt(ix);
+			if(ch == '\n') {
+				builder.addLineStart(ix + 1);
+			} else if(ch == '\r') {
+				if(ix + 1 == newLength || newSource.charAt(ix + 1) != '\n') {
+					builder.addLineStart(ix + 1);
+				}
+			}
+		}
+		
+		for(int line = tailLine; line < lineStarts.length; line++) {
+			builder.addLineStart(lineStarts[line] + delta);
+		}
+		return new LineOffsetsIndex(Arrays.copyOf(builder.lineStarts, builder.lineCount), newLength);
+	}
+	
+	protected int getFirstLineStartingAtOrAfter(int offset) {
+		int searchResult = Arrays.binarySearch(lineStarts, offset);
+		return searchResult >= 0 ? searchResult : -(searchResult + 1);
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static class LineOffsetsIndexBuilder {
+		
+		protected int[] lineStarts;
+		protected int lineCount = 1; // First line always starts at 0
+		protected int offset = 0;
+		protected boolean afterCR = false;
+		
+		public LineOffsetsIndexBuilder() {
+			this(64);
+		}
+		
+		public LineOffsetsIndexBuilder(int initialCapacity) {
+			this.lineStarts = new int[Math.max(initialCapacity, 1)];
+		}
+		
+		public void append(CharSequence chars) {
+			int length = chars.length();
+			for(int ix = 0; ix < length; ix++) {
+				appendChar(chars.charAt(ix));
+			}
+		}
+		
+		public void append(char[] chars, int start, int end) {
+			for(int ix = start; ix < end; ix++) {
+				appendChar(chars[ix]);
+			}
+		}
+		
+		protected final void appendChar(char ch) {
+			if(afterCR) {
+				afterCR = false;
+				if(ch == '\n') {
+					addLineStart(++offset); // CRLF
+					return;
+				}
+				addLineStart(offset); // CR only
+			}
+			offset++;
+			
+			if(ch == '\n') {
+				addLineStart(offset);
+			} else if(ch == '\r') {
+				afterCR = true;
+			}
+		}
+		
+		protected final void addLineStart(int lineStart) {
+			if(lineCount == lineStarts.length) {
+				lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+			}
+			lineStarts[lineCount++] = lineStart;
+		}
+		
+		public LineOffsetsIndex build() {
+			if(afterCR) {
+				afterCR = false;
+				addLineStart(offset);
+			}
+			return new LineOffsetsIndex(Arrays.copyOf(lineStarts, lineCount), offset);
+		}
+		
+	}
+	
+}
@@ -10,78 +10,67 @@
  *******************************************************************************/
 package melnorme.lang.tooling.parser;
 
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 
-import java.util.Collections;
-
 import melnorme.lang.utils.parse.LexingUtils;
 import melnorme.lang.utils.parse.StringCharSource;
-import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 
+/**
+ * Line information for a source. Immutable. 
+ * See {@link LineOffsetsIndex} for the line terminators convention.
+ */
 public class SourceLinesInfo {
 	
 	protected final String source;
-	protected final ArrayList2<Integer> lines; // entries contain lineStart
+	protected final LineOffsetsIndex lines;
 	
 	public SourceLinesInfo(String source) {
-		this.source = source;
-		this.lines = calculateLines(new StringCharSource(source));
+		this(source, LineOffsetsIndex.create(source));
 	}
 	
-	protected ArrayList2<Integer> calculateLines(StringCharSource parser) {
-		ArrayList2<Integer> lines = new ArrayList2<>();
-		
-		int lineStartOffset = 0;
-		do {
-			consumeNewLine(parser);
-			
-			lines.add(lineStartOffset);
-			lineStartOffset = parser.getReadPosition();
-		} while(parser.hasCharAhead());
-		
-		return lines;
+	public SourceLinesInfo(String source, LineOffsetsIndex lines) {
+		this.source = assertNotNull(source);
+		this.lines = assertNotNull(lines);
+		assertTrue(lines.getSourceLength() == source.length());
 	}
 	
-	protected void consumeNewLine(StringCharSource parser) {
-		while(true) {
-			String newlineSequence = LexingUtils.determineNewlineSequenceAt(parser, 0);
-			if(newlineSequence != null) {
-				parser.consumeAhead(newlineSequence);
-				return;
-			}
-			
-			parser.consume();
-		}
-		
+	/** 
+	 * @return the lines info for the source resulting from given change to this source,
+	 * updating the line offsets incrementally. 
+	 */
+	public SourceLinesInfo createUpdated(String newSource, int offset, int removedLength, int insertedLength) {
+		return new SourceLinesInfo(newSource, lines.applyChange(newSource, offset, removedLength, insertedLength));
 	}
 	
 	public String getSource() {
 		return source;
 	}
 	
+	public LineOffsetsIndex getLineOffsets() {
+		return lines;
+	}
+	
 	/* -----------------  ----------------- */
 
 	public void validateOffset(int offset) throws CommonException {
-		if(offset > source.length()) {
+		if(offset < 0 || offset > source.length()) {
 			throw CommonException.fromMsgFormat("Invalid offset {0}, it is out of bounds.", offset);
 		}
 	}
 	
 	public int getNumberOfLines() {
-		return lines.size();
+		return lines.getNumberOfLines();
 	}
 	
 	public int getOffsetForLine(int lineIndex) {
-		assertTrue(lineIndex >= 0 && lineIndex < lines.size());
-		return lines.get(lineIndex);
+		return lines.getLineOffset(lineIndex);
 	}
 	
 	public int getLineForOffset(int offset) throws CommonException {
 		validateOffset(offset);
-		
-		int binarySearchResult = Collections.binarySearch(lines, offset);
-		return binarySearchResult >= 0 ? binarySearchResult : -(binarySearchResult + 1) -1;
+		return lines.getLineOfOffset(offset);
 	}
 	
 	public int getLineStartForOffset(int offset) throws CommonException {
@@ -105,9 +94,9 @@ public class SourceLinesInfo {
 		int lineIndex = line_1 - 1;
 		int columnIndex = column_1 - 1;
 		
-		if(lineIndex >= lines.size()) {
+		if(lineIndex >= getNumberOfLines()) {
 			throw CommonException.fromMsgFormat("Invalid line: {0} is over the max bound: {1}.", 
-				line_1, lines.size());
+				line_1, getNumberOfLines());
 		}
 		
 		return getValidateOffset_do(lineIndex, columnIndex);
@@ -121,9 +110,9 @@ public class SourceLinesInfo {
 			throw new CommonException("Invalid column number: " + line_0);
 		}
 		
-		if(line_0 >= lines.size()) {
+		if(line_0 >= getNumberOfLines()) {
 			throw CommonException.fromMsgFormat("Invalid line: {0} is over the max bound: {1}.", 
-				line_0, lines.size());
+				line_0, getNumberOfLines());
 		}
 		
 		return getValidateOffset_do(line_0, column_0);
@@ -132,7 +121,7 @@ public class SourceLinesInfo {
 	protected int getValidateOffset_do(int lineIndex, int columnIndex) throws CommonException {
 		int offset = getOffsetForLine(lineIndex) + columnIndex;
 		
-		if(lineIndex + 1 < lines.size()) {
+		if(lineIndex + 1 < getNumberOfLines()) {
 			if(offset >= getOffsetForLine(lineIndex + 1)) {
 				throw new CommonException("Invalid column, out of bounds.");
 			}
@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.parser;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.arrayC;
+
+import java.nio.CharBuffer;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import melnorme.utilbox.core.CommonException;
+
+/**
+ * A single-pass tokenizer for the same text blocks format as {@link TextBlocksReader}, 
+ * but working directly on a {@link CharSequence} (or char[]) instead of a char source.
+ * 
+ * The token ahead is scanned only once (it is cached until consumed), chars are classified with a lookup table,
+ * and tokens are slices (start/end offsets) of the source: a String is only created when the text value 
+ * of a token is requested with {@link #consumeText()}.
+ * Blocks are tracked with a stack of the expected block closes, so no objects are created per block either.
+ */
+public class TextBlocksTokenizer {
+	
+	public enum TokenKind {
+		TEXT,
+		BLOCK_OPEN,
+		BLOCK_CLOSE,
+		EOS,
+	}
+	
+	protected static final byte CC_TEXT = 0;
+	protected static final byte CC_WHITESPACE = 1;
+	protected static final byte CC_BLOCK_OPEN = 2;
+	protected static final byte CC_BLOCK_CLOSE = 3;
+	protected static final byte CC_QUOTE = 4;
+	
+	protected static final int TABLE_SIZE = 128;
+	
+	/* -----------------  ----------------- */
+	
+	protected final CharSequence source;
+	protected final int sourceLength;
+	protected final char[] blockOpens;
+	protected final char[] blockCloses;
+	protected final byte[] charClasses = new byte[TABLE_SIZE];
+	
+	protected int pos = 0;
+	
+	protected char[] blockStack = new char[16];
+	protected int blockDepth = 0;
+	
+	// The token ahead, valid only if tokenKind != null
+	protected TokenKind tokenKind = null;
+	protected int tokenStart;
+	protected int tokenEnd;
+	protected boolean tokenHasQuotes;
+	protected boolean tokenIsUnterminated;
+	
+	public TextBlocksTokenizer(CharSequence source) {
+		this(source, 
+			arrayC('{', '(', '['), 
+			arrayC('}', ')', ']')
+		);
+	}
+	
+	public TextBlocksTokenizer(char[] source) {
+		this(CharBuffer.wrap(source));
+	}
+	
+	public TextBlocksTokenizer(CharSequence source, char[] blockOpens, char[] blockCloses) {
+		this.source = assertNotNull(source);
+		this.sourceLength = source.length();
+		this.blockOpens = assertNotNull(blockOpens);
+		this.blockCloses = assertNotNull(blockCloses);
+		assertTrue(blockOpens.length == blockCloses.length);
+		
+		for(int ch = 0; ch < TABLE_SIZE; ch++) {
+			charClasses[ch] = Character.isWhitespace(ch) ? CC_WHITESPACE : CC_TEXT;
+		}
+		charClasses['"'] = CC_QUOTE;
+		for(char ch : blockOpens) {
+			assertTrue(ch < TABLE_SIZE);
+			charClasses[ch] = CC_BLOCK_OPEN;
+		}
+		for(char ch : blockCloses) {
+			assertTrue(ch < TABLE_SIZE);
+			charClasses[ch] = CC_BLOCK_CLOSE;
+		}
+	}
+	
+	public CharSequence getSource() {
+		return source;
+	}
+	
+	protected final byte charClass(char ch) {
+		if(ch < TABLE_SIZE) {
+			return charClasses[ch];
+		}
+		return Character.isWhitespace(ch) ? CC_WHITESPACE : CC_TEXT;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** @return the kind of the token ahead. A BLOCK_CLOSE is returned as such, see {@link #aheadIsEnd()}. */
+	public TokenKind tokenAhead() {
+		if(tokenKind == null) {
+			scanToken();
+		}
+		return tokenKind;
+	}
+	
+	protected void scanToken() {
+		int ix = pos;
+		while(ix < sourceLength && charClass(source.charAt(ix)) == CC_WHITESPACE) {
+			ix++;
+		}
+		tokenStart = ix;
+		tokenHasQuotes = false;
+		tokenIsUnterminated = false;
+		
+		if(ix == sourceLength) {
+			tokenEnd = ix;
+			tokenKind = TokenKind.EOS;
+			return;
+		}
+		
+		switch(charClass(source.charAt(ix))) {
+		case CC_BLOCK_OPEN:
+			tokenEnd = ix + 1;
+			tokenKind = TokenKind.BLOCK_OPEN;
+			return;
+		case CC_BLOCK_CLOSE:
+			tokenEnd = ix + 1;
+			tokenKind = TokenKind.BLOCK_CLOSE;
+			return;
+		}
+		
+		tokenKind = TokenKind.TEXT;
+		while(ix < sourceLength) {
+			byte charClass = charClass(source.charAt(ix));
+			if(charClass == CC_TEXT) {
+				ix++;
+			} else if(charClass == CC_QUOTE) {
+				tokenHasQuotes = true;
+				ix = skipQuoted(ix + 1);
+			} else {
+				break;
+			}
+		}
+		tokenEnd = ix;
+	}
+	
+	/** @return the position after the closing quote. */
+	protected int skipQuoted(int ix) {
+		while(ix < sourceLength) {
+			char ch = source.charAt(ix++);
+			if(ch == '"') {
+				return ix;
+			}
+			if(ch == '\\' && ix < sourceLength) {
+				char next = source.charAt(ix);
+				if(next == '"' || next == '\\') {
+					ix++;
+				}
+			}
+		}
+		tokenIsUnterminated = true;
+		return ix;
+	}
+	
+	protected void consumeToken() {
+		pos = tokenEnd;
+		tokenKind = null;
+	}
+	
+	/** @return the start offset of the token ahead. */
+	public int getTokenStart() {
+		tokenAhead();
+		return tokenStart;
+	}
+	
+	/** @return the end offset of the token ahead. */
+	public int getTokenEnd() {
+		tokenAhead();
+		return tokenEnd;
+	}
+	
+	/** @return whether the token ahead is TEXT without quotes, so its value is exactly the source slice. */
+	public boolean aheadIsPlainText() {
+		return tokenAhead() == TokenKind.TEXT && !tokenHasQuotes;
+	}
+	
+	/** @return whether the token ahead is the end of the current block, or EOS. */
+	public boolean aheadIsEnd() {
+		TokenKind kind = tokenAhead();
+		return kind == TokenKind.EOS || kind == TokenKind.BLOCK_CLOSE;
+	}
+	
+	public boolean aheadIsBlockStart() {
+		return tokenAhead() == TokenKind.BLOCK_OPEN;
+	}
+	
+	public boolean aheadIsText() {
+		return tokenAhead() == TokenKind.TEXT;
+	}
+	
+	public String consumeText() throws CommonException {
+		if(tokenAhead() != TokenKind.TEXT) {
+			throw createParseException("Expected text, {0}.", errorAtTokenStart());
+		}
+		String value = tokenHasQuotes ? 
+				unquoteTokenText() : 
+				source.subSequence(tokenStart, tokenEnd).toString();
+		if(tokenIsUnterminated) {
+			throw createParseException("Unterminated text `{0}`.", value);
+		}
+		consumeToken();
+		return value;
+	}
+	
+	protected String unquoteTokenText() {
+		StringBuilder sb = new StringBuilder(tokenEnd - tokenStart);
+		int ix = tokenStart;
+		boolean inQuotes = false;
+		while(ix < tokenEnd) {
+			char ch = source.charAt(ix++);
+			if(ch == '"') {
+				inQuotes = !inQuotes;
+				continue;
+			}
+			if(inQuotes && ch == '\\' && ix < tokenEnd) {
+				char next = source.charAt(ix);
+				if(next == '"' || next == '\\') {
+					ix++;
+					ch = next;
+				}
+			}
+			sb.append(ch);
+		}
+		return sb.toString();
+	}
+	
+	/** Consume the text token ahead, without creating its value. */
+	public void skipText() throws CommonException {
+		consumeText_noValue();
+	}
+	
+	protected void consumeText_noValue() throws CommonException {
+		if(tokenAhead() != TokenKind.TEXT) {
+			throw createParseException("Expected text, {0}.", errorAtTokenStart());
+		}
+		if(tokenIsUnterminated) {
+			throw createParseException("Unterminated text `{0}`.", unquoteTokenText());
+		}
+		consumeToken();
+	}
+	
+	public void expectText(String expectedText) throws CommonException {
+		if(tokenAhead() != TokenKind.TEXT) {
+			throw createParseException("Expected text `{0}`, {1}.", expectedText, errorAtTokenStart());
+		}
+		if(!tokenHasQuotes && regionEquals(tokenStart, tokenEnd, expectedText)) {
+			consumeToken();
+			return;
+		}
+		String text = consumeText();
+		if(!text.equals(expectedText)) {
+			throw createParseException("Expected text `{0}`, found text `{1}`.", expectedText, text);
+		}
+	}
+	
+	protected boolean regionEquals(int start, int end, String text) {
+		if(end - start != text.length()) {
+			return false;
+		}
+		for(int ix = 0; ix < text.length(); ix++) {
+			if(source.charAt(start + ix) != text.charAt(ix)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public void enterBlock() throws CommonException {
+		if(tokenAhead() != TokenKind.BLOCK_OPEN) {
+			throw createParseException("Expected block open, {0}.", errorAtTokenStart());
+		}
+		char blockOpen = source.charAt(tokenStart);
+		consumeToken();
+		
+		if(blockDepth == blockStack.length) {
+			blockStack = Arrays.copyOf(blockStack, blockDepth * 2);
+		}
+		blockStack[blockDepth++] = blockCloses[indexOf(blockOpens, blockOpen)];
+	}
+	
+	public void exitBlock() throws CommonException {
+		assertTrue(blockDepth > 0);
+		char expectedClose = blockStack[--blockDepth];
+		
+		if(tokenAhead() == TokenKind.BLOCK_CLOSE && source.charAt(tokenStart) == expectedClose) {
+			consumeToken();
+		} else {
+			throw createParseException("Expected BLOCK_CLOSE `{0}`, {1}.", expectedClose, errorAtTokenStart());
+		}
+	}
+	
+	public int getBlockDepth() {
+		return blockDepth;
+	}
+	
+	protected static int indexOf(char[] chars, char ch) {
+		for(int ix = 0; ix < chars.length; ix++) {
+			if(chars[ix] == ch) {
+				return ix;
+			}
+		}
+		return -1;
+	}
+	
+	public void skipNextElement() throws CommonException {
+		if(aheadIsEnd()) {
+			throw createParseException("Expected `{0}`, {1}.", "element", errorAtTokenStart());
+		} else if(aheadIsText()) {
+			consumeText_noValue();
+		} else {
+			enterBlock();
+			skipToEnd();
+			exitBlock();
+		}
+	}
+	
+	public void skipToEnd() throws CommonException {
+		while(!aheadIsEnd()) {
+			skipNextElement();
+		}
+	}
+	
+	/* ----------------- Error handling  ----------------- */
+	
+	protected CommonException createParseException(String pattern, Object... arguments) {
+		return new CommonException(MessageFormat.format(pattern, arguments));
+	}
+	
+	public String errorAtTokenStart() {
+		tokenAhead();
+		if(tokenStart == sourceLength) {
+			return "found EOS";
+		}
+		return "found `" + source.charAt(tokenStart) + "`";
+	}
+	
+	/* ----------------- Helpers ----------------- */
+	
+	/** 
+	 * @return the non-negative decimal integer in given range of chars, 
+	 * or -1 if the range is empty, has a non-digit char, or the integer overflows. 
+	 */
+	public static int parseDigits(CharSequence chars, int start, int end) {
+		if(start >= end) {
+			return -1;
+		}
+		int value = 0;
+		for(int ix = start; ix < end; ix++) {
+			int digit = chars.charAt(ix) - '0';
+			if(digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+	
+}
@@ -14,6 +14,9 @@ import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 import static melnorme.utilbox.core.CoreUtil.nullToEmpty;
 
+import java.util.HashMap;
+
+import melnorme.lang.tooling.structure.StructureDiffer.ElementKey;
 import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.misc.HashcodeUtil;
 
@@ -28,10 +31,33 @@ public abstract class AbstractStructureContainer implements IStructureElementCon
 		for(StructureElement child : children) {
 			child.setParent(this);
 		}
+		initOccurrenceIndexes(children);
 		
 		_invariant();
 	}
 	
+	/** 
+	 * Create a container with the same children as given container. The children are shared, not copied:
+	 * their parent remains the given container.
+	 */
+	protected AbstractStructureContainer(AbstractStructureContainer childrenOwner) {
+		this.children = childrenOwner.children;
+	}
+	
+	/** 
+	 * Set the index of each child among the siblings with the same kind and name, once per tree, 
+	 * so that element identity checks (see {@link StructureDiffer}) don't need to scan the siblings.
+	 */
+	protected static void initOccurrenceIndexes(Indexable<StructureElement> children) {
+		if(children.size() < 2) {
+			return;
+		}
+		HashMap<ElementKey, Integer> occurrences = new HashMap<>(children.size() * 2);
+		for(StructureElement child : children) {
+			child.occurrenceIndex = occurrences.merge(new ElementKey(child), 1, Integer::sum) - 1;
+		}
+	}
+	
 	protected void _invariant() {
 		for(StructureElement element : getChildren()) {
 			assertTrue(element.getParent() == this);
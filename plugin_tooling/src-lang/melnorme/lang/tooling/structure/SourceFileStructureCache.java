@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import melnorme.lang.tooling.common.ParserError;
+import melnorme.lang.utils.LRUCache;
+import melnorme.utilbox.misc.HashcodeUtil;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * A bounded cache of {@link SourceFileStructure} results, keyed by a hash of the source contents 
+ * (plus location and tool identification, see {@link CacheKey}).
+ * 
+ * Entries are evicted in least-recently-used order, when either the maximum number of entries
+ * or the maximum estimated memory size of all cached structures is exceeded.
+ * 
+ * Note: cached {@link SourceFileStructure} instances are shared, and must not be modified. 
+ */
+public class SourceFileStructureCache {
+	
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+	public static final long DEFAULT_MAX_WEIGHT = 8 * 1024 * 1024;
+	
+	/** Rough estimate of the memory size of a {@link StructureElement}, excluding strings. */
+	protected static final int ELEMENT_BASE_WEIGHT = 160;
+	protected static final int PROBLEM_BASE_WEIGHT = 96;
+	
+	protected final long maxWeight;
+	protected final LRUCache<CacheKey, CacheEntry> cache;
+	
+	protected long totalWeight = 0;
+	protected long hitCount = 0;
+	protected long missCount = 0;
+	protected long evictionCount = 0;
+	
+	public SourceFileStructureCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+	}
+	
+	public SourceFileStructureCache(int maxEntries, long maxWeight) {
+		assertTrue(maxEntries > 0);
+		this.maxWeight = maxWeight;
+		this.cache = new LRUCache<CacheKey, CacheEntry>(maxEntries) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Entry<CacheKey, CacheEntry> eldest) {
+				boolean remove = super.removeEldestEntry(eldest);
+				if(remove) {
+					entryEvicted(eldest.getValue());
+				}
+				return remove;
+			}
+		};
+	}
+	
+	/** @return the cached structure for given key, or null if there is none. */
+	public synchronized SourceFileStructure get(CacheKey key) {
+		CacheEntry entry = cache.get(key);
+		if(entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.structure;
+	}
+	
+	public synchronized void put(CacheKey key, SourceFileStructure structure) {
+		assertNotNull(key);
+		assertNotNull(structure);
+		
+		CacheEntry entry = new CacheEntry(structure, estimateWeight(structure));
+		if(entry.weight > maxWeight) {
+			return; // Too big to be worth caching 
+		}
+		
+		CacheEntry previous = cache.put(key, entry);
+		if(previous != null) {
+			totalWeight -= previous.weight;
+		}
+		totalWeight += entry.weight;
+		
+		// Evict least recently used entries until the weight limit is respected 
+		Iterator<CacheEntry> iter = cache.values().iterator();
+		while(totalWeight > maxWeight && iter.hasNext()) {
+			CacheEntry eldest = iter.next();
+			iter.remove();
+			entryEvicted(eldest);
+		}
+	}
+	
+	protected void entryEvicted(CacheEntry entry) {
+		totalWeight -= entry.weight;
+		evictionCount++;
+	}
+	
+	public synchronized void clear() {
+		cache.clear();
+		totalWeight = 0;
+	}
+	
+	protected static class CacheEntry {
+		
+		protected final SourceFileStructure structure;
+		protected final long weight;
+		
+		public CacheEntry(SourceFileStructure structure, long weight) {
+			this.structure = structure;
+			this.weight = weight;
+		}
+		
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static long estimateWeight(SourceFileStructure structure) {
+		long weight = ELEMENT_BASE_WEIGHT + estimateWeight(structure.getChildren());
+		for(ParserError parserError : structure.getParserProblems()) {
+			weight += PROBLEM_BASE_WEIGHT + stringWeight(parserError.msgErrorSource);
+		}
+		return weight;
+	}
+	
+	protected static long estimateWeight(Iterable<StructureElement> elements) {
+		long weight = 0;
+		for(StructureElement element : elements) {
+			weight += ELEMENT_BASE_WEIGHT + stringWeight(element.getName()) + stringWeight(element.getType());
+			weight += estimateWeight(element.getChildren());
+		}
+		return weight;
+	}
+	
+	protected static long stringWeight(String string) {
+		return string == null ? 0 : 40 + 2 * string.length();
+	}
+	
+	/** 64-bit FNV-1a hash of given source. */
+	public static long hashSource(CharSequence source) {
+		long hash = 0xcbf29ce484222325L;
+		for(int i = 0; i < source.length(); i++) {
+			char ch = source.charAt(i);
+			hash = (hash ^ (ch & 0xFF)) * 0x100000001b3L;
+			hash = (hash ^ (ch >>> 8)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Key of a cached structure. Besides the source hash, identifies the tool that produced the structure 
+	 * (for example, tool path and version), so that entries are not reused if the tool changes. 
+	 */
+	public static class CacheKey {
+		
+		protected final Location location; // Can be null
+		protected final String toolId;
+		protected final long sourceHash;
+		protected final int sourceLength;
+		
+		public CacheKey(Location location, String toolId, String source) {
+			this(location, toolId, hashSource(source), source.length());
+		}
+		
+		public CacheKey(Location location, String toolId, long sourceHash, int sourceLength) {
+			this.location = location;
+			this.toolId = assertNotNull(toolId);
+			this.sourceHash = sourceHash;
+			this.sourceLength = sourceLength;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof CacheKey)) return false;
+			
+			CacheKey other = (CacheKey) obj;
+			
+			return 
+				sourceHash == other.sourceHash &&
+				sourceLength == other.sourceLength &&
+				areEqual(location, other.location) &&
+				areEqual(toolId, other.toolId);
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combinedHashCode(location, toolId, Long.hashCode(sourceHash));
+		}
+		
+		@Override
+		public String toString() {
+			return "CacheKey[" + location + ", " + toolId + ", " + Long.toHexString(sourceHash) + "]";
+		}
+		
+	}
+	
+	/* ----------------- stats ----------------- */
+	
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+	
+	public synchronized int getSize() {
+		return cache.size();
+	}
+	
+	public synchronized long getTotalWeight() {
+		return totalWeight;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "structure cache[entries: " + cache.size() + ", weight: " + totalWeight + 
+			", hits: " + hitCount + ", misses: " + missCount + ", evictions: " + evictionCount + "]";
+	}
+	
+}
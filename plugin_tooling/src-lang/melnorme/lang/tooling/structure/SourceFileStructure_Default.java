@@ -23,12 +23,27 @@ public abstract class SourceFileStructure_Default extends AbstractStructureConta
 	
 	protected final Location location;
 	protected final Indexable<ParserError> parserProblems;
+	protected final StructureElementOffsetIndex offsetIndex;
 	
 	public SourceFileStructure_Default(Location location, Indexable<StructureElement> children, 
 			Indexable<ParserError> parserProblems) {
 		super(children);
 		this.location = location;
 		this.parserProblems = nullToEmpty(parserProblems);
+		// Build the index here, which is usually in the (background) parser thread, not in the UI thread
+		this.offsetIndex = new StructureElementOffsetIndex(this);
+	}
+	
+	/** 
+	 * Create a structure with the elements of given previous structure (which must have the same location), 
+	 * but with new parser problems. The elements and their offset index are reused, not copied.
+	 */
+	public SourceFileStructure_Default(SourceFileStructure_Default previousStructure, 
+			Indexable<ParserError> parserProblems) {
+		super(previousStructure);
+		this.location = previousStructure.location;
+		this.parserProblems = nullToEmpty(parserProblems);
+		this.offsetIndex = previousStructure.offsetIndex;
 	}
 	
 	@Override
@@ -70,7 +85,7 @@ public abstract class SourceFileStructure_Default extends AbstractStructureConta
 	}
 	
 	public StructureElement getStructureElementAt(int offset) {
-		return new StructureElementFinderByOffset(offset).findInnerMost(this);
+		return offsetIndex.getElementAt(offset);
 	}
 	
 	/* ----------------- Utils ----------------- */
@@ -85,7 +100,7 @@ public abstract class SourceFileStructure_Default extends AbstractStructureConta
 			this.offset = offset;
 		}
 		
-		// Note: This could be optimized if element tree is sorted
+		/** Linear search over the whole tree. See also {@link StructureElementOffsetIndex}. */
 		public StructureElement findInnerMost(IStructureElementContainer container) {
 			visitContainer(container);
 			return pickedElement;
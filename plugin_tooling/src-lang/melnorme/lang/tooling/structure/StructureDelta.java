@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+import static melnorme.utilbox.core.CoreUtil.nullToEmpty;
+
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * Describes the differences between two versions of a structure element, or of a source file structure.
+ * Created by {@link StructureDiffer}. Unchanged elements have no delta.
+ */
+public class StructureDelta {
+	
+	public enum DeltaKind {
+		ADDED,
+		REMOVED,
+		CHANGED,
+	}
+	
+	/** The type or attributes of the element changed. This affects how the element is displayed. */
+	public static final int F_CONTENT = 1 << 0;
+	/** The source range or the name source range of the element changed. */
+	public static final int F_SOURCE_RANGE = 1 << 1;
+	/** Some children were added, removed, or changed. See {@link #getChildDeltas()}. */
+	public static final int F_CHILDREN = 1 << 2;
+	/** The order of the children changed. */
+	public static final int F_REORDERED = 1 << 3;
+	
+	protected final DeltaKind kind;
+	protected final int flags;
+	protected final IStructureElementContainer oldElement; // null if ADDED
+	protected final IStructureElementContainer newElement; // null if REMOVED
+	protected final Indexable<StructureDelta> childDeltas;
+	
+	public StructureDelta(DeltaKind kind, int flags, IStructureElementContainer oldElement, 
+			IStructureElementContainer newElement, Indexable<StructureDelta> childDeltas) {
+		this.kind = assertNotNull(kind);
+		this.flags = flags;
+		this.oldElement = oldElement;
+		this.newElement = newElement;
+		this.childDeltas = nullToEmpty(childDeltas);
+		assertTrue(kind == DeltaKind.ADDED || oldElement != null);
+		assertTrue(kind == DeltaKind.REMOVED || newElement != null);
+	}
+	
+	public DeltaKind getKind() {
+		return kind;
+	}
+	
+	public int getFlags() {
+		return flags;
+	}
+	
+	public boolean hasFlag(int flag) {
+		return (flags & flag) != 0;
+	}
+	
+	/** @return the previous version of the element. Null if ADDED. */
+	public IStructureElementContainer getOldElement() {
+		return oldElement;
+	}
+	
+	/** @return the current version of the element. Null if REMOVED. */
+	public IStructureElementContainer getNewElement() {
+		return newElement;
+	}
+	
+	public Indexable<StructureDelta> getChildDeltas() {
+		return childDeltas;
+	}
+	
+	/** @return true if this is a CHANGED delta with no changes. Only a root delta can be empty. */
+	public boolean isEmpty() {
+		return kind == DeltaKind.CHANGED && flags == 0;
+	}
+	
+	/** @return whether some element changed other than in its source ranges. */
+	public boolean hasStructuralChanges() {
+		if(kind != DeltaKind.CHANGED || hasFlag(F_CONTENT | F_REORDERED)) {
+			return true;
+		}
+		for(StructureDelta childDelta : childDeltas) {
+			if(childDelta.hasStructuralChanges()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		toString(sb, 0);
+		return sb.toString();
+	}
+	
+	protected void toString(StringBuilder sb, int level) {
+		sb.append(StringUtil.newFilledString(level, "  "));
+		sb.append(kind);
+		sb.append(" ");
+		IStructureElementContainer element = newElement != null ? newElement : oldElement;
+		if(element instanceof StructureElement) {
+			sb.append(((StructureElement) element).toStringNode());
+		} else {
+			sb.append(element);
+		}
+		if(flags != 0) {
+			sb.append(" [");
+			if(hasFlag(F_CONTENT)) sb.append("CONTENT ");
+			if(hasFlag(F_SOURCE_RANGE)) sb.append("SOURCE_RANGE ");
+			if(hasFlag(F_CHILDREN)) sb.append("CHILDREN ");
+			if(hasFlag(F_REORDERED)) sb.append("REORDERED ");
+			sb.setLength(sb.length() - 1);
+			sb.append("]");
+		}
+		sb.append("\n");
+		for(StructureDelta childDelta : childDeltas) {
+			childDelta.toString(sb, level + 1);
+		}
+	}
+	
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import static melnorme.utilbox.core.CoreUtil.areEqual;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import melnorme.lang.tooling.structure.StructureDelta.DeltaKind;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.HashcodeUtil;
+
+/**
+ * Computes the {@link StructureDelta} between two structure trees.
+ * 
+ * Elements are matched by their key: kind, name and parent path 
+ * (plus the occurrence order among siblings with the same kind and name, such as multiple impl blocks).
+ * Subtrees with no changes produce no delta, so consumers can keep anything they derived from them.
+ */
+public class StructureDiffer {
+	
+	/** @return the delta from oldStructure to newStructure (CHANGED, possibly empty). */
+	public static StructureDelta diff(SourceFileStructure oldStructure, SourceFileStructure newStructure) {
+		return new StructureDiffer().diffContainers(oldStructure, newStructure, 0);
+	}
+	
+	protected StructureDelta diffContainers(IStructureElementContainer oldContainer, 
+			IStructureElementContainer newContainer, int flags) {
+		Indexable<StructureElement> oldChildren = oldContainer.getChildren();
+		Indexable<StructureElement> newChildren = newContainer.getChildren();
+		
+		ArrayList2<StructureDelta> childDeltas = new ArrayList2<>();
+		
+		HashMap<ElementKey, ArrayDeque<Integer>> oldIndexesByKey = new HashMap<>(oldChildren.size() * 2);
+		for(int ix = 0; ix < oldChildren.size(); ix++) {
+			ElementKey key = new ElementKey(oldChildren.get(ix));
+			oldIndexesByKey.computeIfAbsent(key, (k) -> new ArrayDeque<>()).add(ix);
+		}
+		
+		boolean[] matched = new boolean[oldChildren.size()];
+		int lastMatchedIndex = -1;
+		for(StructureElement newChild : newChildren) {
+			ArrayDeque<Integer> oldIndexes = oldIndexesByKey.get(new ElementKey(newChild));
+			Integer oldIndex = oldIndexes == null ? null : oldIndexes.poll();
+			
+			if(oldIndex == null) {
+				childDeltas.add(new StructureDelta(DeltaKind.ADDED, 0, null, newChild, null));
+				continue;
+			}
+			matched[oldIndex] = true;
+			if(oldIndex < lastMatchedIndex) {
+				flags |= StructureDelta.F_REORDERED;
+			}
+			lastMatchedIndex = oldIndex;
+			
+			StructureDelta childDelta = diffElements(oldChildren.get(oldIndex), newChild);
+			if(childDelta != null) {
+				childDeltas.add(childDelta);
+			}
+		}
+		
+		for(int ix = 0; ix < matched.length; ix++) {
+			if(!matched[ix]) {
+				childDeltas.add(new StructureDelta(DeltaKind.REMOVED, 0, oldChildren.get(ix), null, null));
+			}
+		}
+		
+		if(!childDeltas.isEmpty()) {
+			flags |= StructureDelta.F_CHILDREN;
+		}
+		return new StructureDelta(DeltaKind.CHANGED, flags, oldContainer, newContainer, childDeltas);
+	}
+	
+	/** @return the delta between two elements with the same key, or null if they are equal. */
+	protected StructureDelta diffElements(StructureElement oldElement, StructureElement newElement) {
+		if(oldElement == newElement) {
+			return null; // Reused element, see SourceFileStructure(SourceFileStructure, Indexable)
+		}
+		int flags = 0;
+		if(!areEqual(oldElement.getType(), newElement.getType()) || 
+				!areEqual(oldElement.getAttributes(), newElement.getAttributes())) {
+			flags |= StructureDelta.F_CONTENT;
+		}
+		if(!areEqual(oldElement.getSourceRange(), newElement.getSourceRange()) ||
+				!areEqual(oldElement.getNameSourceRange2(), newElement.getNameSourceRange2())) {
+			flags |= StructureDelta.F_SOURCE_RANGE;
+		}
+		
+		StructureDelta delta = diffContainers(oldElement, newElement, flags);
+		return delta.isEmpty() ? null : delta;
+	}
+	
+	protected static class ElementKey {
+		
+		protected final StructureElementKind kind;
+		protected final String name;
+		
+		public ElementKey(StructureElement element) {
+			this.kind = element.getKind();
+			this.name = element.getName();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof ElementKey)) return false;
+			
+			ElementKey other = (ElementKey) obj;
+			
+			return kind == other.kind && name.equals(other.name);
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combinedHashCode(kind, name);
+		}
+		
+	}
+	
+	/* ----------------- Element identity ----------------- */
+	
+	/**
+	 * @return whether given elements (possibly from different structure trees) have the same key:
+	 * same kind, name, occurrence among same-key siblings, and parent path.
+	 */
+	public static boolean isSameElement(StructureElement element, StructureElement other) {
+		if(element == other) {
+			return true;
+		}
+		if(element == null || other == null) {
+			return false;
+		}
+		if(element.getKind() != other.getKind() || !element.getName().equals(other.getName())) {
+			return false;
+		}
+		
+		IStructureElementContainer parent = element.getParent();
+		IStructureElementContainer otherParent = other.getParent();
+		if(parent instanceof StructureElement || otherParent instanceof StructureElement) {
+			if(!(parent instanceof StructureElement && otherParent instanceof StructureElement) ||
+					!isSameElement((StructureElement) parent, (StructureElement) otherParent)) {
+				return false;
+			}
+		}
+		return element.getOccurrenceIndex() == other.getOccurrenceIndex();
+	}
+	
+	/** @return a hash code consistent with {@link #isSameElement(StructureElement, StructureElement)}. */
+	public static int getElementKeyHashCode(StructureElement element) {
+		int hash = HashcodeUtil.combinedHashCode(element.getKind(), element.getName());
+		IStructureElementContainer parent = element.getParent();
+		if(parent instanceof StructureElement) {
+			hash = 31 * hash + getElementKeyHashCode((StructureElement) parent);
+		}
+		return hash;
+	}
+	
+}
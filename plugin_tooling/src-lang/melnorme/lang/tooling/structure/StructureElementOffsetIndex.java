@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.structure;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import melnorme.lang.tooling.ast.SourceRange;
+import melnorme.utilbox.collections.ArrayList2;
+
+/**
+ * An interval index of the elements of a structure tree, answering which element is the innermost
+ * one at a given offset in O(log n + k log n), where k is the number of elements containing the offset
+ * (usually the nesting depth).
+ *
+ * Elements are sorted by start offset, with a max-end segment tree over them, so that the elements containing
+ * an offset are found without visiting the whole tree. The result is the same as
+ * {@link SourceFileStructure_Default.StructureElementFinderByOffset}, including for overlapping ranges.
+ */
+public class StructureElementOffsetIndex {
+	
+	/** Elements, sorted by start offset. */
+	protected final StructureElement[] elements;
+	protected final int[] startOffsets;
+	protected final int[] endOffsets;
+	/** Index of each element in a pre-order traversal of the tree. */
+	protected final int[] treeOrder;
+	/** Segment tree with the maximum end offset for each range of {@link #elements}. */
+	protected final int[] maxEndTree;
+	
+	public StructureElementOffsetIndex(IStructureElementContainer container) {
+		ArrayList2<StructureElement> treeElements = new ArrayList2<>();
+		collectElements(container, treeElements);
+		
+		int count = treeElements.size();
+		Integer[] sortedOrder = new Integer[count];
+		for(int i = 0; i < count; i++) {
+			sortedOrder[i] = i;
+		}
+		Arrays.sort(sortedOrder, Comparator.comparingInt((Integer ix) ->
+			treeElements.get(ix).getSourceRange().getStartPos()));
+		
+		elements = new StructureElement[count];
+		startOffsets = new int[count];
+		endOffsets = new int[count];
+		treeOrder = new int[count];
+		for(int i = 0; i < count; i++) {
+			StructureElement element = treeElements.get(sortedOrder[i]);
+			elements[i] = element;
+			startOffsets[i] = element.getSourceRange().getStartPos();
+			endOffsets[i] = element.getSourceRange().getEndPos();
+			treeOrder[i] = sortedOrder[i];
+		}
+		
+		maxEndTree = new int[Math.max(1, 4 * count)];
+		if(count > 0) {
+			buildTree(1, 0, count);
+		}
+	}
+	
+	protected static void collectElements(IStructureElementContainer container,
+			ArrayList2<StructureElement> treeElements) {
+		for(StructureElement child : container.getChildren()) {
+			treeElements.add(child);
+			collectElements(child, treeElements);
+		}
+	}
+	
+	protected int buildTree(int node, int low, int high) {
+		if(high - low == 1) {
+			return maxEndTree[node] = endOffsets[low];
+		}
+		int mid = (low + high) >>> 1;
+		int leftMax = buildTree(2 * node, low, mid);
+		int rightMax = buildTree(2 * node + 1, mid, high);
+		return maxEndTree[node] = Math.max(leftMax, rightMax);
+	}
+	
+	public int getElementCount() {
+		return elements.length;
+	}
+	
+	/** @return the innermost element whose source range (inclusively) contains given offset, or null if none. */
+	public StructureElement getElementAt(int offset) {
+		// Elements in [0, limit) are the ones that start at or before offset
+		int limit = upperBound(startOffsets, offset);
+		if(limit == 0) {
+			return null;
+		}
+		
+		ArrayList2<Integer> matches = new ArrayList2<>();
+		collectContaining(1, 0, elements.length, limit, offset, matches);
+		if(matches.isEmpty()) {
+			return null;
+		}
+		
+		// Pick in tree order, with the same rule as the linear finder
+		matches.sort(Comparator.comparingInt(ix -> treeOrder[ix]));
+		StructureElement pickedElement = null;
+		for(int ix : matches) {
+			StructureElement element = elements[ix];
+			if(pickedElement == null) {
+				pickedElement = element;
+			} else {
+				SourceRange pickedRange = pickedElement.getSourceRange();
+				if(pickedRange.inclusiveContains(element.getSourceRange())) {
+					pickedElement = element;
+				}
+			}
+		}
+		return pickedElement;
+	}
+	
+	/** Collect the indexes, in [low, min(high, limit)), of elements that end at or after offset. */
+	protected void collectContaining(int node, int low, int high, int limit, int offset,
+			ArrayList2<Integer> matches) {
+		if(low >= limit || maxEndTree[node] < offset) {
+			return;
+		}
+		if(high - low == 1) {
+			matches.add(low);
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		collectContaining(2 * node, low, mid, limit, offset, matches);
+		collectContaining(2 * node + 1, mid, high, limit, offset, matches);
+	}
+	
+	/** @return the index of the first element greater than given value, in given sorted array. */
+	protected static int upperBound(int[] sortedArray, int value) {
+		int low = 0;
+		int high = sortedArray.length;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(sortedArray[mid] <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+}
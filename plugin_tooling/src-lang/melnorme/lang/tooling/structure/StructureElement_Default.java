@@ -36,6 +36,7 @@ abstract class StructureElement_Default extends AbstractStructureContainer imple
 	protected final String type;
 	
 	protected IStructureElementContainer parent;
+	protected int occurrenceIndex = 0; // Set by the parent
 	
 	public StructureElement_Default(
 			String name, 
@@ -139,6 +140,11 @@ abstract class StructureElement_Default extends AbstractStructureContainer imple
 		this.parent = parent;
 	}
 	
+	/** @return the index of this element among the siblings with the same kind and name. */
+	public int getOccurrenceIndex() {
+		return occurrenceIndex;
+	}
+	
 //	@Override
 //	public String getModuleName() {
 //		IStructureElementContainer parent = getParent();
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.tooling.toolchain.ops;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Computes a fingerprint of the inputs of a build: the command line, working directory and environment
+ * of the build process, and the path, size and modification time of the source files.
+ * If the fingerprint is the same as the one of a previous successful build, the build would do nothing.
+ *
+ * Note: file contents are not read, so this is cheap enough to compute before each build.
+ */
+public class BuildInputsFingerprint {
+	
+	protected final MessageDigest digest;
+	
+	public BuildInputsFingerprint() {
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	protected void addEntry(String kind, String value) {
+		digest.update(kind.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	
+	public void addValue(String value) {
+		addEntry("value", value);
+	}
+	
+	/** Add the command line, working directory and environment of given process builder. */
+	public void addProcessBuilder(ProcessBuilder pb) {
+		for(String argument : pb.command()) {
+			addEntry("arg", argument);
+		}
+		addEntry("dir", pb.directory() == null ? null : pb.directory().getPath());
+		for(Map.Entry<String, String> envEntry : new TreeMap<>(pb.environment()).entrySet()) {
+			addEntry("env", envEntry.getKey() + "=" + envEntry.getValue());
+		}
+	}
+	
+	/** Add the given file, or the absence of it. */
+	public void addFile(Location file) {
+		Path path = file.toPath();
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			addEntry("file", getFileEntry(path, attrs));
+		} catch(IOException e) {
+			addEntry("missing", path.toString());
+		}
+	}
+	
+	protected static String getFileEntry(Path path, BasicFileAttributes attrs) {
+		return path.toString() + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis();
+	}
+	
+	/**
+	 * Add all files under given directory, except the ones in directories matched by given excludedDirs predicate.
+	 * Files are added in a well defined order, regardless of the order of the file system listing.
+	 */
+	public void addFileTree(Location directory, Predicate<Path> excludedDirs) throws CommonException {
+		ArrayList<String> entries = new ArrayList<>();
+		try {
+			Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if(excludedDirs.test(dir)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					entries.add(getFileEntry(file, attrs));
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					// File was deleted during the walk, or is not readable.
+					entries.add(file.toString() + ":?");
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch(IOException e) {
+			throw new CommonException("Error listing build input files: ", e);
+		}
+		
+		Collections.sort(entries);
+		addEntry("tree", directory.toPathString());
+		for(String entry : entries) {
+			addEntry("file", entry);
+		}
+	}
+	
+	/** @return the fingerprint value. No more inputs should be added after this is called. */
+	public String getValue() {
+		return new BigInteger(1, digest.digest()).toString(16);
+	}
+	
+}
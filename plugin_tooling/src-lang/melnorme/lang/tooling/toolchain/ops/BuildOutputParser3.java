@@ -17,6 +17,7 @@ import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.utils.parse.StringCharSource;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.IByteSequence;
 import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
 
@@ -46,12 +47,12 @@ public abstract class BuildOutputParser3 extends BuildOutputParser2 {
 	public ArrayList2<ToolSourceMessage> parseOutputStreams(ExternalProcessResult result) throws CommonException {
 		
 		try {
-			parseStdOut(new StringCharSource(result.getStdOutBytes().toString(StringUtil.UTF8)));
+			parseStdOut(result.getStdOutBytes());
 		} catch(IOException e) {
 			throw new CommonException("Error reading stdout: ", e);
 		}
 		try {
-			parseStdErr(new StringCharSource(result.getStdErrBytes().toString(StringUtil.UTF8)));
+			parseStdErr(result.getStdErrBytes());
 		} catch(IOException e) {
 			throw new CommonException("Error reading stderr: ", e);
 		}
@@ -59,6 +60,19 @@ public abstract class BuildOutputParser3 extends BuildOutputParser2 {
 		return buildMessages;
 	}
 	
+	/** 
+	 * Parse stdout from given process output. Subclasses that can parse from a Reader should override this
+	 * to use {@link IByteSequence#openReader}, so that large (spilled) output is not loaded as a whole String.
+	 */
+	public void parseStdOut(IByteSequence stdout) throws CommonException, IOException {
+		parseStdOut(new StringCharSource(stdout.toString(StringUtil.UTF8)));
+	}
+	
+	/** @see #parseStdOut(IByteSequence) */
+	public void parseStdErr(IByteSequence stderr) throws CommonException, IOException {
+		parseStdErr(new StringCharSource(stderr.toString(StringUtil.UTF8)));
+	}
+	
 	public void parseStdOut(StringCharSource stdout) throws CommonException, IOException {
 		parseOutput(stdout);
 	}
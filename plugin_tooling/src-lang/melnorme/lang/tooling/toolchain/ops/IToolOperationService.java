@@ -11,6 +11,10 @@
 package melnorme.lang.tooling.toolchain.ops;
 
 import melnorme.lang.tooling.common.ops.IProcessRunner;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.concurrency.PriorityTaskScheduler.ScheduledOperation;
+import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.ILogHandler;
 
 /**
@@ -19,4 +23,14 @@ import melnorme.utilbox.misc.ILogHandler;
  */
 public interface IToolOperationService extends ILogHandler, IProcessRunner {
 	
+	/**
+	 * Run a request to an already running tool process (such as a daemon session), under the same context 
+	 * as {@link #runProcess(ProcessBuilder, String, ICancelMonitor)}. 
+	 * Default implementation runs it directly in the calling thread.
+	 */
+	default <RET> RET runToolRequest(ScheduledOperation<RET> request, ICancelMonitor cm) 
+			throws CommonException, OperationCancellation {
+		return request.call(cm);
+	}
+	
 }
\ No newline at end of file
@@ -13,11 +13,15 @@ package melnorme.lang.tooling.toolchain.ops;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 import static melnorme.utilbox.core.CoreUtil.areEqual;
 
+import java.io.IOException;
 import java.util.Optional;
 
 import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.SourceLineColumnRange;
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
 import melnorme.lang.tooling.parser.SourceLinesInfo;
+import melnorme.lang.utils.ILineOffsetsProvider;
+import melnorme.lang.utils.LineOffsetsCache;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.FileUtil;
 import melnorme.utilbox.misc.Location;
@@ -35,6 +39,7 @@ public class SourceOpContext {
 	protected final int offset;
 	protected final SourceRange selection;
 	protected final boolean isDirty;
+	protected final ILineOffsetsProvider lineOffsetsProvider;
 	
 	public SourceOpContext(Optional<Location> fileLocation, int offset, String source, boolean isDirty) {
 		this(fileLocation, offset, new SourceRange(offset, 0),source, isDirty);
@@ -42,11 +47,27 @@ public class SourceOpContext {
 	
 	public SourceOpContext(Optional<Location> fileLocation, int offset, SourceRange selection, String source, 
 			boolean isDirty) {
+		this(fileLocation, offset, selection, source, isDirty, LineOffsetsCache.getDefault());
+	}
+	
+	/**
+	 * @param lineOffsetsProvider the provider of the line offsets of files other than the source of this context.
+	 */
+	public SourceOpContext(Optional<Location> fileLocation, int offset, SourceRange selection, String source, 
+			boolean isDirty, ILineOffsetsProvider lineOffsetsProvider) {
 		this.fileLocation = fileLocation;
 		this.offset = offset;
 		this.selection = assertNotNull(selection);
 		this.source = assertNotNull(source);
 		this.isDirty = isDirty;
+		this.lineOffsetsProvider = assertNotNull(lineOffsetsProvider);
+	}
+	
+	/** Create a context for which the lines info of the source have already been computed. */
+	public SourceOpContext(Optional<Location> fileLocation, int offset, SourceRange selection, 
+			SourceLinesInfo sourceLinesInfo, boolean isDirty, ILineOffsetsProvider lineOffsetsProvider) {
+		this(fileLocation, offset, selection, sourceLinesInfo.getSource(), isDirty, lineOffsetsProvider);
+		this.sourceLinesInfo = sourceLinesInfo;
 	}
 	
 	public int getOffset() {
@@ -111,11 +132,28 @@ public class SourceOpContext {
 	}
 	
 	public int getOffsetFor(SourceLocation findDefResult) throws CommonException {
-		String fileContents = getSourceFor(findDefResult.getFileLocation());
-		SourceLinesInfo linesInfo = new SourceLinesInfo(fileContents);
-		
+		Location location = findDefResult.getFileLocation();
 		SourceLineColumnRange sourceLCRange = findDefResult.getSourceRange();
-		return linesInfo.getOffsetForLine(sourceLCRange.getValidLineIndex()) + sourceLCRange.getValidColumnIndex();
+		
+		if(fileLocation.isPresent() && areEqual(location, fileLocation.get())) {
+			SourceLinesInfo linesInfo = getSourceLinesInfo();
+			return linesInfo.getOffsetForLine(sourceLCRange.getValidLineIndex()) + sourceLCRange.getValidColumnIndex();
+		}
+		
+		// Another file, which might be open in an editor with unsaved changes: use the line offsets provider 
+		// instead of reading the whole file contents.
+		LineOffsetsIndex lineOffsets;
+		try {
+			lineOffsets = lineOffsetsProvider.getLineOffsets(location);
+		} catch(IOException e) {
+			throw new CommonException(e.getMessage(), e);
+		}
+		int offset = lineOffsets.getOffsetOrNegative(sourceLCRange.getValidLineIndex(), 
+			sourceLCRange.getValidColumnIndex());
+		if(offset < 0) {
+			throw new CommonException("Invalid line+column, out of bounds.");
+		}
+		return offset;
 	}
 	
 }
\ No newline at end of file
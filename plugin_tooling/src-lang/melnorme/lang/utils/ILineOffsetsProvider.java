@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import java.io.IOException;
+
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Provides the line offsets of files. An IDE provider should prefer the working copy of a file 
+ * (the unsaved contents of an open editor) over the contents in the filesystem.
+ */
+public interface ILineOffsetsProvider {
+	
+	LineOffsetsIndex getLineOffsets(Location fileLocation) throws IOException;
+	
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import melnorme.lang.tooling.parser.LineOffsetsIndex;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * A bounded cache of {@link LineOffsetsIndex}es for files in the filesystem.
+ * Entries are validated against the file timestamp and size, and recalculated if the file changed.
+ */
+public class LineOffsetsCache implements ILineOffsetsProvider {
+	
+	public static final int DEFAULT_MAX_ENTRIES = 512;
+	
+	protected static final LineOffsetsCache defaultInstance = new LineOffsetsCache(DEFAULT_MAX_ENTRIES);
+	
+	/** @return the shared cache instance. */
+	public static LineOffsetsCache getDefault() {
+		return defaultInstance;
+	}
+	
+	protected final LRUCache<Location, LineOffsetsEntry> entries;
+	
+	public LineOffsetsCache(int maxEntries) {
+		this.entries = new LRUCache<>(maxEntries);
+	}
+	
+	@Override
+	public LineOffsetsIndex getLineOffsets(Location fileLocation) throws IOException {
+		assertNotNull(fileLocation);
+		
+		LineOffsetsEntry entry;
+		synchronized(entries) {
+			entry = entries.get(fileLocation);
+			if(entry == null) {
+				entry = new LineOffsetsEntry(fileLocation);
+				entries.put(fileLocation, entry);
+			}
+		}
+		
+		synchronized(entry) {
+			if(entry.isStale()) {
+				entry.updateValue(readLineOffsets(fileLocation));
+			}
+			return entry.getValue();
+		}
+	}
+	
+	protected LineOffsetsIndex readLineOffsets(Location fileLocation) throws IOException {
+		// TODO: we might need to do auto-detect of encoding.
+		try(Reader reader = new InputStreamReader(Files.newInputStream(fileLocation.getPath()), StringUtil.UTF8)) {
+			return LineOffsetsIndex.create(reader);
+		}
+	}
+	
+	public void invalidate(Location fileLocation) {
+		synchronized(entries) {
+			entries.remove(fileLocation);
+		}
+	}
+	
+	public int getSize() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+	
+	public static class LineOffsetsEntry extends FileCachingEntry<LineOffsetsIndex> {
+		
+		public LineOffsetsEntry(Location location) {
+			super(location);
+		}
+		
+		@Override
+		protected void handleWarning_ModifiedTimeInTheFuture(FileTime lastModifiedTime) {
+			// Ignore
+		}
+		
+	}
+	
+}
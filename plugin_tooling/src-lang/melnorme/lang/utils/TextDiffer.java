@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.misc.HashcodeUtil;
+
+/**
+ * A line based text differ (Myers' O(ND) algorithm), used to turn a new version of a text
+ * (for example, the output of a formatter) into the minimal set of replace edits against the old version.
+ *
+ * Common leading and trailing lines are trimmed before diffing, so the common case of localized changes
+ * is cheap. If the edit distance exceeds a maximum, the remaining region is treated as a single change.
+ */
+public class TextDiffer {
+	
+	public static final int DEFAULT_MAX_EDIT_DISTANCE = 1000;
+	
+	/** A change of old lines [oldStart, oldEnd) into new lines [newStart, newEnd). */
+	public static class Hunk {
+		
+		public final int oldStart;
+		public final int oldEnd;
+		public final int newStart;
+		public final int newEnd;
+		
+		public Hunk(int oldStart, int oldEnd, int newStart, int newEnd) {
+			assertTrue(oldStart <= oldEnd && newStart <= newEnd);
+			this.oldStart = oldStart;
+			this.oldEnd = oldEnd;
+			this.newStart = newStart;
+			this.newEnd = newEnd;
+		}
+		
+		@Override
+		public String toString() {
+			return "[" + oldStart + "," + oldEnd + ") -> [" + newStart + "," + newEnd + ")";
+		}
+	}
+	
+	/** A replacement of the text at [offset, offset + length) of the old text, with given text. */
+	public static class Replacement {
+		
+		public final int offset;
+		public final int length;
+		public final String text;
+		
+		public Replacement(int offset, int length, String text) {
+			this.offset = offset;
+			this.length = length;
+			this.text = assertNotNull(text);
+		}
+		
+		public int getEndPos() {
+			return offset + length;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof Replacement)) return false;
+			
+			Replacement other = (Replacement) obj;
+			return offset == other.offset && length == other.length && text.equals(other.text);
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combinedHashCode(offset, length, text);
+		}
+		
+		@Override
+		public String toString() {
+			return "[" + offset + "," + length + "]\"" + text + "\"";
+		}
+	}
+	
+	/** A range of lines [startLine, endLine), 0-based. */
+	public static class LineRange {
+		
+		public final int startLine;
+		public final int endLine;
+		
+		public LineRange(int startLine, int endLine) {
+			assertTrue(startLine <= endLine);
+			this.startLine = startLine;
+			this.endLine = endLine;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof LineRange)) return false;
+			
+			LineRange other = (LineRange) obj;
+			return startLine == other.startLine && endLine == other.endLine;
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combinedHashCode(startLine, endLine);
+		}
+		
+		@Override
+		public String toString() {
+			return "[" + startLine + "," + endLine + ")";
+		}
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected final String oldText;
+	protected final String newText;
+	protected final int[] oldLineStarts;
+	protected final int[] newLineStarts;
+	protected final int maxEditDistance;
+	
+	public TextDiffer(String oldText, String newText) {
+		this(oldText, newText, DEFAULT_MAX_EDIT_DISTANCE);
+	}
+	
+	public TextDiffer(String oldText, String newText, int maxEditDistance) {
+		this.oldText = assertNotNull(oldText);
+		this.newText = assertNotNull(newText);
+		this.oldLineStarts = getLineStarts(oldText);
+		this.newLineStarts = getLineStarts(newText);
+		this.maxEditDistance = maxEditDistance;
+	}
+	
+	/**
+	 * @return the start offsets of each line, plus a final entry with the text length.
+	 * Lines include their terminator. A trailing empty line is not counted.
+	 */
+	protected static int[] getLineStarts(String text) {
+		ArrayList<Integer> lineStarts = new ArrayList<>();
+		int lineStart = 0;
+		for(int ix = 0; ix < text.length(); ix++) {
+			char ch = text.charAt(ix);
+			if(ch == '\n' || (ch == '\r' && (ix + 1 == text.length() || text.charAt(ix + 1) != '\n'))) {
+				lineStarts.add(lineStart);
+				lineStart = ix + 1;
+			}
+		}
+		if(lineStart < text.length()) {
+			lineStarts.add(lineStart);
+		}
+		
+		int[] result = new int[lineStarts.size() + 1];
+		for(int i = 0; i < lineStarts.size(); i++) {
+			result[i] = lineStarts.get(i);
+		}
+		result[lineStarts.size()] = text.length();
+		return result;
+	}
+	
+	public int getOldLineCount() {
+		return oldLineStarts.length - 1;
+	}
+	
+	public int getNewLineCount() {
+		return newLineStarts.length - 1;
+	}
+	
+	/* ----------------- line diff ----------------- */
+	
+	public ArrayList2<Hunk> computeHunks() {
+		int oldCount = getOldLineCount();
+		int newCount = getNewLineCount();
+		
+		// Map lines to ids, so that line comparisons are int comparisons
+		HashMap<String, Integer> lineIds = new HashMap<>();
+		int[] oldIds = getLineIds(oldText, oldLineStarts, lineIds);
+		int[] newIds = getLineIds(newText, newLineStarts, lineIds);
+		
+		int prefix = 0;
+		while(prefix < oldCount && prefix < newCount && oldIds[prefix] == newIds[prefix]) {
+			prefix++;
+		}
+		int suffix = 0;
+		while(suffix < oldCount - prefix && suffix < newCount - prefix &&
+				oldIds[oldCount - 1 - suffix] == newIds[newCount - 1 - suffix]) {
+			suffix++;
+		}
+		
+		ArrayList2<Hunk> hunks = new ArrayList2<>();
+		int oldStart = prefix;
+		int oldEnd = oldCount - suffix;
+		int newStart = prefix;
+		int newEnd = newCount - suffix;
+		if(oldStart == oldEnd && newStart == newEnd) {
+			return hunks;
+		}
+		if(oldStart == oldEnd || newStart == newEnd) {
+			return hunks.addElements(new Hunk(oldStart, oldEnd, newStart, newEnd));
+		}
+		
+		int[] matches = computeMatches(oldIds, oldStart, oldEnd, newIds, newStart, newEnd);
+		if(matches == null) {
+			// Edit distance too large, treat it all as one change
+			return hunks.addElements(new Hunk(oldStart, oldEnd, newStart, newEnd));
+		}
+		
+		int oldPos = oldStart;
+		int newPos = newStart;
+		for(int i = 0; i < matches.length; i += 2) {
+			int oldMatch = matches[i];
+			int newMatch = matches[i + 1];
+			if(oldMatch != oldPos || newMatch != newPos) {
+				hunks.add(new Hunk(oldPos, oldMatch, newPos, newMatch));
+			}
+			oldPos = oldMatch + 1;
+			newPos = newMatch + 1;
+		}
+		if(oldPos != oldEnd || newPos != newEnd) {
+			hunks.add(new Hunk(oldPos, oldEnd, newPos, newEnd));
+		}
+		return hunks;
+	}
+	
+	protected static int[] getLineIds(String text, int[] lineStarts, HashMap<String, Integer> lineIds) {
+		int[] ids = new int[lineStarts.length - 1];
+		for(int i = 0; i < ids.length; i++) {
+			String line = text.substring(lineStarts[i], lineStarts[i + 1]);
+			Integer id = lineIds.get(line);
+			if(id == null) {
+				id = lineIds.size();
+				lineIds.put(line, id);
+			}
+			ids[i] = id;
+		}
+		return ids;
+	}
+	
+	/**
+	 * Myers' greedy algorithm over the given sub-ranges.
+	 * @return the matched line pairs (old line, new line), in order, as a flat array.
+	 * null if the edit distance is larger than {@link #maxEditDistance}.
+	 */
+	protected int[] computeMatches(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd) {
+		int n = aEnd - aStart;
+		int m = bEnd - bStart;
+		int maxD = Math.min(n + m, maxEditDistance);
+		int vOffset = maxD + 1;
+		int[] v = new int[2 * maxD + 3];
+		
+		ArrayList<int[]> trace = new ArrayList<>();
+		for(int d = 0; d <= maxD; d++) {
+			trace.add(v.clone());
+			
+			for(int k = -d; k <= d; k += 2) {
+				int x;
+				if(k == -d || (k != d && v[vOffset + k - 1] < v[vOffset + k + 1])) {
+					x = v[vOffset + k + 1];
+				} else {
+					x = v[vOffset + k - 1] + 1;
+				}
+				int y = x - k;
+				while(x < n && y < m && a[aStart + x] == b[bStart + y]) {
+					x++;
+					y++;
+				}
+				v[vOffset + k] = x;
+				
+				if(x >= n && y >= m) {
+					return backtrackMatches(trace, d, n, m, vOffset, aStart, bStart);
+				}
+			}
+		}
+		return null;
+	}
+	
+	protected static int[] backtrackMatches(ArrayList<int[]> trace, int finalD, int n, int m, int vOffset,
+			int aStart, int bStart) {
+		ArrayList<Integer> reversedMatches = new ArrayList<>();
+		
+		int x = n;
+		int y = m;
+		for(int d = finalD; d >= 0; d--) {
+			int prevX = 0;
+			int prevY = 0;
+			if(d > 0) {
+				int[] v = trace.get(d);
+				int k = x - y;
+				int prevK;
+				if(k == -d || (k != d && v[vOffset + k - 1] < v[vOffset + k + 1])) {
+					prevK = k + 1;
+				} else {
+					prevK = k - 1;
+				}
+				prevX = v[vOffset + prevK];
+				prevY = prevX - prevK;
+			}
+			
+			// The snake that follows the edit from the previous point
+			while(x > prevX && y > prevY) {
+				x--;
+				y--;
+				reversedMatches.add(y + bStart);
+				reversedMatches.add(x + aStart);
+			}
+			x = prevX;
+			y = prevY;
+		}
+		
+		int[] matches = new int[reversedMatches.size()];
+		for(int i = 0; i < matches.length; i++) {
+			matches[i] = reversedMatches.get(matches.length - 1 - i);
+		}
+		return matches;
+	}
+	
+	/* ----------------- edits ----------------- */
+	
+	/**
+	 * @return the minimal replacements that change the old text into the new text,
+	 * in ascending order of offset, and non-overlapping. Offsets are relative to the old text.
+	 */
+	public ArrayList2<Replacement> computeReplacements() {
+		ArrayList2<Replacement> replacements = new ArrayList2<>();
+		for(Hunk hunk : computeHunks()) {
+			int oldStartOffset = oldLineStarts[hunk.oldStart];
+			int oldEndOffset = oldLineStarts[hunk.oldEnd];
+			int newStartOffset = newLineStarts[hunk.newStart];
+			int newEndOffset = newLineStarts[hunk.newEnd];
+			
+			// Trim common characters within the hunk as well
+			while(oldStartOffset < oldEndOffset && newStartOffset < newEndOffset &&
+					oldText.charAt(oldStartOffset) == newText.charAt(newStartOffset)) {
+				oldStartOffset++;
+				newStartOffset++;
+			}
+			while(oldStartOffset < oldEndOffset && newStartOffset < newEndOffset &&
+					oldText.charAt(oldEndOffset - 1) == newText.charAt(newEndOffset - 1)) {
+				oldEndOffset--;
+				newEndOffset--;
+			}
+			
+			replacements.add(new Replacement(oldStartOffset, oldEndOffset - oldStartOffset,
+				newText.substring(newStartOffset, newEndOffset)));
+		}
+		return replacements;
+	}
+	
+	/**
+	 * @return the ranges of lines of the new text that were changed or inserted, merged and in ascending order.
+	 * For deletions, the line following the deleted lines is considered changed.
+	 */
+	public ArrayList2<LineRange> computeChangedLines() {
+		int newCount = getNewLineCount();
+		ArrayList2<LineRange> ranges = new ArrayList2<>();
+		for(Hunk hunk : computeHunks()) {
+			int startLine = hunk.newStart;
+			int endLine = hunk.newEnd;
+			if(startLine == endLine) {
+				// A deletion: mark the line where the deleted text was
+				if(newCount == 0) {
+					continue;
+				}
+				startLine = Math.min(startLine, newCount - 1);
+				endLine = startLine + 1;
+			}
+			
+			if(!ranges.isEmpty() && ranges.get(ranges.size() - 1).endLine >= startLine) {
+				LineRange last = ranges.remove(ranges.size() - 1);
+				startLine = last.startLine;
+				endLine = Math.max(endLine, last.endLine);
+			}
+			ranges.add(new LineRange(startLine, endLine));
+		}
+		return ranges;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	public static ArrayList2<Replacement> computeReplacements(String oldText, String newText) {
+		return new TextDiffer(oldText, newText).computeReplacements();
+	}
+	
+	public static ArrayList2<LineRange> computeChangedLines(String oldText, String newText) {
+		return new TextDiffer(oldText, newText).computeChangedLines();
+	}
+	
+	/** Apply given replacements (as returned by {@link #computeReplacements()}) to given text. */
+	public static String applyReplacements(String text, Iterable<Replacement> replacements) {
+		StringBuilder sb = new StringBuilder(text.length());
+		int pos = 0;
+		for(Replacement replacement : replacements) {
+			assertTrue(replacement.offset >= pos);
+			sb.append(text, pos, replacement.offset);
+			sb.append(replacement.text);
+			pos = replacement.getEndPos();
+		}
+		sb.append(text, pos, text.length());
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package melnorme.lang.utils.gson;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import melnorme.utilbox.core.CommonException;
+
+/**
+ * Like {@link GsonHelper}, but reads property values directly from a {@link JsonReader}, 
+ * without creating a JSON element tree. 
+ * Each method reads the value of the property whose name was just read with {@link JsonReader#nextName()}.
+ */
+public class JsonReaderHelper {
+	
+	protected CommonException wrongPropertyTypeException(String key, String expectedType) {
+		return CommonException.fromMsgFormat("Property `{0}` is not a {1}.", key, expectedType);
+	}
+	
+	protected CommonException wrongTypeException(JsonToken token, String expectedType) {
+		return CommonException.fromMsgFormat("Value of type {0}, is not a {1}.", token, expectedType);
+	}
+	
+	/* -----------------  ----------------- */
+	
+	/** Begin reading a JSON object value (not a property value). */
+	public void beginObject(JsonReader json) throws IOException, CommonException {
+		JsonToken token = json.peek();
+		if(token != JsonToken.BEGIN_OBJECT) {
+			throw wrongTypeException(token, "Object");
+		}
+		json.beginObject();
+	}
+	
+	public void beginObject(JsonReader json, String key) throws IOException, CommonException {
+		if(json.peek() != JsonToken.BEGIN_OBJECT) {
+			throw wrongPropertyTypeException(key, "Object");
+		}
+		json.beginObject();
+	}
+	
+	public void beginArray(JsonReader json, String key) throws IOException, CommonException {
+		if(json.peek() != JsonToken.BEGIN_ARRAY) {
+			throw wrongPropertyTypeException(key, "Array");
+		}
+		json.beginArray();
+	}
+	
+	public String nextString(JsonReader json, String key) throws IOException, CommonException {
+		if(json.peek() != JsonToken.STRING) {
+			throw wrongPropertyTypeException(key, "String");
+		}
+		return json.nextString();
+	}
+	
+	/* ----------------- optional ----------------- */
+	
+	/** @return true if the value was an object and was begun, false if the value was null (and was consumed). */
+	public boolean beginOptionalObject(JsonReader json, String key) throws IOException, CommonException {
+		if(json.peek() == JsonToken.NULL) {
+			json.nextNull();
+			return false;
+		}
+		beginObject(json, key);
+		return true;
+	}
+	
+	public String nextStringOr(JsonReader json, String key, String defaultValue) 
+			throws IOException, CommonException {
+		if(json.peek() == JsonToken.NULL) {
+			json.nextNull();
+			return defaultValue;
+		}
+		return nextString(json, key);
+	}
+	
+	public boolean nextBooleanOr(JsonReader json, String key, boolean defaultValue) 
+			throws IOException, CommonException {
+		JsonToken token = json.peek();
+		if(token == JsonToken.NULL) {
+			json.nextNull();
+			return defaultValue;
+		}
+		if(token != JsonToken.BOOLEAN) {
+			throw wrongPropertyTypeException(key, "boolean");
+		}
+		return json.nextBoolean();
+	}
+	
+	public int nextIntegerOr(JsonReader json, String key, int defaultValue) throws IOException, CommonException {
+		JsonToken token = json.peek();
+		if(token == JsonToken.NULL) {
+			json.nextNull();
+			return defaultValue;
+		}
+		if(token != JsonToken.NUMBER) {
+			throw wrongPropertyTypeException(key, "Number");
+		}
+		try {
+			return json.nextInt();
+		} catch(NumberFormatException e) {
+			throw CommonException.fromMsgFormat("Number `{0}` cannot be represented as an Integer.", key);
+		}
+	}
+	
+}
@@ -11,32 +11,44 @@
 package com.github.rustdt.tooling;
 
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
-import static melnorme.utilbox.core.CoreUtil.areEqual;
 
 import java.io.IOException;
 import java.io.Reader;
 
 import com.github.rustdt.tooling.CargoMessage.CargoMessageTarget;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
-import melnorme.lang.utils.gson.GsonHelper;
 import melnorme.lang.utils.gson.JsonParserX;
-import melnorme.lang.utils.gson.JsonParserX.JsonSyntaxExceptionX;
+import melnorme.lang.utils.gson.JsonReaderHelper;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 
+/**
+ * Parser for Cargo JSON messages. Messages other than compiler messages are skipped 
+ * once their reason has been read, without parsing the rest of them.
+ */
 public class CargoMessageParser {
 	
-	protected final GsonHelper helper = new GsonHelper();
+	public static final String REASON_COMPILER_MESSAGE = "compiler-message";
+	
+	protected final JsonReaderHelper helper = new JsonReaderHelper();
+	protected final RustJsonMessageParser rustMessageParser;
 	
 	protected final Reader reader;
 	protected final JsonReader jsonReader;
 	
 	public CargoMessageParser(Reader reader) {
+		this(reader, new RustJsonMessageParser());
+	}
+	
+	/** 
+	 * @param rustMessageParser the parser for the compiler messages. 
+	 * Can be shared between Cargo message parsers of the same build (but not concurrently).
+	 */
+	public CargoMessageParser(Reader reader, RustJsonMessageParser rustMessageParser) {
 		this.reader = assertNotNull(reader);
+		this.rustMessageParser = assertNotNull(rustMessageParser);
 		this.jsonReader = new JsonReader(reader);
 		this.jsonReader.setLenient(true);
 	}
@@ -51,7 +63,7 @@ public class CargoMessageParser {
 		try {
 			try {
 				return doParseCargoMessage();
-			} catch(JsonSyntaxExceptionX e) {
+			} catch(MalformedJsonException | NumberFormatException | IllegalStateException e) {
 				throw new CommonException("JSON syntax error: ",  e);
 			} catch (IOException ioe) {
 				throw new CommonException("Unexpected IO Exception: ", ioe);
@@ -62,46 +74,88 @@ public class CargoMessageParser {
 		}
 	}
 	
-	public CargoMessage doParseCargoMessage() throws IOException, JsonSyntaxExceptionX, CommonException {
+	public CargoMessage doParseCargoMessage() throws IOException, CommonException {
 		while (true) {
 			if(JsonParserX.isEndOfInput(jsonReader)) {
 				return null;
 			}
 			
-			JsonElement element = new JsonParserX().parse(jsonReader);
-			JsonObject cargoMsg = helper.asObject(element);
-			
-			String reason = helper.getStringOr(cargoMsg, "reason", "");
-			String packageId = helper.getStringOr(cargoMsg, "package_id", "");
-			
-			if(!areEqual(reason, "compiler-message")) {
+			CargoMessage cargoMessage = parseCargoMessageObject(jsonReader);
+			if(cargoMessage == null) {
 				// Ignore other messages, we have no use for them ATM
 				continue;
 			}
-			
-			CargoMessageTarget msgTarget = parseCargoMessageTarget(helper.getObject(cargoMsg, "target"));
-			RustMainMessage message = parseRustMessage(helper.getObject(cargoMsg, "message"));
-			
-			return new CargoMessage(reason, packageId, msgTarget, message);
-			
+			return cargoMessage;
 		}
 	}
 	
-	protected RustMainMessage parseRustMessage(JsonObject object) throws CommonException {
-		RustJsonMessageParser rustMessageParser = new RustJsonMessageParser();
-		return rustMessageParser.parseTopLevelRustMessage(object);
+	/** @return the Cargo message read from given reader, or null if it's not a compiler message. */
+	protected CargoMessage parseCargoMessageObject(JsonReader json) throws IOException, CommonException {
+		String reason = null;
+		String packageId = "";
+		CargoMessageTarget msgTarget = null;
+		RustMainMessage message = null;
+		
+		helper.beginObject(json);
+		while(json.hasNext()) {
+			String key = json.nextName();
+			if(reason != null && !reason.equals(REASON_COMPILER_MESSAGE)) {
+				json.skipValue();
+				continue;
+			}
+			switch(key) {
+			case "reason": reason = helper.nextStringOr(json, key, ""); break;
+			case "package_id": packageId = helper.nextStringOr(json, key, ""); break;
+			case "target": msgTarget = parseCargoMessageTarget(json, key); break;
+			case "message": message = rustMessageParser.parseTopLevelRustMessage(json); break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		
+		if(reason == null || !reason.equals(REASON_COMPILER_MESSAGE)) {
+			return null;
+		}
+		if(msgTarget == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "target", "Object");
+		}
+		if(message == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "message", "Object");
+		}
+		return new CargoMessage(reason, packageId, msgTarget, message);
 	}
 	
-	protected CargoMessageTarget parseCargoMessageTarget(JsonObject messageTarget) throws CommonException {
-		JsonArray jsonArray = helper.getArray(messageTarget, "kind");
-		ArrayList2<String> kind = new ArrayList2<>(jsonArray).mapx((jsonElement) -> {
-			return helper.asString(jsonElement);
-		});
+	protected CargoMessageTarget parseCargoMessageTarget(JsonReader json, String targetKey) 
+			throws IOException, CommonException {
+		ArrayList2<String> kind = null;
+		String name = "";
+		String path = "";
 		
-		String name = helper.getStringOr(messageTarget, "name", "");
-		String path = helper.getStringOr(messageTarget, "src_path", "");
+		helper.beginObject(json, targetKey);
+		while(json.hasNext()) {
+			String key = json.nextName();
+			switch(key) {
+			case "kind":
+				kind = new ArrayList2<>();
+				helper.beginArray(json, key);
+				while(json.hasNext()) {
+					kind.add(helper.nextString(json, key));
+				}
+				json.endArray();
+				break;
+			case "name": name = helper.nextStringOr(json, key, ""); break;
+			case "src_path": path = helper.nextStringOr(json, key, ""); break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
 		
+		if(kind == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "kind", "Array");
+		}
 		return new CargoMessageTarget(kind, name, path);
 	}
 	
-}
\ No newline at end of file
+}
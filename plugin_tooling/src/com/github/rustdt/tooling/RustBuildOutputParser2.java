@@ -16,17 +16,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import melnorme.lang.tooling.common.ToolSourceMessage;
 import melnorme.lang.tooling.toolchain.ops.BuildOutputParser3;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
 import melnorme.lang.tooling.toolchain.ops.ToolMessageData;
-import melnorme.lang.utils.parse.LexingUtils;
 import melnorme.lang.utils.parse.StringCharSource;
 import melnorme.lang.utils.parse.StringCharSource.StringCharSourceReader;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.IByteSequence;
+import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
+import melnorme.utilbox.process.LineSplittingOutputListener;
 
 public abstract class RustBuildOutputParser2 extends BuildOutputParser3 {
 	
@@ -38,6 +42,23 @@ public abstract class RustBuildOutputParser2 extends BuildOutputParser3 {
 	protected static final AbstractRustBuildOutputLineParser CARGO_OUTPUT_LINE_PARSER = 
 			new CargoRustBuildOutputLineParser();
 	
+	/** Shared by all the messages of the build, so that their file paths are interned. */
+	protected final RustJsonMessageParser rustMessageParser = new RustJsonMessageParser();
+	
+	@Override
+	public void parseStdOut(IByteSequence stdout) throws CommonException, IOException {
+		try(Reader reader = stdout.openReader(StringUtil.UTF8)) {
+			parseStdOut(reader);
+		}
+	}
+	
+	@Override
+	public void parseStdErr(IByteSequence stderr) throws CommonException, IOException {
+		try(Reader reader = stderr.openReader(StringUtil.UTF8)) {
+			parseStdErr(reader);
+		}
+	}
+	
 	@Override
 	public void parseStdOut(StringCharSource stdout) throws CommonException, IOException {
 		StringCharSourceReader reader = stdout.toReader();
@@ -52,29 +73,108 @@ public abstract class RustBuildOutputParser2 extends BuildOutputParser3 {
 			if(line == null || line.isEmpty()) {
 				return;
 			}
-			if(line.startsWith("Build failed,")) {
-				continue;
+			parseStdOutLine(line);
+		}
+	}
+	
+	/** Parse a single line of Cargo JSON output (each line is one Cargo message). */
+	public void parseStdOutLine(String line) throws CommonException {
+		if(line.isEmpty() || line.startsWith("Build failed,")) {
+			return;
+		}
+		
+		CargoMessageParser cargoMessageParser = new CargoMessageParser(new StringReader(line), rustMessageParser);
+		ArrayList2<CargoMessage> cargoMessages = cargoMessageParser.parseCargoMessages();
+		
+		for (CargoMessage cargoMessage : cargoMessages) {
+			ArrayList2<ToolSourceMessage> toolMessages = cargoMessage.message.retrieveToolMessages();
+			for(ToolSourceMessage flatMessage : toolMessages) {
+				addBuildMessage(flatMessage);
 			}
-			
-			CargoMessageParser cargoMessageParser = new CargoMessageParser(new StringReader(line));
-			ArrayList2<CargoMessage> cargoMessages = cargoMessageParser.parseCargoMessages();
-			
-			for (CargoMessage cargoMessage : cargoMessages) {
-				ArrayList2<ToolSourceMessage> toolMessages = cargoMessage.message.retrieveToolMessages();
-				for(ToolSourceMessage flatMessage : toolMessages) {
-					addBuildMessage(flatMessage);
+		}
+	}
+	
+	/* ----------------- streaming ----------------- */
+	
+	/**
+	 * Create a process listener that parses stdout while the build is running, line by line.
+	 * Once the process terminates, use {@link #parseStreamedResult(ExternalProcessResult)} 
+	 * instead of {@link #doParseResult(ExternalProcessResult)}, since stdout has already been parsed.
+	 */
+	public StdOutStreamParser createStdOutStreamParser() {
+		return new StdOutStreamParser();
+	}
+	
+	public class StdOutStreamParser extends LineSplittingOutputListener {
+		
+		protected final LinkedBlockingQueue<ToolSourceMessage> newMessages = new LinkedBlockingQueue<>();
+		
+		@Override
+		protected void handleStdOutLine(String line) {
+			synchronized(RustBuildOutputParser2.this) {
+				int previousCount = buildMessages.size();
+				try {
+					parseStdOutLine(line);
+				} catch(CommonException ce) {
+					handleMessageParseError(ce);
+				}
+				for(int ix = previousCount; ix < buildMessages.size(); ix++) {
+					newMessages.add(buildMessages.get(ix));
 				}
 			}
 		}
+		
+		/** 
+		 * Wait up to given timeout for messages parsed since the last call.
+		 * @return the new messages, or an empty list if none. 
+		 */
+		public ArrayList2<ToolSourceMessage> awaitNewMessages(long timeoutMillis) throws InterruptedException {
+			ArrayList2<ToolSourceMessage> messages = new ArrayList2<>();
+			ToolSourceMessage message = newMessages.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+			if(message != null) {
+				messages.add(message);
+				newMessages.drainTo(messages);
+			}
+			return messages;
+		}
+		
+	}
+	
+	/** Complete parsing of a build result whose stdout was parsed by a {@link StdOutStreamParser}. */
+	public synchronized ArrayList2<ToolSourceMessage> parseStreamedResult(ExternalProcessResult result) 
+			throws CommonException {
+		try {
+			validateExitCode(result);
+		} catch(OperationSoftFailure e) {
+			throw new CommonException(e.getMessage());
+		}
+		try {
+			parseStdErr(result.getStdErrBytes());
+		} catch(IOException e) {
+			throw new CommonException("Error reading stderr: ", e);
+		}
+		return buildMessages;
 	}
 	
 	@Override
 	public void parseStdErr(StringCharSource output) throws CommonException {
+		try {
+			parseStdErr(output.toReader());
+		} catch(IOException e) {
+			throw new CommonException("Error reading stderr: ", e);
+		}
+	}
+	
+	public void parseStdErr(Reader reader) throws CommonException, IOException {
+		BufferedReader lineReader = new BufferedReader(reader);
 		// Deprecated functionality, remove support for this at some point:
 		try {
-			if(output.lookahead() == '{') {
-				RustJsonMessageParser msgParser = new RustJsonMessageParser();
-				ArrayList2<RustMainMessage> rustMessages = msgParser.parseStructuredMessages(output.toReader());
+			lineReader.mark(1);
+			int firstChar = lineReader.read();
+			lineReader.reset();
+			
+			if(firstChar == '{') {
+				ArrayList2<RustMainMessage> rustMessages = rustMessageParser.parseStructuredMessages(lineReader);
 				
 				for (RustMainMessage rustMessage : rustMessages) {
 					for(ToolSourceMessage flatMessage : rustMessage.retrieveToolMessages()) {
@@ -82,8 +182,8 @@ public abstract class RustBuildOutputParser2 extends BuildOutputParser3 {
 					}
 				}
 			} else {
-				while(output.hasCharAhead()) {
-					String lineParsing = LexingUtils.consumeLine(output);
+				String lineParsing;
+				while((lineParsing = lineReader.readLine()) != null) {
 					ToolMessageData cargo_tool_message = CARGO_OUTPUT_LINE_PARSER.parseLine(lineParsing);
 					if (cargo_tool_message != null) {
 						addBuildMessage(cargo_tool_message);
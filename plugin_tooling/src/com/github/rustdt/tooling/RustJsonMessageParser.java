@@ -13,38 +13,37 @@ package com.github.rustdt.tooling;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.util.HashMap;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
+import melnorme.lang.tooling.common.SourceLineColumnRange;
 import melnorme.lang.tooling.common.ToolSourceMessage;
-import melnorme.lang.tooling.toolchain.ops.ToolMessageData;
-import melnorme.lang.tooling.toolchain.ops.ToolMessageParser;
-import melnorme.lang.utils.gson.GsonHelper;
 import melnorme.lang.utils.gson.JsonParserX;
-import melnorme.lang.utils.gson.JsonParserX.JsonSyntaxExceptionX;
+import melnorme.lang.utils.gson.JsonReaderHelper;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.MiscUtil;
 import melnorme.utilbox.misc.StringUtil;
 import melnorme.utilbox.status.Severity;
 
+/**
+ * Parser for rustc JSON diagnostics. 
+ * 
+ * Messages are read directly from a {@link JsonReader}, without creating a JSON element tree, 
+ * and span positions are decoded into ints. 
+ * File paths and severities are interned, since a build usually references the same few of them many times.
+ * Therefore, a parser instance should be reused for all the messages of a build (it is not thread-safe).
+ */
 public class RustJsonMessageParser {
 	
-	protected final GsonHelper helper = new GsonHelper();
-	protected final ToolMessageParser messageParseHelper = new ToolMessageParser();
+	protected final JsonReaderHelper helper = new JsonReaderHelper();
 	
-	public ToolSourceMessage parseSourceMessage(ToolMessageData msgdata) throws CommonException {
-		if(msgdata.pathString.startsWith("<") && msgdata.pathString.endsWith(">")) {
-			// That path doesn't exist, it's a macro expansion.
-			// Furthermore, on Windows it's not even a valid Path, so createMessage would fail
-			// So we set it to empty:
-			msgdata.pathString = "";
-		}
-		
-		return messageParseHelper.createMessage(msgdata);
-	}
+	protected final HashMap<String, Path> pathCache = new HashMap<>();
+	protected final HashMap<String, Severity> severityCache = new HashMap<>();
 	
 	public ArrayList2<RustMainMessage> parseStructuredMessages(Reader reader) throws CommonException {
 		// Only Json from now on. 
@@ -76,148 +75,239 @@ public class RustJsonMessageParser {
 			return null;
 		}
 		try {
-			JsonElement element = new JsonParserX().parse(jsonReader);
-			return parseTopLevelRustMessage(element);
+			return parseTopLevelRustMessage(jsonReader);
 		}
-		catch(JsonSyntaxExceptionX e) {
+		catch(MalformedJsonException | NumberFormatException | IllegalStateException e) {
 			throw new CommonException("JSON syntax error in output message: ",  e);
 		}
 	}
 	
+	/* -----------------  ----------------- */
+	
+	/** The fields of a span, as read from JSON. Converted to a {@link RustMessage} once the whole message is read, 
+	 * since the span messages depend on the message level, which might come after the spans. */
+	protected static class SpanData {
+		
+		protected String fileName = "";
+		protected int lineStart = -1;
+		protected int lineEnd = -1;
+		protected int columnStart = -1;
+		protected int columnEnd = -1;
+		protected boolean isPrimary = false;
+		protected String label;
+		
+		protected SpanData expansionSpan; // can be null
+		protected SpanData expansionDefSiteSpan; // can be null
+		
+	}
 	
-	/** Add all compiler errors (if any) to the list of build messages in the order in which they appear.
+	/** 
+	 * Read a top-level rustc message object (the next value of given reader).
 	 * 
-	 * @param messsagesElement The JsonElement to transform into messages.
-	 * @throws CommonException when messageLine is not in the expected format.
+	 * @throws CommonException when the message is not in the expected format.
 	 */
-	protected RustMainMessage parseTopLevelRustMessage(JsonElement messsagesElement) throws CommonException {
-		JsonObject messages = helper.asObject(messsagesElement);
-		String messageText = helper.getString(messages, "message");
+	protected RustMainMessage parseTopLevelRustMessage(JsonReader json) throws CommonException, IOException {
+		String messageText = null;
+		String severityLevel = null;
+		String errorCode = "";
+		ArrayList2<String> notes = new ArrayList2<>();
+		ArrayList2<SpanData> spansData = null;
 		
-		String severityLevel = helper.getOptionalString(messages, "level");
-		if (severityLevel == null) {
-			severityLevel = Severity.WARNING.getLabel();
+		helper.beginObject(json);
+		while(json.hasNext()) {
+			String key = json.nextName();
+			switch(key) {
+			case "message": messageText = helper.nextString(json, key); break;
+			case "level": severityLevel = helper.nextStringOr(json, key, null); break;
+			case "code": errorCode = parseErrorCode(json, key); break;
+			case "children": parseNotes(json, notes); break;
+			case "spans":
+				spansData = new ArrayList2<>();
+				helper.beginArray(json, key);
+				while(json.hasNext()) {
+					spansData.add(parseSpan(json));
+				}
+				json.endArray();
+				break;
+			default:
+				json.skipValue();
+			}
 		}
+		json.endObject();
 		
-		String errorCode = getErrorCode(messages);
-		ArrayList2<String> notes = parseNotes(messages.get("children"));
-		
-		JsonArray spansArray = helper.getArray(messages, "spans");
+		if(messageText == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "message", "String");
+		}
+		if(spansData == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "spans", "Array");
+		}
 		
-		ArrayList2<RustMessage> spans = new ArrayList2<>();
+		Severity severity = getSeverity(severityLevel == null ? Severity.WARNING.getLabel() : severityLevel);
 		
-		for (JsonElement spanElement : spansArray) {
-			JsonObject spanObject = helper.asObject(spanElement);
-			RustMessage message = parseToolMessageFromSpanObject(spanObject, severityLevel, false, "");
-			spans.add(message);
+		ArrayList2<RustMessage> spans = new ArrayList2<>(spansData.size());
+		for(SpanData spanData : spansData) {
+			spans.add(createSpanMessage(spanData, severity, false));
 		}
 		
-		ToolMessageData messageData = toolMessageWithoutSpan(messageText, severityLevel);
-		
-		ToolSourceMessage sourceMessage = parseSourceMessage(messageData);
+		ToolSourceMessage sourceMessage = new ToolSourceMessage(getPath(""), 
+			new SourceLineColumnRange(1, 1, 1, 1), severity, messageText);
 		return new RustMainMessage(sourceMessage, errorCode, notes, spans);
 	}
 	
-	protected RustMessage parseToolMessageFromSpanObject(
-		JsonObject spanObject, 
-		String severityLevel, 
-		boolean overridePrimaryToTrue, 
-		String macroDeclarationName
-	) throws CommonException {
+	protected SpanData parseSpan(JsonReader json) throws CommonException, IOException {
+		SpanData span = new SpanData();
 		
-		ToolMessageData subMessage = toolMessageWithRange(spanObject);
-		boolean isPrimary = true;
-		if (!overridePrimaryToTrue) {
-			isPrimary = helper.getBooleanOr(spanObject, "is_primary", false);
+		helper.beginObject(json);
+		while(json.hasNext()) {
+			String key = json.nextName();
+			switch(key) {
+			case "file_name": span.fileName = helper.nextStringOr(json, key, ""); break;
+			case "line_start": span.lineStart = helper.nextIntegerOr(json, key, -1); break;
+			case "line_end": span.lineEnd = helper.nextIntegerOr(json, key, -1); break;
+			case "column_start": span.columnStart = helper.nextIntegerOr(json, key, -1); break;
+			case "column_end": span.columnEnd = helper.nextIntegerOr(json, key, -1); break;
+			case "is_primary": span.isPrimary = helper.nextBooleanOr(json, key, false); break;
+			case "label": span.label = helper.nextStringOr(json, key, null); break;
+			case "expansion": 
+				if(helper.beginOptionalObject(json, key)) {
+					parseExpansion(json, span);
+				}
+				break;
+			default:
+				json.skipValue();
+			}
 		}
-		subMessage.sourceBeforeMessageText = ""; // This does not seem to be used (?). TODO
-		
-		if (isPrimary) {
-			subMessage.messageTypeString = severityLevel;
-		} else {
-			subMessage.messageTypeString = Severity.INFO.getLabel();
+		json.endObject();
+		return span;
+	}
+	
+	protected void parseExpansion(JsonReader json, SpanData span) throws CommonException, IOException {
+		while(json.hasNext()) {
+			String key = json.nextName();
+			switch(key) {
+			case "span": 
+				if(json.peek() == JsonToken.NULL) {
+					throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", key, "Object");
+				}
+				span.expansionSpan = parseSpan(json); 
+				break;
+			case "def_site_span": 
+				if(json.peek() == JsonToken.NULL) {
+					json.nextNull();
+				} else {
+					span.expansionDefSiteSpan = parseSpan(json);
+				}
+				break;
+			default:
+				json.skipValue();
+			}
 		}
+		json.endObject();
 		
-		String label = helper.getOptionalString(spanObject, "label");
-		subMessage.messageText = StringUtil.nullAsEmpty(label);
+		if(span.expansionSpan == null) {
+			throw CommonException.fromMsgFormat("Property `{0}` is not a {1}.", "span", "Object");
+		}
+	}
+	
+	protected RustMessage createSpanMessage(SpanData span, Severity severity, boolean overridePrimaryToTrue) 
+			throws CommonException {
+		boolean isPrimary = overridePrimaryToTrue || span.isPrimary;
 		
 		RustMessage expansionMsg = null;
 		RustMessage defSiteMsg = null;
-		
-		JsonObject expansion = helper.getOptionalObject(spanObject, "expansion");
-		if (expansion != null) {
-			String macroDeclarationNameInExpansion = helper.getOptionalString(expansion, "macro_decl_name");
-			if (macroDeclarationNameInExpansion != null) {
-				macroDeclarationName = macroDeclarationNameInExpansion;
-			}
-			
-			JsonObject expansionSpan = helper.getObject(expansion, "span");
-			expansionMsg = parseToolMessageFromSpanObject(
-				expansionSpan, severityLevel, isPrimary, macroDeclarationName
-			);
-			
-			JsonObject expansionDefSiteSpan = helper.getOptionalObject(expansion, "def_site_span");
-			if(expansionDefSiteSpan != null) {
-				defSiteMsg = parseToolMessageFromSpanObject(expansionDefSiteSpan, severityLevel, isPrimary, "");
+		if(span.expansionSpan != null) {
+			expansionMsg = createSpanMessage(span.expansionSpan, severity, isPrimary);
+			if(span.expansionDefSiteSpan != null) {
+				defSiteMsg = createSpanMessage(span.expansionDefSiteSpan, severity, isPrimary);
 			}
 		}
 		
-		return new RustSubMessage(parseSourceMessage(subMessage), isPrimary, expansionMsg, defSiteMsg);
+		ToolSourceMessage sourceMessage = new ToolSourceMessage(
+			getPath(span.fileName),
+			new SourceLineColumnRange(
+				positiveInt(span.lineStart), positiveInt(span.columnStart), 
+				positiveInt(span.lineEnd), positiveInt(span.columnEnd)
+			),
+			isPrimary ? severity : Severity.INFO,
+			StringUtil.nullAsEmpty(span.label)
+		);
+		return new RustSubMessage(sourceMessage, isPrimary, expansionMsg, defSiteMsg);
 	}
 	
-	protected ToolMessageData toolMessageWithRange(JsonObject span) throws CommonException {
-		ToolMessageData subMessage = new ToolMessageData();
-		subMessage.lineString = Integer.toString(helper.getIntegerOr(span, "line_start", -1));
-		subMessage.endLineString = Integer.toString(helper.getIntegerOr(span, "line_end", -1));
-		subMessage.columnString = Integer.toString(helper.getIntegerOr(span, "column_start", -1));
-		subMessage.endColumnString = Integer.toString(helper.getIntegerOr(span, "column_end", -1));
-		subMessage.pathString = helper.getStringOr(span, "file_name", "");
-		return subMessage;
+	protected static int positiveInt(int integer) throws CommonException {
+		if(integer < 0) {
+			throw new CommonException("Integer is not positive: " + integer);
+		}
+		return integer;
 	}
 	
-	protected ToolMessageData toolMessageWithoutSpan(String message, String level) {
-		ToolMessageData subMessage = new ToolMessageData();
-		subMessage.lineString = "1";
-		subMessage.endLineString = "1";
-		subMessage.columnString = "1";
-		subMessage.endColumnString = "1";
-		subMessage.pathString = "";
-		subMessage.messageText = message;
-		subMessage.sourceBeforeMessageText = "";
-		subMessage.messageTypeString = level;
-		return subMessage;
+	protected Path getPath(String pathString) throws CommonException {
+		Path path = pathCache.get(pathString);
+		if(path == null) {
+			String effectivePathString = pathString;
+			if(pathString.startsWith("<") && pathString.endsWith(">")) {
+				// That path doesn't exist, it's a macro expansion.
+				// Furthermore, on Windows it's not even a valid Path, so we set it to empty:
+				effectivePathString = "";
+			}
+			path = MiscUtil.createPath(effectivePathString).normalize();
+			pathCache.put(pathString, path);
+		}
+		return path;
 	}
 	
-	protected ArrayList2<String> parseNotes(JsonElement children) throws CommonException {
-		ArrayList2<String> notes = new ArrayList2<>();
-		if (children == null || !children.isJsonArray()) {
-			return notes;
-		}
-		JsonArray childrenArray = children.getAsJsonArray();
-		if (childrenArray.size() == 0) {
-			return notes;
-		}
-		for(JsonElement child: childrenArray) {
-			if (child.isJsonObject()) {
-				String childMessageString = helper.getOptionalString(child.getAsJsonObject(), 
-					"message");
-				if (childMessageString != null && !childMessageString.isEmpty()) {
-					notes.add(childMessageString);
+	protected Severity getSeverity(String severityLevel) throws CommonException {
+		Severity severity = severityCache.get(severityLevel);
+		if(severity == null) {
+			severity = Severity.fromString(severityLevel);
+			severityCache.put(severityLevel, severity);
+		}
+		return severity;
+	}
+	
+	protected void parseNotes(JsonReader json, ArrayList2<String> notes) throws CommonException, IOException {
+		if(json.peek() != JsonToken.BEGIN_ARRAY) {
+			json.skipValue();
+			return;
+		}
+		json.beginArray();
+		while(json.hasNext()) {
+			if(json.peek() != JsonToken.BEGIN_OBJECT) {
+				json.skipValue();
+				continue;
+			}
+			json.beginObject();
+			while(json.hasNext()) {
+				String key = json.nextName();
+				if(key.equals("message")) {
+					String childMessageString = helper.nextStringOr(json, key, null);
+					if(childMessageString != null && !childMessageString.isEmpty()) {
+						notes.add(childMessageString);
+					}
+				} else {
+					json.skipValue();
 				}
 			}
+			json.endObject();
 		}
-		return notes;
+		json.endArray();
 	}
 	
-	protected String getErrorCode(JsonObject messageLine) throws CommonException {
-		JsonObject codeObject = helper.getOptionalObject(messageLine, "code");
-		if (codeObject != null) {
-			String errorCode = helper.getOptionalString(codeObject, "code");
-			if (errorCode != null) {
-				return errorCode;
+	protected String parseErrorCode(JsonReader json, String key) throws CommonException, IOException {
+		String errorCode = "";
+		if(!helper.beginOptionalObject(json, key)) {
+			return errorCode;
+		}
+		while(json.hasNext()) {
+			String codeKey = json.nextName();
+			if(codeKey.equals("code")) {
+				errorCode = helper.nextStringOr(json, codeKey, "");
+			} else {
+				json.skipValue();
 			}
 		}
-		return "";
+		json.endObject();
+		return errorCode;
 	}
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import static com.github.rustdt.tooling.cargo.CargoManifestParser.CARGO_LOCK_FILENAME;
+import static com.github.rustdt.tooling.cargo.CargoManifestParser.MANIFEST_FILENAME;
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+
+import com.github.rustdt.tooling.cargo.CargoManifest.CrateDependencyRef;
+
+import melnorme.lang.tooling.toolchain.ops.BuildInputsFingerprint;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+
+/**
+ * Adds the inputs of a Cargo build of a crate to a {@link BuildInputsFingerprint}: the source trees of the crate 
+ * and of all its transitive path dependencies, the Cargo.toml and Cargo.lock of the workspace root, 
+ * and the state of the (possibly shared) target directory.
+ */
+public class CargoBuildInputs {
+	
+	public static final String CARGO_TARGET_DIR_VAR = "CARGO_TARGET_DIR";
+	
+	protected final BuildInputsFingerprint fingerprint;
+	protected final HashSet<Location> visitedCrates = new HashSet<>();
+	
+	public CargoBuildInputs(BuildInputsFingerprint fingerprint) {
+		this.fingerprint = assertNotNull(fingerprint);
+	}
+	
+	/** Add the inputs of a build of given crate, run with given process builder. */
+	public void addCrateBuild(Location crateLocation, ProcessBuilder pb) throws CommonException {
+		Location workspaceRoot = CargoManifestParser.findWorkspaceRoot(crateLocation);
+		if(workspaceRoot == null) {
+			workspaceRoot = crateLocation; // The crate is its own workspace
+		}
+		Location targetDir = getTargetDir(workspaceRoot, pb);
+		
+		// The build output is not an input, but if it was deleted, the crate must be built again.
+		fingerprint.addValue("target dir exists: " + targetDir.toFile().isDirectory());
+		// Note: the workspace root can be a virtual manifest, outside of any crate tree.
+		fingerprint.addFile(workspaceRoot.resolve(MANIFEST_FILENAME));
+		fingerprint.addFile(workspaceRoot.resolve_fromValid(CARGO_LOCK_FILENAME));
+		
+		addCrateClosure(normalize(crateLocation), normalize(targetDir).toPath());
+	}
+	
+	/** Add the source tree of given crate, and of its path dependencies, transitively. */
+	protected void addCrateClosure(Location crateLocation, Path targetDir) throws CommonException {
+		if(!visitedCrates.add(crateLocation)) {
+			return;
+		}
+		Path crateTargetDir = crateLocation.resolve_fromValid("target").toPath();
+		fingerprint.addFileTree(crateLocation, (dir) -> 
+			dir.equals(crateTargetDir) || dir.equals(targetDir) || dir.getFileName().toString().equals(".git"));
+		
+		CargoManifest manifest = getManifest(crateLocation);
+		if(manifest == null) {
+			return;
+		}
+		for(CrateDependencyRef dependencyRef : manifest.getDependencies()) {
+			Location depLocation = dependencyRef.getEffectiveLocation(crateLocation);
+			if(depLocation != null && depLocation.toFile().isDirectory()) {
+				addCrateClosure(normalize(depLocation), targetDir);
+			}
+		}
+	}
+	
+	/** Path dependencies are usually relative (such as "../other_crate"), so they must be normalized to compare. */
+	protected static Location normalize(Location location) {
+		return Location.create_fromValid(location.getPath().normalize());
+	}
+	
+	/** 
+	 * @return the manifest of given crate, or null if not available.
+	 * Since the manifest file itself is fingerprinted, any parse error is ignored. 
+	 */
+	protected CargoManifest getManifest(Location crateLocation) {
+		try {
+			String source = FileUtil.readFileContents(crateLocation.resolve(MANIFEST_FILENAME), StringUtil.UTF8);
+			return new CargoManifestParser().parse(source);
+		} catch(CommonException | IllegalStateException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the target directory used by a build in given workspace: the one set with 
+	 * {@link #CARGO_TARGET_DIR_VAR} in the build environment (relative to the build working directory), 
+	 * or else the target directory of the workspace root.
+	 */
+	public static Location getTargetDir(Location workspaceRoot, ProcessBuilder pb) {
+		String targetDirVar = pb.environment().get(CARGO_TARGET_DIR_VAR);
+		if(targetDirVar != null && !targetDirVar.isEmpty()) {
+			Location workingDir = pb.directory() == null ? null : Location.createValidOrNull(pb.directory().toPath());
+			Location targetDir = (workingDir != null ? workingDir : workspaceRoot).resolveOrNull(targetDirVar);
+			if(targetDir != null) {
+				return targetDir;
+			}
+		}
+		return workspaceRoot.resolve_fromValid("target");
+	}
+	
+}
@@ -43,12 +43,44 @@ public class CargoManifest {
 	
 	public static class CrateDependencyRef extends DependencyRef {
 		
+		protected final String path; // can be null
+		
 		public CrateDependencyRef(String bundleName, String version) {
-			super(bundleName, version);
+			this(bundleName, version, false);
 		}
 		
 		public CrateDependencyRef(String bundleName, String version, boolean optional) {
+			this(bundleName, version, optional, null);
+		}
+		
+		public CrateDependencyRef(String bundleName, String version, boolean optional, String path) {
 			super(bundleName, version, optional);
+			this.path = path;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) return true;
+			if(!(obj instanceof CrateDependencyRef)) return false;
+			
+			CrateDependencyRef other = (CrateDependencyRef) obj;
+			
+			return super.equals(other) && areEqual(path, other.path);
+		}
+		
+		@Override
+		public int hashCode() {
+			return HashcodeUtil.combinedHashCode(super.hashCode(), path);
+		}
+		
+		/** @return the path of a local (path) dependency, relative to the crate directory, or null. */
+		public String getPath() {
+			return path;
+		}
+		
+		/** @return the location of a local dependency, or null if not a local dependency (or path is invalid). */
+		public Location getEffectiveLocation(Location crateLocation) {
+			return path == null ? null : crateLocation.resolveOrNull(path);
 		}
 		
 	}
@@ -246,17 +278,23 @@ public class CargoManifest {
 	}
 	
 	public Collection2<String> getEffectiveTestTargets(Location crateLocation) {
+		return getEffectiveTestTargets(getEffectiveIntegrationTests(crateLocation), 
+			getEffectiveLibrary(crateLocation), getEffectiveBinaries(crateLocation));
+	}
+	
+	public static Collection2<String> getEffectiveTestTargets(Iterable<FileRef> effectiveIntegrationTests, 
+			FileRef effectiveLibrary, Iterable<FileRef> effectiveBinaries) {
 		ArrayList2<String> effectiveTestTargets = new ArrayList2<>();
 		
-		for(FileRef integrationTest : getEffectiveIntegrationTests(crateLocation)) {
+		for(FileRef integrationTest : effectiveIntegrationTests) {
 			effectiveTestTargets.add(integrationTest.getBinaryPathString());
 		}
 		
-		for(FileRef integrationTest : singletonIterable(getEffectiveLibrary(crateLocation))) {
+		for(FileRef integrationTest : singletonIterable(effectiveLibrary)) {
 			effectiveTestTargets.add("lib." + integrationTest.getBinaryPathString());
 		}
 		
-		for(FileRef bin : getEffectiveBinaries(crateLocation)) {
+		for(FileRef bin : effectiveBinaries) {
 			effectiveTestTargets.add("bin." + bin.getBinaryPathString());
 		}
 		
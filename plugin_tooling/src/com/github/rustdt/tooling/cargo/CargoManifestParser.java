@@ -22,13 +22,43 @@ import melnorme.lang.tooling.bundle.FileRef;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.core.CoreUtil;
+import melnorme.utilbox.misc.FileUtil;
+import melnorme.utilbox.misc.Location;
 import melnorme.utilbox.misc.PathUtil;
+import melnorme.utilbox.misc.StringUtil;
 
 public class CargoManifestParser {
 	
 	public static enum FAllowNull { YES, NO ; public boolean isTrue() { return this == YES; } }
 
 	public static final Path MANIFEST_FILENAME = PathUtil.createValidPath("Cargo.toml");
+	public static final String CARGO_LOCK_FILENAME = "Cargo.lock";
+	
+	/**
+	 * @return the root of the Cargo workspace of given crate: the nearest directory, starting from the crate itself,
+	 * with a Cargo.toml that has a [workspace] section. Null if there is none, that is, if the crate is not 
+	 * part of a workspace.
+	 */
+	public static Location findWorkspaceRoot(Location crateLocation) {
+		for(Location dir = crateLocation; dir != null; dir = dir.getParent()) {
+			if(isWorkspaceManifest(dir.resolve(MANIFEST_FILENAME))) {
+				return dir;
+			}
+		}
+		return null;
+	}
+	
+	protected static boolean isWorkspaceManifest(Location manifestLocation) {
+		if(!manifestLocation.toFile().isFile()) {
+			return false;
+		}
+		try {
+			String source = FileUtil.readFileContents(manifestLocation, StringUtil.UTF8);
+			return new Toml().read(source).contains("workspace");
+		} catch(CommonException | IllegalStateException e) {
+			return false;
+		}
+	}
 	
 	protected MapHelper helper = new MapHelper();
 	
@@ -96,8 +126,9 @@ public class CargoManifestParser {
 	protected CrateDependencyRef parseDependencyRef(MapHelper helper, String name, Map<String, Object> map) {
 		String version = helper.getValue_ignoreErrors(map, "version", String.class, null);
 		boolean optional = helper.getValue_ignoreErrors(map, "optional", Boolean.class, false);
+		String path = helper.getValue_ignoreErrors(map, "path", String.class, null);
 		
-		return new CrateDependencyRef(name, version, optional);
+		return new CrateDependencyRef(name, version, optional, path);
 	}
 	
 	protected ArrayList2<FileRef> parseBinaries(Map<String, Object> manifestMap, String keyName) 
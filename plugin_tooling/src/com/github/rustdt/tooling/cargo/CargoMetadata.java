@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * The workspace model reported by `cargo metadata`: the packages of a Cargo workspace.
+ */
+public class CargoMetadata {
+	
+	public static class CargoPackage {
+		
+		protected final String id;
+		protected final Location manifestLocation;
+		protected final CargoManifest manifest;
+		
+		public CargoPackage(String id, Location manifestLocation, CargoManifest manifest) {
+			this.id = assertNotNull(id);
+			this.manifestLocation = assertNotNull(manifestLocation);
+			this.manifest = assertNotNull(manifest);
+		}
+		
+		public String getId() {
+			return id;
+		}
+		
+		/** @return the location of the package Cargo.toml. */
+		public Location getManifestLocation() {
+			return manifestLocation;
+		}
+		
+		public Location getCrateLocation() {
+			return manifestLocation.getParent();
+		}
+		
+		public CargoManifest getManifest() {
+			return manifest;
+		}
+		
+	}
+	
+	protected final Location workspaceRoot;
+	protected final Location targetDirectory;
+	protected final Indexable<CargoPackage> workspaceMembers;
+	
+	public CargoMetadata(Location workspaceRoot, Location targetDirectory, Indexable<CargoPackage> members) {
+		this.workspaceRoot = assertNotNull(workspaceRoot);
+		this.targetDirectory = targetDirectory;
+		this.workspaceMembers = assertNotNull(members);
+	}
+	
+	public Location getWorkspaceRoot() {
+		return workspaceRoot;
+	}
+	
+	/** @return the target directory shared by the workspace members. Can be null. */
+	public Location getTargetDirectory() {
+		return targetDirectory;
+	}
+	
+	public Indexable<CargoPackage> getWorkspaceMembers() {
+		return workspaceMembers;
+	}
+	
+	/** @return the locations of the manifests this metadata was computed from. */
+	public ArrayList2<Location> getManifestLocations() {
+		ArrayList2<Location> manifestLocations = new ArrayList2<>();
+		manifestLocations.add(workspaceRoot.resolve_fromValid("Cargo.toml"));
+		for(CargoPackage member : workspaceMembers) {
+			if(!manifestLocations.contains(member.getManifestLocation())) {
+				manifestLocations.add(member.getManifestLocation());
+			}
+		}
+		return manifestLocations;
+	}
+	
+	/** @return the workspace member with given crate location, or null if none. */
+	public CargoPackage findMember(Location crateLocation) {
+		return workspaceMembers.findElement((member) -> member.getCrateLocation().equals(crateLocation));
+	}
+	
+}
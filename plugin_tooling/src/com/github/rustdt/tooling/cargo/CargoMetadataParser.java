@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+
+import com.github.rustdt.tooling.cargo.CargoManifest.CrateDependencyRef;
+import com.github.rustdt.tooling.cargo.CargoMetadata.CargoPackage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import melnorme.lang.tooling.bundle.FileRef;
+import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * Parser for the output of `cargo metadata --format-version 1`.
+ *
+ * The output is read with a streaming reader, and the parts not used in the model
+ * (such as the dependency resolve graph, which can be very large) are skipped without being parsed into a tree.
+ */
+public class CargoMetadataParser {
+	
+	public static final String[] CARGO_METADATA_ARGS = { "metadata", "--format-version", "1", "--no-deps" };
+	
+	public CargoMetadata parse(Reader reader) throws CommonException {
+		JsonReader jsonReader = new JsonReader(reader);
+		try {
+			return parseMetadata(jsonReader);
+		} catch(IOException | IllegalStateException | NumberFormatException e) {
+			throw new CommonException("Error parsing `cargo metadata` output: ", e);
+		}
+	}
+	
+	protected static class ParsedPackage {
+		protected String id;
+		protected String name;
+		protected String version;
+		protected String manifestPath;
+		protected final ArrayList2<ParsedDependency> dependencies = new ArrayList2<>();
+		protected final ArrayList2<ParsedTarget> targets = new ArrayList2<>();
+	}
+	
+	protected static class ParsedDependency {
+		protected String name;
+		protected String req;
+		protected String kind;
+		protected boolean optional;
+		protected String path;
+	}
+	
+	protected static class ParsedTarget {
+		protected final ArrayList2<String> kinds = new ArrayList2<>();
+		protected String name;
+		protected String srcPath;
+	}
+	
+	protected CargoMetadata parseMetadata(JsonReader json) throws IOException, CommonException {
+		ArrayList2<ParsedPackage> packages = new ArrayList2<>();
+		HashSet<String> workspaceMemberIds = null;
+		String workspaceRoot = null;
+		String targetDirectory = null;
+		
+		json.beginObject();
+		while(json.hasNext()) {
+			switch(json.nextName()) {
+			case "packages":
+				json.beginArray();
+				while(json.hasNext()) {
+					packages.add(parsePackage(json));
+				}
+				json.endArray();
+				break;
+			case "workspace_members":
+				workspaceMemberIds = new HashSet<>(parseStringArray(json));
+				break;
+			case "workspace_root":
+				workspaceRoot = nextStringOrNull(json);
+				break;
+			case "target_directory":
+				targetDirectory = nextStringOrNull(json);
+				break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		
+		if(workspaceRoot == null) {
+			throw new CommonException("`cargo metadata` output has no workspace_root.");
+		}
+		
+		ArrayList2<CargoPackage> members = new ArrayList2<>();
+		for(ParsedPackage parsedPackage : packages) {
+			if(workspaceMemberIds == null || workspaceMemberIds.contains(parsedPackage.id)) {
+				members.add(createPackage(parsedPackage));
+			}
+		}
+		return new CargoMetadata(
+			Location.create(workspaceRoot),
+			targetDirectory == null ? null : Location.createValidOrNull(targetDirectory),
+			members
+		);
+	}
+	
+	protected ParsedPackage parsePackage(JsonReader json) throws IOException {
+		ParsedPackage parsedPackage = new ParsedPackage();
+		
+		json.beginObject();
+		while(json.hasNext()) {
+			switch(json.nextName()) {
+			case "id": parsedPackage.id = nextStringOrNull(json); break;
+			case "name": parsedPackage.name = nextStringOrNull(json); break;
+			case "version": parsedPackage.version = nextStringOrNull(json); break;
+			case "manifest_path": parsedPackage.manifestPath = nextStringOrNull(json); break;
+			case "dependencies":
+				json.beginArray();
+				while(json.hasNext()) {
+					parsedPackage.dependencies.add(parseDependency(json));
+				}
+				json.endArray();
+				break;
+			case "targets":
+				json.beginArray();
+				while(json.hasNext()) {
+					parsedPackage.targets.add(parseTarget(json));
+				}
+				json.endArray();
+				break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		return parsedPackage;
+	}
+	
+	protected ParsedDependency parseDependency(JsonReader json) throws IOException {
+		ParsedDependency dependency = new ParsedDependency();
+		
+		json.beginObject();
+		while(json.hasNext()) {
+			switch(json.nextName()) {
+			case "name": dependency.name = nextStringOrNull(json); break;
+			case "req": dependency.req = nextStringOrNull(json); break;
+			case "kind": dependency.kind = nextStringOrNull(json); break;
+			case "path": dependency.path = nextStringOrNull(json); break;
+			case "optional":
+				if(json.peek() == JsonToken.NULL) {
+					json.nextNull();
+				} else {
+					dependency.optional = json.nextBoolean();
+				}
+				break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		return dependency;
+	}
+	
+	protected ParsedTarget parseTarget(JsonReader json) throws IOException {
+		ParsedTarget target = new ParsedTarget();
+		
+		json.beginObject();
+		while(json.hasNext()) {
+			switch(json.nextName()) {
+			case "kind": target.kinds.addAll(parseStringArray(json)); break;
+			case "name": target.name = nextStringOrNull(json); break;
+			case "src_path": target.srcPath = nextStringOrNull(json); break;
+			default:
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		return target;
+	}
+	
+	protected static ArrayList2<String> parseStringArray(JsonReader json) throws IOException {
+		ArrayList2<String> strings = new ArrayList2<>();
+		if(json.peek() == JsonToken.NULL) {
+			json.nextNull();
+			return strings;
+		}
+		json.beginArray();
+		while(json.hasNext()) {
+			strings.add(nextStringOrNull(json));
+		}
+		json.endArray();
+		return strings;
+	}
+	
+	protected static String nextStringOrNull(JsonReader json) throws IOException {
+		if(json.peek() == JsonToken.NULL) {
+			json.nextNull();
+			return null;
+		}
+		return json.nextString();
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected CargoPackage createPackage(ParsedPackage parsedPackage) throws CommonException {
+		if(parsedPackage.id == null || parsedPackage.name == null || parsedPackage.manifestPath == null) {
+			throw new CommonException("Invalid package in `cargo metadata` output: " + parsedPackage.id);
+		}
+		Location manifestLocation = Location.create(parsedPackage.manifestPath);
+		Location crateLocation = manifestLocation.getParent();
+		
+		ArrayList2<CrateDependencyRef> deps = new ArrayList2<>();
+		for(ParsedDependency dependency : parsedPackage.dependencies) {
+			if(dependency.name == null || dependency.kind != null) {
+				// Only normal dependencies, not dev or build ones (same as CargoManifestParser)
+				continue;
+			}
+			String path = dependency.path == null ? null : relativePath(crateLocation, dependency.path);
+			deps.add(new CrateDependencyRef(dependency.name, dependency.req, dependency.optional, path));
+		}
+		
+		FileRef libTarget = null;
+		ArrayList2<FileRef> binaries = new ArrayList2<>();
+		ArrayList2<FileRef> tests = new ArrayList2<>();
+		for(ParsedTarget target : parsedPackage.targets) {
+			if(target.name == null) {
+				continue;
+			}
+			FileRef fileRef = new FileRef(target.name,
+				target.srcPath == null ? null : relativePath(crateLocation, target.srcPath));
+			
+			if(target.kinds.contains("bin")) {
+				binaries.add(fileRef);
+			} else if(target.kinds.contains("test")) {
+				tests.add(fileRef);
+			} else if(isLibraryTarget(target) && libTarget == null) {
+				libTarget = fileRef;
+			}
+		}
+		
+		CargoManifest manifest = new CargoManifest(parsedPackage.name, parsedPackage.version, deps,
+			libTarget, binaries, tests);
+		return new CargoPackage(parsedPackage.id, manifestLocation, manifest);
+	}
+	
+	protected static boolean isLibraryTarget(ParsedTarget target) {
+		for(String kind : target.kinds) {
+			switch(kind) {
+			case "lib": case "rlib": case "dylib": case "cdylib": case "staticlib": case "proc-macro":
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/** @return given absolute path relative to the crate location (as in Cargo.toml), if possible. */
+	protected static String relativePath(Location crateLocation, String pathString) {
+		Location location = Location.createValidOrNull(pathString);
+		if(location == null) {
+			return pathString;
+		}
+		try {
+			return crateLocation.relativize(location).toString();
+		} catch(IllegalArgumentException e) {
+			// Different roots, such as another Windows drive
+			return pathString;
+		}
+	}
+	
+}
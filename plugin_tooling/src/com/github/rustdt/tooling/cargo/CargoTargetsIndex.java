@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.cargo;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.nio.file.Path;
+
+import melnorme.lang.tooling.bundle.FileRef;
+import melnorme.utilbox.collections.Collection2;
+import melnorme.utilbox.misc.Location;
+
+/**
+ * The effective targets of a crate (see {@link CargoManifest#getEffectiveBinaries(Location)} and others),
+ * computed once and cached.
+ * Computing them lists the conventional target directories, so this avoids doing that on every query.
+ *
+ * The index must be invalidated when files are added to or removed from the conventional target locations
+ * (see {@link #isTargetSourcePath(Path)}).
+ */
+public class CargoTargetsIndex {
+	
+	protected final CargoManifest manifest;
+	protected final Location crateLocation;
+	
+	protected boolean libraryComputed = false;
+	protected FileRef effectiveLibrary;
+	protected Collection2<FileRef> effectiveBinaries;
+	protected Collection2<FileRef> effectiveIntegrationTests;
+	protected Collection2<String> effectiveTestTargets;
+	
+	public CargoTargetsIndex(CargoManifest manifest, Location crateLocation) {
+		this.manifest = assertNotNull(manifest);
+		this.crateLocation = assertNotNull(crateLocation);
+	}
+	
+	public CargoManifest getManifest() {
+		return manifest;
+	}
+	
+	public Location getCrateLocation() {
+		return crateLocation;
+	}
+	
+	public synchronized void invalidate() {
+		libraryComputed = false;
+		effectiveLibrary = null;
+		effectiveBinaries = null;
+		effectiveIntegrationTests = null;
+		effectiveTestTargets = null;
+	}
+	
+	public synchronized FileRef getEffectiveLibrary() {
+		if(!libraryComputed) {
+			effectiveLibrary = manifest.getEffectiveLibrary(crateLocation);
+			libraryComputed = true;
+		}
+		return effectiveLibrary;
+	}
+	
+	public synchronized Collection2<FileRef> getEffectiveBinaries() {
+		if(effectiveBinaries == null) {
+			effectiveBinaries = manifest.getEffectiveBinaries(crateLocation);
+		}
+		return effectiveBinaries;
+	}
+	
+	public synchronized Collection2<FileRef> getEffectiveIntegrationTests() {
+		if(effectiveIntegrationTests == null) {
+			effectiveIntegrationTests = manifest.getEffectiveIntegrationTests(crateLocation);
+		}
+		return effectiveIntegrationTests;
+	}
+	
+	public synchronized Collection2<String> getEffectiveTestTargets() {
+		if(effectiveTestTargets == null) {
+			effectiveTestTargets = CargoManifest.getEffectiveTestTargets(
+				getEffectiveIntegrationTests(), getEffectiveLibrary(), getEffectiveBinaries());
+		}
+		return effectiveTestTargets;
+	}
+	
+	/**
+	 * @return whether adding or removing a file or directory at given path (relative to the crate location)
+	 * can change the effective targets.
+	 */
+	public static boolean isTargetSourcePath(Path crateRelativePath) {
+		int nameCount = crateRelativePath.getNameCount();
+		String first = crateRelativePath.getName(0).toString();
+		
+		if(first.equals("src")) {
+			if(nameCount == 1) {
+				return true;
+			}
+			String second = crateRelativePath.getName(1).toString();
+			if(nameCount == 2) {
+				return second.equals("main.rs") || second.equals("lib.rs") || second.equals("bin");
+			}
+			return nameCount == 3 && second.equals("bin");
+		}
+		if(first.equals("tests")) {
+			return nameCount <= 2;
+		}
+		return false;
+	}
+	
+}
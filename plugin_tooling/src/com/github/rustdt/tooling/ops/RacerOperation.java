@@ -42,6 +42,7 @@ public abstract class RacerOperation<RESULTDATA> extends AbstractToolInvocationO
 	protected final boolean useSubstituteFile;
 	
 	protected Location substituteFile;
+	protected RacerSession session = null;
 	
 	public RacerOperation(IToolOperationService opHelper,
 			ValidatedValueSource<Path> racerPath, ValidatedValueSource<Location> sdkSrcLocation,
@@ -67,10 +68,39 @@ public abstract class RacerOperation<RESULTDATA> extends AbstractToolInvocationO
 		return arguments;
 	}
 	
+	/** 
+	 * Use given daemon session to run this operation, instead of starting a new Racer process. 
+	 * If the session fails, a new process is used as a fallback.
+	 */
+	public RacerOperation<RESULTDATA> setSession(RacerSession session) {
+		this.session = session;
+		return this;
+	}
+	
 	@Override
 	public RESULTDATA executeToolOperation(IOperationMonitor om)
 			throws CommonException, OperationCancellation, OperationSoftFailure {
 		
+		if(session != null) {
+			Indexable<String> arguments = getRacerArguments();
+			if(RacerSession.canSendArguments(arguments)) {
+				String output;
+				try {
+					// Always send the buffer contents, since the daemon might have cached previous dirty contents.
+					// The request runs in the engine tool scheduler, like a new Racer process would.
+					output = opHelper.runToolRequest((taskCm) -> session.request(arguments, source, taskCm), om);
+				} catch(CommonException ce) {
+					opHelper.logStatus(ce.toStatusException(Severity.WARNING));
+					return executeToolProcess(om);
+				}
+				return parseOutput(output);
+			}
+		}
+		return executeToolProcess(om);
+	}
+	
+	protected RESULTDATA executeToolProcess(IOperationMonitor om)
+			throws CommonException, OperationCancellation, OperationSoftFailure {
 		if(useSubstituteFile()) {
 			assertNotNull(source);
 			createSubstituteFile(source);
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.ops;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.concurrency.ICancelMonitor;
+import melnorme.utilbox.concurrency.OperationCancellation;
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.misc.StringUtil;
+import melnorme.utilbox.ownership.Disposable;
+import melnorme.utilbox.process.ProcessIOEngine;
+
+/**
+ * A long-running <code>racer daemon</code> process, serving multiple requests.
+ * 
+ * This avoids starting a new Racer process for each request, which then has to load and index 
+ * the Rust sources (RUST_SRC_PATH) again. Editor buffers are sent through the daemon protocol 
+ * (substitute file "-", with the contents terminated by an EOT char), instead of temporary files.
+ * 
+ * Requests are serialized. A request waiting for a previous one can be cancelled. 
+ * If a request is cancelled, its response is discarded once available.
+ * If the daemon terminates or times out, the session becomes unusable: see {@link #isAlive()}.
+ */
+public class RacerSession implements Disposable {
+	
+	public static final String END_MARKER = "END";
+	public static final char BUFFER_TERMINATOR = '\u0004';
+	
+	public static final int DEFAULT_REQUEST_TIMEOUT_MS = 30_000;
+	protected static final int CANCEL_CHECK_PERIOD_MS = 50;
+	protected static final int STDERR_TAIL_LENGTH = 2000;
+	
+	/** Marks the end of daemon output. Compared by identity. */
+	protected static final String TERMINATED_MARKER = new String("<terminated>");
+	
+	public static ProcessBuilder createProcessBuilder(Path racerPath, Location rustSrcPath) {
+		ProcessBuilder pb = new ProcessBuilder(racerPath.toString(), "daemon");
+		pb.environment().put("RUST_SRC_PATH", rustSrcPath.toString());
+		return pb;
+	}
+	
+	/** 
+	 * @return whether given arguments can be sent in a daemon request. 
+	 * (the daemon splits the request line at whitespace, so paths with spaces can't be sent)
+	 */
+	public static boolean canSendArguments(Indexable<String> arguments) {
+		for(String argument : arguments) {
+			if(argument.isEmpty() || argument.matches(".*\\s.*")) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/* -----------------  ----------------- */
+	
+	protected final Process process;
+	protected final Writer stdin;
+	protected final LinkedBlockingQueue<String> stdoutLines = new LinkedBlockingQueue<>();
+	protected final StringBuilder stderrTail = new StringBuilder();
+	
+	/** Serializes the requests. Not a monitor, so that waiting requests can be cancelled. */
+	protected final ReentrantLock requestLock = new ReentrantLock();
+	
+	protected int requestTimeoutMs = DEFAULT_REQUEST_TIMEOUT_MS;
+	/** Requests whose response has not been read yet (because they were cancelled). Guarded by requestLock. */
+	protected int pendingResponses = 0;
+	protected volatile int completedRequests = 0;
+	protected volatile boolean disposed = false;
+	
+	public RacerSession(ProcessBuilder pb) throws CommonException {
+		try {
+			this.process = pb.start();
+		} catch(IOException e) {
+			throw new CommonException("Could not start Racer daemon: ", e);
+		}
+		this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StringUtil.UTF8));
+		
+		ProcessIOEngine ioEngine = ProcessIOEngine.getShared();
+		ioEngine.startPump(this::pumpStdout);
+		ioEngine.startPump(this::pumpStderr);
+	}
+	
+	public void setRequestTimeout(int requestTimeoutMs) {
+		this.requestTimeoutMs = requestTimeoutMs;
+	}
+	
+	public boolean isAlive() {
+		return !disposed && process.isAlive();
+	}
+	
+	/** @return the number of requests successfully completed by this session. */
+	public int getCompletedRequests() {
+		return completedRequests;
+	}
+	
+	@Override
+	public void dispose() {
+		disposed = true;
+		process.destroy();
+	}
+	
+	protected void pumpStdout() {
+		try(BufferedReader reader = 
+				new BufferedReader(new InputStreamReader(process.getInputStream(), StringUtil.UTF8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				stdoutLines.add(line);
+			}
+		} catch(IOException e) {
+			// Stream closed: same as termination
+		} finally {
+			stdoutLines.add(TERMINATED_MARKER);
+		}
+	}
+	
+	protected void pumpStderr() {
+		try(BufferedReader reader = 
+				new BufferedReader(new InputStreamReader(process.getErrorStream(), StringUtil.UTF8))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				synchronized(stderrTail) {
+					stderrTail.append(line).append("\n");
+					if(stderrTail.length() > STDERR_TAIL_LENGTH) {
+						stderrTail.delete(0, stderrTail.length() - STDERR_TAIL_LENGTH);
+					}
+				}
+			}
+		} catch(IOException e) {
+			// Stream closed
+		}
+	}
+	
+	public String getStderrTail() {
+		synchronized(stderrTail) {
+			return stderrTail.toString();
+		}
+	}
+	
+	/* ----------------- requests ----------------- */
+	
+	/**
+	 * Send a request to the daemon, and return its output (the lines before the END marker).
+	 * 
+	 * @param arguments the request arguments (the Racer command and its arguments). 
+	 * @param source contents to use for the target file (the last argument), instead of the file on disk. 
+	 * Can be null.
+	 * @throws CommonException if the daemon terminated or timed out. The session is disposed in that case.
+	 */
+	public String request(Indexable<String> arguments, String source, ICancelMonitor cm)
+			throws CommonException, OperationCancellation {
+		acquireRequestLock(cm);
+		try {
+			return doRequest(arguments, source, cm);
+		} finally {
+			requestLock.unlock();
+		}
+	}
+	
+	protected void acquireRequestLock(ICancelMonitor cm) throws OperationCancellation {
+		try {
+			while(!requestLock.tryLock(CANCEL_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS)) {
+				cm.checkCancellation();
+			}
+		} catch(InterruptedException e) {
+			throw new OperationCancellation();
+		}
+	}
+	
+	protected String doRequest(Indexable<String> arguments, String source, ICancelMonitor cm)
+			throws CommonException, OperationCancellation {
+		if(!isAlive()) {
+			throw createTerminatedException();
+		}
+		long deadline = System.currentTimeMillis() + requestTimeoutMs;
+		
+		// Discard responses of cancelled requests
+		while(pendingResponses > 0) {
+			readResponse(cm, deadline);
+			pendingResponses--;
+		}
+		
+		writeRequest(arguments, source);
+		pendingResponses++;
+		String output = readResponse(cm, deadline);
+		pendingResponses--;
+		completedRequests++;
+		return output;
+	}
+	
+	protected void writeRequest(Indexable<String> arguments, String source) throws CommonException {
+		StringBuilder request = new StringBuilder(StringUtil.collToString(arguments, " "));
+		if(source != null) {
+			request.append(" -\n");
+			request.append(source);
+			request.append(BUFFER_TERMINATOR);
+		} else {
+			request.append("\n");
+		}
+		
+		try {
+			stdin.write(request.toString());
+			stdin.flush();
+		} catch(IOException e) {
+			dispose();
+			throw new CommonException("Error writing to Racer daemon: ", e);
+		}
+	}
+	
+	protected String readResponse(ICancelMonitor cm, long deadline) throws CommonException, OperationCancellation {
+		StringBuilder output = new StringBuilder();
+		while(true) {
+			String line = pollLine(cm, deadline);
+			if(line.equals(END_MARKER)) {
+				return output.toString();
+			}
+			output.append(line).append("\n");
+		}
+	}
+	
+	protected String pollLine(ICancelMonitor cm, long deadline) throws CommonException, OperationCancellation {
+		while(true) {
+			cm.checkCancellation();
+			
+			long remaining = deadline - System.currentTimeMillis();
+			if(remaining <= 0) {
+				dispose();
+				throw new CommonException("Timeout waiting for Racer daemon response.");
+			}
+			
+			String line;
+			try {
+				line = stdoutLines.poll(Math.min(remaining, CANCEL_CHECK_PERIOD_MS), TimeUnit.MILLISECONDS);
+			} catch(InterruptedException e) {
+				throw new OperationCancellation();
+			}
+			
+			if(line == TERMINATED_MARKER) {
+				stdoutLines.add(TERMINATED_MARKER);
+				dispose();
+				throw createTerminatedException();
+			}
+			if(line != null) {
+				return line;
+			}
+		}
+	}
+	
+	protected CommonException createTerminatedException() {
+		String stderr = getStderrTail().trim();
+		return new CommonException("Racer daemon has terminated." + (stderr.isEmpty() ? "" : "\n" + stderr));
+	}
+	
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Bruno Medeiros and other Contributors.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Bruno Medeiros - initial API and implementation
+ *******************************************************************************/
+package com.github.rustdt.tooling.ops;
+
+import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import melnorme.utilbox.core.CommonException;
+import melnorme.utilbox.misc.Location;
+import melnorme.utilbox.ownership.Disposable;
+
+/**
+ * Keeps a {@link RacerSession} per key (usually a project).
+ * 
+ * Sessions are restarted if they terminate, or if the Racer executable or the Rust source path changes. 
+ * If sessions for a given configuration keep failing before completing any request 
+ * (for example, a Racer version without daemon mode), no more sessions are started for that configuration.
+ */
+public class RacerSessionManager implements Disposable {
+	
+	public static final int MAX_STARTUP_FAILURES = 3;
+	
+	protected final HashMap<Object, SessionEntry> sessions = new HashMap<>();
+	protected boolean disposed = false;
+	
+	public RacerSessionManager() {
+	}
+	
+	protected static class SessionEntry {
+		
+		protected final String configuration;
+		protected RacerSession session;
+		protected int startupFailures = 0;
+		
+		public SessionEntry(String configuration) {
+			this.configuration = assertNotNull(configuration);
+		}
+		
+	}
+	
+	/**
+	 * @return the session for given key, starting a new one if needed. 
+	 * null if sessions are not available for given configuration.
+	 */
+	public synchronized RacerSession getSession(Object key, Path racerPath, Location rustSrcPath) {
+		if(disposed) {
+			return null;
+		}
+		String configuration = getConfiguration(racerPath, rustSrcPath);
+		
+		SessionEntry entry = sessions.get(key);
+		if(entry == null || !entry.configuration.equals(configuration)) {
+			disposeSession(entry);
+			entry = new SessionEntry(configuration);
+			sessions.put(key, entry);
+		}
+		
+		if(entry.session != null && !entry.session.isAlive()) {
+			if(entry.session.getCompletedRequests() == 0) {
+				entry.startupFailures++;
+			} else {
+				entry.startupFailures = 0;
+			}
+			entry.session = null;
+		}
+		
+		if(entry.session == null && entry.startupFailures < MAX_STARTUP_FAILURES) {
+			try {
+				entry.session = createSession(racerPath, rustSrcPath);
+			} catch(CommonException e) {
+				entry.startupFailures++;
+			}
+		}
+		return entry.session;
+	}
+	
+	/** 
+	 * @return a string identifying the session configuration. The executable's modification time is included,
+	 * so that sessions are restarted when Racer is updated in place.
+	 */
+	protected String getConfiguration(Path racerPath, Location rustSrcPath) {
+		return racerPath + "|" + racerPath.toFile().lastModified() + "|" + rustSrcPath;
+	}
+	
+	protected RacerSession createSession(Path racerPath, Location rustSrcPath) throws CommonException {
+		return new RacerSession(RacerSession.createProcessBuilder(racerPath, rustSrcPath));
+	}
+	
+	public synchronized void disposeSession(Object key) {
+		disposeSession(sessions.remove(key));
+	}
+	
+	protected static void disposeSession(SessionEntry entry) {
+		if(entry != null && entry.session != null) {
+			entry.session.dispose();
+			entry.session = null;
+		}
+	}
+	
+	@Override
+	public synchronized void dispose() {
+		disposed = true;
+		for(SessionEntry entry : sessions.values()) {
+			disposeSession(entry);
+		}
+		sessions.clear();
+	}
+	
+}
@@ -19,7 +19,9 @@ import melnorme.lang.tooling.toolchain.ops.AbstractToolOperation;
 import melnorme.lang.tooling.toolchain.ops.IToolOperationService;
 import melnorme.lang.tooling.toolchain.ops.OperationSoftFailure;
 import melnorme.lang.tooling.toolchain.ops.SourceOpContext;
+import melnorme.lang.utils.TextDiffer.LineRange;
 import melnorme.utilbox.collections.ArrayList2;
+import melnorme.utilbox.collections.Indexable;
 import melnorme.utilbox.concurrency.OperationCancellation;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.process.ExternalProcessHelper.ExternalProcessResult;
@@ -29,21 +31,40 @@ public class RustFmtOperation implements AbstractToolOperation<String> {
 	protected final SourceOpContext sourceOpContext;
 	protected final IToolOperationService toolOpService;
 	protected final Path rustFmt;
+	protected final Indexable<LineRange> lineRanges;
 	
 	public RustFmtOperation(SourceOpContext sourceOpContext, IToolOperationService toolOpService, Path rustFmt) {
+		this(sourceOpContext, toolOpService, rustFmt, null);
+	}
+	
+	/**
+	 * @param lineRanges if non-null, format only the given (0-based) line ranges of the source.
+	 * If empty, there is nothing to format, and the source is returned unchanged without running rustfmt.
+	 */
+	public RustFmtOperation(SourceOpContext sourceOpContext, IToolOperationService toolOpService, Path rustFmt,
+			Indexable<LineRange> lineRanges) {
 		this.sourceOpContext = assertNotNull(sourceOpContext);
 		this.toolOpService = assertNotNull(toolOpService);
 		this.rustFmt = assertNotNull(rustFmt);
+		this.lineRanges = lineRanges;
 	}
 	
 	@Override
 	public String executeToolOperation(IOperationMonitor om) 
 			throws CommonException, OperationCancellation, OperationSoftFailure {
 	
+		if(lineRanges != null && lineRanges.isEmpty()) {
+			return sourceOpContext.getSource();
+		}
+		
 		ArrayList2<String> cmdLine = ArrayList2.create(rustFmt.toString());
 		
 //		cmdLine.add("--write-mode=diff");
 		cmdLine.add("--skip-children");
+		if(lineRanges != null) {
+			cmdLine.add("--file-lines");
+			cmdLine.add(getFileLinesArgument(lineRanges));
+		}
 		
 		ProcessBuilder pb = new ProcessBuilder(cmdLine);
 		// set directory, workaround for bug: https://github.com/rust-lang-nursery/rustfmt/issues/562
@@ -55,6 +76,20 @@ public class RustFmtOperation implements AbstractToolOperation<String> {
 		return handleResult(toolOpService.runProcess(pb, input, om));
 	}
 	
+	/** @return the JSON argument for rustfmt's <code>--file-lines</code> option. Lines are 1-based, inclusive. */
+	public static String getFileLinesArgument(Indexable<LineRange> lineRanges) {
+		StringBuilder sb = new StringBuilder("[");
+		for(LineRange lineRange : lineRanges) {
+			if(sb.length() > 1) {
+				sb.append(",");
+			}
+			sb.append("{\"file\":\"stdin\",\"range\":[");
+			sb.append(lineRange.startLine + 1).append(",").append(Math.max(lineRange.startLine + 1, lineRange.endLine));
+			sb.append("]}");
+		}
+		return sb.append("]").toString();
+	}
+	
 	protected String handleResult(ExternalProcessResult result) throws CommonException, OperationSoftFailure {
 		int exitValue = result.exitValue;
 		
@@ -20,14 +20,11 @@ import melnorme.lang.tooling.ElementAttributes;
 import melnorme.lang.tooling.ast.ParserErrorTypes;
 import melnorme.lang.tooling.ast.SourceRange;
 import melnorme.lang.tooling.common.ParserError;
-import melnorme.lang.tooling.parser.TextBlocksReader;
-import melnorme.lang.tooling.parser.TextBlocksReader.BlockVisitorX;
-import melnorme.lang.tooling.parser.TextBlocksReader.TextBlocksSubReader;
+import melnorme.lang.tooling.parser.TextBlocksTokenizer;
 import melnorme.lang.tooling.structure.AbstractStructureParser;
 import melnorme.lang.tooling.structure.SourceFileStructure;
 import melnorme.lang.tooling.structure.StructureElement;
 import melnorme.lang.tooling.structure.StructureElementKind;
-import melnorme.lang.utils.parse.StringCharSource;
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.core.CommonException;
 import melnorme.utilbox.misc.Location;
@@ -52,25 +49,26 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 	
 	@Override
 	public SourceFileStructure parse(String describeOutput) throws CommonException {
-		TextBlocksReader reader = new TextBlocksReader(new StringCharSource(describeOutput));
+		TextBlocksTokenizer reader = new TextBlocksTokenizer(describeOutput);
 		
 		reader.expectText("RUST_PARSE_DESCRIBE");
 		
-		reader.consumeText();
+		reader.skipText();
 		
-		try(TextBlocksSubReader subReader = reader.enterBlock()) {
-			return parseSourceFileStructure_Contents(subReader);
-		}
+		reader.enterBlock();
+		SourceFileStructure structure = parseSourceFileStructure_Contents(reader);
+		reader.exitBlock();
+		return structure;
 	}
 	
-	protected SourceFileStructure parseSourceFileStructure_Contents(TextBlocksSubReader reader)
+	protected SourceFileStructure parseSourceFileStructure_Contents(TextBlocksTokenizer reader)
 			throws CommonException {
 		ArrayList2<ParserError> parserProblems;
 		
 		reader.expectText("MESSAGES");
-		try(TextBlocksSubReader subReader = reader.enterBlock()) {
-			parserProblems = parseSubElements(subReader, this::parseMessage);
-		}
+		reader.enterBlock();
+		parserProblems = parseSubElements(reader, this::parseMessage);
+		reader.exitBlock();
 		
 		ArrayList2<StructureElement> structureChildren = parseStructureElements(reader);
 		
@@ -79,21 +77,27 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 	
 	/* -----------------  ----------------- */
 	
-	protected ArrayList2<StructureElement> parseStructureElements(TextBlocksSubReader subReader) 
+	public interface ElementParser<RET> {
+		
+		public RET parseElement(TextBlocksTokenizer reader) throws CommonException;
+		
+	}
+	
+	protected ArrayList2<StructureElement> parseStructureElements(TextBlocksTokenizer reader) 
 			throws CommonException {
-		ArrayList2<StructureElement> elements = parseSubElements(subReader, this::parseStructureElement);
+		ArrayList2<StructureElement> elements = parseSubElements(reader, this::parseStructureElement);
 		
 		ArrayList2<StructureElement> reorganizedChildren = new ArrayList2<>();
 		reorganizeChildren(reorganizedChildren, elements.iterator());
 		return reorganizedChildren;
 	}
 	
-	protected <RET> ArrayList2<RET> parseSubElements(TextBlocksSubReader subReader, 
-			BlockVisitorX<RET, CommonException> elementParser) throws CommonException {
+	protected <RET> ArrayList2<RET> parseSubElements(TextBlocksTokenizer reader, 
+			ElementParser<RET> elementParser) throws CommonException {
 		ArrayList2<RET> children = new ArrayList2<>();
 		
-		while(!subReader.aheadIsEnd()) {
-			RET element = elementParser.consumeChildren(subReader);
+		while(!reader.aheadIsEnd()) {
+			RET element = elementParser.parseElement(reader);
 			children.add(element);
 		}
 		
@@ -133,14 +137,14 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 		}
 	}
 	
-	public ParserError parseMessage(TextBlocksSubReader topReader) throws CommonException {
-		try(TextBlocksSubReader reader = topReader.enterBlock()) {
-			String messageSeverity = reader.consumeText();
-			Severity severity = parseSeverity(messageSeverity);
-			SourceRange sourceRange  = parseSourceRange(reader);
-			String messageText = reader.consumeText();
-			return new ParserError(ParserErrorTypes.GENERIC_ERROR, severity, sourceRange, messageText, null);
-		}
+	public ParserError parseMessage(TextBlocksTokenizer reader) throws CommonException {
+		reader.enterBlock();
+		String messageSeverity = reader.consumeText();
+		Severity severity = parseSeverity(messageSeverity);
+		SourceRange sourceRange  = parseSourceRange(reader);
+		String messageText = reader.consumeText();
+		reader.exitBlock();
+		return new ParserError(ParserErrorTypes.GENERIC_ERROR, severity, sourceRange, messageText, null);
 	}
 	
 	public Severity parseSeverity(String severity) throws CommonException {
@@ -152,16 +156,16 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 		}
 	}
 	
-	protected StructureElement parseStructureElement(TextBlocksSubReader reader) throws CommonException {
+	protected StructureElement parseStructureElement(TextBlocksTokenizer reader) throws CommonException {
 		String item = reader.consumeText();
-		try(TextBlocksSubReader contentsReader = reader.enterBlock()) {
-			StructureElement element = consumeStructureElement(contentsReader, item);
-			assertNotNull(element);
-			return element;
-		}
+		reader.enterBlock();
+		StructureElement element = consumeStructureElement(reader, item);
+		assertNotNull(element);
+		reader.exitBlock();
+		return element;
 	}
 	
-	protected StructureElement consumeStructureElement(TextBlocksSubReader reader, String kind) 
+	protected StructureElement consumeStructureElement(TextBlocksTokenizer reader, String kind) 
 			throws CommonException {
 		StructureElementKind elementKind = parseElementKind(kind);
 		
@@ -186,7 +190,7 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 			elementAttributes, type, children);
 	}
 	
-	public SourceRange parseSourceRange(TextBlocksReader reader) throws CommonException {
+	public SourceRange parseSourceRange(TextBlocksTokenizer reader) throws CommonException {
 		if(reader.aheadIsEnd()) {
 			reportError("Missing source range.");
 			return SourceRange.srStartToEnd(0, 0);
@@ -196,22 +200,40 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 			return SourceRange.srStartToEnd(0, 0);
 		}
 		
-		return reader.consumeBlock((subReader) -> {
-			return parseSourceRangeContents(subReader);
-		});
+		reader.enterBlock();
+		SourceRange sourceRange = parseSourceRangeContents(reader);
+		reader.exitBlock();
+		return sourceRange;
 	}
 	
-	public SourceRange parseSourceRangeContents(TextBlocksSubReader subReader) throws CommonException {
-		if(subReader.aheadIsEnd()) {
+	public SourceRange parseSourceRangeContents(TextBlocksTokenizer reader) throws CommonException {
+		if(reader.aheadIsEnd()) {
 			return null;
 		}
-		int start = parseSourceLocation(subReader.consumeText());
-		int end = !subReader.aheadIsEnd() ?
-				parseSourceLocation(subReader.consumeText()) :
+		int start = consumeSourceLocation(reader);
+		int end = !reader.aheadIsEnd() ?
+				consumeSourceLocation(reader) :
 				start;
 		return SourceRange.srStartToEnd(start, end);
 	}
 	
+	protected int consumeSourceLocation(TextBlocksTokenizer reader) throws CommonException {
+		if(reader.aheadIsPlainText()) {
+			// Fast path for the common `@offset` form, parsed without creating a String
+			CharSequence source = reader.getSource();
+			int start = reader.getTokenStart();
+			int end = reader.getTokenEnd();
+			if(start < end && source.charAt(start) == '@') {
+				int offset = TextBlocksTokenizer.parseDigits(source, start + 1, end);
+				if(offset >= 0) {
+					reader.skipText();
+					return offset;
+				}
+			}
+		}
+		return parseSourceLocation(reader.consumeText());
+	}
+	
 	public StructureElementKind parseElementKind(String kindText) throws CommonException {
 		kindText = kindText.toUpperCase();
 		switch (kindText) {
@@ -236,23 +258,23 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 		}
 	}
 	
-	public ElementAttributes parseElementAttributes(TextBlocksSubReader reader) throws CommonException {
+	public ElementAttributes parseElementAttributes(TextBlocksTokenizer reader) throws CommonException {
+		reader.enterBlock();
 		
-		return reader.consumeBlock((subReader) -> {
-			EProtection prot = null;
-			if(reader.aheadIsText()) {
-				String protText = reader.consumeText();
-				prot = parseProt_PubPriv(protText);
-			}
-			
-			if(!subReader.aheadIsEnd()) {
-//				reportError("Unknow attribute `{0}`.", consumeText);
-				reportError("Unknown attribute.");
-				subReader.skipToEnd();
-			}
-			return new ElementAttributes(prot);
-		});
+		EProtection prot = null;
+		if(reader.aheadIsText()) {
+			String protText = reader.consumeText();
+			prot = parseProt_PubPriv(protText);
+		}
+		
+		if(!reader.aheadIsEnd()) {
+//			reportError("Unknow attribute `{0}`.", consumeText);
+			reportError("Unknown attribute.");
+			reader.skipToEnd();
+		}
 		
+		reader.exitBlock();
+		return new ElementAttributes(prot);
 	}
 	
 	public EProtection parseProt_PubPriv(String consumeText) throws CommonException {
@@ -272,18 +294,17 @@ public class RustParseDescribeParser extends AbstractStructureParser {
 	
 	/* -----------------  ----------------- */
 	
-	public String parseElementType(TextBlocksSubReader reader) throws CommonException {
+	public String parseElementType(TextBlocksTokenizer reader) throws CommonException {
 		if(reader.aheadIsText()) {
 			String type = reader.consumeText();
 			return StringUtil.emptyAsNull(type);
 		}
 		if(reader.aheadIsBlockStart()) {
-			reader.consumeBlock((subReader) -> {
-				if(!subReader.aheadIsEnd()) {
-					reportError("Unknown element type.");
-				}
-				return null;
-			});
+			reader.enterBlock();
+			if(!reader.aheadIsEnd()) {
+				reportError("Unknown element type.");
+			}
+			reader.exitBlock();
 			return null;
 		}
 		reportError("Expected element type, {0}.", reader.errorAtTokenStart());
@@ -35,6 +35,14 @@ public class ToolCompletionProposal extends LangToolCompletionProposal {
 			fullReplaceString, sourceSubElements);
 	}
 	
+	/** @return a copy of this proposal with given replace length (for example, for a longer typed prefix). */
+	public ToolCompletionProposal withReplaceLength(int newReplaceLength) {
+		return new ToolCompletionProposal(replaceOffset, newReplaceLength, baseReplaceString, label, 
+			kind, attributes, 
+			typeLabel, moduleName, documentation, 
+			fullReplaceString, sourceSubElements);
+	}
+	
 	@Override
 	protected boolean subclassEquals(LangToolCompletionProposal other) {
 		return true;
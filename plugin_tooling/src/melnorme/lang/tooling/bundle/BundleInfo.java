@@ -13,23 +13,50 @@ package melnorme.lang.tooling.bundle;
 import static melnorme.utilbox.core.Assert.AssertNamespace.assertNotNull;
 
 import com.github.rustdt.tooling.cargo.CargoManifest;
+import com.github.rustdt.tooling.cargo.CargoTargetsIndex;
 
 import melnorme.utilbox.collections.ArrayList2;
 import melnorme.utilbox.collections.Indexable;
+import melnorme.utilbox.misc.Location;
 
 public class BundleInfo extends AbstractBundleInfo {
 	
 	protected final CargoManifest manifest;
+	protected final CargoTargetsIndex targetsIndex;
 	
 	public BundleInfo(CargoManifest manifest) {
+		this(manifest, null);
+	}
+	
+	/** @param crateLocation if not null, the location of the crate, for which the effective targets are cached. */
+	public BundleInfo(CargoManifest manifest, Location crateLocation) {
 		super(manifest.getName());
 		this.manifest = assertNotNull(manifest);
+		this.targetsIndex = crateLocation == null ? null : new CargoTargetsIndex(manifest, crateLocation);
 	}
 	
 	public CargoManifest getManifest() {
 		return manifest;
 	}
 	
+	/** 
+	 * @return the effective targets of the crate at given location. 
+	 * These are cached if given location is the location this bundle was created with. 
+	 */
+	public CargoTargetsIndex getTargetsIndex(Location crateLocation) {
+		if(targetsIndex != null && targetsIndex.getCrateLocation().equals(crateLocation)) {
+			return targetsIndex;
+		}
+		return new CargoTargetsIndex(manifest, crateLocation);
+	}
+	
+	/** Invalidate the cached effective targets, due to files added or removed in the crate. */
+	public void invalidateTargets() {
+		if(targetsIndex != null) {
+			targetsIndex.invalidate();
+		}
+	}
+	
 	public String getCrateName() {
 		return getManifest().getName();
 	}
@@ -22,4 +22,8 @@ public class SourceFileStructure extends SourceFileStructure_Default {
 		super(location, children, parserProblems);
 	}
 	
+	public SourceFileStructure(SourceFileStructure previousStructure, Indexable<ParserError> parserProblems) {
+		super(previousStructure, parserProblems);
+	}
+	
 }